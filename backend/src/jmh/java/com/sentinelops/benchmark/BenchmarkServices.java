@@ -0,0 +1,127 @@
+package com.sentinelops.benchmark;
+
+import com.sentinelops.config.DockerProperties;
+import com.sentinelops.config.EncryptionProperties;
+import com.sentinelops.config.LinuxProperties;
+import com.sentinelops.config.NginxProperties;
+import com.sentinelops.config.PostgresProperties;
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.config.SshProperties;
+import com.sentinelops.model.Server;
+import com.sentinelops.repository.ServerRepository;
+import com.sentinelops.service.CpuSampler;
+import com.sentinelops.service.CredentialEncryptionService;
+import com.sentinelops.service.DockerSnapshotService;
+import com.sentinelops.service.DockerStreamService;
+import com.sentinelops.service.LinuxSnapshotService;
+import com.sentinelops.service.NginxAccessLogTailer;
+import com.sentinelops.service.NginxSnapshotService;
+import com.sentinelops.service.PostgresConnectionService;
+import com.sentinelops.service.PostgresStatementSampler;
+import com.sentinelops.service.PostgresSnapshotService;
+import com.sentinelops.service.SnapshotAggregatorService;
+import com.sentinelops.service.SshCircuitBreaker;
+import com.sentinelops.service.SshConnectionCache;
+import com.sentinelops.service.SshExecutionService;
+import com.sentinelops.service.SshExecutor;
+import com.sentinelops.service.SshSessionPool;
+import com.sentinelops.support.EmbeddedSshServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The SSH layer and collectors wired by hand (no Spring context), pointed at an
+ * {@link EmbeddedSshServer}. Servers registered with {@link #addServer} live only in memory.
+ */
+final class BenchmarkServices {
+
+    private final SshProperties sshProperties;
+    private final InMemoryServers servers = new InMemoryServers();
+    private final CredentialEncryptionService encryption = new CredentialEncryptionService(new EncryptionProperties());
+    private final SshSessionPool sessionPool;
+    private final SshExecutor executor;
+    private final SshExecutionService ssh;
+    private final SnapshotAggregatorService aggregator;
+
+    BenchmarkServices(int port, boolean pooled) {
+        this(defaultProperties(port, pooled));
+    }
+
+    BenchmarkServices(SshProperties sshProperties) {
+        this.sshProperties = sshProperties;
+        this.sessionPool = new SshSessionPool(sshProperties);
+        this.executor = new SshExecutor(sshProperties);
+        this.ssh = new SshExecutionService(sshProperties,
+                new SshConnectionCache(sshProperties, servers, encryption),
+                sessionPool, executor, new SshCircuitBreaker(sshProperties));
+        PostgresProperties postgres = new PostgresProperties();
+        postgres.setEnabled(true);
+        LinuxProperties linux = new LinuxProperties();
+        DockerProperties docker = new DockerProperties();
+        this.aggregator = new SnapshotAggregatorService(
+                new LinuxSnapshotService(ssh, linux, new CpuSampler(linux)),
+                new DockerSnapshotService(ssh, docker, new DockerStreamService(ssh, docker)),
+                new PostgresSnapshotService(ssh, postgres,
+                        new PostgresConnectionService(ssh, executor, sshProperties, postgres),
+                        new PostgresStatementSampler(postgres)),
+                new NginxSnapshotService(ssh, new NginxAccessLogTailer(new NginxProperties())),
+                new SnapshotProperties());
+    }
+
+    static SshProperties defaultProperties(int port, boolean pooled) {
+        SshProperties p = new SshProperties();
+        p.setHost("127.0.0.1");
+        p.setPort(port);
+        p.setUsername(EmbeddedSshServer.USERNAME);
+        p.setPassword(EmbeddedSshServer.PASSWORD);
+        p.setSessionPoolEnabled(pooled);
+        return p;
+    }
+
+    /** Register a server reachable at host:port with the embedded server's credentials; returns its id. */
+    String addServer(String name, String host, int port) {
+        Server s = new Server();
+        s.setId(name);
+        s.setName(name);
+        s.setHost(host);
+        s.setPort(port);
+        s.setUsername(EmbeddedSshServer.USERNAME);
+        s.setAuthType(Server.AuthType.PASSWORD);
+        s.setEncryptedCredential(encryption.encrypt(EmbeddedSshServer.PASSWORD));
+        servers.put(s);
+        return s.getId();
+    }
+
+    SshProperties properties() { return sshProperties; }
+    SshExecutionService ssh() { return ssh; }
+    SshExecutor executor() { return executor; }
+    SnapshotAggregatorService aggregator() { return aggregator; }
+
+    void close() {
+        sessionPool.shutdown();
+        executor.shutdown();
+    }
+
+    /** ServerRepository that never touches data/servers.json. */
+    private static final class InMemoryServers extends ServerRepository {
+        private final Map<String, Server> byId = new ConcurrentHashMap<>();
+
+        void put(Server s) {
+            byId.put(s.getId(), s);
+        }
+
+        @Override
+        public List<Server> findAll() {
+            return new ArrayList<>(byId.values());
+        }
+
+        @Override
+        public Optional<Server> findById(String id) {
+            return Optional.ofNullable(id != null ? byId.get(id) : null);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.sentinelops.benchmark;
+
+import com.sentinelops.config.SshProperties;
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import com.sentinelops.service.SshExecutionService.SshCommandResult;
+import com.sentinelops.service.SshExecutor;
+import com.sentinelops.support.EmbeddedSshServer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load driver: one embedded SSH server presented as N hosts (127.0.x.y loopback addresses, each a
+ * stored server with its own pool, executor lane and circuit), all driven at once.
+ * <p>
+ * {@code -mode exec} fires {@code -operations} single commands spread round-robin over the hosts;
+ * {@code -mode snapshot} runs that many full snapshot captures. Latency is measured from
+ * submission, so it includes time queued behind the executor limits.
+ * <pre>
+ * -hosts 20 -operations 1000 -mode exec|snapshot -command uptime
+ * -auth-latency-ms 0 -command-latency-ms 0 -pooled true -max-in-flight 256 -max-per-host 16
+ * </pre>
+ */
+public final class FleetLoadDriver {
+
+    private FleetLoadDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        int hosts = Integer.parseInt(opts.getOrDefault("hosts", "20"));
+        int operations = Integer.parseInt(opts.getOrDefault("operations", "1000"));
+        String mode = opts.getOrDefault("mode", "exec");
+        String command = opts.getOrDefault("command", "uptime");
+
+        try (EmbeddedSshServer server = EmbeddedSshServer.builder()
+                .typicalHost()
+                .authLatencyMs(Long.parseLong(opts.getOrDefault("auth-latency-ms", "0")))
+                .commandLatencyMs(Long.parseLong(opts.getOrDefault("command-latency-ms", "0")))
+                .start()) {
+            SshProperties props = BenchmarkServices.defaultProperties(server.getPort(),
+                    Boolean.parseBoolean(opts.getOrDefault("pooled", "true")));
+            props.setExecutorMaxInFlight(Integer.parseInt(opts.getOrDefault("max-in-flight", "256")));
+            props.setExecutorMaxPerHost(Integer.parseInt(opts.getOrDefault("max-per-host", "16")));
+            props.setExecutorMaxQueued(Math.max(props.getExecutorMaxQueued(), operations * 8));
+            BenchmarkServices services = new BenchmarkServices(props);
+            try {
+                List<String> ids = new ArrayList<>(hosts);
+                for (int i = 0; i < hosts; i++) {
+                    ids.add(services.addServer("host-" + i, loopbackAddress(i), server.getPort()));
+                }
+                System.out.printf("%d hosts, %d %s operations, pooled=%s, max-in-flight=%d, max-per-host=%d%n",
+                        hosts, operations, mode, props.isSessionPoolEnabled(),
+                        props.getExecutorMaxInFlight(), props.getExecutorMaxPerHost());
+                run(services, ids, operations, mode, command);
+            } finally {
+                services.close();
+            }
+        }
+    }
+
+    private static void run(BenchmarkServices services, List<String> ids, int operations, String mode, String command) {
+        long[] latencies = new long[operations];
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture<?>[] all = new CompletableFuture<?>[operations];
+        long started = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            String id = ids.get(i % ids.size());
+            int slot = i;
+            long submitted = System.nanoTime();
+            CompletableFuture<Boolean> op = "snapshot".equals(mode)
+                    ? CompletableFuture.supplyAsync(() -> succeeded(services.aggregator().capture(id)), services.executor())
+                    : services.ssh().executeAsync(id, command).thenApply(SshCommandResult::isSuccess);
+            all[i] = op.handle((ok, e) -> {
+                latencies[slot] = System.nanoTime() - submitted;
+                if (e != null || !Boolean.TRUE.equals(ok)) failures.incrementAndGet();
+                return null;
+            });
+        }
+        CompletableFuture.allOf(all).join();
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        SshExecutor.Stats stats = services.executor().getStats();
+        System.out.printf("elapsed %.0f ms, %.1f ops/s, failures %d%n",
+                elapsed / 1e6, operations / (elapsed / 1e9), failures.get());
+        System.out.printf("latency ms: p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies[latencies.length - 1] / 1e6);
+        System.out.printf("executor: virtualThreads=%s, submitted %d, rejected %d, queue avg %.1f ms, max %.1f ms%n",
+                stats.isVirtualThreads(), stats.getSubmitted(), stats.getRejected(),
+                stats.getAvgQueueMs(), stats.getMaxQueueMs());
+    }
+
+    private static boolean succeeded(SystemSnapshot snapshot) {
+        return snapshot.getLinux().getError() == null && snapshot.getDocker().getError() == null;
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /** 127.0.1.1, 127.0.1.2, ...: distinct hosts for the client, all the same loopback server. */
+    private static String loopbackAddress(int i) {
+        return "127.0." + (1 + i / 250) + "." + (1 + i % 250);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("-")) throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            opts.put(args[i].substring(1), args[i + 1]);
+        }
+        return opts;
+    }
+}
@@ -0,0 +1,109 @@
+package com.sentinelops.benchmark;
+
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import com.sentinelops.service.SshExecutionService.SshCommandResult;
+import com.sentinelops.support.EmbeddedSshServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one operation against the embedded SSH server:
+ * <ul>
+ *   <li>{@code connectAndExec}: new session per command (session pool disabled)</li>
+ *   <li>{@code pooledExec}: one command on a pooled session</li>
+ *   <li>{@code sequentialExec} / {@code batchedExec}: the Linux collector's four commands as four
+ *       channels vs one batched script</li>
+ *   <li>{@code snapshotCapture}: the full {@code SnapshotAggregatorService.capture} path</li>
+ * </ul>
+ * {@code authLatencyMs} and {@code commandLatencyMs} stand in for network and remote start-up time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+public class SshBenchmarks {
+
+    private static final List<String> LINUX_COMMANDS = List.of(
+            "df -h", "free -m", "uptime", "LC_ALL=C top -bn1 | grep 'Cpu(s)'");
+
+    @Param({"0", "20"})
+    public long authLatencyMs;
+
+    @Param({"0", "5"})
+    public long commandLatencyMs;
+
+    private EmbeddedSshServer server;
+    private BenchmarkServices unpooled;
+    private BenchmarkServices pooled;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        server = EmbeddedSshServer.builder()
+                .typicalHost()
+                .authLatencyMs(authLatencyMs)
+                .commandLatencyMs(commandLatencyMs)
+                .start();
+        unpooled = new BenchmarkServices(server.getPort(), false);
+        pooled = new BenchmarkServices(server.getPort(), true);
+
+        SystemSnapshot check = pooled.aggregator().capture();
+        if (check.getLinux().getError() != null || check.getDocker().getError() != null) {
+            throw new IllegalStateException("Embedded SSH server not usable: " + check.getLinux().getError()
+                    + " / " + check.getDocker().getError());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws Exception {
+        unpooled.close();
+        pooled.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Optional<SshCommandResult> connectAndExec() {
+        return unpooled.ssh().execute("uptime");
+    }
+
+    @Benchmark
+    public Optional<SshCommandResult> pooledExec() {
+        return pooled.ssh().execute("uptime");
+    }
+
+    @Benchmark
+    public List<SshCommandResult> sequentialExec() {
+        List<SshCommandResult> results = new ArrayList<>(LINUX_COMMANDS.size());
+        for (String command : LINUX_COMMANDS) {
+            pooled.ssh().execute(command).ifPresent(results::add);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<SshCommandResult> batchedExec() {
+        return pooled.ssh().executeBatch(null, LINUX_COMMANDS);
+    }
+
+    @Benchmark
+    public SystemSnapshot snapshotCapture() {
+        return pooled.aggregator().capture();
+    }
+}
@@ -0,0 +1,29 @@
+package com.sentinelops.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "docker")
+public class DockerProperties {
+
+    /**
+     * API: Docker Engine API through curl --unix-socket (JSON, no sampling delay).
+     * CLI: docker ps / docker stats --no-stream / docker inspect.
+     */
+    public enum Collector { API, CLI }
+
+    private Collector collector = Collector.API;
+    private String socketPath = "/var/run/docker.sock";
+    private boolean streaming = true;
+    private long streamIdleMs = 600_000;
+
+    public Collector getCollector() { return collector; }
+    public void setCollector(Collector collector) { this.collector = collector; }
+    public String getSocketPath() { return socketPath; }
+    public void setSocketPath(String socketPath) { this.socketPath = socketPath; }
+    public boolean isStreaming() { return streaming; }
+    public void setStreaming(boolean streaming) { this.streaming = streaming; }
+    public long getStreamIdleMs() { return streamIdleMs; }
+    public void setStreamIdleMs(long streamIdleMs) { this.streamIdleMs = streamIdleMs; }
+}
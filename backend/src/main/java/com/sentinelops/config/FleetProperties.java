@@ -0,0 +1,23 @@
+package com.sentinelops.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "fleet")
+public class FleetProperties {
+
+    private int defaultConcurrency = 64;
+    private int maxConcurrency = 512;
+    private long defaultTimeoutMs = 30_000;
+    private long maxTimeoutMs = 600_000;
+
+    public int getDefaultConcurrency() { return defaultConcurrency; }
+    public void setDefaultConcurrency(int defaultConcurrency) { this.defaultConcurrency = defaultConcurrency; }
+    public int getMaxConcurrency() { return maxConcurrency; }
+    public void setMaxConcurrency(int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+    public long getDefaultTimeoutMs() { return defaultTimeoutMs; }
+    public void setDefaultTimeoutMs(long defaultTimeoutMs) { this.defaultTimeoutMs = defaultTimeoutMs; }
+    public long getMaxTimeoutMs() { return maxTimeoutMs; }
+    public void setMaxTimeoutMs(long maxTimeoutMs) { this.maxTimeoutMs = maxTimeoutMs; }
+}
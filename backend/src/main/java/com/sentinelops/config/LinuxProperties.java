@@ -0,0 +1,28 @@
+package com.sentinelops.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "linux")
+public class LinuxProperties {
+
+    /**
+     * PROC: read /proc and df -B1 -P (exact byte values, no locale-dependent output).
+     * SHELL: df -h, free -m, uptime (for hosts without /proc).
+     */
+    public enum Collector { PROC, SHELL }
+
+    private Collector collector = Collector.PROC;
+    /** CPU usage is measured since the host's previous snapshot, unless that reading is older than this. */
+    private long cpuSampleMaxAgeMs = 300_000;
+    /** Without a usable previous reading, /proc/stat is read twice this far apart. */
+    private long cpuBaselineMs = 500;
+
+    public Collector getCollector() { return collector; }
+    public void setCollector(Collector collector) { this.collector = collector; }
+    public long getCpuSampleMaxAgeMs() { return cpuSampleMaxAgeMs; }
+    public void setCpuSampleMaxAgeMs(long cpuSampleMaxAgeMs) { this.cpuSampleMaxAgeMs = cpuSampleMaxAgeMs; }
+    public long getCpuBaselineMs() { return cpuBaselineMs; }
+    public void setCpuBaselineMs(long cpuBaselineMs) { this.cpuBaselineMs = cpuBaselineMs; }
+}
@@ -0,0 +1,41 @@
+package com.sentinelops.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "nginx")
+public class NginxProperties {
+
+    private String accessLog = "/var/log/nginx/access.log";
+    /** The log_format of the access log (Nginx syntax); blank for the built-in combined format. */
+    private String logFormat = "";
+    /** Most bytes read from the log per collection; a larger backlog is skipped to its newest part. */
+    private int maxReadBytes = 512 * 1024;
+    /** The first collection of a server starts this far before the end of the log. */
+    private int backfillBytes = 256 * 1024;
+    /** Per-minute status counters kept per server. */
+    private int minutesKept = 1440;
+    /** Per-minute latency histograms kept per server. */
+    private int latencyMinutesKept = 180;
+    /** URI prefixes with their own latency histograms per server; further ones count as "other". */
+    private int latencyMaxPrefixes = 32;
+    private int ussdLinesKept = 500;
+
+    public String getAccessLog() { return accessLog; }
+    public void setAccessLog(String accessLog) { this.accessLog = accessLog; }
+    public String getLogFormat() { return logFormat; }
+    public void setLogFormat(String logFormat) { this.logFormat = logFormat; }
+    public int getMaxReadBytes() { return maxReadBytes; }
+    public void setMaxReadBytes(int maxReadBytes) { this.maxReadBytes = maxReadBytes; }
+    public int getBackfillBytes() { return backfillBytes; }
+    public void setBackfillBytes(int backfillBytes) { this.backfillBytes = backfillBytes; }
+    public int getMinutesKept() { return minutesKept; }
+    public void setMinutesKept(int minutesKept) { this.minutesKept = minutesKept; }
+    public int getLatencyMinutesKept() { return latencyMinutesKept; }
+    public void setLatencyMinutesKept(int latencyMinutesKept) { this.latencyMinutesKept = latencyMinutesKept; }
+    public int getLatencyMaxPrefixes() { return latencyMaxPrefixes; }
+    public void setLatencyMaxPrefixes(int latencyMaxPrefixes) { this.latencyMaxPrefixes = latencyMaxPrefixes; }
+    public int getUssdLinesKept() { return ussdLinesKept; }
+    public void setUssdLinesKept(int ussdLinesKept) { this.ussdLinesKept = ussdLinesKept; }
+}
@@ -10,6 +10,7 @@ public class OpenAiProperties {
     private String apiKey;
     private String model = "gpt-4o-mini";
     private String baseUrl = "https://api.openai.com";
+    private int maxConcurrentRequests = 16;
 
     public String getApiKey() { return apiKey; }
     public void setApiKey(String apiKey) { this.apiKey = apiKey; }
@@ -17,4 +18,6 @@ public class OpenAiProperties {
     public void setModel(String model) { this.model = model; }
     public String getBaseUrl() { return baseUrl; }
     public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
+    public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
 }
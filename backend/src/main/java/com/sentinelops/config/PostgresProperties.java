@@ -7,14 +7,27 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "postgres")
 public class PostgresProperties {
 
+    /**
+     * PSQL: psql on the SSH host, one batched round trip per snapshot.
+     * JDBC: a pooled JDBC connection through an SSH local port forward (no psql needed).
+     */
+    public enum Collector { PSQL, JDBC }
+
     private boolean enabled = false;
+    private Collector collector = Collector.PSQL;
     private String host = "localhost";
     private int port = 5432;
     private String user = "postgres";
     private String database = "postgres";
+    private String password = "";
+    private int poolSize = 2;
+    private long poolIdleMs = 600_000;
+    private int topStatements = 10;
 
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public Collector getCollector() { return collector; }
+    public void setCollector(Collector collector) { this.collector = collector; }
     public String getHost() { return host; }
     public void setHost(String host) { this.host = host; }
     public int getPort() { return port; }
@@ -23,4 +36,12 @@ public class PostgresProperties {
     public void setUser(String user) { this.user = user; }
     public String getDatabase() { return database; }
     public void setDatabase(String database) { this.database = database; }
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+    public int getPoolSize() { return poolSize; }
+    public void setPoolSize(int poolSize) { this.poolSize = poolSize; }
+    public long getPoolIdleMs() { return poolIdleMs; }
+    public void setPoolIdleMs(long poolIdleMs) { this.poolIdleMs = poolIdleMs; }
+    public int getTopStatements() { return topStatements; }
+    public void setTopStatements(int topStatements) { this.topStatements = topStatements; }
 }
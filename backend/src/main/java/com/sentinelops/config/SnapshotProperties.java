@@ -0,0 +1,64 @@
+package com.sentinelops.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "snapshot")
+public class SnapshotProperties {
+
+    private long linuxTimeoutMs = 15_000;
+    private long dockerTimeoutMs = 20_000;
+    private long postgresTimeoutMs = 15_000;
+    private long nginxTimeoutMs = 15_000;
+    /** Capture every stored server in the background; GET /api/snapshot then answers from the cache. */
+    private boolean collectionEnabled = true;
+    private long collectionIntervalMs = 30_000;
+    /** A cached snapshot older than this is still returned, but triggers a new capture. */
+    private long maxAgeMs = 60_000;
+    /** Snapshots kept in history per server, unless history-capacities has an entry for its id. */
+    private int historyCapacity = 200;
+    private Map<String, Integer> historyCapacities = new HashMap<>();
+    /** Servers with a history; the one appended to least recently is dropped for a new one. */
+    private int historyMaxServers = 1024;
+    /** Raw rows of numeric snapshot metrics are kept this long per server. */
+    private long metricsRetentionMs = 6 * 3_600_000L;
+    /** Retention of the 1-minute, 5-minute and 1-hour rollups of those metrics. */
+    private long metricsMinuteRetentionMs = 12 * 3_600_000L;
+    private long metricsFiveMinuteRetentionMs = 7 * 24 * 3_600_000L;
+    private long metricsHourRetentionMs = 30 * 24 * 3_600_000L;
+
+    public long getLinuxTimeoutMs() { return linuxTimeoutMs; }
+    public void setLinuxTimeoutMs(long linuxTimeoutMs) { this.linuxTimeoutMs = linuxTimeoutMs; }
+    public long getDockerTimeoutMs() { return dockerTimeoutMs; }
+    public void setDockerTimeoutMs(long dockerTimeoutMs) { this.dockerTimeoutMs = dockerTimeoutMs; }
+    public long getPostgresTimeoutMs() { return postgresTimeoutMs; }
+    public void setPostgresTimeoutMs(long postgresTimeoutMs) { this.postgresTimeoutMs = postgresTimeoutMs; }
+    public long getNginxTimeoutMs() { return nginxTimeoutMs; }
+    public void setNginxTimeoutMs(long nginxTimeoutMs) { this.nginxTimeoutMs = nginxTimeoutMs; }
+    public boolean isCollectionEnabled() { return collectionEnabled; }
+    public void setCollectionEnabled(boolean collectionEnabled) { this.collectionEnabled = collectionEnabled; }
+    public long getCollectionIntervalMs() { return collectionIntervalMs; }
+    public void setCollectionIntervalMs(long collectionIntervalMs) { this.collectionIntervalMs = collectionIntervalMs; }
+    public long getMaxAgeMs() { return maxAgeMs; }
+    public void setMaxAgeMs(long maxAgeMs) { this.maxAgeMs = maxAgeMs; }
+    public int getHistoryCapacity() { return historyCapacity; }
+    public void setHistoryCapacity(int historyCapacity) { this.historyCapacity = historyCapacity; }
+    public Map<String, Integer> getHistoryCapacities() { return historyCapacities; }
+    public void setHistoryCapacities(Map<String, Integer> historyCapacities) {
+        this.historyCapacities = historyCapacities != null ? historyCapacities : new HashMap<>();
+    }
+    public int getHistoryMaxServers() { return historyMaxServers; }
+    public void setHistoryMaxServers(int historyMaxServers) { this.historyMaxServers = historyMaxServers; }
+    public long getMetricsRetentionMs() { return metricsRetentionMs; }
+    public void setMetricsRetentionMs(long metricsRetentionMs) { this.metricsRetentionMs = metricsRetentionMs; }
+    public long getMetricsMinuteRetentionMs() { return metricsMinuteRetentionMs; }
+    public void setMetricsMinuteRetentionMs(long metricsMinuteRetentionMs) { this.metricsMinuteRetentionMs = metricsMinuteRetentionMs; }
+    public long getMetricsFiveMinuteRetentionMs() { return metricsFiveMinuteRetentionMs; }
+    public void setMetricsFiveMinuteRetentionMs(long metricsFiveMinuteRetentionMs) { this.metricsFiveMinuteRetentionMs = metricsFiveMinuteRetentionMs; }
+    public long getMetricsHourRetentionMs() { return metricsHourRetentionMs; }
+    public void setMetricsHourRetentionMs(long metricsHourRetentionMs) { this.metricsHourRetentionMs = metricsHourRetentionMs; }
+}
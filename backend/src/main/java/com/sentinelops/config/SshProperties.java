@@ -14,6 +14,24 @@ public class SshProperties {
     private String password;
     private int connectTimeoutMs = 10_000;
     private int commandTimeoutMs = 30_000;
+    private boolean sessionPoolEnabled = true;
+    private long sessionMaxIdleMs = 300_000;
+    private int maxChannelsPerSession = 8;
+    private int keepAliveIntervalMs = 15_000;
+    private int maxOutputBytes = 1024 * 1024;
+    private boolean executorVirtualThreads = true;
+    private int executorMaxInFlight = 256;
+    private int executorMaxPerHost = 16;
+    private int executorMaxQueued = 4096;
+    private int executorMaxThreads = 64;
+    private long connectionCacheTtlMs = 300_000;
+    private int connectionCacheMaxEntries = 1024;
+    private boolean breakerEnabled = true;
+    private int breakerWindowSize = 10;
+    private int breakerMinimumCalls = 3;
+    private int breakerFailureRatePercent = 50;
+    private long breakerOpenMs = 5_000;
+    private long breakerMaxOpenMs = 300_000;
 
     public String getHost() { return host; }
     public void setHost(String host) { this.host = host; }
@@ -29,4 +47,40 @@ public class SshProperties {
     public void setConnectTimeoutMs(int connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
     public int getCommandTimeoutMs() { return commandTimeoutMs; }
     public void setCommandTimeoutMs(int commandTimeoutMs) { this.commandTimeoutMs = commandTimeoutMs; }
+    public boolean isSessionPoolEnabled() { return sessionPoolEnabled; }
+    public void setSessionPoolEnabled(boolean sessionPoolEnabled) { this.sessionPoolEnabled = sessionPoolEnabled; }
+    public long getSessionMaxIdleMs() { return sessionMaxIdleMs; }
+    public void setSessionMaxIdleMs(long sessionMaxIdleMs) { this.sessionMaxIdleMs = sessionMaxIdleMs; }
+    public int getMaxChannelsPerSession() { return maxChannelsPerSession; }
+    public void setMaxChannelsPerSession(int maxChannelsPerSession) { this.maxChannelsPerSession = maxChannelsPerSession; }
+    public int getKeepAliveIntervalMs() { return keepAliveIntervalMs; }
+    public void setKeepAliveIntervalMs(int keepAliveIntervalMs) { this.keepAliveIntervalMs = keepAliveIntervalMs; }
+    public int getMaxOutputBytes() { return maxOutputBytes; }
+    public void setMaxOutputBytes(int maxOutputBytes) { this.maxOutputBytes = maxOutputBytes; }
+    public boolean isExecutorVirtualThreads() { return executorVirtualThreads; }
+    public void setExecutorVirtualThreads(boolean executorVirtualThreads) { this.executorVirtualThreads = executorVirtualThreads; }
+    public int getExecutorMaxInFlight() { return executorMaxInFlight; }
+    public void setExecutorMaxInFlight(int executorMaxInFlight) { this.executorMaxInFlight = executorMaxInFlight; }
+    public int getExecutorMaxPerHost() { return executorMaxPerHost; }
+    public void setExecutorMaxPerHost(int executorMaxPerHost) { this.executorMaxPerHost = executorMaxPerHost; }
+    public int getExecutorMaxQueued() { return executorMaxQueued; }
+    public void setExecutorMaxQueued(int executorMaxQueued) { this.executorMaxQueued = executorMaxQueued; }
+    public int getExecutorMaxThreads() { return executorMaxThreads; }
+    public void setExecutorMaxThreads(int executorMaxThreads) { this.executorMaxThreads = executorMaxThreads; }
+    public long getConnectionCacheTtlMs() { return connectionCacheTtlMs; }
+    public void setConnectionCacheTtlMs(long connectionCacheTtlMs) { this.connectionCacheTtlMs = connectionCacheTtlMs; }
+    public int getConnectionCacheMaxEntries() { return connectionCacheMaxEntries; }
+    public void setConnectionCacheMaxEntries(int connectionCacheMaxEntries) { this.connectionCacheMaxEntries = connectionCacheMaxEntries; }
+    public boolean isBreakerEnabled() { return breakerEnabled; }
+    public void setBreakerEnabled(boolean breakerEnabled) { this.breakerEnabled = breakerEnabled; }
+    public int getBreakerWindowSize() { return breakerWindowSize; }
+    public void setBreakerWindowSize(int breakerWindowSize) { this.breakerWindowSize = breakerWindowSize; }
+    public int getBreakerMinimumCalls() { return breakerMinimumCalls; }
+    public void setBreakerMinimumCalls(int breakerMinimumCalls) { this.breakerMinimumCalls = breakerMinimumCalls; }
+    public int getBreakerFailureRatePercent() { return breakerFailureRatePercent; }
+    public void setBreakerFailureRatePercent(int breakerFailureRatePercent) { this.breakerFailureRatePercent = breakerFailureRatePercent; }
+    public long getBreakerOpenMs() { return breakerOpenMs; }
+    public void setBreakerOpenMs(long breakerOpenMs) { this.breakerOpenMs = breakerOpenMs; }
+    public long getBreakerMaxOpenMs() { return breakerMaxOpenMs; }
+    public void setBreakerMaxOpenMs(long breakerMaxOpenMs) { this.breakerMaxOpenMs = breakerMaxOpenMs; }
 }
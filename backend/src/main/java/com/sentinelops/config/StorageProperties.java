@@ -0,0 +1,30 @@
+package com.sentinelops.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+
+    /** Snapshot and command history are also written to append-only logs under data-dir. */
+    private boolean historyLogEnabled = true;
+    private String dataDir = "data";
+    /** A log segment is closed and a new one started once it reaches this size. */
+    private long segmentBytes = 64L * 1024 * 1024;
+    /** Closed segments whose newest record is older than this are deleted. */
+    private long retentionMs = 7 * 24 * 3_600_000L;
+    /** Per log; the oldest closed segments are deleted to stay below it. */
+    private long maxBytes = 2L * 1024 * 1024 * 1024;
+
+    public boolean isHistoryLogEnabled() { return historyLogEnabled; }
+    public void setHistoryLogEnabled(boolean historyLogEnabled) { this.historyLogEnabled = historyLogEnabled; }
+    public String getDataDir() { return dataDir; }
+    public void setDataDir(String dataDir) { this.dataDir = dataDir; }
+    public long getSegmentBytes() { return segmentBytes; }
+    public void setSegmentBytes(long segmentBytes) { this.segmentBytes = segmentBytes; }
+    public long getRetentionMs() { return retentionMs; }
+    public void setRetentionMs(long retentionMs) { this.retentionMs = retentionMs; }
+    public long getMaxBytes() { return maxBytes; }
+    public void setMaxBytes(long maxBytes) { this.maxBytes = maxBytes; }
+}
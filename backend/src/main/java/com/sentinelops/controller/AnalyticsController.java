@@ -2,12 +2,13 @@ package com.sentinelops.controller;
 
 import com.sentinelops.model.Anomaly;
 import com.sentinelops.model.SnapshotHistoryEntry;
-import com.sentinelops.model.snapshot.DiskUsage;
-import com.sentinelops.model.snapshot.LinuxSnapshot;
+import com.sentinelops.model.snapshot.PostgresSnapshot;
 import com.sentinelops.service.AnomalyDetectionService;
+import com.sentinelops.service.MetricsStore;
 import com.sentinelops.service.SnapshotHistoryService;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -16,54 +17,148 @@ import java.util.stream.Collectors;
 @CrossOrigin(originPatterns = "*", allowedHeaders = "*")
 public class AnalyticsController {
 
+    private static final String DISK_USE_PERCENT = "disk.usePercent:";
+
     private final SnapshotHistoryService historyService;
+    private final MetricsStore metricsStore;
     private final AnomalyDetectionService anomalyDetectionService;
 
-    public AnalyticsController(SnapshotHistoryService historyService, AnomalyDetectionService anomalyDetectionService) {
+    public AnalyticsController(SnapshotHistoryService historyService, MetricsStore metricsStore,
+                               AnomalyDetectionService anomalyDetectionService) {
         this.historyService = historyService;
+        this.metricsStore = metricsStore;
         this.anomalyDetectionService = anomalyDetectionService;
     }
 
     /**
-     * Disk usage time series per mount. For building disk growth graph.
+     * Disk usage time series per mount. For building disk growth graph. Without {@code from}, the
+     * newest {@code limit} snapshots; with it, the range up to {@code to} (default now) from the
+     * coarsest rollup that still gives {@code limit} points, with each bucket's average and max.
      */
     @GetMapping("/disk")
     public Map<String, Object> disk(
             @RequestParam(required = false) String serverId,
-            @RequestParam(defaultValue = "50") int limit) {
-        List<SnapshotHistoryEntry> entries = historyService.getHistory(serverId, limit);
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        MetricsStore.Table table = read(serverId, limit, from, to, DISK_USE_PERCENT);
+        long[] timestamps = table.getTimestamps();
         Map<String, List<Map<String, Object>>> byMount = new LinkedHashMap<>();
-        for (SnapshotHistoryEntry e : entries) {
-            if (e.getSnapshot() == null || e.getSnapshot().getLinux() == null) continue;
-            LinuxSnapshot linux = e.getSnapshot().getLinux();
-            for (DiskUsage d : linux.getDiskUsage()) {
-                String mount = d.getMountedOn() != null ? d.getMountedOn() : d.getFilesystem();
-                byMount.computeIfAbsent(mount, k -> new ArrayList<>()).add(Map.of(
-                        "timestamp", e.getTimestamp().toString(),
-                        "usePercent", parseUsePercent(d.getUsePercent())
-                ));
+        table.getColumns().forEach((name, values) -> {
+            double[] maxs = table.getMaxs().get(name);
+            List<Map<String, Object>> points = new ArrayList<>();
+            for (int i = 0; i < timestamps.length; i++) {
+                if (Double.isNaN(values[i])) continue;
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("timestamp", Instant.ofEpochMilli(timestamps[i]).toString());
+                point.put("usePercent", (int) Math.round(values[i]));
+                if (table.getStepMs() > 0) point.put("maxUsePercent", (int) maxs[i]);
+                points.add(point);
             }
-        }
-        return Map.of("byMount", byMount);
+            if (!points.isEmpty()) byMount.put(name.substring(DISK_USE_PERCENT.length()), points);
+        });
+        return Map.of("byMount", byMount, "stepMs", table.getStepMs());
     }
 
     /**
-     * Memory usage time series (used MB over time).
+     * Memory usage time series (used MB over time); {@code from}/{@code to} as for disk.
      */
     @GetMapping("/memory")
     public Map<String, Object> memory(
             @RequestParam(required = false) String serverId,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to) {
+        MetricsStore.Table table = read(serverId, limit, from, to, "mem.usedMb", "mem.totalMb");
+        long[] timestamps = table.getTimestamps();
+        double[] used = table.getColumns().get("mem.usedMb");
+        double[] usedMax = table.getMaxs().get("mem.usedMb");
+        double[] total = table.getColumns().get("mem.totalMb");
+        List<Map<String, Object>> dataPoints = new ArrayList<>();
+        for (int i = 0; used != null && total != null && i < timestamps.length; i++) {
+            if (Double.isNaN(used[i]) || Double.isNaN(total[i])) continue;
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("timestamp", Instant.ofEpochMilli(timestamps[i]).toString());
+            point.put("memUsedMb", Math.round(used[i]));
+            point.put("memTotalMb", Math.round(total[i]));
+            if (table.getStepMs() > 0) point.put("memUsedMbMax", (long) usedMax[i]);
+            dataPoints.add(point);
+        }
+        return Map.of("dataPoints", dataPoints, "stepMs", table.getStepMs());
+    }
+
+    private MetricsStore.Table read(String serverId, int limit, Instant from, Instant to, String... prefixes) {
+        if (from == null) return metricsStore.newest(serverId, limit, prefixes);
+        long toMs = to != null ? to.toEpochMilli() : System.currentTimeMillis();
+        return metricsStore.range(serverId, from.toEpochMilli(), toMs, limit, prefixes);
+    }
+
+    /**
+     * Postgres time series: bytes per database, locks per mode, lock waits and connections per
+     * state, plus each database's growth rate over the window. Without serverId, the default SSH host.
+     */
+    @GetMapping("/postgres")
+    public Map<String, Object> postgres(
+            @RequestParam(required = false) String serverId,
+            @RequestParam(defaultValue = "50") int limit) {
+        List<SnapshotHistoryEntry> entries = historyService.getServerHistory(serverId, limit);
+        List<Map<String, Object>> dataPoints = new ArrayList<>();
+        // database -> {first timestamp ms, first bytes, last timestamp ms, last bytes}
+        Map<String, long[]> span = new LinkedHashMap<>();
+        for (SnapshotHistoryEntry e : entries) {
+            if (e.getSnapshot() == null || e.getSnapshot().getPostgres() == null) continue;
+            PostgresSnapshot postgres = e.getSnapshot().getPostgres();
+            if (postgres.getError() != null) continue;
+            long at = e.getTimestamp().toEpochMilli();
+            Map<String, Long> databaseBytes = new LinkedHashMap<>();
+            for (PostgresSnapshot.DatabaseSize d : postgres.getDatabaseSizes()) {
+                if (d.getSizeBytes() == null) continue;
+                databaseBytes.put(d.getName(), d.getSizeBytes());
+                long[] s = span.computeIfAbsent(d.getName(), k -> new long[]{at, d.getSizeBytes(), at, d.getSizeBytes()});
+                s[2] = at;
+                s[3] = d.getSizeBytes();
+            }
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("timestamp", e.getTimestamp().toString());
+            point.put("activeConnections", postgres.getActiveConnections());
+            point.put("connectionsByState", postgres.getConnectionsByState() != null ? postgres.getConnectionsByState() : Map.of());
+            point.put("databaseBytes", databaseBytes);
+            point.put("locksByMode", postgres.getLocksByMode() != null ? postgres.getLocksByMode() : Map.of());
+            point.put("lockWaits", postgres.getLockWaits() != null ? postgres.getLockWaits().size() : 0);
+            dataPoints.add(point);
+        }
+        Map<String, Double> growthBytesPerHour = new LinkedHashMap<>();
+        span.forEach((name, s) -> {
+            if (s[2] > s[0]) growthBytesPerHour.put(name, (s[3] - s[1]) * 3_600_000.0 / (s[2] - s[0]));
+        });
+        return Map.of("dataPoints", dataPoints, "growthBytesPerHour", growthBytesPerHour);
+    }
+
+    /**
+     * Top pg_stat_statements entries of each snapshot interval; with queryId, that statement only
+     * (to see when its mean time changed). Without serverId, the default SSH host.
+     */
+    @GetMapping("/postgres/statements")
+    public Map<String, Object> postgresStatements(
+            @RequestParam(required = false) String serverId,
+            @RequestParam(required = false) Long queryId,
             @RequestParam(defaultValue = "50") int limit) {
-        List<SnapshotHistoryEntry> entries = historyService.getHistory(serverId, limit);
-        List<Map<String, Object>> dataPoints = entries.stream()
-                .filter(e -> e.getSnapshot() != null && e.getSnapshot().getLinux() != null && e.getSnapshot().getLinux().getMemory() != null)
-                .map(e -> Map.<String, Object>of(
-                        "timestamp", e.getTimestamp().toString(),
-                        "memUsedMb", e.getSnapshot().getLinux().getMemory().getMemUsedMb(),
-                        "memTotalMb", e.getSnapshot().getLinux().getMemory().getMemTotalMb()
-                ))
-                .collect(Collectors.toList());
-        return Map.of("dataPoints", dataPoints);
+        List<SnapshotHistoryEntry> entries = historyService.getServerHistory(serverId, limit);
+        List<Map<String, Object>> intervals = new ArrayList<>();
+        for (SnapshotHistoryEntry e : entries) {
+            if (e.getSnapshot() == null || e.getSnapshot().getPostgres() == null) continue;
+            PostgresSnapshot postgres = e.getSnapshot().getPostgres();
+            if (postgres.getTopStatements() == null) continue;
+            List<PostgresSnapshot.StatementStats> statements = postgres.getTopStatements().stream()
+                    .filter(s -> queryId == null || s.getQueryId() == queryId)
+                    .collect(Collectors.toList());
+            intervals.add(Map.of(
+                    "timestamp", e.getTimestamp().toString(),
+                    "intervalMs", postgres.getStatementsIntervalMs(),
+                    "statements", statements
+            ));
+        }
+        return Map.of("intervals", intervals);
     }
 
     /**
@@ -75,13 +170,4 @@ public class AnalyticsController {
             @RequestParam(defaultValue = "20") int lastN) {
         return anomalyDetectionService.detect(serverId, lastN);
     }
-
-    private static int parseUsePercent(String s) {
-        if (s == null) return 0;
-        try {
-            return Integer.parseInt(s.replace("%", "").trim());
-        } catch (NumberFormatException e) {
-            return 0;
-        }
-    }
 }
@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -19,15 +20,16 @@ public class ChatController {
     }
 
     @PostMapping
-    public ResponseEntity<Map<String, String>> chat(@RequestBody ChatRequest request) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> chat(@RequestBody ChatRequest request) {
         if (request.getMessage() == null || request.getMessage().isBlank()) {
-            return ResponseEntity.badRequest()
-                    .body(Map.of("response", "Message cannot be empty.", "mode", chatService.mode()));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("response", "Message cannot be empty.", "mode", chatService.mode())));
         }
         boolean withContext = request.isIncludeSystemContext();
         String serverId = request.getServerId();
-        String response = chatService.chat(request.getMessage().trim(), withContext, serverId);
-        return ResponseEntity.ok(Map.of("response", response, "mode", chatService.mode()));
+        // With system context the reply waits on a full SSH snapshot, so keep it off the request thread.
+        return chatService.chatAsync(request.getMessage().trim(), withContext, serverId)
+                .thenApply(response -> ResponseEntity.ok(Map.of("response", response, "mode", chatService.mode())));
     }
 
     @GetMapping("/mode")
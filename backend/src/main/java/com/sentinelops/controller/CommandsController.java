@@ -1,17 +1,27 @@
 package com.sentinelops.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sentinelops.model.CommandLogEntry;
 import com.sentinelops.model.CommandRiskResult;
 import com.sentinelops.model.RiskLevel;
+import com.sentinelops.model.Server;
 import com.sentinelops.service.CommandExecutionService;
 import com.sentinelops.service.CommandHistoryService;
 import com.sentinelops.service.CommandExecutionService.ExecuteResult;
+import com.sentinelops.service.FleetExecutionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/commands")
@@ -20,10 +30,15 @@ public class CommandsController {
 
     private final CommandExecutionService executionService;
     private final CommandHistoryService historyService;
+    private final FleetExecutionService fleetExecutionService;
+    private final ObjectMapper objectMapper;
 
-    public CommandsController(CommandExecutionService executionService, CommandHistoryService historyService) {
+    public CommandsController(CommandExecutionService executionService, CommandHistoryService historyService,
+                              FleetExecutionService fleetExecutionService, ObjectMapper objectMapper) {
         this.executionService = executionService;
         this.historyService = historyService;
+        this.fleetExecutionService = fleetExecutionService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/analyze")
@@ -34,15 +49,19 @@ public class CommandsController {
     }
 
     @PostMapping("/execute")
-    public ResponseEntity<?> execute(@RequestBody ExecuteRequest request) {
+    public CompletableFuture<ResponseEntity<?>> execute(@RequestBody ExecuteRequest request) {
         if (request == null || request.getCommand() == null || request.getCommand().isBlank()) {
-            return ResponseEntity.badRequest()
-                    .body(Map.of("executed", false, "rejectionReason", "Command is required."));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("executed", false, "rejectionReason", "Command is required.")));
         }
         RiskLevel confirmed = request.getConfirmedRiskLevel() != null
                 ? request.getConfirmedRiskLevel()
                 : RiskLevel.LOW;
-        Optional<ExecuteResult> result = executionService.execute(request.getCommand().trim(), confirmed, request.getServerId());
+        return executionService.executeAsync(request.getCommand().trim(), confirmed, request.getServerId())
+                .thenApply(this::toResponse);
+    }
+
+    private ResponseEntity<?> toResponse(Optional<ExecuteResult> result) {
         if (result.isEmpty()) {
             return ResponseEntity.badRequest()
                     .body(Map.of("executed", false, "rejectionReason", "Execution failed."));
@@ -58,7 +77,91 @@ public class CommandsController {
                 "exitCode", r.getExitCode(),
                 "stdout", r.getStdout() != null ? r.getStdout() : "",
                 "stderr", r.getStderr() != null ? r.getStderr() : "",
-                "rollbackSuggestion", r.getRollbackSuggestion() != null ? r.getRollbackSuggestion() : ""));
+                "rollbackSuggestion", r.getRollbackSuggestion() != null ? r.getRollbackSuggestion() : "",
+                "truncated", r.isTruncated()));
+    }
+
+    /**
+     * Run one command on many servers and stream a line per host as each finishes, then a final
+     * summary line with {@code "done": true}. Newline-delimited JSON by default; server-sent events
+     * ("result" and "done") when the client accepts text/event-stream.
+     */
+    @PostMapping("/fleet")
+    public ResponseEntity<ResponseBodyEmitter> fleet(@RequestBody FleetRequest request,
+                                                     @RequestHeader(value = "Accept", required = false) String accept) {
+        boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+        MediaType type = sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON;
+        if (request == null || request.getCommand() == null || request.getCommand().isBlank()) {
+            return singleLine(HttpStatus.BAD_REQUEST, type, sse,
+                    Map.of("executed", false, "rejectionReason", "Command is required."));
+        }
+        String command = request.getCommand().trim();
+        RiskLevel confirmed = request.getConfirmedRiskLevel() != null ? request.getConfirmedRiskLevel() : RiskLevel.LOW;
+        Optional<String> rejection = executionService.checkConfirmation(command, confirmed);
+        if (rejection.isPresent()) {
+            return singleLine(HttpStatus.OK, type, sse, Map.of("executed", false, "rejectionReason", rejection.get()));
+        }
+        List<Server> targets = fleetExecutionService.selectTargets(
+                request.getServerIds(), Boolean.TRUE.equals(request.getAll()), request.getNamePattern());
+        if (targets.isEmpty()) {
+            return singleLine(HttpStatus.BAD_REQUEST, type, sse,
+                    Map.of("executed", false, "rejectionReason", "No servers match the selection."));
+        }
+
+        int concurrency = fleetExecutionService.effectiveConcurrency(request.getConcurrency());
+        long timeoutMs = fleetExecutionService.effectiveTimeoutMs(request.getTimeoutMs());
+        // Hosts start in waves of `concurrency`; allow each wave its deadline plus connect time.
+        long waves = (targets.size() + concurrency - 1) / concurrency;
+        long emitterTimeout = waves * (timeoutMs + 30_000) + 30_000;
+        ResponseBodyEmitter emitter = sse ? new SseEmitter(emitterTimeout) : new ResponseBodyEmitter(emitterTimeout);
+
+        fleetExecutionService.execute(command, confirmed, targets, concurrency, timeoutMs,
+                        result -> send(emitter, sse, "result", result))
+                .whenComplete((summary, e) -> {
+                    if (e != null) {
+                        emitter.completeWithError(e);
+                        return;
+                    }
+                    Map<String, Object> done = new LinkedHashMap<>();
+                    done.put("done", true);
+                    done.put("total", summary.getTotal());
+                    done.put("succeeded", summary.getSucceeded());
+                    done.put("failed", summary.getFailed());
+                    done.put("durationMs", summary.getDurationMs());
+                    try {
+                        send(emitter, sse, "done", done);
+                        emitter.complete();
+                    } catch (RuntimeException ex) {
+                        emitter.completeWithError(ex);
+                    }
+                });
+        return ResponseEntity.ok().contentType(type).body(emitter);
+    }
+
+    /**
+     * Write one JSON value as a single line (or SSE event). Lines from different hosts may be
+     * sent concurrently, so each is serialized up front and written in one call.
+     */
+    private void send(ResponseBodyEmitter emitter, boolean sse, String event, Object value) {
+        try {
+            String json = objectMapper.writeValueAsString(value);
+            synchronized (emitter) {
+                if (sse) {
+                    ((SseEmitter) emitter).send(SseEmitter.event().name(event).data(json, MediaType.APPLICATION_JSON));
+                } else {
+                    emitter.send(json + "\n", MediaType.APPLICATION_NDJSON);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Client disconnected", e);
+        }
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> singleLine(HttpStatus status, MediaType type, boolean sse, Object value) {
+        ResponseBodyEmitter emitter = sse ? new SseEmitter() : new ResponseBodyEmitter();
+        send(emitter, sse, sse ? "done" : null, value);
+        emitter.complete();
+        return ResponseEntity.status(status).contentType(type).body(emitter);
     }
 
     @GetMapping("/history")
@@ -78,4 +181,29 @@ public class CommandsController {
         public String getServerId() { return serverId; }
         public void setServerId(String serverId) { this.serverId = serverId; }
     }
+
+    public static class FleetRequest {
+        private String command;
+        private RiskLevel confirmedRiskLevel;
+        private List<String> serverIds;
+        private Boolean all;
+        private String namePattern;
+        private Integer concurrency;
+        private Long timeoutMs;
+
+        public String getCommand() { return command; }
+        public void setCommand(String command) { this.command = command; }
+        public RiskLevel getConfirmedRiskLevel() { return confirmedRiskLevel; }
+        public void setConfirmedRiskLevel(RiskLevel confirmedRiskLevel) { this.confirmedRiskLevel = confirmedRiskLevel; }
+        public List<String> getServerIds() { return serverIds; }
+        public void setServerIds(List<String> serverIds) { this.serverIds = serverIds; }
+        public Boolean getAll() { return all; }
+        public void setAll(Boolean all) { this.all = all; }
+        public String getNamePattern() { return namePattern; }
+        public void setNamePattern(String namePattern) { this.namePattern = namePattern; }
+        public Integer getConcurrency() { return concurrency; }
+        public void setConcurrency(Integer concurrency) { this.concurrency = concurrency; }
+        public Long getTimeoutMs() { return timeoutMs; }
+        public void setTimeoutMs(Long timeoutMs) { this.timeoutMs = timeoutMs; }
+    }
 }
@@ -0,0 +1,93 @@
+package com.sentinelops.controller;
+
+import com.sentinelops.model.MetricSeries;
+import com.sentinelops.model.SnapshotPage;
+import com.sentinelops.service.MetricsStore;
+import com.sentinelops.service.SnapshotHistoryService;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/history")
+@CrossOrigin(originPatterns = "*", allowedHeaders = "*")
+public class HistoryController {
+
+    private static final int MAX_POINTS = 5000;
+
+    private final MetricsStore metricsStore;
+    private final SnapshotHistoryService historyService;
+
+    public HistoryController(MetricsStore metricsStore, SnapshotHistoryService historyService) {
+        this.metricsStore = metricsStore;
+        this.historyService = historyService;
+    }
+
+    /**
+     * Metrics from {@code from} (default: a day before {@code to}) to {@code to} (default now) in
+     * buckets of {@code step} ms, or of whatever step gives {@code points} buckets. {@code metric}
+     * selects by name prefix (e.g. {@code mem.usedMb}, {@code disk.usePercent:}; repeatable, all
+     * when absent); {@code agg} is avg, max, min or last.
+     */
+    @GetMapping("/metrics")
+    public MetricSeries metrics(
+            @RequestParam(required = false) String serverId,
+            @RequestParam(required = false) List<String> metric,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) Long step,
+            @RequestParam(defaultValue = "300") int points,
+            @RequestParam(defaultValue = "avg") String agg) {
+        MetricsStore.Aggregation aggregation;
+        try {
+            aggregation = MetricsStore.Aggregation.valueOf(agg.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("agg must be avg, max, min or last");
+        }
+        long toMs = to != null ? to.toEpochMilli() : System.currentTimeMillis();
+        long fromMs = from != null ? from.toEpochMilli() : toMs - 86_400_000L;
+        long span = Math.max(1, toMs - fromMs);
+        int boundedPoints = Math.max(1, Math.min(points, MAX_POINTS));
+        // A step finer than MAX_POINTS buckets over the range is widened.
+        long stepMs = Math.max(step != null ? step : (span + boundedPoints - 1) / boundedPoints,
+                (span + MAX_POINTS - 1) / MAX_POINTS);
+        String[] prefixes = metric != null ? metric.toArray(new String[0]) : new String[0];
+
+        MetricsStore.Buckets buckets = metricsStore.query(serverId, fromMs, toMs, stepMs, aggregation, prefixes);
+        Map<String, Double[]> series = new LinkedHashMap<>();
+        buckets.getValues().forEach((name, values) -> {
+            Double[] column = new Double[values.length];
+            for (int i = 0; i < values.length; i++) column[i] = Double.isNaN(values[i]) ? null : values[i];
+            series.put(name, column);
+        });
+        MetricSeries result = new MetricSeries();
+        result.setServerId(serverId != null ? serverId : "");
+        result.setAggregation(aggregation.name().toLowerCase(Locale.ROOT));
+        result.setStepMs(buckets.getStepMs());
+        result.setSourceStepMs(buckets.getSourceStepMs());
+        result.setTimestamps(buckets.getStarts());
+        result.setSeries(series);
+        return result;
+    }
+
+    /**
+     * Raw snapshots from {@code from} to {@code to} (both optional), oldest first, {@code limit} per
+     * page; pass the returned nextCursor as {@code cursor} for the next page.
+     */
+    @GetMapping("/snapshots")
+    public SnapshotPage snapshots(
+            @RequestParam(required = false) String serverId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return historyService.page(serverId,
+                from != null ? from.toEpochMilli() : Long.MIN_VALUE,
+                to != null ? to.toEpochMilli() : Long.MAX_VALUE,
+                cursor, Math.max(1, Math.min(limit, 200)));
+    }
+}
@@ -1,12 +1,17 @@
 package com.sentinelops.controller;
 
+import com.sentinelops.model.snapshot.NginxLatencyPoint;
+import com.sentinelops.model.snapshot.NginxMinute;
+import com.sentinelops.service.NginxAccessLogTailer;
 import com.sentinelops.service.NginxSnapshotService;
+import com.sentinelops.service.SshExecutor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/nginx")
@@ -14,23 +19,69 @@ import java.util.Map;
 public class NginxController {
 
     private final NginxSnapshotService nginxSnapshotService;
+    private final NginxAccessLogTailer accessLogTailer;
+    private final SshExecutor sshExecutor;
 
-    public NginxController(NginxSnapshotService nginxSnapshotService) {
+    public NginxController(NginxSnapshotService nginxSnapshotService, NginxAccessLogTailer accessLogTailer,
+                           SshExecutor sshExecutor) {
         this.nginxSnapshotService = nginxSnapshotService;
+        this.accessLogTailer = accessLogTailer;
+        this.sshExecutor = sshExecutor;
     }
 
-    @GetMapping("/ussd-logs")
-    public ResponseEntity<Map<String, Object>> ussdLogs(
+    /** Requests per status code and minute, as counted by the snapshots so far. */
+    @GetMapping("/status-codes")
+    public ResponseEntity<Map<String, Object>> statusCodes(
             @RequestParam(required = false) String serverId,
-            @RequestParam(defaultValue = "80") int limit) {
-        int boundedLimit = Math.max(1, Math.min(limit, 500));
-        List<String> lines = nginxSnapshotService.captureUssdLogLines(serverId, boundedLimit);
+            @RequestParam(defaultValue = "60") int minutes) {
+        int boundedMinutes = Math.max(1, Math.min(minutes, 1440));
+        List<NginxMinute> perMinute = accessLogTailer.perMinute(serverId, boundedMinutes);
+        Instant since = accessLogTailer.countingSince(serverId);
         return ResponseEntity.ok(Map.of(
                 "serverId", serverId != null ? serverId : "",
-                "limit", boundedLimit,
-                "count", lines.size(),
-                "fetchedAt", Instant.now().toString(),
-                "lines", lines
+                "countingSince", since != null ? since.toString() : "",
+                "totals", accessLogTailer.statusCounts(serverId),
+                "minutes", perMinute
         ));
     }
+
+    /**
+     * p50/p95/p99 of {@code $request_time} and {@code $upstream_response_time} per step, for one URI
+     * prefix or (without one) all requests.
+     */
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> latency(
+            @RequestParam(required = false) String serverId,
+            @RequestParam(required = false) String prefix,
+            @RequestParam(defaultValue = "60") int minutes,
+            @RequestParam(defaultValue = "1") int step) {
+        int boundedMinutes = Math.max(1, Math.min(minutes, 1440));
+        int boundedStep = Math.max(1, Math.min(step, boundedMinutes));
+        String selected = prefix != null && !prefix.isBlank() ? prefix : null;
+        List<NginxLatencyPoint> points = accessLogTailer.latency(serverId, selected, boundedMinutes, boundedStep);
+        return ResponseEntity.ok(Map.of(
+                "serverId", serverId != null ? serverId : "",
+                "prefix", selected != null ? selected : "",
+                "prefixes", accessLogTailer.latencyPrefixes(serverId),
+                "stepMinutes", boundedStep,
+                "points", points
+        ));
+    }
+
+    @GetMapping("/ussd-logs")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> ussdLogs(
+            @RequestParam(required = false) String serverId,
+            @RequestParam(defaultValue = "80") int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, 500));
+        return CompletableFuture.supplyAsync(() -> {
+            List<String> lines = nginxSnapshotService.captureUssdLogLines(serverId, boundedLimit);
+            return ResponseEntity.ok(Map.of(
+                    "serverId", serverId != null ? serverId : "",
+                    "limit", boundedLimit,
+                    "count", lines.size(),
+                    "fetchedAt", Instant.now().toString(),
+                    "lines", lines
+            ));
+        }, sshExecutor);
+    }
 }
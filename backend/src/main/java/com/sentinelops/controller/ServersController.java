@@ -3,13 +3,18 @@ package com.sentinelops.controller;
 import com.sentinelops.model.Server;
 import com.sentinelops.repository.ServerRepository;
 import com.sentinelops.service.CredentialEncryptionService;
+import com.sentinelops.service.ServerChangedEvent;
+import com.sentinelops.service.SshCircuitBreaker;
 import com.sentinelops.service.SshExecutionService;
+import com.sentinelops.service.SshExecutor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,12 +25,17 @@ public class ServersController {
     private final ServerRepository serverRepository;
     private final CredentialEncryptionService encryptionService;
     private final SshExecutionService sshExecutionService;
+    private final SshExecutor sshExecutor;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ServersController(ServerRepository serverRepository, CredentialEncryptionService encryptionService,
-                             SshExecutionService sshExecutionService) {
+                             SshExecutionService sshExecutionService, SshExecutor sshExecutor,
+                             ApplicationEventPublisher eventPublisher) {
         this.serverRepository = serverRepository;
         this.encryptionService = encryptionService;
         this.sshExecutionService = sshExecutionService;
+        this.sshExecutor = sshExecutor;
+        this.eventPublisher = eventPublisher;
     }
 
     @GetMapping
@@ -43,23 +53,30 @@ public class ServersController {
     }
 
     @GetMapping("/{id}/health")
-    public ResponseEntity<Map<String, String>> health(@PathVariable String id) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> health(@PathVariable String id) {
         Optional<Server> s = serverRepository.findById(id);
-        if (s.isEmpty()) return ResponseEntity.notFound().build();
-        var result = sshExecutionService.executeWithServer(id, "echo ok");
-        String status = result.map(r -> r.isSuccess() ? "OK" : "FAIL").orElse("FAIL");
-        if (result.isPresent() && result.get().isSuccess()) {
-            serverRepository.findById(id).ifPresent(server -> {
-                server.setHealth("OK");
-                serverRepository.save(server);
-            });
-        } else {
+        if (s.isEmpty()) return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        return sshExecutionService.executeAsync(id, "echo ok").thenApplyAsync(result -> {
+            String status = result.isSuccess() ? "OK" : "FAIL";
             serverRepository.findById(id).ifPresent(server -> {
-                server.setHealth("FAIL");
+                server.setHealth(status);
                 serverRepository.save(server);
             });
-        }
-        return ResponseEntity.ok(Map.of("health", status));
+            SshCircuitBreaker.Status circuit = sshExecutionService.circuitStatus(id);
+            return ResponseEntity.ok(Map.<String, Object>of(
+                    "health", status,
+                    "circuit", circuit.getState().name(),
+                    "failureRatePercent", circuit.getFailureRatePercent(),
+                    "retryInMs", circuit.getRetryInMs()));
+        }, sshExecutor);
+    }
+
+    /**
+     * SSH executor load: in-flight and queued commands (overall and per host) and queue wait times.
+     */
+    @GetMapping("/executor")
+    public SshExecutor.Stats executorStats() {
+        return sshExecutor.getStats();
     }
 
     @PostMapping
@@ -84,6 +101,8 @@ public class ServersController {
         Optional<Server> existing = serverRepository.findById(id);
         if (existing.isEmpty()) return ResponseEntity.notFound().build();
         Server server = existing.get();
+        String previousHost = server.getHost();
+        int previousPort = server.getPort();
         if (request.getName() != null) server.setName(request.getName());
         if (request.getHost() != null) server.setHost(request.getHost());
         if (request.getPort() > 0) server.setPort(request.getPort());
@@ -94,12 +113,16 @@ public class ServersController {
         else if (request.getPrivateKey() != null && !request.getPrivateKey().isBlank())
             server.setEncryptedCredential(encryptionService.encrypt(request.getPrivateKey()));
         Server saved = serverRepository.save(server);
+        eventPublisher.publishEvent(new ServerChangedEvent(id, previousHost, previousPort, false));
         return ResponseEntity.ok(sanitizeForApi(saved));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id) {
-        return serverRepository.deleteById(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        Optional<Server> existing = serverRepository.findById(id);
+        if (existing.isEmpty() || !serverRepository.deleteById(id)) return ResponseEntity.notFound().build();
+        eventPublisher.publishEvent(new ServerChangedEvent(id, existing.get().getHost(), existing.get().getPort(), true));
+        return ResponseEntity.noContent().build();
     }
 
     public static class ServerRequest {
@@ -1,38 +1,33 @@
 package com.sentinelops.controller;
 
-import com.sentinelops.model.snapshot.LinuxSnapshot;
 import com.sentinelops.model.snapshot.SystemSnapshot;
-import com.sentinelops.service.SnapshotAggregatorService;
-import com.sentinelops.service.SnapshotHistoryService;
+import com.sentinelops.service.SnapshotCollectionService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/snapshot")
 @CrossOrigin(originPatterns = "*", allowedHeaders = "*")
 public class SnapshotController {
 
-    private final SnapshotAggregatorService snapshotAggregatorService;
-    private final SnapshotHistoryService snapshotHistoryService;
+    private final SnapshotCollectionService snapshotCollectionService;
 
-    public SnapshotController(SnapshotAggregatorService snapshotAggregatorService,
-                              SnapshotHistoryService snapshotHistoryService) {
-        this.snapshotAggregatorService = snapshotAggregatorService;
-        this.snapshotHistoryService = snapshotHistoryService;
+    public SnapshotController(SnapshotCollectionService snapshotCollectionService) {
+        this.snapshotCollectionService = snapshotCollectionService;
     }
 
+    /**
+     * Latest snapshot from the background collection (see ageMs / stale); {@code refresh=true}
+     * waits for a new capture. 404 for a serverId that is not stored.
+     */
     @GetMapping
-    public SystemSnapshot getSnapshot(@RequestParam(required = false) String serverId) {
-        try {
-            SystemSnapshot snapshot = snapshotAggregatorService.capture(serverId);
-            snapshotHistoryService.append(serverId, snapshot);
-            return snapshot;
-        } catch (Exception e) {
-            SystemSnapshot fallback = new SystemSnapshot();
-            LinuxSnapshot linux = new LinuxSnapshot();
-            linux.setError("Snapshot failed: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName())
-                    + ". Check SSH config or select a configured server.");
-            fallback.setLinux(linux);
-            return fallback;
+    public CompletableFuture<ResponseEntity<SystemSnapshot>> getSnapshot(@RequestParam(required = false) String serverId,
+                                                                         @RequestParam(defaultValue = "false") boolean refresh) {
+        if (!snapshotCollectionService.isKnown(serverId)) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
         }
+        return snapshotCollectionService.get(serverId, refresh).thenApply(ResponseEntity::ok);
     }
 }
@@ -8,6 +8,7 @@ import java.time.Instant;
 public class CommandLogEntry {
     private String id;
     private Instant timestamp;
+    private String serverId;
     private String command;
     private RiskLevel riskLevel;
     private boolean success;
@@ -20,6 +21,8 @@ public class CommandLogEntry {
     public void setId(String id) { this.id = id; }
     public Instant getTimestamp() { return timestamp; }
     public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+    public String getServerId() { return serverId; }
+    public void setServerId(String serverId) { this.serverId = serverId; }
     public String getCommand() { return command; }
     public void setCommand(String command) { this.command = command; }
     public RiskLevel getRiskLevel() { return riskLevel; }
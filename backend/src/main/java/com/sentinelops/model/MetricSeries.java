@@ -0,0 +1,31 @@
+package com.sentinelops.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bucketed metrics as columns: bucket start times (epoch ms) and, per metric, one value per bucket
+ * (null where the bucket has none). Columns keep a 300-point chart to a few kilobytes.
+ */
+public class MetricSeries {
+    private String serverId;
+    private String aggregation;
+    private long stepMs;
+    /** Step of the stored tier the buckets were built from; 0 for raw snapshot values. */
+    private long sourceStepMs;
+    private long[] timestamps = new long[0];
+    private Map<String, Double[]> series = new LinkedHashMap<>();
+
+    public String getServerId() { return serverId; }
+    public void setServerId(String serverId) { this.serverId = serverId; }
+    public String getAggregation() { return aggregation; }
+    public void setAggregation(String aggregation) { this.aggregation = aggregation; }
+    public long getStepMs() { return stepMs; }
+    public void setStepMs(long stepMs) { this.stepMs = stepMs; }
+    public long getSourceStepMs() { return sourceStepMs; }
+    public void setSourceStepMs(long sourceStepMs) { this.sourceStepMs = sourceStepMs; }
+    public long[] getTimestamps() { return timestamps; }
+    public void setTimestamps(long[] timestamps) { this.timestamps = timestamps != null ? timestamps : new long[0]; }
+    public Map<String, Double[]> getSeries() { return series; }
+    public void setSeries(Map<String, Double[]> series) { this.series = series != null ? series : new LinkedHashMap<>(); }
+}
@@ -0,0 +1,25 @@
+package com.sentinelops.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of history entries, oldest first. Pass nextCursor back to get the next page; it is null
+ * on the last one.
+ */
+public class SnapshotPage {
+    private List<SnapshotHistoryEntry> entries = new ArrayList<>();
+    private String nextCursor;
+
+    public SnapshotPage() {}
+
+    public SnapshotPage(List<SnapshotHistoryEntry> entries, String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<SnapshotHistoryEntry> getEntries() { return entries; }
+    public void setEntries(List<SnapshotHistoryEntry> entries) { this.entries = entries != null ? entries : new ArrayList<>(); }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
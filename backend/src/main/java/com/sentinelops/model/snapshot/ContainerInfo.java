@@ -1,7 +1,7 @@
 package com.sentinelops.model.snapshot;
 
 /**
- * One container from docker ps / docker stats.
+ * One container from docker ps / docker stats, or the Engine API (which also fills the byte fields).
  */
 public class ContainerInfo {
     private String id;
@@ -14,6 +14,9 @@ public class ContainerInfo {
     private String cpuPercent;
     private String memUsage;
     private String memPercent;
+    private Long memUsageBytes;
+    private Long memLimitBytes;
+    private Integer recentDies;
 
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -35,4 +38,11 @@ public class ContainerInfo {
     public void setMemUsage(String memUsage) { this.memUsage = memUsage; }
     public String getMemPercent() { return memPercent; }
     public void setMemPercent(String memPercent) { this.memPercent = memPercent; }
+    public Long getMemUsageBytes() { return memUsageBytes; }
+    public void setMemUsageBytes(Long memUsageBytes) { this.memUsageBytes = memUsageBytes; }
+    public Long getMemLimitBytes() { return memLimitBytes; }
+    public void setMemLimitBytes(Long memLimitBytes) { this.memLimitBytes = memLimitBytes; }
+    /** die events in the last 10 minutes, from the host's event stream (null without one). */
+    public Integer getRecentDies() { return recentDies; }
+    public void setRecentDies(Integer recentDies) { this.recentDies = recentDies; }
 }
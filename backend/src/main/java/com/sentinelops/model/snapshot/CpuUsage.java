@@ -0,0 +1,40 @@
+package com.sentinelops.model.snapshot;
+
+/**
+ * Share of CPU time per state over a sampling interval, from /proc/stat jiffies ("cpu" for all
+ * CPUs together, "cpu0", "cpu1", ... per core). The states add up to 100; usagePercent is
+ * everything but idle, like 100 - id in top.
+ */
+public class CpuUsage {
+    private String name;
+    private double usagePercent;
+    private double userPercent;
+    private double nicePercent;
+    private double systemPercent;
+    private double iowaitPercent;
+    private double irqPercent;
+    private double softirqPercent;
+    private double stealPercent;
+    private double idlePercent;
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public double getUsagePercent() { return usagePercent; }
+    public void setUsagePercent(double usagePercent) { this.usagePercent = usagePercent; }
+    public double getUserPercent() { return userPercent; }
+    public void setUserPercent(double userPercent) { this.userPercent = userPercent; }
+    public double getNicePercent() { return nicePercent; }
+    public void setNicePercent(double nicePercent) { this.nicePercent = nicePercent; }
+    public double getSystemPercent() { return systemPercent; }
+    public void setSystemPercent(double systemPercent) { this.systemPercent = systemPercent; }
+    public double getIowaitPercent() { return iowaitPercent; }
+    public void setIowaitPercent(double iowaitPercent) { this.iowaitPercent = iowaitPercent; }
+    public double getIrqPercent() { return irqPercent; }
+    public void setIrqPercent(double irqPercent) { this.irqPercent = irqPercent; }
+    public double getSoftirqPercent() { return softirqPercent; }
+    public void setSoftirqPercent(double softirqPercent) { this.softirqPercent = softirqPercent; }
+    public double getStealPercent() { return stealPercent; }
+    public void setStealPercent(double stealPercent) { this.stealPercent = stealPercent; }
+    public double getIdlePercent() { return idlePercent; }
+    public void setIdlePercent(double idlePercent) { this.idlePercent = idlePercent; }
+}
@@ -1,8 +1,12 @@
 package com.sentinelops.model.snapshot;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
- * One line from df -h (filesystem, size, used, avail, use%, mount).
+ * One line from df -h (filesystem, size, used, avail, use%, mount). When collected with df -B1 -P
+ * the byte fields are set too, and the text fields hold the same values in df -h notation.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class DiskUsage {
     private String filesystem;
     private String size;
@@ -10,6 +14,9 @@ public class DiskUsage {
     private String avail;
     private String usePercent;
     private String mountedOn;
+    private Long sizeBytes;
+    private Long usedBytes;
+    private Long availBytes;
 
     public DiskUsage() {}
 
@@ -34,4 +41,10 @@ public class DiskUsage {
     public void setUsePercent(String usePercent) { this.usePercent = usePercent; }
     public String getMountedOn() { return mountedOn; }
     public void setMountedOn(String mountedOn) { this.mountedOn = mountedOn; }
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+    public Long getUsedBytes() { return usedBytes; }
+    public void setUsedBytes(Long usedBytes) { this.usedBytes = usedBytes; }
+    public Long getAvailBytes() { return availBytes; }
+    public void setAvailBytes(Long availBytes) { this.availBytes = availBytes; }
 }
@@ -0,0 +1,25 @@
+package com.sentinelops.model.snapshot;
+
+import java.time.Instant;
+
+/**
+ * A container lifecycle event from docker events (start, die, oom, restart, ...).
+ */
+public class DockerEvent {
+    private Instant time;
+    private String containerId;
+    private String name;
+    private String action;
+    private Integer exitCode;
+
+    public Instant getTime() { return time; }
+    public void setTime(Instant time) { this.time = time; }
+    public String getContainerId() { return containerId; }
+    public void setContainerId(String containerId) { this.containerId = containerId; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+    public Integer getExitCode() { return exitCode; }
+    public void setExitCode(Integer exitCode) { this.exitCode = exitCode; }
+}
@@ -5,10 +5,14 @@ import java.util.List;
 
 public class DockerSnapshot {
     private List<ContainerInfo> containers = new ArrayList<>();
+    private List<DockerEvent> recentEvents;
     private String error;
 
     public List<ContainerInfo> getContainers() { return containers; }
     public void setContainers(List<ContainerInfo> containers) { this.containers = containers != null ? containers : new ArrayList<>(); }
+    /** Latest container events, newest last; only set while the host's event stream is live. */
+    public List<DockerEvent> getRecentEvents() { return recentEvents; }
+    public void setRecentEvents(List<DockerEvent> recentEvents) { this.recentEvents = recentEvents; }
     public String getError() { return error; }
     public void setError(String error) { this.error = error; }
 }
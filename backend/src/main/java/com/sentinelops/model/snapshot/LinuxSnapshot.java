@@ -8,9 +8,14 @@ public class LinuxSnapshot {
     private MemoryInfo memory = new MemoryInfo();
     private UptimeInfo uptime = new UptimeInfo();
     private Double cpuUsagePercent;
+    private CpuUsage cpu;
+    private List<CpuUsage> cpuCores = new ArrayList<>();
+    private Long cpuSampleMs;
     private String rawDf;
     private String rawFree;
     private String rawUptime;
+    private String rawMeminfo;
+    private String rawLoadavg;
     private String rawCpu;
     private String error;
 
@@ -22,12 +27,22 @@ public class LinuxSnapshot {
     public void setUptime(UptimeInfo uptime) { this.uptime = uptime != null ? uptime : new UptimeInfo(); }
     public Double getCpuUsagePercent() { return cpuUsagePercent; }
     public void setCpuUsagePercent(Double cpuUsagePercent) { this.cpuUsagePercent = cpuUsagePercent; }
+    public CpuUsage getCpu() { return cpu; }
+    public void setCpu(CpuUsage cpu) { this.cpu = cpu; }
+    public List<CpuUsage> getCpuCores() { return cpuCores; }
+    public void setCpuCores(List<CpuUsage> cpuCores) { this.cpuCores = cpuCores != null ? cpuCores : new ArrayList<>(); }
+    public Long getCpuSampleMs() { return cpuSampleMs; }
+    public void setCpuSampleMs(Long cpuSampleMs) { this.cpuSampleMs = cpuSampleMs; }
     public String getRawDf() { return rawDf; }
     public void setRawDf(String rawDf) { this.rawDf = rawDf; }
     public String getRawFree() { return rawFree; }
     public void setRawFree(String rawFree) { this.rawFree = rawFree; }
     public String getRawUptime() { return rawUptime; }
     public void setRawUptime(String rawUptime) { this.rawUptime = rawUptime; }
+    public String getRawMeminfo() { return rawMeminfo; }
+    public void setRawMeminfo(String rawMeminfo) { this.rawMeminfo = rawMeminfo; }
+    public String getRawLoadavg() { return rawLoadavg; }
+    public void setRawLoadavg(String rawLoadavg) { this.rawLoadavg = rawLoadavg; }
     public String getRawCpu() { return rawCpu; }
     public void setRawCpu(String rawCpu) { this.rawCpu = rawCpu; }
     public String getError() { return error; }
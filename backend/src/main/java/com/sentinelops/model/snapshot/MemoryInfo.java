@@ -1,8 +1,11 @@
 package com.sentinelops.model.snapshot;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
- * Parsed from free -m (Mem and Swap).
+ * Parsed from free -m (Mem and Swap), or from /proc/meminfo, which also fills the exact byte values.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MemoryInfo {
     private long memTotalMb;
     private long memUsedMb;
@@ -11,6 +14,15 @@ public class MemoryInfo {
     private long swapTotalMb;
     private long swapUsedMb;
     private long swapFreeMb;
+    private Long memTotalBytes;
+    private Long memUsedBytes;
+    private Long memFreeBytes;
+    private Long memAvailableBytes;
+    private Long buffersBytes;
+    private Long cachedBytes;
+    private Long swapTotalBytes;
+    private Long swapUsedBytes;
+    private Long swapFreeBytes;
 
     public MemoryInfo() {}
 
@@ -28,4 +40,22 @@ public class MemoryInfo {
     public void setSwapUsedMb(long swapUsedMb) { this.swapUsedMb = swapUsedMb; }
     public long getSwapFreeMb() { return swapFreeMb; }
     public void setSwapFreeMb(long swapFreeMb) { this.swapFreeMb = swapFreeMb; }
+    public Long getMemTotalBytes() { return memTotalBytes; }
+    public void setMemTotalBytes(Long memTotalBytes) { this.memTotalBytes = memTotalBytes; }
+    public Long getMemUsedBytes() { return memUsedBytes; }
+    public void setMemUsedBytes(Long memUsedBytes) { this.memUsedBytes = memUsedBytes; }
+    public Long getMemFreeBytes() { return memFreeBytes; }
+    public void setMemFreeBytes(Long memFreeBytes) { this.memFreeBytes = memFreeBytes; }
+    public Long getMemAvailableBytes() { return memAvailableBytes; }
+    public void setMemAvailableBytes(Long memAvailableBytes) { this.memAvailableBytes = memAvailableBytes; }
+    public Long getBuffersBytes() { return buffersBytes; }
+    public void setBuffersBytes(Long buffersBytes) { this.buffersBytes = buffersBytes; }
+    public Long getCachedBytes() { return cachedBytes; }
+    public void setCachedBytes(Long cachedBytes) { this.cachedBytes = cachedBytes; }
+    public Long getSwapTotalBytes() { return swapTotalBytes; }
+    public void setSwapTotalBytes(Long swapTotalBytes) { this.swapTotalBytes = swapTotalBytes; }
+    public Long getSwapUsedBytes() { return swapUsedBytes; }
+    public void setSwapUsedBytes(Long swapUsedBytes) { this.swapUsedBytes = swapUsedBytes; }
+    public Long getSwapFreeBytes() { return swapFreeBytes; }
+    public void setSwapFreeBytes(Long swapFreeBytes) { this.swapFreeBytes = swapFreeBytes; }
 }
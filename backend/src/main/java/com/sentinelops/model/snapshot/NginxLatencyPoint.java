@@ -0,0 +1,36 @@
+package com.sentinelops.model.snapshot;
+
+import java.time.Instant;
+
+/** Request and upstream time percentiles of the requests logged in one step of a latency series. */
+public class NginxLatencyPoint {
+    private Instant minute;
+    private Percentiles request = new Percentiles();
+    private Percentiles upstream = new Percentiles();
+
+    public Instant getMinute() { return minute; }
+    public void setMinute(Instant minute) { this.minute = minute; }
+    public Percentiles getRequest() { return request; }
+    public void setRequest(Percentiles request) { this.request = request != null ? request : new Percentiles(); }
+    public Percentiles getUpstream() { return upstream; }
+    public void setUpstream(Percentiles upstream) { this.upstream = upstream != null ? upstream : new Percentiles(); }
+
+    public static class Percentiles {
+        private long count;
+        private Double p50Ms;
+        private Double p95Ms;
+        private Double p99Ms;
+        private Double maxMs;
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+        public Double getP50Ms() { return p50Ms; }
+        public void setP50Ms(Double p50Ms) { this.p50Ms = p50Ms; }
+        public Double getP95Ms() { return p95Ms; }
+        public void setP95Ms(Double p95Ms) { this.p95Ms = p95Ms; }
+        public Double getP99Ms() { return p99Ms; }
+        public void setP99Ms(Double p99Ms) { this.p99Ms = p99Ms; }
+        public Double getMaxMs() { return maxMs; }
+        public void setMaxMs(Double maxMs) { this.maxMs = maxMs; }
+    }
+}
@@ -0,0 +1,21 @@
+package com.sentinelops.model.snapshot;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Requests logged in one minute (by the log's own timestamps) per status code. */
+public class NginxMinute {
+    private Instant minute;
+    private long requests;
+    private Map<String, Long> statusCounts = new TreeMap<>();
+
+    public Instant getMinute() { return minute; }
+    public void setMinute(Instant minute) { this.minute = minute; }
+    public long getRequests() { return requests; }
+    public void setRequests(long requests) { this.requests = requests; }
+    public Map<String, Long> getStatusCounts() { return statusCounts; }
+    public void setStatusCounts(Map<String, Long> statusCounts) {
+        this.statusCounts = statusCounts != null ? statusCounts : new TreeMap<>();
+    }
+}
@@ -1,5 +1,6 @@
 package com.sentinelops.model.snapshot;
 
+import java.time.Instant;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +11,7 @@ public class NginxSnapshot {
     private boolean running;
     private String localHttpCode;
     private Map<String, Long> responseCodeCounts = new LinkedHashMap<>();
+    private Instant responseCodesSince;
     private List<String> ussdLogLines = new ArrayList<>();
     private String error;
 
@@ -23,6 +25,8 @@ public class NginxSnapshot {
     public void setResponseCodeCounts(Map<String, Long> responseCodeCounts) {
         this.responseCodeCounts = responseCodeCounts != null ? responseCodeCounts : new LinkedHashMap<>();
     }
+    public Instant getResponseCodesSince() { return responseCodesSince; }
+    public void setResponseCodesSince(Instant responseCodesSince) { this.responseCodesSince = responseCodesSince; }
     public List<String> getUssdLogLines() { return ussdLogLines; }
     public void setUssdLogLines(List<String> ussdLogLines) {
         this.ussdLogLines = ussdLogLines != null ? ussdLogLines : new ArrayList<>();
@@ -2,6 +2,7 @@ package com.sentinelops.model.snapshot;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * PostgreSQL snapshot: activity count, database sizes, slow queries, locks.
@@ -11,6 +12,11 @@ public class PostgresSnapshot {
     private List<DatabaseSize> databaseSizes = new ArrayList<>();
     private String slowQueriesSummary;
     private String locksSummary;
+    private Map<String, Long> locksByMode;
+    private List<LockWait> lockWaits;
+    private Map<String, Long> connectionsByState;
+    private List<StatementStats> topStatements;
+    private Long statementsIntervalMs;
     private String error;
 
     public int getActiveConnections() { return activeConnections; }
@@ -21,16 +27,72 @@ public class PostgresSnapshot {
     public void setSlowQueriesSummary(String slowQueriesSummary) { this.slowQueriesSummary = slowQueriesSummary; }
     public String getLocksSummary() { return locksSummary; }
     public void setLocksSummary(String locksSummary) { this.locksSummary = locksSummary; }
+    /** Locks held or awaited per mode (AccessShareLock, RowExclusiveLock, ...). */
+    public Map<String, Long> getLocksByMode() { return locksByMode; }
+    public void setLocksByMode(Map<String, Long> locksByMode) { this.locksByMode = locksByMode; }
+    /** Sessions waiting for a lock and the sessions holding it, one entry per pair. */
+    public List<LockWait> getLockWaits() { return lockWaits; }
+    public void setLockWaits(List<LockWait> lockWaits) { this.lockWaits = lockWaits; }
+    /** Client connections per state (active, idle, idle in transaction, ...), all databases. */
+    public Map<String, Long> getConnectionsByState() { return connectionsByState; }
+    public void setConnectionsByState(Map<String, Long> connectionsByState) { this.connectionsByState = connectionsByState; }
+    /** Statements with the most execution time since the previous snapshot (pg_stat_statements). */
+    public List<StatementStats> getTopStatements() { return topStatements; }
+    public void setTopStatements(List<StatementStats> topStatements) { this.topStatements = topStatements; }
+    public Long getStatementsIntervalMs() { return statementsIntervalMs; }
+    public void setStatementsIntervalMs(Long statementsIntervalMs) { this.statementsIntervalMs = statementsIntervalMs; }
     public String getError() { return error; }
     public void setError(String error) { this.error = error; }
 
     public static class DatabaseSize {
         private String name;
         private String size;
+        private Long sizeBytes;
 
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
         public String getSize() { return size; }
         public void setSize(String size) { this.size = size; }
+        public Long getSizeBytes() { return sizeBytes; }
+        public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+    }
+
+    public static class LockWait {
+        private int blockedPid;
+        private int blockingPid;
+
+        public int getBlockedPid() { return blockedPid; }
+        public void setBlockedPid(int blockedPid) { this.blockedPid = blockedPid; }
+        public int getBlockingPid() { return blockingPid; }
+        public void setBlockingPid(int blockingPid) { this.blockingPid = blockingPid; }
+    }
+
+    /** What one statement (queryid) did during the interval. */
+    public static class StatementStats {
+        private long queryId;
+        private String query;
+        private long calls;
+        private double totalTimeMs;
+        private double meanTimeMs;
+        private long rows;
+        private long sharedBlksHit;
+        private long sharedBlksRead;
+
+        public long getQueryId() { return queryId; }
+        public void setQueryId(long queryId) { this.queryId = queryId; }
+        public String getQuery() { return query; }
+        public void setQuery(String query) { this.query = query; }
+        public long getCalls() { return calls; }
+        public void setCalls(long calls) { this.calls = calls; }
+        public double getTotalTimeMs() { return totalTimeMs; }
+        public void setTotalTimeMs(double totalTimeMs) { this.totalTimeMs = totalTimeMs; }
+        public double getMeanTimeMs() { return meanTimeMs; }
+        public void setMeanTimeMs(double meanTimeMs) { this.meanTimeMs = meanTimeMs; }
+        public long getRows() { return rows; }
+        public void setRows(long rows) { this.rows = rows; }
+        public long getSharedBlksHit() { return sharedBlksHit; }
+        public void setSharedBlksHit(long sharedBlksHit) { this.sharedBlksHit = sharedBlksHit; }
+        public long getSharedBlksRead() { return sharedBlksRead; }
+        public void setSharedBlksRead(long sharedBlksRead) { this.sharedBlksRead = sharedBlksRead; }
     }
 }
@@ -3,9 +3,11 @@ package com.sentinelops.model.snapshot;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.time.Instant;
+import java.util.Map;
 
 /**
- * Full system snapshot: Linux + Docker + Postgres.
+ * Full system snapshot: Linux + Docker + Postgres + Nginx, with how long each collector took.
+ * timestamp is when it was captured; ageMs and stale are set when it is served from the cache.
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class SystemSnapshot {
@@ -14,6 +16,10 @@ public class SystemSnapshot {
     private DockerSnapshot docker;
     private PostgresSnapshot postgres;
     private NginxSnapshot nginx;
+    private Long durationMs;
+    private Map<String, Long> collectorTimingsMs;
+    private Long ageMs;
+    private Boolean stale;
 
     public Instant getTimestamp() { return timestamp; }
     public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
@@ -25,4 +31,12 @@ public class SystemSnapshot {
     public void setPostgres(PostgresSnapshot postgres) { this.postgres = postgres; }
     public NginxSnapshot getNginx() { return nginx; }
     public void setNginx(NginxSnapshot nginx) { this.nginx = nginx; }
+    public Long getDurationMs() { return durationMs; }
+    public void setDurationMs(Long durationMs) { this.durationMs = durationMs; }
+    public Map<String, Long> getCollectorTimingsMs() { return collectorTimingsMs; }
+    public void setCollectorTimingsMs(Map<String, Long> collectorTimingsMs) { this.collectorTimingsMs = collectorTimingsMs; }
+    public Long getAgeMs() { return ageMs; }
+    public void setAgeMs(Long ageMs) { this.ageMs = ageMs; }
+    public Boolean getStale() { return stale; }
+    public void setStale(Boolean stale) { this.stale = stale; }
 }
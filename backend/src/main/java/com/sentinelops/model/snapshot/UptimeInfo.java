@@ -1,13 +1,21 @@
 package com.sentinelops.model.snapshot;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
- * Parsed from uptime (load averages).
+ * Parsed from uptime (load averages), or from /proc/uptime, /proc/loadavg and /proc/stat.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class UptimeInfo {
     private String uptimeString;
     private String load1;
     private String load5;
     private String load15;
+    private Double uptimeSeconds;
+    private Long bootTimeEpochSeconds;
+    private Integer runnableTasks;
+    private Integer totalTasks;
+    private Integer cpuCount;
 
     public UptimeInfo() {}
 
@@ -26,4 +34,14 @@ public class UptimeInfo {
     public void setLoad5(String load5) { this.load5 = load5; }
     public String getLoad15() { return load15; }
     public void setLoad15(String load15) { this.load15 = load15; }
+    public Double getUptimeSeconds() { return uptimeSeconds; }
+    public void setUptimeSeconds(Double uptimeSeconds) { this.uptimeSeconds = uptimeSeconds; }
+    public Long getBootTimeEpochSeconds() { return bootTimeEpochSeconds; }
+    public void setBootTimeEpochSeconds(Long bootTimeEpochSeconds) { this.bootTimeEpochSeconds = bootTimeEpochSeconds; }
+    public Integer getRunnableTasks() { return runnableTasks; }
+    public void setRunnableTasks(Integer runnableTasks) { this.runnableTasks = runnableTasks; }
+    public Integer getTotalTasks() { return totalTasks; }
+    public void setTotalTasks(Integer totalTasks) { this.totalTasks = totalTasks; }
+    public Integer getCpuCount() { return cpuCount; }
+    public void setCpuCount(Integer cpuCount) { this.cpuCount = cpuCount; }
 }
@@ -11,12 +11,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * In-memory server list with file persistence (data/servers.json).
+ * In-memory server list with file persistence (data/servers.json), indexed by id.
  */
 @Repository
 public class ServerRepository {
@@ -24,6 +26,7 @@ public class ServerRepository {
     private static final Path DATA_FILE = Paths.get("data", "servers.json");
 
     private final List<Server> servers = new CopyOnWriteArrayList<>();
+    private final Map<String, Server> byId = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @PostConstruct
@@ -33,7 +36,11 @@ public class ServerRepository {
                 String json = Files.readString(DATA_FILE);
                 List<Server> loaded = objectMapper.readValue(json, new TypeReference<>() {});
                 servers.clear();
-                if (loaded != null) servers.addAll(loaded);
+                byId.clear();
+                if (loaded != null) {
+                    servers.addAll(loaded);
+                    loaded.forEach(s -> byId.put(s.getId(), s));
+                }
             }
         } catch (Exception e) {
             // ignore
@@ -54,7 +61,7 @@ public class ServerRepository {
     }
 
     public Optional<Server> findById(String id) {
-        return servers.stream().filter(s -> id.equals(s.getId())).findFirst();
+        return id != null ? Optional.ofNullable(byId.get(id)) : Optional.empty();
     }
 
     public Server save(Server server) {
@@ -65,12 +72,14 @@ public class ServerRepository {
             servers.removeIf(s -> s.getId().equals(server.getId()));
             servers.add(server);
         }
+        byId.put(server.getId(), server);
         save();
         return server;
     }
 
     public boolean deleteById(String id) {
         boolean removed = servers.removeIf(s -> s.getId().equals(id));
+        byId.remove(id);
         if (removed) save();
         return removed;
     }
@@ -2,11 +2,24 @@ package com.sentinelops.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelops.config.OpenAiProperties;
 import com.sentinelops.model.snapshot.SystemSnapshot;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Orchestrates chat: builds system prompt with optional structured snapshot, calls OpenAI.
+ * <p>
+ * The snapshot is awaited without blocking a thread, and the (blocking) OpenAI call runs on this
+ * service's own pool of {@code openai.max-concurrent-requests} threads. Neither holds an
+ * {@link SshExecutor} thread, which the snapshot capture itself needs in order to finish.
  */
 @Service
 public class ChatService {
@@ -27,13 +40,25 @@ public class ChatService {
         """;
 
     private final OpenAiService openAiService;
-    private final SnapshotAggregatorService snapshotAggregatorService;
+    private final SnapshotCollectionService snapshotCollectionService;
     private final ObjectMapper objectMapper;
+    private final ExecutorService completions;
 
-    public ChatService(OpenAiService openAiService, SnapshotAggregatorService snapshotAggregatorService, ObjectMapper objectMapper) {
+    public ChatService(OpenAiService openAiService, SnapshotCollectionService snapshotCollectionService,
+                       ObjectMapper objectMapper, OpenAiProperties openAiProperties) {
         this.openAiService = openAiService;
-        this.snapshotAggregatorService = snapshotAggregatorService;
+        this.snapshotCollectionService = snapshotCollectionService;
         this.objectMapper = objectMapper;
+        AtomicInteger counter = new AtomicInteger();
+        int threads = Math.max(1, openAiProperties.getMaxConcurrentRequests());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "chat-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.completions = pool;
     }
 
     public String chat(String userMessage) {
@@ -45,20 +70,40 @@ public class ChatService {
     }
 
     /**
-     * @param includeSystemContext if true, capture full system snapshot (Linux + Docker + Postgres) and send as JSON to AI
+     * @param includeSystemContext if true, send the latest system snapshot (Linux + Docker + Postgres) as JSON to AI
      * @param serverId optional server to run snapshot against; null uses default SSH config
      */
     public String chat(String userMessage, boolean includeSystemContext, String serverId) {
-        String systemContext = "No live system context was gathered. Answer based on general DevOps knowledge.";
-        if (includeSystemContext) {
-            SystemSnapshot snapshot = snapshotAggregatorService.capture(serverId);
-            try {
-                systemContext = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(snapshot);
-            } catch (JsonProcessingException e) {
-                systemContext = "Snapshot serialization failed: " + e.getMessage();
-            }
+        return chatAsync(userMessage, includeSystemContext, serverId).join();
+    }
+
+    /**
+     * Like {@link #chat(String, boolean, String)}, completing once OpenAI has answered; the
+     * caller's thread is not used for the snapshot or the OpenAI call.
+     */
+    public CompletableFuture<String> chatAsync(String userMessage, boolean includeSystemContext, String serverId) {
+        CompletableFuture<SystemSnapshot> snapshot = includeSystemContext
+                ? snapshotCollectionService.get(serverId, false)
+                : CompletableFuture.completedFuture(null);
+        return snapshot.thenApplyAsync(s -> {
+            String systemPrompt = String.format(SYSTEM_PROMPT_TEMPLATE, systemContext(s));
+            return openAiService.chat(userMessage, systemPrompt);
+        }, completions);
+    }
+
+    private String systemContext(SystemSnapshot snapshot) {
+        if (snapshot == null) {
+            return "No live system context was gathered. Answer based on general DevOps knowledge.";
+        }
+        try {
+            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            return "Snapshot serialization failed: " + e.getMessage();
         }
-        String systemPrompt = String.format(SYSTEM_PROMPT_TEMPLATE, systemContext);
-        return openAiService.chat(userMessage, systemPrompt);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        completions.shutdownNow();
     }
 }
@@ -0,0 +1,204 @@
+package com.sentinelops.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Rows of named double columns with a shared timestamp column, in time order. The newest rows are
+ * kept as plain arrays that grow with the chunk; once a chunk has {@code rowsPerChunk} rows it is
+ * sealed with {@link GorillaCodec} and only decoded again for the columns a read asks for. Columns
+ * exist per chunk, so a metric that went away costs nothing in later chunks. Not thread-safe.
+ */
+final class ColumnChunks {
+
+    private final int rowsPerChunk;
+    // One String per column name, shared by all chunks instead of one per chunk.
+    private final Map<String, String> names = new HashMap<>();
+    private final Deque<Sealed> sealed = new ArrayDeque<>();
+    private Open open;
+
+    ColumnChunks(int rowsPerChunk) {
+        this.rowsPerChunk = rowsPerChunk;
+    }
+
+    /** Start a row; timestamps must not go back (an earlier one is taken as the last one). */
+    void addRow(long timestampMs) {
+        if (open != null && open.rows == rowsPerChunk) {
+            sealed.addLast(open.seal());
+            open = null;
+        }
+        if (open == null) open = new Open(rowsPerChunk);
+        long last = lastTimestamp();
+        open.timestamps[open.rows++] = last != Long.MIN_VALUE ? Math.max(last, timestampMs) : timestampMs;
+    }
+
+    /** Timestamp of the newest row, or Long.MIN_VALUE without rows. */
+    long lastTimestamp() {
+        if (open != null && open.rows > 0) return open.timestamps[open.rows - 1];
+        return sealed.isEmpty() ? Long.MIN_VALUE : sealed.peekLast().last;
+    }
+
+    /** Value of a column in the newest row (NaN when unset). */
+    double get(String column) {
+        double[] values = open != null ? open.columns.get(column) : null;
+        int row = open != null ? open.rows - 1 : -1;
+        return values != null && row < values.length ? values[row] : Double.NaN;
+    }
+
+    /** Set a column of the newest row. */
+    void set(String column, double value) {
+        int row = open.rows - 1;
+        double[] values = open.columns.get(column);
+        if (values == null || row >= values.length) {
+            int size = Math.min(rowsPerChunk, Math.max(8, Integer.highestOneBit(row) << 1));
+            double[] grown = values != null ? Arrays.copyOf(values, size) : new double[size];
+            Arrays.fill(grown, values != null ? values.length : 0, size, Double.NaN);
+            open.columns.put(names.computeIfAbsent(column, k -> k), grown);
+            values = grown;
+        }
+        values[row] = value;
+    }
+
+    /** Drop sealed chunks whose rows are all older than {@code timestampMs}. */
+    void dropBefore(long timestampMs) {
+        while (!sealed.isEmpty() && sealed.peekFirst().last < timestampMs) sealed.removeFirst();
+    }
+
+    /**
+     * Rows with {@code from <= timestamp <= to}, at most the newest {@code limit}, oldest first,
+     * with the columns {@code select} accepts.
+     */
+    Rows read(long from, long to, int limit, Predicate<String> select) {
+        List<Segment> segments = new ArrayList<>();
+        int remaining = limit;
+        if (open != null && open.rows > 0) {
+            remaining = collect(segments, open.timestamps, open.rows, open, null, from, to, remaining);
+        }
+        for (Iterator<Sealed> it = sealed.descendingIterator(); it.hasNext() && remaining > 0; ) {
+            Sealed chunk = it.next();
+            if (chunk.last < from) break;
+            if (chunk.first > to) continue;
+            remaining = collect(segments, GorillaCodec.decodeTimestamps(chunk.timestamps, chunk.rows), chunk.rows,
+                    null, chunk, from, to, remaining);
+        }
+
+        int total = 0;
+        for (Segment s : segments) total += s.to - s.from;
+        int n = total;
+        long[] timestamps = new long[n];
+        Map<String, double[]> columns = new TreeMap<>();
+        int end = n;
+        for (Segment s : segments) {
+            int take = s.to - s.from;
+            System.arraycopy(s.timestamps, s.from, timestamps, end - take, take);
+            String[] sourceNames = s.open != null ? s.open.columns.keySet().toArray(new String[0]) : s.sealed.names;
+            for (int c = 0; c < sourceNames.length; c++) {
+                String name = sourceNames[c];
+                if (!select.test(name)) continue;
+                double[] values = s.open != null ? s.open.columns.get(name)
+                        : GorillaCodec.decodeValues(s.sealed.columns[c], s.sealed.rows);
+                double[] column = columns.computeIfAbsent(name, k -> {
+                    double[] empty = new double[n];
+                    Arrays.fill(empty, Double.NaN);
+                    return empty;
+                });
+                int available = Math.max(0, Math.min(s.to, values.length) - s.from);
+                System.arraycopy(values, s.from, column, end - take, available);
+            }
+            end -= take;
+        }
+        return new Rows(timestamps, columns);
+    }
+
+    private static int collect(List<Segment> segments, long[] timestamps, int rows, Open open, Sealed sealed,
+                               long from, long to, int remaining) {
+        int hi = rows;
+        while (hi > 0 && timestamps[hi - 1] > to) hi--;
+        int lo = hi;
+        while (lo > 0 && timestamps[lo - 1] >= from && hi - lo < remaining) lo--;
+        if (hi > lo) segments.add(new Segment(timestamps, lo, hi, open, sealed));
+        return remaining - (hi - lo);
+    }
+
+    /** Timestamps (epoch ms) and columns of a read, aligned by index; NaN where a row has no value. */
+    static final class Rows {
+        final long[] timestamps;
+        final Map<String, double[]> columns;
+
+        Rows(long[] timestamps, Map<String, double[]> columns) {
+            this.timestamps = timestamps;
+            this.columns = columns;
+        }
+    }
+
+    private static final class Segment {
+        private final long[] timestamps;
+        private final int from;
+        private final int to;
+        private final Open open;
+        private final Sealed sealed;
+
+        private Segment(long[] timestamps, int from, int to, Open open, Sealed sealed) {
+            this.timestamps = timestamps;
+            this.from = from;
+            this.to = to;
+            this.open = open;
+            this.sealed = sealed;
+        }
+    }
+
+    private static final class Open {
+        private final long[] timestamps;
+        // Column arrays start small and grow to the chunk size; rows past their length are NaN.
+        private final Map<String, double[]> columns = new HashMap<>();
+        private int rows;
+
+        private Open(int rowsPerChunk) {
+            this.timestamps = new long[rowsPerChunk];
+        }
+
+        private Sealed seal() {
+            String[] names = new String[columns.size()];
+            long[][] encoded = new long[columns.size()][];
+            int c = 0;
+            for (Map.Entry<String, double[]> column : columns.entrySet()) {
+                double[] values = column.getValue();
+                if (values.length < rows) {
+                    values = Arrays.copyOf(values, rows);
+                    Arrays.fill(values, column.getValue().length, rows, Double.NaN);
+                }
+                names[c] = column.getKey();
+                encoded[c++] = GorillaCodec.encodeValues(values, rows);
+            }
+            return new Sealed(timestamps[0], timestamps[rows - 1], rows, GorillaCodec.encodeTimestamps(timestamps, rows),
+                    names, encoded);
+        }
+    }
+
+    private static final class Sealed {
+        private final long first;
+        private final long last;
+        private final int rows;
+        private final long[] timestamps;
+        // Parallel arrays rather than a map: a sealed chunk is only ever scanned.
+        private final String[] names;
+        private final long[][] columns;
+
+        private Sealed(long first, long last, int rows, long[] timestamps, String[] names, long[][] columns) {
+            this.first = first;
+            this.last = last;
+            this.rows = rows;
+            this.timestamps = timestamps;
+            this.names = names;
+            this.columns = columns;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.sentinelops.service;
+
+import com.sentinelops.service.SshExecutionService.SshCommandResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Several commands packed into one remote shell script. Each command runs in its own subshell
+ * and its stdout and stderr are wrapped in begin/end lines carrying a per-batch random marker,
+ * so the combined output can be split back into one {@link SshCommandResult} per command.
+ *
+ * <pre>
+ * MARK B 0\n &lt;stdout of command 0&gt; \n MARK E 0 &lt;exit code&gt;\n
+ * </pre>
+ * The newline before each end line is added by the script and dropped again when parsing,
+ * so command output is returned byte-for-byte. Splitting happens line by line while the output
+ * streams in, and each command's output is bounded separately, so a runaway command cannot
+ * truncate away the frames of the others.
+ */
+final class CommandBatch {
+
+    private final String marker;
+    private final List<String> commands;
+    private final Demuxer stdout;
+    private final Demuxer stderr;
+
+    private CommandBatch(String marker, List<String> commands, int maxOutputBytes) {
+        this.marker = marker;
+        this.commands = List.copyOf(commands);
+        this.stdout = new Demuxer(true, maxOutputBytes);
+        this.stderr = new Demuxer(false, maxOutputBytes);
+    }
+
+    static CommandBatch of(List<String> commands, int maxOutputBytes) {
+        return new CommandBatch("__SENTINELOPS_" + UUID.randomUUID().toString().replace("-", "") + "__",
+                commands, maxOutputBytes);
+    }
+
+    static CommandBatch of(String marker, List<String> commands) {
+        return new CommandBatch(marker, commands, 1024 * 1024);
+    }
+
+    int size() {
+        return commands.size();
+    }
+
+    String script() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("M=").append(marker).append('\n');
+        for (int i = 0; i < commands.size(); i++) {
+            sb.append("printf '%s B ").append(i).append("\\n' \"$M\"; ")
+                    .append("printf '%s B ").append(i).append("\\n' \"$M\" >&2\n");
+            sb.append("(\n").append(commands.get(i)).append("\n) </dev/null\n");
+            sb.append("rc=$?; ")
+                    .append("printf '\\n%s E ").append(i).append(" %d\\n' \"$M\" \"$rc\"; ")
+                    .append("printf '\\n%s E ").append(i).append("\\n' \"$M\" >&2\n");
+        }
+        return sb.toString();
+    }
+
+    OutputCapture.LineConsumer stdoutConsumer() {
+        return stdout;
+    }
+
+    OutputCapture.LineConsumer stderrConsumer() {
+        return stderr;
+    }
+
+    /**
+     * Feed a fully captured script result through the demultiplexer; for callers that did not
+     * stream the channel output through {@link #stdoutConsumer()} / {@link #stderrConsumer()}.
+     */
+    List<SshCommandResult> demux(SshCommandResult whole) {
+        feed(whole.getStdout(), stdout);
+        feed(whole.getStderr(), stderr);
+        return results(whole);
+    }
+
+    private static void feed(String text, OutputCapture.LineConsumer consumer) {
+        OutputCapture capture = new OutputCapture(0, consumer);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        capture.write(bytes, 0, bytes.length);
+        capture.close();
+    }
+
+    /**
+     * Per-command results once the script has finished. Commands whose frames are missing
+     * (batch killed or connection lost part way) get an error result carrying whatever output
+     * was captured for them.
+     */
+    List<SshCommandResult> results(SshCommandResult whole) {
+        List<SshCommandResult> results = new ArrayList<>(commands.size());
+        if (!stdout.started) {
+            // Nothing ran (connect/auth failure or the shell rejected the script).
+            String reason = !whole.getStderr().isBlank() ? whole.getStderr() : "Batch failed with exit code " + whole.getExitCode();
+            for (int i = 0; i < commands.size(); i++) {
+                results.add(whole.isConnectionFailure() ? SshCommandResult.connectionError(reason) : SshCommandResult.error(reason));
+            }
+            return results;
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            OutputCapture out = stdout.captures[i];
+            OutputCapture err = stderr.captures[i];
+            boolean truncated = out.isTruncated() || err.isTruncated();
+            if (stdout.finished[i]) {
+                results.add(new SshCommandResult(stdout.exitCodes[i], out.toString(), err.toString(),
+                        out.getTotalBytes(), err.getTotalBytes(), truncated));
+            } else {
+                String errText = err.toString();
+                String reason = whole.getExitCode() == -1 && !whole.getStderr().isBlank()
+                        ? whole.getStderr().trim() : "Command did not complete within the batch";
+                results.add(new SshCommandResult(-1, out.toString(), errText.isEmpty() ? reason : errText,
+                        out.getTotalBytes(), err.getTotalBytes(), truncated));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Routes the lines of one channel stream to the capture of the command whose frame is open.
+     */
+    private final class Demuxer implements OutputCapture.LineConsumer {
+        private final boolean withExitCode;
+        private final OutputCapture[] captures;
+        private final boolean[] finished;
+        private final int[] exitCodes;
+        private final String beginPrefix;
+        private boolean started;
+        private int current = -1;
+        private boolean firstLine;
+        private boolean previousTerminated;
+
+        private Demuxer(boolean withExitCode, int maxOutputBytes) {
+            this.withExitCode = withExitCode;
+            this.captures = new OutputCapture[commands.size()];
+            for (int i = 0; i < captures.length; i++) {
+                captures[i] = new OutputCapture(maxOutputBytes);
+            }
+            this.finished = new boolean[commands.size()];
+            this.exitCodes = new int[commands.size()];
+            this.beginPrefix = marker + " B ";
+        }
+
+        @Override
+        public void accept(String line, boolean terminated) {
+            if (current >= 0) {
+                String endPrefix = marker + " E " + current;
+                if (terminated && (line.equals(endPrefix) || line.startsWith(endPrefix + " "))) {
+                    finished[current] = true;
+                    if (withExitCode) exitCodes[current] = parseExitCode(line.substring(endPrefix.length()));
+                    current = -1;
+                    return;
+                }
+                OutputCapture capture = captures[current];
+                if (!firstLine && previousTerminated) capture.write('\n');
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                capture.write(bytes, 0, bytes.length);
+                firstLine = false;
+                previousTerminated = terminated;
+                return;
+            }
+            if (terminated && line.startsWith(beginPrefix)) {
+                try {
+                    int index = Integer.parseInt(line.substring(beginPrefix.length()).trim());
+                    if (index < 0 || index >= captures.length) return;
+                    current = index;
+                    firstLine = true;
+                    if (index == 0) started = true;
+                } catch (NumberFormatException ignored) {
+                    // not one of our frame lines
+                }
+            }
+        }
+
+        private int parseExitCode(String text) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+}
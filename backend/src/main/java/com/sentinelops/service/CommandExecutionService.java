@@ -6,6 +6,7 @@ import com.sentinelops.service.SshExecutionService.SshCommandResult;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Orchestrates command risk analysis, confirmation check, SSH execution, and history logging.
@@ -16,13 +17,16 @@ public class CommandExecutionService {
     private final CommandRiskAnalyzer riskAnalyzer;
     private final SshExecutionService sshExecutionService;
     private final CommandHistoryService historyService;
+    private final SshExecutor sshExecutor;
 
     public CommandExecutionService(CommandRiskAnalyzer riskAnalyzer,
                                     SshExecutionService sshExecutionService,
-                                    CommandHistoryService historyService) {
+                                    CommandHistoryService historyService,
+                                    SshExecutor sshExecutor) {
         this.riskAnalyzer = riskAnalyzer;
         this.sshExecutionService = sshExecutionService;
         this.historyService = historyService;
+        this.sshExecutor = sshExecutor;
     }
 
     public CommandRiskResult analyze(String command) {
@@ -35,32 +39,62 @@ public class CommandExecutionService {
      * @param serverId optional server to run on; null uses default SSH config
      */
     public Optional<ExecuteResult> execute(String command, RiskLevel confirmedRiskLevel, String serverId) {
+        return executeAsync(command, confirmedRiskLevel, serverId).join();
+    }
+
+    /**
+     * Non-blocking variant of {@link #execute}: the SSH command is queued on {@link SshExecutor} and
+     * the history entry is written once it completes, on an executor thread rather than the JSch
+     * session thread, since the history log writes to disk.
+     */
+    public CompletableFuture<Optional<ExecuteResult>> executeAsync(String command, RiskLevel confirmedRiskLevel,
+                                                                   String serverId) {
+        return executeAsync(command, confirmedRiskLevel, serverId, null);
+    }
+
+    /**
+     * @param timeoutMs execution deadline for the command; null uses {@code ssh.command-timeout-ms}
+     */
+    public CompletableFuture<Optional<ExecuteResult>> executeAsync(String command, RiskLevel confirmedRiskLevel,
+                                                                   String serverId, Long timeoutMs) {
         if (command == null || command.isBlank()) {
-            return Optional.empty();
+            return CompletableFuture.completedFuture(Optional.empty());
         }
         String trimmed = command.trim();
         CommandRiskResult analysis = riskAnalyzer.analyze(trimmed);
+        Optional<String> rejection = confirmationError(analysis, confirmedRiskLevel);
+        if (rejection.isPresent()) {
+            return CompletableFuture.completedFuture(Optional.of(ExecuteResult.rejected(rejection.get())));
+        }
+
+        CompletableFuture<SshCommandResult> running = timeoutMs != null
+                ? sshExecutionService.executeAsync(serverId, trimmed, timeoutMs)
+                : sshExecutionService.executeAsync(serverId, trimmed);
+        return running.thenApplyAsync(r -> {
+            String rollback = analysis.getRollbackSuggestion();
+            historyService.append(serverId, trimmed, analysis.getRiskLevel(), r.isSuccess(), r.getExitCode(),
+                    r.getStdout(), r.getStderr(), rollback);
+            return Optional.of(new ExecuteResult(true, r.getExitCode(), r.getStdout(), r.getStderr(), rollback, r.isTruncated()));
+        }, sshExecutor);
+    }
+
+    /**
+     * Rejection reason when the command needs confirmation (HIGH or MEDIUM risk) and the confirmed
+     * level does not match the analysis; empty when it may run.
+     */
+    public Optional<String> checkConfirmation(String command, RiskLevel confirmedRiskLevel) {
+        if (command == null || command.isBlank()) return Optional.of("Command is required.");
+        return confirmationError(riskAnalyzer.analyze(command.trim()), confirmedRiskLevel);
+    }
 
+    private Optional<String> confirmationError(CommandRiskResult analysis, RiskLevel confirmedRiskLevel) {
         if (analysis.getRiskLevel() == RiskLevel.HIGH || analysis.getRiskLevel() == RiskLevel.MEDIUM) {
             if (confirmedRiskLevel != analysis.getRiskLevel()) {
-                return Optional.of(ExecuteResult.rejected(
-                        "Confirmation level does not match analyzed risk. Analyzed: " + analysis.getRiskLevel()
-                                + ", confirmed: " + confirmedRiskLevel + ". Re-run analysis and confirm with the shown risk level."));
+                return Optional.of("Confirmation level does not match analyzed risk. Analyzed: " + analysis.getRiskLevel()
+                        + ", confirmed: " + confirmedRiskLevel + ". Re-run analysis and confirm with the shown risk level.");
             }
         }
-
-        Optional<SshCommandResult> result = serverId != null && !serverId.isBlank()
-                ? sshExecutionService.executeWithServer(serverId, trimmed)
-                : sshExecutionService.execute(trimmed);
-        if (result.isEmpty()) {
-            return Optional.of(ExecuteResult.rejected("SSH not configured or connection failed."));
-        }
-        SshCommandResult r = result.get();
-        String rollback = analysis.getRollbackSuggestion();
-        historyService.append(trimmed, analysis.getRiskLevel(), r.isSuccess(), r.getExitCode(),
-                r.getStdout(), r.getStderr(), rollback);
-
-        return Optional.of(new ExecuteResult(true, r.getExitCode(), r.getStdout(), r.getStderr(), rollback));
+        return Optional.empty();
     }
 
     public static class ExecuteResult {
@@ -70,14 +104,21 @@ public class CommandExecutionService {
         private final String stdout;
         private final String stderr;
         private final String rollbackSuggestion;
+        private final boolean truncated;
 
         public ExecuteResult(boolean executed, int exitCode, String stdout, String stderr, String rollbackSuggestion) {
+            this(executed, exitCode, stdout, stderr, rollbackSuggestion, false);
+        }
+
+        public ExecuteResult(boolean executed, int exitCode, String stdout, String stderr, String rollbackSuggestion,
+                             boolean truncated) {
             this.executed = executed;
             this.rejectionReason = null;
             this.exitCode = exitCode;
             this.stdout = stdout;
             this.stderr = stderr;
             this.rollbackSuggestion = rollbackSuggestion;
+            this.truncated = truncated;
         }
 
         private ExecuteResult(String rejectionReason) {
@@ -87,6 +128,7 @@ public class CommandExecutionService {
             this.stdout = null;
             this.stderr = null;
             this.rollbackSuggestion = null;
+            this.truncated = false;
         }
 
         public static ExecuteResult rejected(String reason) {
@@ -99,5 +141,6 @@ public class CommandExecutionService {
         public String getStdout() { return stdout; }
         public String getStderr() { return stderr; }
         public String getRollbackSuggestion() { return rollbackSuggestion; }
+        public boolean isTruncated() { return truncated; }
     }
 }
@@ -1,8 +1,12 @@
 package com.sentinelops.service;
 
+import com.sentinelops.config.StorageProperties;
 import com.sentinelops.model.CommandLogEntry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,7 +14,9 @@ import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * In-memory command execution history for audit. Phase 4+ can persist to DB.
+ * Command execution history for audit: the newest entries in memory and, with
+ * {@code storage.history-log-enabled}, every entry in a {@link SegmentLog} under
+ * {@code <data-dir>/commands}, from which the in-memory list is refilled on startup.
  */
 @Service
 public class CommandHistoryService {
@@ -18,12 +24,37 @@ public class CommandHistoryService {
     private final List<CommandLogEntry> history = new CopyOnWriteArrayList<>();
     private static final int MAX_ENTRIES = 500;
 
+    private final SegmentLog log;
+
+    public CommandHistoryService(StorageProperties storageProperties) {
+        this.log = storageProperties.isHistoryLogEnabled()
+                ? new SegmentLog(Path.of(storageProperties.getDataDir(), "commands"), storageProperties)
+                : null;
+        if (log != null) {
+            List<CommandLogEntry> logged = new ArrayList<>();
+            for (SegmentLog.Record record : log.read(Long.MIN_VALUE, Long.MAX_VALUE, null, MAX_ENTRIES)) {
+                logged.add(SmileCodec.decode(record.payload, CommandLogEntry.class));
+            }
+            history.addAll(logged);
+        }
+    }
+
     public CommandLogEntry append(String command, com.sentinelops.model.RiskLevel riskLevel,
                                    boolean success, int exitCode, String stdout, String stderr,
                                    String rollbackSuggestion) {
+        return append(null, command, riskLevel, success, exitCode, stdout, stderr, rollbackSuggestion);
+    }
+
+    /**
+     * @param serverId server the command ran on; null for the default SSH host
+     */
+    public CommandLogEntry append(String serverId, String command, com.sentinelops.model.RiskLevel riskLevel,
+                                   boolean success, int exitCode, String stdout, String stderr,
+                                   String rollbackSuggestion) {
         CommandLogEntry entry = new CommandLogEntry();
         entry.setId(UUID.randomUUID().toString());
         entry.setTimestamp(Instant.now());
+        entry.setServerId(serverId);
         entry.setCommand(command);
         entry.setRiskLevel(riskLevel);
         entry.setSuccess(success);
@@ -35,10 +66,22 @@ public class CommandHistoryService {
         while (history.size() > MAX_ENTRIES) {
             history.remove(0);
         }
+        if (log != null) {
+            try {
+                log.append(entry.getTimestamp().toEpochMilli(), serverId != null ? serverId : "", SmileCodec.encode(entry));
+            } catch (UncheckedIOException e) {
+                // Kept in memory; only a restart would lose it.
+            }
+        }
         return entry;
     }
 
     public List<CommandLogEntry> getHistory() {
         return new ArrayList<>(history);
     }
+
+    @PreDestroy
+    public void close() {
+        if (log != null) log.close();
+    }
 }
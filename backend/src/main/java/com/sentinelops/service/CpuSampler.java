@@ -0,0 +1,202 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.LinuxProperties;
+import com.sentinelops.model.snapshot.CpuUsage;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CPU utilisation from /proc/stat. The kernel only exposes cumulative jiffies per CPU state, so
+ * usage is the difference between two readings. The last reading of each server is kept in memory
+ * and a snapshot reports usage since the server's previous snapshot (at most
+ * {@code linux.cpu-sample-max-age-ms} ago). Without such a reading (first snapshot, restart of this
+ * service) the command reads /proc/stat twice, {@code linux.cpu-baseline-ms} apart. The first
+ * snapshot after the host rebooted has no CPU usage, as the counters started over.
+ */
+@Service
+public class CpuSampler {
+
+    /** USER_HZ: /proc/stat counts in 1/100 s on every architecture Linux supports. */
+    private static final int USER_HZ = 100;
+    private static final String SEPARATOR = "--";
+    private static final String DEFAULT_SERVER = "";
+    // Only the cpu, btime and procs lines; the interrupt counters can be kilobytes long.
+    private static final String READ_STAT =
+            "while read -r k v; do case \"$k\" in cpu*|btime|procs_*) echo \"$k $v\";; esac; done < /proc/stat";
+
+    private final LinuxProperties linuxProperties;
+    private final Map<String, Reading> lastReadings = new ConcurrentHashMap<>();
+
+    public CpuSampler(LinuxProperties linuxProperties) {
+        this.linuxProperties = linuxProperties;
+    }
+
+    /** The /proc/stat command for the next snapshot of the server (null for the default SSH host). */
+    public String command(String serverId) {
+        Reading last = lastReadings.get(key(serverId));
+        if (last != null && System.currentTimeMillis() - last.takenAt <= linuxProperties.getCpuSampleMaxAgeMs()) {
+            return READ_STAT;
+        }
+        String pause = String.format(Locale.ROOT, "%.3f", Math.max(0, linuxProperties.getCpuBaselineMs()) / 1000.0);
+        return READ_STAT + "; sleep " + pause + "; echo " + SEPARATOR + "; " + READ_STAT;
+    }
+
+    /** The most recent /proc/stat reading in the command's output. */
+    public static String latest(String output) {
+        int separator = output.lastIndexOf("\n" + SEPARATOR + "\n");
+        return separator >= 0 ? output.substring(separator + SEPARATOR.length() + 2) : output;
+    }
+
+    /**
+     * Record the command's output as the server's latest reading and return usage since the
+     * previous one, or null when there is nothing to compare with.
+     */
+    public Sample sample(String serverId, String output) {
+        long now = System.currentTimeMillis();
+        Reading current = Reading.parse(latest(output), now);
+        if (current.jiffies.isEmpty()) return null;
+        int separator = output.lastIndexOf("\n" + SEPARATOR + "\n");
+        Reading baseline = separator >= 0 ? Reading.parse(output.substring(0, separator), now) : null;
+
+        Reading[] previous = new Reading[1];
+        // Concurrent snapshots of one host may finish out of order; keep the newer reading.
+        lastReadings.compute(key(serverId), (k, last) -> {
+            previous[0] = last;
+            return last == null || current.isNewerThan(last) ? current : last;
+        });
+        return between(baseline != null ? baseline : previous[0], current);
+    }
+
+    /** Drop the reading of a changed or removed server. */
+    public void forget(String serverId) {
+        lastReadings.remove(key(serverId));
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        forget(event.getServerId());
+    }
+
+    /** Usage from {@code earlier} to {@code later}; null if either is missing or the host rebooted in between. */
+    static Sample between(Reading earlier, Reading later) {
+        if (earlier == null || later == null || earlier.bootTime != later.bootTime) return null;
+        CpuUsage total = null;
+        List<CpuUsage> cores = new ArrayList<>();
+        long totalJiffies = 0;
+        for (Map.Entry<String, long[]> cpu : later.jiffies.entrySet()) {
+            long[] before = earlier.jiffies.get(cpu.getKey());
+            if (before == null) continue; // CPU came online in between
+            long[] delta = new long[cpu.getValue().length];
+            long sum = 0;
+            for (int i = 0; i < delta.length; i++) {
+                // iowait can go backwards on some kernels (see proc(5)); a reboot is caught by btime.
+                delta[i] = Math.max(0, cpu.getValue()[i] - before[i]);
+                sum += delta[i];
+            }
+            if (sum == 0) continue;
+            CpuUsage usage = usage(cpu.getKey(), delta, sum);
+            if ("cpu".equals(cpu.getKey())) {
+                total = usage;
+                totalJiffies = sum;
+            } else {
+                cores.add(usage);
+            }
+        }
+        if (total == null) return null;
+        long intervalMs = totalJiffies * 1000 / USER_HZ / Math.max(1, cores.size());
+        return new Sample(total, cores, intervalMs);
+    }
+
+    // user nice system idle iowait irq softirq steal; guest time is already counted in user/nice.
+    private static CpuUsage usage(String name, long[] delta, long sum) {
+        CpuUsage usage = new CpuUsage();
+        usage.setName(name);
+        usage.setUserPercent(percent(delta[0], sum));
+        usage.setNicePercent(percent(delta[1], sum));
+        usage.setSystemPercent(percent(delta[2], sum));
+        usage.setIdlePercent(percent(delta[3], sum));
+        usage.setIowaitPercent(percent(delta[4], sum));
+        usage.setIrqPercent(percent(delta[5], sum));
+        usage.setSoftirqPercent(percent(delta[6], sum));
+        usage.setStealPercent(percent(delta[7], sum));
+        usage.setUsagePercent(percent(sum - delta[3], sum));
+        return usage;
+    }
+
+    private static double percent(long part, long whole) {
+        return Math.round(1000.0 * part / whole) / 10.0;
+    }
+
+    private static String key(String serverId) {
+        return serverId != null ? serverId : DEFAULT_SERVER;
+    }
+
+    /** Cumulative jiffies per CPU line ("cpu", "cpu0", ...) at one point in time. */
+    static final class Reading {
+        private static final int FIELDS = 8;
+
+        private final Map<String, long[]> jiffies = new LinkedHashMap<>();
+        private final long takenAt;
+        private long bootTime;
+
+        private Reading(long takenAt) {
+            this.takenAt = takenAt;
+        }
+
+        static Reading parse(String procStat, long takenAt) {
+            Reading reading = new Reading(takenAt);
+            for (String line : procStat.split("\n")) {
+                String[] f = line.trim().split("\\s+");
+                try {
+                    if (f[0].startsWith("cpu") && f.length > 4) {
+                        long[] values = new long[FIELDS];
+                        // Older kernels have fewer columns; missing ones stay 0.
+                        for (int i = 0; i < FIELDS && i + 1 < f.length; i++) {
+                            values[i] = Long.parseLong(f[i + 1]);
+                        }
+                        reading.jiffies.put(f[0], values);
+                    } else if ("btime".equals(f[0]) && f.length > 1) {
+                        reading.bootTime = Long.parseLong(f[1]);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // skip the line
+                }
+            }
+            return reading;
+        }
+
+        private boolean isNewerThan(Reading other) {
+            if (bootTime != other.bootTime) return takenAt >= other.takenAt;
+            return sum(jiffies.get("cpu")) >= sum(other.jiffies.get("cpu"));
+        }
+
+        private static long sum(long[] values) {
+            long sum = 0;
+            if (values != null) for (long v : values) sum += v;
+            return sum;
+        }
+    }
+
+    public static class Sample {
+        private final CpuUsage total;
+        private final List<CpuUsage> cores;
+        private final long intervalMs;
+
+        public Sample(CpuUsage total, List<CpuUsage> cores, long intervalMs) {
+            this.total = total;
+            this.cores = cores;
+            this.intervalMs = intervalMs;
+        }
+
+        public CpuUsage getTotal() { return total; }
+        public List<CpuUsage> getCores() { return cores; }
+        public long getIntervalMs() { return intervalMs; }
+    }
+}
@@ -0,0 +1,106 @@
+package com.sentinelops.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelops.model.snapshot.ContainerInfo;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Docker Engine API responses: the container list and one-shot stats bodies. Text fields are
+ * filled the way the docker CLI prints them, so both collector modes look the same to clients.
+ */
+final class DockerApiParser {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] UNITS = {"B", "KiB", "MiB", "GiB", "TiB", "PiB"};
+
+    private DockerApiParser() {
+    }
+
+    /** GET /containers/json?all=1, keyed by full container id in API order. */
+    static Map<String, ContainerInfo> parseContainers(String json) throws IOException {
+        Map<String, ContainerInfo> byId = new LinkedHashMap<>();
+        for (JsonNode node : MAPPER.readTree(json)) {
+            String id = node.path("Id").asText();
+            if (id.isEmpty()) continue;
+            ContainerInfo c = new ContainerInfo();
+            c.setId(id.length() > 12 ? id.substring(0, 12) : id);
+            JsonNode names = node.path("Names");
+            String name = names.isArray() && !names.isEmpty() ? names.get(0).asText() : "";
+            c.setName(name.startsWith("/") ? name.substring(1) : name);
+            c.setImage(node.path("Image").asText());
+            c.setState(node.path("State").asText());
+            c.setStatus(node.path("Status").asText());
+            byId.put(id, c);
+        }
+        return byId;
+    }
+
+    /** Concatenated GET /containers/{id}/stats bodies, keyed by full container id. */
+    static Map<String, JsonNode> parseStats(String text) throws IOException {
+        Map<String, JsonNode> byId = new LinkedHashMap<>();
+        if (text.isBlank()) return byId;
+        try (MappingIterator<JsonNode> it = MAPPER.readerFor(JsonNode.class).readValues(text)) {
+            while (it.hasNextValue()) {
+                JsonNode stats = it.nextValue();
+                String id = stats.path("id").asText();
+                if (!id.isEmpty()) byId.put(id, stats);
+            }
+        }
+        return byId;
+    }
+
+    /** Cumulative CPU counters of a stats body: {container total usage, host system usage} in ns. */
+    static long[] cpuCounters(JsonNode stats) {
+        JsonNode cpu = stats.path("cpu_stats");
+        return new long[]{cpu.path("cpu_usage").path("total_usage").asLong(), cpu.path("system_cpu_usage").asLong()};
+    }
+
+    /**
+     * Fill memory and CPU from a stats body. One-shot stats carry no previous sample, so CPU is
+     * computed against {@code previous} (counters of the last snapshot) and left unset without one.
+     */
+    static void applyStats(ContainerInfo c, JsonNode stats, long[] previous) {
+        JsonNode memory = stats.path("memory_stats");
+        long limit = memory.path("limit").asLong();
+        if (memory.has("usage")) {
+            // Same as docker stats: page cache that can be reclaimed is not counted as used.
+            long usage = memory.path("usage").asLong();
+            JsonNode detail = memory.path("stats");
+            long inactive = detail.has("inactive_file") ? detail.path("inactive_file").asLong()
+                    : detail.path("total_inactive_file").asLong();
+            long used = inactive < usage ? usage - inactive : usage;
+            c.setMemUsageBytes(used);
+            c.setMemLimitBytes(limit);
+            c.setMemUsage(bytesSize(used) + " / " + bytesSize(limit));
+            if (limit > 0) c.setMemPercent(String.format(Locale.ROOT, "%.2f%%", 100.0 * used / limit));
+        }
+
+        long[] current = cpuCounters(stats);
+        if (previous == null) return;
+        long cpuDelta = current[0] - previous[0];
+        long systemDelta = current[1] - previous[1];
+        if (cpuDelta < 0 || systemDelta <= 0) return;
+        JsonNode cpu = stats.path("cpu_stats");
+        int online = cpu.path("online_cpus").asInt(0);
+        if (online == 0) online = Math.max(1, cpu.path("cpu_usage").path("percpu_usage").size());
+        c.setCpuPercent(String.format(Locale.ROOT, "%.2f%%", 100.0 * cpuDelta / systemDelta * online));
+    }
+
+    /** Like the CLI: powers of 1024, four significant digits ("412MiB", "7.765GiB"). */
+    static String bytesSize(double bytes) {
+        int unit = 0;
+        while (bytes >= 1024 && unit < UNITS.length - 1) {
+            bytes /= 1024;
+            unit++;
+        }
+        return new BigDecimal(bytes).round(new MathContext(4)).stripTrailingZeros().toPlainString() + UNITS[unit];
+    }
+}
@@ -1,22 +1,55 @@
 package com.sentinelops.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sentinelops.config.DockerProperties;
 import com.sentinelops.model.snapshot.ContainerInfo;
 import com.sentinelops.model.snapshot.DockerSnapshot;
 import com.sentinelops.service.SshExecutionService.SshCommandResult;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Collects Docker data via SSH: docker ps, docker stats, restart counts from inspect.
+ * Collects Docker data via SSH in one batched round trip. By default ({@code docker.collector: api})
+ * the container list and one-shot stats come from the Engine API over the daemon's unix socket
+ * (curl), parsed as JSON; hosts without curl or API access fall back to docker ps and
+ * docker stats --no-stream. Restart counts come from docker inspect in both modes.
+ * <p>
+ * One-shot stats hold no earlier sample, so container CPU is measured between consecutive
+ * snapshots of the host and is absent on the first one.
+ * <p>
+ * With {@code docker.streaming} (default) the host's {@link DockerStreamService} stream supplies
+ * stats and events: a snapshot is then docker ps plus docker inspect of the containers an event
+ * touched since the previous one. The batch above is used until the stream is live.
  */
 @Service
 public class DockerSnapshotService {
 
     private final SshExecutionService sshExecutionService;
+    private final DockerProperties dockerProperties;
+    private final DockerStreamService dockerStreamService;
+    // serverId ("" for the default host) -> container id -> CPU counters of the last snapshot
+    private final Map<String, Map<String, long[]>> lastCpuCounters = new ConcurrentHashMap<>();
 
-    public DockerSnapshotService(SshExecutionService sshExecutionService) {
+    private static final String PS_CMD =
+            "docker ps -a --format \"{{.ID}}\t{{.Names}}\t{{.Image}}\t{{.State}}\t{{.Status}}\" 2>/dev/null";
+    private static final String STATS_CMD =
+            "docker stats --no-stream --format \"{{.ID}}\t{{.CPUPerc}}\t{{.MemUsage}}\t{{.MemPerc}}\" 2>/dev/null";
+    // Inspects the same container set as PS_CMD inside the batch, so no second round trip is needed for ids.
+    private static final String INSPECT_CMD =
+            "docker inspect $(docker ps -aq) --format '{{.Id}} {{.RestartCount}}' 2>/dev/null";
+    // Engine API 1.41 (Docker 20.10) is the first with one-shot stats; older daemons reject the
+    // versioned path and the CLI commands are used instead.
+    private static final String API_BASE = "http://localhost/v1.41";
+
+    public DockerSnapshotService(SshExecutionService sshExecutionService, DockerProperties dockerProperties,
+                                 DockerStreamService dockerStreamService) {
         this.sshExecutionService = sshExecutionService;
+        this.dockerProperties = dockerProperties;
+        this.dockerStreamService = dockerStreamService;
     }
 
     public DockerSnapshot capture() {
@@ -24,21 +57,155 @@ public class DockerSnapshotService {
     }
 
     public DockerSnapshot capture(String serverId) {
+        return captureAsync(serverId, null).join();
+    }
+
+    /**
+     * Non-blocking capture; {@code timeoutMs} bounds the batch (null uses {@code ssh.command-timeout-ms}).
+     */
+    public CompletableFuture<DockerSnapshot> captureAsync(String serverId, Long timeoutMs) {
+        if (dockerProperties.isStreaming()) {
+            DockerStreamService.Host stream = dockerStreamService.host(serverId);
+            if (stream != null && stream.isLive()) return captureFromStream(serverId, stream, timeoutMs);
+        }
+        if (dockerProperties.getCollector() == DockerProperties.Collector.CLI) {
+            return batch(serverId, List.of(PS_CMD, STATS_CMD, INSPECT_CMD), timeoutMs).thenApply(this::toSnapshot);
+        }
+        return batch(serverId, List.of(apiListCommand(), apiStatsCommand(), INSPECT_CMD), timeoutMs)
+                .thenCompose(results -> {
+                    if (!results.get(0).isSuccess() && !connectionFailed(results)) {
+                        // No curl, no access to the socket or an old daemon: use the CLI.
+                        return batch(serverId, List.of(PS_CMD, STATS_CMD, INSPECT_CMD), timeoutMs)
+                                .thenApply(this::toSnapshot);
+                    }
+                    return CompletableFuture.completedFuture(toApiSnapshot(serverId, results));
+                });
+    }
+
+    private CompletableFuture<DockerSnapshot> captureFromStream(String serverId, DockerStreamService.Host stream,
+                                                                Long timeoutMs) {
+        List<String> ids = stream.takeIdsToInspect();
+        List<String> commands = new ArrayList<>(List.of(PS_CMD));
+        if (ids == null) {
+            commands.add(INSPECT_CMD);
+        } else if (!ids.isEmpty()) {
+            commands.add("docker inspect " + String.join(" ", ids) + " --format '{{.Id}} {{.RestartCount}}' 2>/dev/null");
+        }
+        return batch(serverId, commands, timeoutMs).thenApply(results -> {
+            if (commands.size() > 1) {
+                // Removed containers make inspect exit non-zero while still printing the others.
+                SshCommandResult inspect = results.get(1);
+                Map<String, Long> counts = parseRestartCounts(inspect);
+                if (inspect.isSuccess() || !counts.isEmpty()) stream.inspected(counts, ids == null);
+                else stream.inspectFailed(ids);
+            }
+            DockerSnapshot snapshot = new DockerSnapshot();
+            SshCommandResult ps = results.get(0);
+            if (!ps.isSuccess()) {
+                snapshot.setError("Docker not available or SSH failed.");
+                return snapshot;
+            }
+            List<ContainerInfo> containers = parseDockerPs(ps.getStdout());
+            for (ContainerInfo c : containers) {
+                String[] stats = "running".equals(c.getState()) ? stream.stats(c.getId()) : null;
+                if (stats != null) {
+                    c.setCpuPercent(stats[0]);
+                    c.setMemUsage(stats[1]);
+                    c.setMemPercent(stats[2]);
+                }
+                Long restarts = stream.restartCount(c.getId());
+                if (restarts != null) c.setRestartCount(restarts);
+                c.setRecentDies(stream.recentDies(c.getId()));
+            }
+            snapshot.setContainers(containers);
+            snapshot.setRecentEvents(stream.recentEvents());
+            return snapshot;
+        });
+    }
+
+    private CompletableFuture<List<SshCommandResult>> batch(String serverId, List<String> commands, Long timeoutMs) {
+        return timeoutMs != null
+                ? sshExecutionService.executeBatchAsync(serverId, commands, timeoutMs)
+                : sshExecutionService.executeBatchAsync(serverId, commands);
+    }
+
+    private static boolean connectionFailed(List<SshCommandResult> results) {
+        return results.stream().allMatch(r -> r.getExitCode() == -1 && r.getStdout().isEmpty());
+    }
+
+    private String curl() {
+        return "curl -sS --fail --unix-socket '" + dockerProperties.getSocketPath().replace("'", "'\\''") + "' ";
+    }
+
+    private String apiListCommand() {
+        return curl() + "'" + API_BASE + "/containers/json?all=1'";
+    }
+
+    /**
+     * One curl process for the stats of every running container (one connection, requests in
+     * sequence); the bodies are printed back to back. Ids are cut out of the list only to build
+     * the URLs.
+     */
+    private String apiStatsCommand() {
+        return "set -f\n"
+                + "ids=$(" + curl() + "'" + API_BASE + "/containers/json' | grep -o '\"Id\":\"[0-9a-f]*\"' | cut -d'\"' -f4)\n"
+                + "[ -z \"$ids\" ] || " + curl() + "$(for id in $ids; do printf '" + API_BASE
+                + "/containers/%s/stats?stream=false&one-shot=true ' \"$id\"; done)";
+    }
+
+    private DockerSnapshot toApiSnapshot(String serverId, List<SshCommandResult> results) {
+        DockerSnapshot snapshot = new DockerSnapshot();
+        if (connectionFailed(results)) {
+            snapshot.setError("Docker not available or SSH failed.");
+            return snapshot;
+        }
+        Map<String, ContainerInfo> byId;
+        try {
+            byId = DockerApiParser.parseContainers(results.get(0).getStdout());
+        } catch (IOException e) {
+            snapshot.setError("Docker API returned invalid JSON: " + e.getMessage());
+            return snapshot;
+        }
+        for (ContainerInfo c : byId.values()) c.setUptime(extractUptime(c.getStatus()));
+
+        SshCommandResult stats = results.get(1);
+        if (stats.isSuccess()) {
+            try {
+                String key = serverId != null ? serverId : "";
+                Map<String, long[]> previous = lastCpuCounters.getOrDefault(key, Map.of());
+                Map<String, long[]> current = new HashMap<>();
+                for (Map.Entry<String, JsonNode> entry : DockerApiParser.parseStats(stats.getStdout()).entrySet()) {
+                    ContainerInfo c = byId.get(entry.getKey());
+                    if (c == null) continue; // started after the list was taken
+                    DockerApiParser.applyStats(c, entry.getValue(), previous.get(entry.getKey()));
+                    current.put(entry.getKey(), DockerApiParser.cpuCounters(entry.getValue()));
+                }
+                lastCpuCounters.put(key, current);
+            } catch (IOException e) {
+                // Partial or cut-off output: list without stats.
+            }
+        }
+        List<ContainerInfo> containers = new ArrayList<>(byId.values());
+        mergeRestartCounts(containers, results.get(2));
+        snapshot.setContainers(containers);
+        return snapshot;
+    }
+
+    private DockerSnapshot toSnapshot(List<SshCommandResult> results) {
         DockerSnapshot snapshot = new DockerSnapshot();
-        String cmd = "docker ps -a --format \"{{.ID}}\t{{.Names}}\t{{.Image}}\t{{.State}}\t{{.Status}}\" 2>/dev/null";
-        Optional<SshCommandResult> psResult = serverId != null ? sshExecutionService.executeWithServer(serverId, cmd) : sshExecutionService.execute(cmd);
-        if (psResult.isEmpty() || !psResult.get().isSuccess()) {
+        SshCommandResult psResult = results.get(0);
+        if (!psResult.isSuccess()) {
             snapshot.setError("Docker not available or SSH failed.");
             return snapshot;
         }
-        String psOut = psResult.get().getStdout();
+        String psOut = psResult.getStdout();
         if (psOut.isBlank()) {
             return snapshot;
         }
 
         List<ContainerInfo> containers = parseDockerPs(psOut);
-        mergeStats(containers, serverId);
-        mergeRestartCounts(containers, serverId);
+        mergeStats(containers, results.get(1));
+        mergeRestartCounts(containers, results.get(2));
         snapshot.setContainers(containers);
         return snapshot;
     }
@@ -75,11 +242,9 @@ public class DockerSnapshotService {
         return trimmed;
     }
 
-    private void mergeStats(List<ContainerInfo> containers, String serverId) {
-        String cmd = "docker stats --no-stream --format \"{{.ID}}\t{{.CPUPerc}}\t{{.MemUsage}}\t{{.MemPerc}}\" 2>/dev/null";
-        Optional<SshCommandResult> result = serverId != null ? sshExecutionService.executeWithServer(serverId, cmd) : sshExecutionService.execute(cmd);
-        if (result.isEmpty() || !result.get().isSuccess()) return;
-        String out = result.get().getStdout();
+    private void mergeStats(List<ContainerInfo> containers, SshCommandResult result) {
+        if (!result.isSuccess()) return;
+        String out = result.getStdout();
         Map<String, String[]> byId = new HashMap<>();
         for (String line : out.split("\n")) {
             line = line.trim();
@@ -101,34 +266,29 @@ public class DockerSnapshotService {
         }
     }
 
-    private void mergeRestartCounts(List<ContainerInfo> containers, String serverId) {
-        if (containers.isEmpty()) return;
-        StringBuilder ids = new StringBuilder();
+    private void mergeRestartCounts(List<ContainerInfo> containers, SshCommandResult result) {
+        if (containers.isEmpty() || !result.isSuccess()) return;
+        Map<String, Long> byShortId = parseRestartCounts(result);
         for (ContainerInfo c : containers) {
-            if (ids.length() > 0) ids.append(" ");
-            ids.append(c.getId());
+            String shortId = c.getId().length() >= 12 ? c.getId().substring(0, 12) : c.getId();
+            Long count = byShortId.get(shortId);
+            if (count != null) c.setRestartCount(count);
         }
-        String cmd = "docker inspect " + ids + " --format '{{.Id}} {{.RestartCount}}' 2>/dev/null";
-        Optional<SshCommandResult> result = serverId != null ? sshExecutionService.executeWithServer(serverId, cmd) : sshExecutionService.execute(cmd);
-        if (result.isEmpty() || !result.get().isSuccess()) return;
-        String out = result.get().getStdout();
-        for (String line : out.split("\n")) {
+    }
+
+    private static Map<String, Long> parseRestartCounts(SshCommandResult result) {
+        // inspect prints full ids, containers carry the 12-character short id.
+        Map<String, Long> byShortId = new HashMap<>();
+        for (String line : result.getStdout().split("\n")) {
             line = line.trim();
-            if (line.isEmpty()) continue;
             int lastSpace = line.lastIndexOf(' ');
             if (lastSpace <= 0) continue;
             String fullId = line.substring(0, lastSpace).trim();
-            String countStr = line.substring(lastSpace + 1).trim();
-            long count = 0;
             try {
-                count = Long.parseLong(countStr);
+                byShortId.put(fullId.length() >= 12 ? fullId.substring(0, 12) : fullId,
+                        Long.parseLong(line.substring(lastSpace + 1).trim()));
             } catch (NumberFormatException ignored) {}
-            for (ContainerInfo c : containers) {
-                if (fullId.startsWith(c.getId()) || c.getId().startsWith(fullId.length() >= 12 ? fullId.substring(0, 12) : fullId)) {
-                    c.setRestartCount(count);
-                    break;
-                }
-            }
         }
+        return byShortId;
     }
 }
@@ -0,0 +1,254 @@
+package com.sentinelops.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sentinelops.config.DockerProperties;
+import com.sentinelops.model.snapshot.DockerEvent;
+import com.sentinelops.service.SshExecutionService.SshCommandResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * One long-running SSH channel per host that runs docker events and docker stats (streaming, about
+ * one refresh per second) side by side and keeps what they print in a per-container table. Docker
+ * snapshots read the table instead of sampling stats, and lifecycle events are visible as soon as
+ * the daemon reports them.
+ * <p>
+ * A host's stream starts with its first snapshot and is stopped after {@code docker.stream-idle-ms}
+ * without one. A stream that ends (connection lost, daemon restarted, no docker) is started again
+ * by a later snapshot, at most once a minute; snapshots use the batch collectors meanwhile.
+ */
+@Service
+public class DockerStreamService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String DEFAULT_SERVER = "";
+    // Actions kept and reported; exec_* and health check noise are left out by the filter.
+    private static final List<String> ACTIONS =
+            List.of("create", "start", "restart", "die", "oom", "kill", "stop", "destroy", "pause", "unpause");
+    // Actions after which the container's RestartCount may differ from what was last inspected.
+    private static final Set<String> CHANGES_RESTART_COUNT = Set.of("create", "start", "restart", "die", "destroy");
+    private static final Pattern CONTAINER_ID = Pattern.compile("[0-9a-f]{12,64}");
+    // docker stats moves the cursor home and clears the screen before each refresh, even into a pipe.
+    private static final String REFRESH = "\033[2J";
+    private static final int MAX_EVENTS = 50;
+    private static final long STATS_STALE_MS = 10_000;
+    private static final long RESTART_DELAY_MS = 60_000;
+    static final long RECENT_DIES_MS = 600_000;
+
+    // The background docker events is killed once docker stats ends; stats is the one that notices a
+    // closed channel (its next write fails) within a second.
+    static final String STREAM_CMD = "docker events --format '{{json .}}' --filter type=container"
+            + ACTIONS.stream().map(a -> " --filter event=" + a).reduce("", String::concat)
+            + " & docker stats --format '{{json .}}'; kill $! 2>/dev/null";
+
+    private final SshExecutionService sshExecutionService;
+    private final DockerProperties dockerProperties;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    public DockerStreamService(SshExecutionService sshExecutionService, DockerProperties dockerProperties) {
+        this.sshExecutionService = sshExecutionService;
+        this.dockerProperties = dockerProperties;
+    }
+
+    /**
+     * The stream state of a server (null for the default SSH host), starting the stream if it is
+     * not running. Returns null while a failed stream waits to be restarted.
+     */
+    public Host host(String serverId) {
+        long now = System.currentTimeMillis();
+        Host host = hosts.compute(key(serverId), (k, current) -> {
+            if (current != null && (!current.isEnded() || now - current.endedAt < RESTART_DELAY_MS)) return current;
+            Host started = new Host();
+            started.running = sshExecutionService.stream(serverId, STREAM_CMD, started::accept, started.stop);
+            started.running.whenComplete((r, e) -> started.endedAt = System.currentTimeMillis());
+            return started;
+        });
+        host.lastUsedAt = now;
+        return host.isEnded() ? null : host;
+    }
+
+    /** Stop the stream of a changed or removed server. */
+    public void forget(String serverId) {
+        Host host = hosts.remove(key(serverId));
+        if (host != null) host.stop.complete(null);
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        forget(event.getServerId());
+    }
+
+    @Scheduled(initialDelay = 60_000, fixedDelay = 60_000)
+    public void stopIdle() {
+        long now = System.currentTimeMillis();
+        hosts.entrySet().removeIf(entry -> {
+            Host host = entry.getValue();
+            boolean idle = now - host.lastUsedAt > dockerProperties.getStreamIdleMs();
+            if (idle) host.stop.complete(null);
+            return idle;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hosts.values().forEach(host -> host.stop.complete(null));
+        hosts.clear();
+    }
+
+    private static String key(String serverId) {
+        return serverId != null ? serverId : DEFAULT_SERVER;
+    }
+
+    private static String shortId(String id) {
+        return id.length() > 12 ? id.substring(0, 12) : id;
+    }
+
+    /**
+     * What the stream of one host has seen. Lines arrive on the JSch session thread while
+     * snapshots read from other threads.
+     */
+    static final class Host {
+        // short container id -> {CPU %, mem usage, mem %} as printed by docker stats, and when it was printed
+        private final Map<String, String[]> stats = new ConcurrentHashMap<>();
+        private final Map<String, Long> statsAt = new ConcurrentHashMap<>();
+        private final Map<String, Long> restartCounts = new ConcurrentHashMap<>();
+        private final Set<String> changed = ConcurrentHashMap.newKeySet();
+        private final Deque<DockerEvent> events = new ArrayDeque<>();
+        private final CompletableFuture<Void> stop = new CompletableFuture<>();
+        private volatile CompletableFuture<SshCommandResult> running;
+        private volatile boolean restartCountsKnown;
+        private volatile long lastRefreshAt;
+        private volatile long lastUsedAt;
+        private volatile long endedAt;
+
+        boolean isEnded() {
+            return running != null && running.isDone();
+        }
+
+        /** docker stats printed within the last few seconds, so the table is current. */
+        boolean isLive() {
+            return !isEnded() && System.currentTimeMillis() - lastRefreshAt <= STATS_STALE_MS;
+        }
+
+        void accept(String line, boolean terminated) {
+            accept(line, System.currentTimeMillis());
+        }
+
+        void accept(String line, long now) {
+            if (line.contains(REFRESH)) lastRefreshAt = now;
+            int start = line.indexOf('{');
+            if (start < 0) return;
+            JsonNode node;
+            try {
+                node = MAPPER.readTree(line.substring(start));
+            } catch (IOException e) {
+                return; // cut off by the channel closing
+            }
+            if (node.has("CPUPerc")) {
+                String id = shortId(node.path("ID").asText());
+                stats.put(id, new String[]{node.path("CPUPerc").asText(), node.path("MemUsage").asText(),
+                        node.path("MemPerc").asText()});
+                statsAt.put(id, now);
+                lastRefreshAt = now;
+            } else if (node.has("Action")) {
+                onEvent(node);
+            }
+        }
+
+        private void onEvent(JsonNode node) {
+            String action = node.path("Action").asText();
+            if (!ACTIONS.contains(action)) return;
+            String id = shortId(node.path("Actor").path("ID").asText(node.path("id").asText()));
+            JsonNode attributes = node.path("Actor").path("Attributes");
+            DockerEvent event = new DockerEvent();
+            long nanos = node.path("timeNano").asLong();
+            event.setTime(nanos > 0 ? Instant.ofEpochSecond(0, nanos) : Instant.ofEpochSecond(node.path("time").asLong()));
+            event.setContainerId(id);
+            event.setName(attributes.path("name").asText(null));
+            event.setAction(action);
+            if (attributes.has("exitCode")) {
+                try {
+                    event.setExitCode(Integer.parseInt(attributes.path("exitCode").asText()));
+                } catch (NumberFormatException ignored) {}
+            }
+            synchronized (events) {
+                events.addLast(event);
+                while (events.size() > MAX_EVENTS) events.removeFirst();
+            }
+            if (CHANGES_RESTART_COUNT.contains(action)) changed.add(id);
+            if ("destroy".equals(action)) {
+                stats.remove(id);
+                statsAt.remove(id);
+                restartCounts.remove(id);
+            }
+        }
+
+        /** Stats line of a container printed by the current refresh, or null. */
+        String[] stats(String id) {
+            Long at = statsAt.get(shortId(id));
+            return at != null && System.currentTimeMillis() - at <= STATS_STALE_MS ? stats.get(shortId(id)) : null;
+        }
+
+        Long restartCount(String id) {
+            return restartCounts.get(shortId(id));
+        }
+
+        /**
+         * Containers whose restart count has to be read from docker inspect: all of them (null)
+         * until a full inspect succeeded, then those touched by an event since. The ids are
+         * handed out once; a failed inspect gives them back with {@link #inspectFailed}.
+         */
+        List<String> takeIdsToInspect() {
+            if (!restartCountsKnown) return null;
+            List<String> ids = new ArrayList<>();
+            for (String id : changed) {
+                changed.remove(id);
+                if (CONTAINER_ID.matcher(id).matches()) ids.add(id);
+            }
+            return ids;
+        }
+
+        void inspected(Map<String, Long> countsByShortId, boolean all) {
+            if (all) restartCounts.clear();
+            restartCounts.putAll(countsByShortId);
+            if (all) restartCountsKnown = true;
+        }
+
+        void inspectFailed(List<String> ids) {
+            if (ids != null) changed.addAll(ids);
+        }
+
+        int recentDies(String id) {
+            String shortId = shortId(id);
+            Instant since = Instant.now().minusMillis(RECENT_DIES_MS);
+            int dies = 0;
+            synchronized (events) {
+                for (DockerEvent e : events) {
+                    if ("die".equals(e.getAction()) && shortId.equals(e.getContainerId()) && e.getTime().isAfter(since)) dies++;
+                }
+            }
+            return dies;
+        }
+
+        List<DockerEvent> recentEvents() {
+            synchronized (events) {
+                return new ArrayList<>(events);
+            }
+        }
+    }
+}
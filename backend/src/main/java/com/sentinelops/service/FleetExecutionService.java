@@ -0,0 +1,226 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.FleetProperties;
+import com.sentinelops.model.RiskLevel;
+import com.sentinelops.model.Server;
+import com.sentinelops.repository.ServerRepository;
+import com.sentinelops.service.CommandExecutionService.ExecuteResult;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Runs one command on many servers: a sliding window of at most {@code concurrency} hosts is in
+ * flight, each through {@link CommandExecutionService} (so every host gets its own history entry),
+ * and per-host results are handed to a callback as soon as each host completes.
+ */
+@Service
+public class FleetExecutionService {
+
+    private final ServerRepository serverRepository;
+    private final CommandExecutionService commandExecutionService;
+    private final SshExecutor sshExecutor;
+    private final FleetProperties fleetProperties;
+
+    public FleetExecutionService(ServerRepository serverRepository, CommandExecutionService commandExecutionService,
+                                 SshExecutor sshExecutor, FleetProperties fleetProperties) {
+        this.serverRepository = serverRepository;
+        this.commandExecutionService = commandExecutionService;
+        this.sshExecutor = sshExecutor;
+        this.fleetProperties = fleetProperties;
+    }
+
+    /**
+     * Servers matching the selector: every server when {@code all} is set, otherwise the given ids
+     * plus servers whose name matches the glob pattern ({@code *} and {@code ?}, case-insensitive).
+     */
+    public List<Server> selectTargets(List<String> serverIds, boolean all, String namePattern) {
+        if (all) return serverRepository.findAll();
+        Map<String, Server> selected = new LinkedHashMap<>();
+        if (serverIds != null) {
+            for (String id : serverIds) {
+                serverRepository.findById(id).ifPresent(s -> selected.putIfAbsent(s.getId(), s));
+            }
+        }
+        if (namePattern != null && !namePattern.isBlank()) {
+            Pattern pattern = globToPattern(namePattern.trim());
+            for (Server s : serverRepository.findAll()) {
+                if (s.getName() != null && pattern.matcher(s.getName()).matches()) {
+                    selected.putIfAbsent(s.getId(), s);
+                }
+            }
+        }
+        return new ArrayList<>(selected.values());
+    }
+
+    static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) regex.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    public int effectiveConcurrency(Integer requested) {
+        int value = requested != null && requested > 0 ? requested : fleetProperties.getDefaultConcurrency();
+        return Math.max(1, Math.min(value, fleetProperties.getMaxConcurrency()));
+    }
+
+    public long effectiveTimeoutMs(Long requested) {
+        long value = requested != null && requested > 0 ? requested : fleetProperties.getDefaultTimeoutMs();
+        return Math.min(value, fleetProperties.getMaxTimeoutMs());
+    }
+
+    /**
+     * Run the command on every target. {@code onResult} is called once per host, from executor
+     * threads and possibly concurrently. The returned future completes after the last host.
+     */
+    public CompletableFuture<Summary> execute(String command, RiskLevel confirmedRiskLevel, List<Server> targets,
+                                              int concurrency, long timeoutMs, Consumer<HostResult> onResult) {
+        Summary summary = new Summary();
+        summary.total = targets.size();
+        CompletableFuture<Summary> done = new CompletableFuture<>();
+        if (targets.isEmpty()) {
+            done.complete(summary);
+            return done;
+        }
+        Fanout fanout = new Fanout(command, confirmedRiskLevel, targets.iterator(), timeoutMs, onResult, summary, done);
+        for (int i = 0; i < Math.min(concurrency, targets.size()); i++) {
+            fanout.startNext();
+        }
+        return done;
+    }
+
+    private final class Fanout {
+        private final String command;
+        private final RiskLevel confirmedRiskLevel;
+        private final Iterator<Server> targets;
+        private final long timeoutMs;
+        private final Consumer<HostResult> onResult;
+        private final Summary summary;
+        private final CompletableFuture<Summary> done;
+        private final AtomicInteger remaining;
+        private final long startedAt = System.nanoTime();
+
+        private Fanout(String command, RiskLevel confirmedRiskLevel, Iterator<Server> targets, long timeoutMs,
+                       Consumer<HostResult> onResult, Summary summary, CompletableFuture<Summary> done) {
+            this.command = command;
+            this.confirmedRiskLevel = confirmedRiskLevel;
+            this.targets = targets;
+            this.timeoutMs = timeoutMs;
+            this.onResult = onResult;
+            this.summary = summary;
+            this.done = done;
+            this.remaining = new AtomicInteger(summary.total);
+        }
+
+        private void startNext() {
+            Server server;
+            synchronized (targets) {
+                if (!targets.hasNext()) return;
+                server = targets.next();
+            }
+            long hostStart = System.nanoTime();
+            commandExecutionService.executeAsync(command, confirmedRiskLevel, server.getId(), timeoutMs)
+                    .handle((result, e) -> toHostResult(server, result, e, hostStart))
+                    // Async hop: keeps callbacks off the JSch thread and bounds recursion when hosts fail fast.
+                    .thenAcceptAsync(this::finish, sshExecutor);
+        }
+
+        private void finish(HostResult result) {
+            try {
+                onResult.accept(result);
+            } catch (RuntimeException ignored) {
+                // a failing consumer (e.g. client went away) must not stall the remaining hosts
+            }
+            synchronized (summary) {
+                if (result.executed && result.exitCode == 0) summary.succeeded++;
+                else summary.failed++;
+            }
+            if (remaining.decrementAndGet() == 0) {
+                summary.durationMs = (System.nanoTime() - startedAt) / 1_000_000;
+                done.complete(summary);
+            } else {
+                startNext();
+            }
+        }
+    }
+
+    private static HostResult toHostResult(Server server, Optional<ExecuteResult> result, Throwable error, long startNanos) {
+        HostResult hr = new HostResult();
+        hr.serverId = server.getId();
+        hr.name = server.getName();
+        hr.host = server.getHost();
+        hr.durationMs = (System.nanoTime() - startNanos) / 1_000_000;
+        hr.exitCode = -1;
+        if (error != null || result == null || result.isEmpty()) {
+            hr.rejectionReason = error != null ? String.valueOf(error.getMessage()) : "Execution failed.";
+            return hr;
+        }
+        ExecuteResult r = result.get();
+        hr.executed = r.isExecuted();
+        hr.rejectionReason = r.getRejectionReason();
+        if (r.isExecuted()) {
+            hr.exitCode = r.getExitCode();
+            hr.stdout = r.getStdout();
+            hr.stderr = r.getStderr();
+            hr.truncated = r.isTruncated();
+        }
+        return hr;
+    }
+
+    public static class HostResult {
+        private String serverId;
+        private String name;
+        private String host;
+        private boolean executed;
+        private int exitCode;
+        private String stdout;
+        private String stderr;
+        private boolean truncated;
+        private String rejectionReason;
+        private long durationMs;
+
+        public String getServerId() { return serverId; }
+        public String getName() { return name; }
+        public String getHost() { return host; }
+        public boolean isExecuted() { return executed; }
+        public int getExitCode() { return exitCode; }
+        public String getStdout() { return stdout; }
+        public String getStderr() { return stderr; }
+        public boolean isTruncated() { return truncated; }
+        public String getRejectionReason() { return rejectionReason; }
+        public long getDurationMs() { return durationMs; }
+    }
+
+    public static class Summary {
+        private int total;
+        private int succeeded;
+        private int failed;
+        private long durationMs;
+
+        public int getTotal() { return total; }
+        public int getSucceeded() { return succeeded; }
+        public int getFailed() { return failed; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
@@ -0,0 +1,185 @@
+package com.sentinelops.service;
+
+import java.util.Arrays;
+
+/**
+ * The time series compression of Facebook's Gorilla paper. Timestamps are stored as
+ * delta-of-deltas, so a steady interval costs one bit per row. Values are stored as the XOR with the
+ * previous value, so an unchanged value costs one bit and a slowly changing one a few bits around
+ * its differing mantissa. Both take the rows in order and return a packed bit stream; decoding needs
+ * the row count.
+ */
+final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    static long[] encodeTimestamps(long[] timestamps, int n) {
+        BitWriter out = new BitWriter();
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < n; i++) {
+            long t = timestamps[i];
+            if (i == 0) {
+                out.write(t, 64);
+            } else if (i == 1) {
+                previousDelta = t - previous;
+                out.write(previousDelta, 64);
+            } else {
+                long delta = t - previous;
+                long dod = delta - previousDelta;
+                if (dod == 0) {
+                    out.write(0, 1);
+                } else if (dod >= -63 && dod <= 64) {
+                    out.write(0b10, 2);
+                    out.write(dod + 63, 7);
+                } else if (dod >= -255 && dod <= 256) {
+                    out.write(0b110, 3);
+                    out.write(dod + 255, 9);
+                } else if (dod >= -2047 && dod <= 2048) {
+                    out.write(0b1110, 4);
+                    out.write(dod + 2047, 12);
+                } else {
+                    out.write(0b1111, 4);
+                    out.write(dod, 64);
+                }
+                previousDelta = delta;
+            }
+            previous = t;
+        }
+        return out.toWords();
+    }
+
+    static long[] decodeTimestamps(long[] words, int n) {
+        BitReader in = new BitReader(words);
+        long[] timestamps = new long[n];
+        long delta = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0) {
+                timestamps[0] = in.read(64);
+                continue;
+            }
+            if (i == 1) {
+                delta = in.read(64);
+            } else if (in.read(1) != 0) {
+                long dod;
+                if (in.read(1) == 0) dod = in.read(7) - 63;
+                else if (in.read(1) == 0) dod = in.read(9) - 255;
+                else if (in.read(1) == 0) dod = in.read(12) - 2047;
+                else dod = in.read(64);
+                delta += dod;
+            }
+            timestamps[i] = timestamps[i - 1] + delta;
+        }
+        return timestamps;
+    }
+
+    static long[] encodeValues(double[] values, int n) {
+        BitWriter out = new BitWriter();
+        long previous = 0;
+        int leading = Integer.MAX_VALUE;
+        int trailing = 0;
+        for (int i = 0; i < n; i++) {
+            long bits = Double.doubleToLongBits(values[i]);
+            if (i == 0) {
+                out.write(bits, 64);
+                previous = bits;
+                continue;
+            }
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                out.write(0, 1);
+                continue;
+            }
+            out.write(1, 1);
+            int lz = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int tz = Long.numberOfTrailingZeros(xor);
+            if (leading != Integer.MAX_VALUE && lz >= leading && tz >= trailing) {
+                // Fits in the previous window: only its meaningful bits.
+                out.write(0, 1);
+                out.write(xor >>> trailing, 64 - leading - trailing);
+            } else {
+                leading = lz;
+                trailing = tz;
+                int meaningful = 64 - lz - tz;
+                out.write(1, 1);
+                out.write(lz, 5);
+                out.write(meaningful & 63, 6); // 64 is written as 0
+                out.write(xor >>> tz, meaningful);
+            }
+        }
+        return out.toWords();
+    }
+
+    static double[] decodeValues(long[] words, int n) {
+        BitReader in = new BitReader(words);
+        double[] values = new double[n];
+        long previous = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0) {
+                previous = in.read(64);
+            } else if (in.read(1) != 0) {
+                if (in.read(1) != 0) {
+                    leading = (int) in.read(5);
+                    int meaningful = (int) in.read(6);
+                    if (meaningful == 0) meaningful = 64;
+                    trailing = 64 - leading - meaningful;
+                }
+                previous ^= in.read(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    /** Bits appended most significant first into 64-bit words. */
+    private static final class BitWriter {
+        private long[] words = new long[4];
+        private int bits;
+
+        void write(long value, int n) {
+            if (n == 0) return;
+            if (n < 64) value &= (1L << n) - 1;
+            int index = bits >>> 6;
+            int free = 64 - (bits & 63);
+            if (index + 1 >= words.length) words = Arrays.copyOf(words, words.length * 2);
+            if (n <= free) {
+                words[index] |= value << (free - n);
+            } else {
+                words[index] |= value >>> (n - free);
+                words[index + 1] |= value << (64 - (n - free));
+            }
+            bits += n;
+        }
+
+        long[] toWords() {
+            return Arrays.copyOf(words, (bits + 63) >>> 6);
+        }
+    }
+
+    private static final class BitReader {
+        private final long[] words;
+        private int position;
+
+        BitReader(long[] words) {
+            this.words = words;
+        }
+
+        long read(int n) {
+            if (n == 0) return 0;
+            int index = position >>> 6;
+            int free = 64 - (position & 63);
+            long value;
+            if (n <= free) {
+                value = words[index] >>> (free - n);
+            } else {
+                value = (words[index] << (n - free)) | (words[index + 1] >>> (64 - (n - free)));
+            }
+            position += n;
+            return n < 64 ? value & ((1L << n) - 1) : value;
+        }
+    }
+}
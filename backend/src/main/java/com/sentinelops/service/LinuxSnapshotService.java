@@ -1,5 +1,6 @@
 package com.sentinelops.service;
 
+import com.sentinelops.config.LinuxProperties;
 import com.sentinelops.model.snapshot.DiskUsage;
 import com.sentinelops.model.snapshot.LinuxSnapshot;
 import com.sentinelops.model.snapshot.MemoryInfo;
@@ -8,19 +9,24 @@ import com.sentinelops.service.SshExecutionService.SshCommandResult;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.Optional;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Collects Linux system data via SSH: df -h, free -m, uptime.
- * Parses output into structured LinuxSnapshot.
+ * Collects Linux system data via SSH in one batched round trip. By default ({@code linux.collector:
+ * proc}) memory, load and uptime come from /proc and disks from df -B1 -P, giving exact byte values;
+ * hosts without /proc fall back to parsing df -h, free -m and uptime. CPU usage comes from /proc/stat
+ * deltas ({@link CpuSampler}), or from top on the fallback.
  */
 @Service
 public class LinuxSnapshotService {
 
     private final SshExecutionService sshExecutionService;
+    private final LinuxProperties linuxProperties;
+    private final CpuSampler cpuSampler;
 
     // df -h: Filesystem Size Used Avail Use% Mounted on (header + lines)
     private static final Pattern DF_LINE = Pattern.compile(
@@ -36,8 +42,21 @@ public class LinuxSnapshotService {
     private static final Pattern LOAD_AVG = Pattern.compile(
             "load average:\\s*([\\d.,]+)\\s*,\\s*([\\d.,]+)\\s*,\\s*([\\d.,]+)");
 
-    public LinuxSnapshotService(SshExecutionService sshExecutionService) {
+    private static final String DF_CMD = "df -h";
+    private static final String FREE_CMD = "free -m";
+    private static final String UPTIME_CMD = "uptime";
+    private static final String CPU_CMD = "LC_ALL=C top -bn1 | grep 'Cpu(s)'";
+
+    private static final String MEMINFO_CMD = "cat /proc/meminfo";
+    private static final String LOADAVG_CMD = "cat /proc/loadavg";
+    private static final String PROC_UPTIME_CMD = "cat /proc/uptime";
+    private static final String DF_BYTES_CMD = "df -B1 -P";
+
+    public LinuxSnapshotService(SshExecutionService sshExecutionService, LinuxProperties linuxProperties,
+                                CpuSampler cpuSampler) {
         this.sshExecutionService = sshExecutionService;
+        this.linuxProperties = linuxProperties;
+        this.cpuSampler = cpuSampler;
     }
 
     public LinuxSnapshot capture() {
@@ -45,35 +64,95 @@ public class LinuxSnapshotService {
     }
 
     public LinuxSnapshot capture(String serverId) {
+        return captureAsync(serverId, null).join();
+    }
+
+    /**
+     * Non-blocking capture; the batch is killed after {@code timeoutMs} (null uses
+     * {@code ssh.command-timeout-ms}).
+     */
+    public CompletableFuture<LinuxSnapshot> captureAsync(String serverId, Long timeoutMs) {
+        if (linuxProperties.getCollector() == LinuxProperties.Collector.SHELL) {
+            return batch(serverId, List.of(DF_CMD, FREE_CMD, UPTIME_CMD, CPU_CMD), timeoutMs).thenApply(this::toSnapshot);
+        }
+        return batch(serverId, List.of(MEMINFO_CMD, LOADAVG_CMD, PROC_UPTIME_CMD,
+                        cpuSampler.command(serverId), DF_BYTES_CMD), timeoutMs)
+                .thenCompose(results -> {
+                    SshCommandResult meminfo = results.get(0);
+                    if (!meminfo.isSuccess() && !connectionFailed(results)) {
+                        // Ran, but no /proc/meminfo: not Linux (or a restricted container).
+                        return batch(serverId, List.of(DF_CMD, FREE_CMD, UPTIME_CMD, CPU_CMD), timeoutMs)
+                                .thenApply(this::toSnapshot);
+                    }
+                    return CompletableFuture.completedFuture(toProcSnapshot(serverId, results));
+                });
+    }
+
+    private CompletableFuture<List<SshCommandResult>> batch(String serverId, List<String> commands, Long timeoutMs) {
+        return timeoutMs != null
+                ? sshExecutionService.executeBatchAsync(serverId, commands, timeoutMs)
+                : sshExecutionService.executeBatchAsync(serverId, commands);
+    }
+
+    private static boolean connectionFailed(List<SshCommandResult> results) {
+        return results.stream().allMatch(r -> r.getExitCode() == -1 && r.getStdout().isEmpty());
+    }
+
+    private LinuxSnapshot toProcSnapshot(String serverId, List<SshCommandResult> results) {
+        LinuxSnapshot snapshot = new LinuxSnapshot();
+        if (connectionFailed(results)) {
+            snapshot.setError("SSH not configured or connection failed: " + results.get(0).getStderr().trim());
+            return snapshot;
+        }
+        SshCommandResult meminfo = results.get(0);
+        SshCommandResult loadavg = results.get(1);
+        SshCommandResult uptime = results.get(2);
+        SshCommandResult stat = results.get(3);
+        SshCommandResult df = results.get(4);
+        String latestStat = stat.isSuccess() ? CpuSampler.latest(stat.getStdout()) : "";
+
+        // rawFree and rawUptime stay null: they hold the output of free and uptime, which proc mode does not run.
+        snapshot.setRawMeminfo(meminfo.getStdout());
+        snapshot.setMemory(ProcFsParser.parseMeminfo(meminfo.getStdout()));
+        snapshot.setRawLoadavg(loadavg.getStdout());
+        snapshot.setUptime(ProcFsParser.parseUptime(
+                uptime.isSuccess() ? uptime.getStdout() : "",
+                loadavg.isSuccess() ? loadavg.getStdout() : "",
+                latestStat));
+        snapshot.setRawDf(df.getStdout());
+        // df exits 1 when one mount cannot be read but still lists the others.
+        if (!df.getStdout().isBlank()) snapshot.setDiskUsage(ProcFsParser.parseDfBytes(df.getStdout()));
+        snapshot.setRawCpu(latestStat);
+        CpuSampler.Sample cpu = stat.isSuccess() ? cpuSampler.sample(serverId, stat.getStdout()) : null;
+        if (cpu != null) {
+            snapshot.setCpu(cpu.getTotal());
+            snapshot.setCpuCores(cpu.getCores());
+            snapshot.setCpuSampleMs(cpu.getIntervalMs());
+            snapshot.setCpuUsagePercent(cpu.getTotal().getUsagePercent());
+        }
+        return snapshot;
+    }
+
+    private LinuxSnapshot toSnapshot(List<SshCommandResult> results) {
         LinuxSnapshot snapshot = new LinuxSnapshot();
-        Optional<SshCommandResult> dfResult = serverId != null ? sshExecutionService.executeWithServer(serverId, "df -h") : sshExecutionService.execute("df -h");
-        Optional<SshCommandResult> freeResult = serverId != null ? sshExecutionService.executeWithServer(serverId, "free -m") : sshExecutionService.execute("free -m");
-        Optional<SshCommandResult> uptimeResult = serverId != null ? sshExecutionService.executeWithServer(serverId, "uptime") : sshExecutionService.execute("uptime");
-        Optional<SshCommandResult> cpuResult = serverId != null
-                ? sshExecutionService.executeWithServer(serverId, "LC_ALL=C top -bn1 | grep 'Cpu(s)'")
-                : sshExecutionService.execute("LC_ALL=C top -bn1 | grep 'Cpu(s)'");
-
-        if (dfResult.isEmpty() && freeResult.isEmpty() && uptimeResult.isEmpty() && cpuResult.isEmpty()) {
-            snapshot.setError("SSH not configured or connection failed.");
+        SshCommandResult dfResult = results.get(0);
+        SshCommandResult freeResult = results.get(1);
+        SshCommandResult uptimeResult = results.get(2);
+        SshCommandResult cpuResult = results.get(3);
+
+        if (connectionFailed(results)) {
+            snapshot.setError("SSH not configured or connection failed: " + dfResult.getStderr().trim());
             return snapshot;
         }
 
-        dfResult.ifPresent(r -> {
-            snapshot.setRawDf(r.getStdout());
-            if (r.isSuccess()) parseDf(r.getStdout(), snapshot);
-        });
-        freeResult.ifPresent(r -> {
-            snapshot.setRawFree(r.getStdout());
-            if (r.isSuccess()) parseFree(r.getStdout(), snapshot);
-        });
-        uptimeResult.ifPresent(r -> {
-            snapshot.setRawUptime(r.getStdout());
-            if (r.isSuccess()) parseUptime(r.getStdout(), snapshot);
-        });
-        cpuResult.ifPresent(r -> {
-            snapshot.setRawCpu(r.getStdout());
-            if (r.isSuccess()) parseCpu(r.getStdout(), snapshot);
-        });
+        snapshot.setRawDf(dfResult.getStdout());
+        if (dfResult.isSuccess()) parseDf(dfResult.getStdout(), snapshot);
+        snapshot.setRawFree(freeResult.getStdout());
+        if (freeResult.isSuccess()) parseFree(freeResult.getStdout(), snapshot);
+        snapshot.setRawUptime(uptimeResult.getStdout());
+        if (uptimeResult.isSuccess()) parseUptime(uptimeResult.getStdout(), snapshot);
+        snapshot.setRawCpu(cpuResult.getStdout());
+        if (cpuResult.isSuccess()) parseCpu(cpuResult.getStdout(), snapshot);
 
         return snapshot;
     }
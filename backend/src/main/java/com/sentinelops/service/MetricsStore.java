@@ -0,0 +1,414 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.model.snapshot.ContainerInfo;
+import com.sentinelops.model.snapshot.DiskUsage;
+import com.sentinelops.model.snapshot.LinuxSnapshot;
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Numeric host metrics of every snapshot, kept as columns. At append time the numbers analytics
+ * needs are taken out of the snapshot (see {@link #extract}) and written as one row: a timestamp
+ * plus one value per metric. Rows go to the raw tier and are folded into 1-minute, 5-minute and
+ * 1-hour rollups (min, max, sum and count per metric) as they arrive; each tier has its own
+ * retention, so raw rows cover hours and hourly rows a month. Full chunks of every tier are sealed
+ * with {@link GorillaCodec}, which brings a row down from 8 bytes per metric to a few bits for
+ * steady values.
+ * <p>
+ * Metric names are {@code group.name}, with the mount, container or status code after a colon:
+ * {@code disk.usePercent:/var/lib/docker}, {@code container.restarts:api}, {@code nginx.status:502}.
+ */
+@Service
+public class MetricsStore {
+
+    private static final String DEFAULT_SERVER = "";
+    static final int CHUNK_ROWS = 256;
+    /** Rollup rows hold four columns per metric, so their chunks are sealed sooner. */
+    static final int ROLLUP_CHUNK_ROWS = 64;
+    static final long[] ROLLUP_STEPS_MS = {60_000L, 300_000L, 3_600_000L};
+
+    private static final String MIN = "|min";
+    private static final String MAX = "|max";
+    private static final String SUM = "|sum";
+    private static final String COUNT = "|n";
+
+    private final SnapshotProperties snapshotProperties;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    public MetricsStore(SnapshotProperties snapshotProperties) {
+        this.snapshotProperties = snapshotProperties;
+    }
+
+    public void append(String serverId, SystemSnapshot snapshot) {
+        append(serverId, System.currentTimeMillis(), extract(snapshot));
+    }
+
+    void append(String serverId, long timestampMs, Map<String, Double> values) {
+        String key = key(serverId);
+        Series s = series.get(key);
+        if (s == null) {
+            s = series.computeIfAbsent(key, k -> new Series());
+            evictIfFull(key);
+        }
+        s.append(timestampMs, values, retentions());
+    }
+
+    /**
+     * The newest {@code limit} raw rows of a server (null for the default SSH host), oldest first,
+     * with the columns whose names start with one of {@code prefixes}.
+     */
+    public Table newest(String serverId, int limit, String... prefixes) {
+        Series s = series.get(key(serverId));
+        return s != null ? s.raw(Long.MIN_VALUE, Long.MAX_VALUE, Math.max(0, limit), prefixes) : Table.empty(0);
+    }
+
+    /**
+     * Rows of a server between {@code fromMs} and {@code toMs} from the coarsest tier whose step
+     * still gives {@code maxPoints} points over the range and whose retention reaches back to
+     * {@code fromMs}; when no tier has both, the finest one that reaches back far enough (or the
+     * hourly one). Rollup rows are at the start of their bucket, with the average as the value.
+     */
+    public Table range(String serverId, long fromMs, long toMs, int maxPoints, String... prefixes) {
+        Series s = series.get(key(serverId));
+        if (s == null || toMs < fromMs) return Table.empty(0);
+        int tier = tier(s.lastTimestamp(), fromMs, (toMs - fromMs) / Math.max(1, maxPoints));
+        return tier < 0
+                ? s.raw(fromMs, toMs, Integer.MAX_VALUE, prefixes)
+                : s.rollup(tier, fromMs, toMs, prefixes);
+    }
+
+    /**
+     * The metrics selected by {@code prefixes} in buckets of {@code stepMs} (aligned to multiples of
+     * it) from {@code fromMs} to {@code toMs}. Rows come from the tier {@link #range} would use for
+     * that step and are folded into their bucket in one pass, without building points. Rollup rows
+     * go to the bucket they start in: avg is weighted by their counts, min/max use theirs, and last
+     * is the newest row's average. Buckets without a value are NaN.
+     */
+    public Buckets query(String serverId, long fromMs, long toMs, long stepMs, Aggregation aggregation,
+                         String... prefixes) {
+        long step = Math.max(1, stepMs);
+        long first = Math.floorDiv(fromMs, step) * step;
+        int n = toMs < fromMs ? 0 : (int) Math.min(Integer.MAX_VALUE - 8, (toMs - first) / step + 1);
+        long[] starts = new long[n];
+        for (int b = 0; b < n; b++) starts[b] = first + b * step;
+        Series s = series.get(key(serverId));
+        if (s == null || n == 0) return new Buckets(step, 0, starts, new TreeMap<>());
+
+        int tier = tier(s.lastTimestamp(), fromMs, step);
+        ColumnChunks.Rows rows = s.rows(tier, tier < 0 ? fromMs : fromMs - Math.floorMod(fromMs, ROLLUP_STEPS_MS[tier]),
+                toMs, tier < 0 ? name -> matches(name, prefixes) : name -> rollupColumn(name, aggregation, prefixes));
+        Map<String, double[]> values = new TreeMap<>();
+        rows.columns.forEach((column, columnValues) -> {
+            String name = tier < 0 ? column : column.substring(0, column.lastIndexOf('|'));
+            if (values.containsKey(name) || column.endsWith(COUNT)) return;
+            double[] counts = tier < 0 ? null : rows.columns.get(name + COUNT);
+            values.put(name, fold(rows.timestamps, columnValues, counts, first, step, n, aggregation));
+        });
+        return new Buckets(step, tier < 0 ? 0 : ROLLUP_STEPS_MS[tier], starts, values);
+    }
+
+    /** One column's rows into buckets; {@code counts} weighs rollup sums for avg and last. */
+    private static double[] fold(long[] timestamps, double[] values, double[] counts, long first, long step, int n,
+                                 Aggregation aggregation) {
+        double[] result = new double[n];
+        double[] weights = aggregation == Aggregation.AVG ? new double[n] : null;
+        Arrays.fill(result, Double.NaN);
+        for (int i = 0; i < timestamps.length; i++) {
+            double value = values[i];
+            if (Double.isNaN(value)) continue;
+            long b = Math.floorDiv(timestamps[i] - first, step);
+            if (b < 0 || b >= n) continue;
+            int bucket = (int) b;
+            double weight = counts != null ? counts[i] : 1;
+            double previous = result[bucket];
+            switch (aggregation) {
+                case AVG -> {
+                    result[bucket] = Double.isNaN(previous) ? value : previous + value;
+                    weights[bucket] += weight;
+                }
+                case MIN -> result[bucket] = Double.isNaN(previous) ? value : Math.min(previous, value);
+                case MAX -> result[bucket] = Double.isNaN(previous) ? value : Math.max(previous, value);
+                case LAST -> result[bucket] = value / weight;
+            }
+        }
+        if (weights != null) {
+            for (int b = 0; b < n; b++) result[b] /= weights[b];
+        }
+        return result;
+    }
+
+    /** The rollup columns an aggregation reads. */
+    private static boolean rollupColumn(String column, Aggregation aggregation, String[] prefixes) {
+        int bar = column.lastIndexOf('|');
+        if (!matches(column.substring(0, bar), prefixes)) return false;
+        String suffix = column.substring(bar);
+        return switch (aggregation) {
+            case AVG, LAST -> suffix.equals(SUM) || suffix.equals(COUNT);
+            case MIN -> suffix.equals(MIN);
+            case MAX -> suffix.equals(MAX);
+        };
+    }
+
+    /** Drop the metrics of a removed server. */
+    public void forget(String serverId) {
+        series.remove(key(serverId));
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        if (event.isDeleted()) forget(event.getServerId());
+    }
+
+    /** Index into ROLLUP_STEPS_MS, or -1 for the raw tier. */
+    int tier(long newestMs, long fromMs, long resolutionMs) {
+        long[] retentions = retentions();
+        int chosen = Integer.MIN_VALUE;
+        for (int t = -1; t < ROLLUP_STEPS_MS.length; t++) {
+            long step = t < 0 ? 0 : ROLLUP_STEPS_MS[t];
+            if (step <= resolutionMs && newestMs - retentions[t + 1] <= fromMs) chosen = t;
+        }
+        if (chosen != Integer.MIN_VALUE) return chosen;
+        for (int t = -1; t < ROLLUP_STEPS_MS.length; t++) {
+            if (newestMs - retentions[t + 1] <= fromMs) return t;
+        }
+        return ROLLUP_STEPS_MS.length - 1;
+    }
+
+    /** Retention of the raw tier, then of each rollup tier. */
+    private long[] retentions() {
+        return new long[]{
+                snapshotProperties.getMetricsRetentionMs(),
+                snapshotProperties.getMetricsMinuteRetentionMs(),
+                snapshotProperties.getMetricsFiveMinuteRetentionMs(),
+                snapshotProperties.getMetricsHourRetentionMs()
+        };
+    }
+
+    /** The numbers analytics charts, by metric name; sections that failed add nothing. */
+    static Map<String, Double> extract(SystemSnapshot snapshot) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        if (snapshot == null) return values;
+        LinuxSnapshot linux = snapshot.getLinux();
+        if (linux != null && linux.getError() == null) {
+            for (DiskUsage d : linux.getDiskUsage()) {
+                String mount = d.getMountedOn() != null ? d.getMountedOn() : d.getFilesystem();
+                put(values, "disk.usePercent:" + mount, number(d.getUsePercent()));
+                if (d.getUsedBytes() != null) put(values, "disk.usedBytes:" + mount, d.getUsedBytes().doubleValue());
+            }
+            if (linux.getMemory() != null && linux.getMemory().getMemTotalMb() > 0) {
+                put(values, "mem.usedMb", (double) linux.getMemory().getMemUsedMb());
+                put(values, "mem.totalMb", (double) linux.getMemory().getMemTotalMb());
+                put(values, "mem.availableMb", (double) linux.getMemory().getMemAvailableMb());
+                put(values, "swap.usedMb", (double) linux.getMemory().getSwapUsedMb());
+            }
+            if (linux.getUptime() != null) {
+                put(values, "load.1", number(linux.getUptime().getLoad1()));
+                put(values, "load.5", number(linux.getUptime().getLoad5()));
+                put(values, "load.15", number(linux.getUptime().getLoad15()));
+            }
+            put(values, "cpu.usagePercent", linux.getCpuUsagePercent());
+            if (linux.getCpu() != null) put(values, "cpu.iowaitPercent", linux.getCpu().getIowaitPercent());
+        }
+        if (snapshot.getDocker() != null && snapshot.getDocker().getError() == null) {
+            for (ContainerInfo c : snapshot.getDocker().getContainers()) {
+                put(values, "container.restarts:" + c.getName(), (double) c.getRestartCount());
+                put(values, "container.cpuPercent:" + c.getName(), number(c.getCpuPercent()));
+                if (c.getMemUsageBytes() != null) put(values, "container.memBytes:" + c.getName(), c.getMemUsageBytes().doubleValue());
+            }
+        }
+        if (snapshot.getPostgres() != null && snapshot.getPostgres().getError() == null) {
+            put(values, "postgres.activeConnections", (double) snapshot.getPostgres().getActiveConnections());
+            if (snapshot.getPostgres().getLockWaits() != null) {
+                put(values, "postgres.lockWaits", (double) snapshot.getPostgres().getLockWaits().size());
+            }
+        }
+        if (snapshot.getNginx() != null && snapshot.getNginx().getError() == null) {
+            snapshot.getNginx().getResponseCodeCounts()
+                    .forEach((code, count) -> put(values, "nginx.status:" + code, count.doubleValue()));
+        }
+        return values;
+    }
+
+    private static void put(Map<String, Double> values, String name, Double value) {
+        if (value != null && !value.isNaN()) values.put(name, value);
+    }
+
+    /** "55%", "12.41%", "0.61" as a number, or null. */
+    private static Double number(String text) {
+        if (text == null) return null;
+        try {
+            return Double.parseDouble(text.replace("%", "").trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void evictIfFull(String added) {
+        while (series.size() > Math.max(1, snapshotProperties.getHistoryMaxServers())) {
+            String stalest = null;
+            long stalestAt = Long.MAX_VALUE;
+            for (Map.Entry<String, Series> e : series.entrySet()) {
+                if (!e.getKey().equals(added) && e.getValue().lastAppendAt < stalestAt) {
+                    stalest = e.getKey();
+                    stalestAt = e.getValue().lastAppendAt;
+                }
+            }
+            if (stalest == null) return;
+            series.remove(stalest);
+        }
+    }
+
+    private static boolean matches(String name, String[] prefixes) {
+        if (prefixes.length == 0) return true;
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static String key(String serverId) {
+        return serverId != null ? serverId : DEFAULT_SERVER;
+    }
+
+    /** Rows read from the store: timestamps (epoch ms) and the selected columns, aligned by index. */
+    public static final class Table {
+        private final long stepMs;
+        private final long[] timestamps;
+        private final Map<String, double[]> columns;
+        private final Map<String, double[]> mins;
+        private final Map<String, double[]> maxs;
+
+        Table(long stepMs, long[] timestamps, Map<String, double[]> columns,
+              Map<String, double[]> mins, Map<String, double[]> maxs) {
+            this.stepMs = stepMs;
+            this.timestamps = timestamps;
+            this.columns = columns;
+            this.mins = mins;
+            this.maxs = maxs;
+        }
+
+        private static Table empty(long stepMs) {
+            return new Table(stepMs, new long[0], new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+        }
+
+        /** Bucket size of a rollup tier, 0 for raw rows. */
+        public long getStepMs() { return stepMs; }
+        public long[] getTimestamps() { return timestamps; }
+        /** Columns by metric name in name order (averages for rollups); NaN where a row has no value. */
+        public Map<String, double[]> getColumns() { return columns; }
+        /** Smallest value of each bucket; the values themselves for raw rows. */
+        public Map<String, double[]> getMins() { return mins; }
+        /** Largest value of each bucket; the values themselves for raw rows. */
+        public Map<String, double[]> getMaxs() { return maxs; }
+    }
+
+    public enum Aggregation { AVG, MIN, MAX, LAST }
+
+    /** Result of {@link #query}: bucket starts (epoch ms) and one value per bucket and metric. */
+    public static final class Buckets {
+        private final long stepMs;
+        private final long sourceStepMs;
+        private final long[] starts;
+        private final Map<String, double[]> values;
+
+        Buckets(long stepMs, long sourceStepMs, long[] starts, Map<String, double[]> values) {
+            this.stepMs = stepMs;
+            this.sourceStepMs = sourceStepMs;
+            this.starts = starts;
+            this.values = values;
+        }
+
+        public long getStepMs() { return stepMs; }
+        /** Step of the tier the buckets were built from, 0 for raw rows. */
+        public long getSourceStepMs() { return sourceStepMs; }
+        public long[] getStarts() { return starts; }
+        /** Values by metric name in name order; NaN for buckets without one. */
+        public Map<String, double[]> getValues() { return values; }
+    }
+
+    /** One server's tiers; guarded by its own monitor. */
+    private static final class Series {
+        private final ColumnChunks raw = new ColumnChunks(CHUNK_ROWS);
+        private final ColumnChunks[] rollups = new ColumnChunks[ROLLUP_STEPS_MS.length];
+        private volatile long lastAppendAt;
+
+        private Series() {
+            for (int t = 0; t < rollups.length; t++) rollups[t] = new ColumnChunks(ROLLUP_CHUNK_ROWS);
+        }
+
+        synchronized void append(long timestampMs, Map<String, Double> values, long[] retentions) {
+            raw.addRow(timestampMs);
+            long at = raw.lastTimestamp();
+            for (Map.Entry<String, Double> v : values.entrySet()) raw.set(v.getKey(), v.getValue());
+            raw.dropBefore(at - retentions[0]);
+
+            for (int t = 0; t < rollups.length; t++) {
+                ColumnChunks rollup = rollups[t];
+                long bucket = at - Math.floorMod(at, ROLLUP_STEPS_MS[t]);
+                if (rollup.lastTimestamp() != bucket) rollup.addRow(bucket);
+                for (Map.Entry<String, Double> v : values.entrySet()) {
+                    String name = v.getKey();
+                    double value = v.getValue();
+                    double count = rollup.get(name + COUNT);
+                    if (Double.isNaN(count)) {
+                        rollup.set(name + MIN, value);
+                        rollup.set(name + MAX, value);
+                        rollup.set(name + SUM, value);
+                        rollup.set(name + COUNT, 1);
+                    } else {
+                        rollup.set(name + MIN, Math.min(rollup.get(name + MIN), value));
+                        rollup.set(name + MAX, Math.max(rollup.get(name + MAX), value));
+                        rollup.set(name + SUM, rollup.get(name + SUM) + value);
+                        rollup.set(name + COUNT, count + 1);
+                    }
+                }
+                rollup.dropBefore(at - retentions[t + 1]);
+            }
+            lastAppendAt = System.currentTimeMillis();
+        }
+
+        synchronized long lastTimestamp() {
+            return raw.lastTimestamp();
+        }
+
+        synchronized ColumnChunks.Rows rows(int tier, long fromMs, long toMs, Predicate<String> select) {
+            return (tier < 0 ? raw : rollups[tier]).read(fromMs, toMs, Integer.MAX_VALUE, select);
+        }
+
+        synchronized Table raw(long fromMs, long toMs, int limit, String[] prefixes) {
+            ColumnChunks.Rows rows = raw.read(fromMs, toMs, limit, name -> matches(name, prefixes));
+            return new Table(0, rows.timestamps, rows.columns, rows.columns, rows.columns);
+        }
+
+        synchronized Table rollup(int tier, long fromMs, long toMs, String[] prefixes) {
+            // Buckets that started before fromMs still hold rows from the range.
+            long first = fromMs - Math.floorMod(fromMs, ROLLUP_STEPS_MS[tier]);
+            ColumnChunks.Rows rows = rollups[tier].read(first, toMs, Integer.MAX_VALUE,
+                    name -> matches(name.substring(0, name.lastIndexOf('|')), prefixes));
+            Map<String, double[]> averages = new TreeMap<>();
+            Map<String, double[]> mins = new TreeMap<>();
+            Map<String, double[]> maxs = new TreeMap<>();
+            rows.columns.forEach((column, values) -> {
+                String name = column.substring(0, column.lastIndexOf('|'));
+                if (column.endsWith(MIN)) mins.put(name, values);
+                else if (column.endsWith(MAX)) maxs.put(name, values);
+                else if (column.endsWith(SUM)) {
+                    double[] counts = rows.columns.get(name + COUNT);
+                    double[] average = new double[values.length];
+                    for (int i = 0; i < values.length; i++) average[i] = values[i] / counts[i];
+                    averages.put(name, average);
+                }
+            });
+            return new Table(ROLLUP_STEPS_MS[tier], rows.timestamps, averages, mins, maxs);
+        }
+    }
+}
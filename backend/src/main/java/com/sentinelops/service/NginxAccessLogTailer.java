@@ -0,0 +1,329 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.NginxProperties;
+import com.sentinelops.model.snapshot.NginxLatencyPoint;
+import com.sentinelops.model.snapshot.NginxMinute;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.PackedHistogram;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the Nginx access log of each server incrementally. A cursor per server (inode and byte
+ * offset of the first unread line) is kept in memory, so every collection reads only what was
+ * appended since the previous one, at most {@code nginx.max-read-bytes}. When the inode changed,
+ * the rest of the old file is read from {@code access.log.1} (if it is still there and uncompressed)
+ * before the new file from its start; a file that got shorter (copytruncate) is read from its start.
+ * The first collection of a server starts {@code nginx.backfill-bytes} before the end.
+ * <p>
+ * Lines are parsed with {@code nginx.log-format} and each is counted once into cumulative
+ * status-code counters and per-minute counters (by the line's own time). When the format has
+ * {@code $request_time} or {@code $upstream_response_time}, every minute also keeps a histogram of
+ * each per URI prefix (first path segment, at most {@code nginx.latency-max-prefixes} per server,
+ * the rest under "other"); histograms merge, so any range of minutes and prefixes gives exact
+ * percentiles within the histogram's 1% precision. Lines mentioning USSD are kept for the USSD log
+ * view.
+ */
+@Service
+public class NginxAccessLogTailer {
+
+    private static final String DEFAULT_SERVER = "";
+    private static final String FROM = "@from ";
+    private static final String CHUNK = "@chunk ";
+    private static final Pattern USSD = Pattern.compile("ussd", Pattern.CASE_INSENSITIVE);
+    // Latency in microseconds up to an hour, two significant digits (1% error on any percentile).
+    private static final long HIGHEST_US = 3_600_000_000L;
+    private static final int LATENCY_DIGITS = 2;
+    static final String OTHER_PREFIX = "other";
+
+    // chunk <file> <inode> <from> <size>: prints "@chunk inode start end aligned" and the bytes from
+    // start to end, where start is from unless more than max bytes are left (aligned is then 0, the
+    // first line is cut). An echo ends the chunk, so the Java side can see whether its last line was
+    // complete.
+    private static final String SCRIPT = """
+            chunk() { s=$3; [ $(($4 - s)) -gt "$max" ] && s=$(($4 - max)); a=0; [ "$s" = "$3" ] && a=1
+              echo "@chunk $2 $s $4 $a"; tail -c +$((s + 1)) "$1" | head -c $(($4 - s)); echo; max=$((max - $4 + s)); }
+            echo "@from $off $ino"
+            [ -r "$f" ] || exit 0
+            set -- $(stat -Lc '%i %s' "$f"); i=$1; n=$2
+            if [ "$off" -lt 0 ]; then chunk "$f" "$i" 0 "$n"
+            elif [ "$i" = "$ino" ] && [ "$n" -ge "$off" ]; then chunk "$f" "$i" "$off" "$n"
+            else
+              set -- $(stat -Lc '%i %s' "$f.1" 2>/dev/null)
+              if [ "$1" = "$ino" ] && [ "$2" -gt "$off" ] && [ -r "$f.1" ]; then chunk "$f.1" "$1" "$off" "$2"; fi
+              chunk "$f" "$i" 0 "$n"
+            fi""";
+
+    private final NginxProperties nginxProperties;
+    private final NginxLogFormat logFormat;
+    private final Map<String, Log> logs = new ConcurrentHashMap<>();
+
+    public NginxAccessLogTailer(NginxProperties nginxProperties) {
+        this.nginxProperties = nginxProperties;
+        this.logFormat = NginxLogFormat.of(nginxProperties.getLogFormat());
+    }
+
+    /** The command reading what the server's log gained since its cursor (null serverId for the default SSH host). */
+    public String command(String serverId) {
+        Log log = log(serverId);
+        String inode;
+        long offset;
+        synchronized (log) {
+            inode = log.inode;
+            offset = log.offset;
+        }
+        int max = offset < 0 ? nginxProperties.getBackfillBytes() : nginxProperties.getMaxReadBytes();
+        return "f=" + shellQuote(nginxProperties.getAccessLog()) + "; ino='" + inode + "'; off=" + offset
+                + "; max=" + Math.max(0, max) + "\n" + SCRIPT;
+    }
+
+    /**
+     * Count the lines in the command's output and move the cursor past them. Output of a command
+     * built from an older cursor (another collection read the same bytes first) is ignored.
+     */
+    public void record(String serverId, String output) {
+        if (output == null || !output.startsWith(FROM)) return;
+        int headerEnd = output.indexOf('\n');
+        if (headerEnd < 0) return;
+        String[] from = output.substring(FROM.length(), headerEnd).trim().split(" ", 2);
+        Log log = log(serverId);
+        synchronized (log) {
+            if (!from[0].equals(Long.toString(log.offset)) || !(from.length > 1 ? from[1] : "").equals(log.inode)) return;
+            int pos = output.indexOf("\n" + CHUNK, headerEnd);
+            while (pos >= 0) {
+                int start = pos + 1;
+                int lineEnd = output.indexOf('\n', start);
+                if (lineEnd < 0) return;
+                String[] header = output.substring(start + CHUNK.length(), lineEnd).trim().split(" ");
+                if (header.length < 4) return;
+                int next = output.indexOf("\n" + CHUNK, lineEnd);
+                int bodyEnd = next >= 0 ? next : (output.endsWith("\n") ? output.length() - 1 : output.length());
+                String body = lineEnd < bodyEnd ? output.substring(lineEnd + 1, bodyEnd) : "";
+                long end;
+                try {
+                    end = Long.parseLong(header[2]);
+                } catch (NumberFormatException e) {
+                    return;
+                }
+                // Only the current file can still be written to; a cut-off last line is read again next time.
+                String partial = "";
+                if (next < 0) {
+                    int lastNewline = body.lastIndexOf('\n');
+                    partial = body.substring(lastNewline + 1);
+                    body = body.substring(0, lastNewline + 1);
+                }
+                if (!"1".equals(header[3])) {
+                    int firstNewline = body.indexOf('\n');
+                    body = firstNewline >= 0 ? body.substring(firstNewline + 1) : "";
+                }
+                for (String line : body.split("\n")) {
+                    if (!line.isBlank()) log.count(line, logFormat, nginxProperties.getLatencyMaxPrefixes());
+                }
+                if (next < 0) {
+                    log.inode = header[0];
+                    // nginx escapes bytes outside printable ASCII, so the text has the file's length.
+                    log.offset = Math.max(0, end - partial.getBytes(StandardCharsets.UTF_8).length);
+                }
+                pos = next;
+            }
+            log.trim(nginxProperties.getMinutesKept(), nginxProperties.getLatencyMinutesKept(),
+                    nginxProperties.getUssdLinesKept());
+        }
+    }
+
+    /** Requests per status code counted for the server since {@link #countingSince}. */
+    public Map<String, Long> statusCounts(String serverId) {
+        Log log = logs.get(key(serverId));
+        if (log == null) return new TreeMap<>();
+        synchronized (log) {
+            return new TreeMap<>(log.totals);
+        }
+    }
+
+    /** When the server's counters started (its first collection), or null. */
+    public Instant countingSince(String serverId) {
+        Log log = logs.get(key(serverId));
+        return log != null ? log.since : null;
+    }
+
+    /** Counters of the last {@code minutes} minutes that had requests, oldest first. */
+    public List<NginxMinute> perMinute(String serverId, int minutes) {
+        List<NginxMinute> result = new ArrayList<>();
+        Log log = logs.get(key(serverId));
+        if (log == null) return result;
+        long from = (System.currentTimeMillis() / 60_000 - Math.max(1, minutes) + 1) * 60_000;
+        synchronized (log) {
+            for (Map.Entry<Long, Minute> e : log.minutes.tailMap(from, true).entrySet()) {
+                NginxMinute m = new NginxMinute();
+                m.setMinute(Instant.ofEpochMilli(e.getKey()));
+                m.setStatusCounts(new TreeMap<>(e.getValue().statusCounts));
+                m.setRequests(e.getValue().statusCounts.values().stream().mapToLong(Long::longValue).sum());
+                result.add(m);
+            }
+        }
+        return result;
+    }
+
+    /** URI prefixes (first path segment) the server's latency histograms are kept for. */
+    public List<String> latencyPrefixes(String serverId) {
+        Log log = logs.get(key(serverId));
+        if (log == null) return new ArrayList<>();
+        synchronized (log) {
+            return new ArrayList<>(log.prefixes);
+        }
+    }
+
+    /**
+     * Request and upstream time percentiles of the last {@code minutes} minutes, one point per
+     * {@code stepMinutes} that had timed requests, oldest first. The minute histograms of the step
+     * (and of all prefixes, when {@code prefix} is null) are merged before taking percentiles.
+     */
+    public List<NginxLatencyPoint> latency(String serverId, String prefix, int minutes, int stepMinutes) {
+        List<NginxLatencyPoint> points = new ArrayList<>();
+        Log log = logs.get(key(serverId));
+        if (log == null) return points;
+        long stepMs = Math.max(1, stepMinutes) * 60_000L;
+        long from = (System.currentTimeMillis() / 60_000 - Math.max(1, minutes) + 1) * 60_000;
+        synchronized (log) {
+            long bucket = -1;
+            Histogram request = null;
+            Histogram upstream = null;
+            for (Map.Entry<Long, Minute> e : log.minutes.tailMap(from, true).entrySet()) {
+                long start = from + (e.getKey() - from) / stepMs * stepMs;
+                if (start != bucket) {
+                    if (request != null) points.add(point(bucket, request, upstream));
+                    bucket = start;
+                    request = new Histogram(HIGHEST_US, LATENCY_DIGITS);
+                    upstream = new Histogram(HIGHEST_US, LATENCY_DIGITS);
+                }
+                for (Map.Entry<String, Histogram[]> latency : e.getValue().latency.entrySet()) {
+                    if (prefix != null && !prefix.equals(latency.getKey())) continue;
+                    request.add(latency.getValue()[0]);
+                    upstream.add(latency.getValue()[1]);
+                }
+            }
+            if (request != null) points.add(point(bucket, request, upstream));
+        }
+        points.removeIf(p -> p.getRequest().getCount() == 0 && p.getUpstream().getCount() == 0);
+        return points;
+    }
+
+    private static NginxLatencyPoint point(long startMs, Histogram request, Histogram upstream) {
+        NginxLatencyPoint point = new NginxLatencyPoint();
+        point.setMinute(Instant.ofEpochMilli(startMs));
+        point.setRequest(percentiles(request));
+        point.setUpstream(percentiles(upstream));
+        return point;
+    }
+
+    private static NginxLatencyPoint.Percentiles percentiles(Histogram h) {
+        NginxLatencyPoint.Percentiles p = new NginxLatencyPoint.Percentiles();
+        p.setCount(h.getTotalCount());
+        if (h.getTotalCount() == 0) return p;
+        p.setP50Ms(h.getValueAtPercentile(50) / 1000.0);
+        p.setP95Ms(h.getValueAtPercentile(95) / 1000.0);
+        p.setP99Ms(h.getValueAtPercentile(99) / 1000.0);
+        p.setMaxMs(h.getMaxValue() / 1000.0);
+        return p;
+    }
+
+    /** The newest {@code limit} USSD lines, oldest first. */
+    public List<String> ussdLines(String serverId, int limit) {
+        Log log = logs.get(key(serverId));
+        if (log == null) return new ArrayList<>();
+        synchronized (log) {
+            List<String> lines = new ArrayList<>(log.ussdLines);
+            return new ArrayList<>(lines.subList(Math.max(0, lines.size() - limit), lines.size()));
+        }
+    }
+
+    /** Drop the cursor and counters of a changed or removed server. */
+    public void forget(String serverId) {
+        logs.remove(key(serverId));
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        forget(event.getServerId());
+    }
+
+    private Log log(String serverId) {
+        return logs.computeIfAbsent(key(serverId), k -> new Log());
+    }
+
+    private static String shellQuote(String text) {
+        return "'" + text.replace("'", "'\\''") + "'";
+    }
+
+    private static String key(String serverId) {
+        return serverId != null ? serverId : DEFAULT_SERVER;
+    }
+
+    /** Cursor and counters of one server's log; guarded by its own monitor. */
+    private static final class Log {
+        private final Instant since = Instant.now();
+        private String inode = "";
+        private long offset = -1;
+        private final Map<String, Long> totals = new TreeMap<>();
+        // minute start (epoch ms) -> counters
+        private final TreeMap<Long, Minute> minutes = new TreeMap<>();
+        private final Set<String> prefixes = new TreeSet<>();
+        private final Deque<String> ussdLines = new ArrayDeque<>();
+        // Consecutive lines mostly share their minute; parse it once.
+        private String lastMinuteText;
+        private long lastMinute = -1;
+
+        private void count(String line, NginxLogFormat format, int maxPrefixes) {
+            if (USSD.matcher(line).find()) ussdLines.addLast(line.trim());
+            NginxLogFormat.Entry entry = format.parse(line);
+            if (entry == null) return;
+            totals.merge(entry.status(), 1L, Long::sum);
+            if (entry.minuteText() == null) return;
+            if (!entry.minuteText().equals(lastMinuteText)) {
+                lastMinute = format.minute(entry.minuteText());
+                lastMinuteText = entry.minuteText();
+            }
+            if (lastMinute < 0) return;
+            Minute minute = minutes.computeIfAbsent(lastMinute, k -> new Minute());
+            minute.statusCounts.merge(entry.status(), 1L, Long::sum);
+            if (entry.requestTimeUs() < 0 && entry.upstreamTimeUs() < 0) return;
+
+            String prefix = NginxLogFormat.prefix(entry.path());
+            if (prefix == null || !prefixes.contains(prefix) && prefixes.size() >= maxPrefixes) prefix = OTHER_PREFIX;
+            prefixes.add(prefix);
+            Histogram[] latency = minute.latency.computeIfAbsent(prefix,
+                    k -> new Histogram[]{new PackedHistogram(HIGHEST_US, LATENCY_DIGITS), new PackedHistogram(HIGHEST_US, LATENCY_DIGITS)});
+            if (entry.requestTimeUs() >= 0) latency[0].recordValue(Math.min(entry.requestTimeUs(), HIGHEST_US));
+            if (entry.upstreamTimeUs() >= 0) latency[1].recordValue(Math.min(entry.upstreamTimeUs(), HIGHEST_US));
+        }
+
+        private void trim(int minutesKept, int latencyMinutesKept, int ussdLinesKept) {
+            long now = System.currentTimeMillis() / 60_000;
+            minutes.headMap((now - Math.max(1, minutesKept) + 1) * 60_000, false).clear();
+            for (Minute minute : minutes.headMap((now - Math.max(1, latencyMinutesKept) + 1) * 60_000, false).values()) {
+                minute.latency.clear();
+            }
+            while (ussdLines.size() > Math.max(0, ussdLinesKept)) ussdLines.removeFirst();
+        }
+    }
+
+    /** One minute of a log: requests per status, and request / upstream time histograms per URI prefix. */
+    private static final class Minute {
+        private final Map<String, Long> statusCounts = new TreeMap<>();
+        private final Map<String, Histogram[]> latency = new HashMap<>();
+    }
+}
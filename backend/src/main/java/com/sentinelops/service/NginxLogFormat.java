@@ -0,0 +1,164 @@
+package com.sentinelops.service;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An Nginx {@code log_format} turned into a pattern for its lines. Variables the collector uses get
+ * a strict pattern; the others match anything up to the text that follows them. Lines may carry
+ * more fields after the format (a format extended on the server side still parses).
+ */
+final class NginxLogFormat {
+
+    /** Nginx's built-in combined format. */
+    static final String COMBINED =
+            "$remote_addr - $remote_user [$time_local] \"$request\" $status $body_bytes_sent \"$http_referer\" \"$http_user_agent\"";
+
+    private static final Pattern VARIABLE = Pattern.compile("\\$(?:\\{(\\w+)}|(\\w+))");
+    private static final String TIME = "(?:\\d+\\.\\d+|-)";
+    private static final Map<String, String> PATTERNS = Map.of(
+            "status", "(\\d{3})",
+            "time_local", "(\\d{2}/[A-Za-z]{3}/\\d{4}:\\d{2}:\\d{2}:\\d{2} [+-]\\d{4})",
+            "time_iso8601", "(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}[+-]\\d{2}:\\d{2})",
+            "msec", "(\\d+\\.\\d+)",
+            "request_time", "(" + TIME + ")",
+            // One value per upstream tried: "0.012, 0.030", "0.012 : 0.030" after an internal redirect.
+            "upstream_response_time", "(" + TIME + "(?:(?:, | : )" + TIME + ")*)");
+    private static final DateTimeFormatter TIME_LOCAL_MINUTE =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm Z", Locale.ENGLISH);
+
+    private final String format;
+    private final Pattern pattern;
+    private final int status;
+    private final int timeLocal;
+    private final int timeIso8601;
+    private final int msec;
+    private final int request;
+    private final int requestUri;
+    private final int requestTime;
+    private final int upstreamResponseTime;
+
+    private NginxLogFormat(String format) {
+        this.format = format;
+        List<String> names = new ArrayList<>();
+        StringBuilder regex = new StringBuilder();
+        Matcher m = VARIABLE.matcher(format);
+        int last = 0;
+        while (m.find()) {
+            if (m.start() > last) regex.append(Pattern.quote(format.substring(last, m.start())));
+            String name = m.group(1) != null ? m.group(1) : m.group(2);
+            regex.append(PATTERNS.getOrDefault(name, "(.*?)"));
+            names.add(name);
+            last = m.end();
+        }
+        if (last < format.length()) regex.append(Pattern.quote(format.substring(last)));
+        this.pattern = Pattern.compile(regex.append("(?=\\s|$)").toString());
+        this.status = names.indexOf("status") + 1;
+        this.timeLocal = names.indexOf("time_local") + 1;
+        this.timeIso8601 = names.indexOf("time_iso8601") + 1;
+        this.msec = names.indexOf("msec") + 1;
+        this.request = names.indexOf("request") + 1;
+        this.requestUri = Math.max(names.indexOf("request_uri"), names.indexOf("uri")) + 1;
+        this.requestTime = names.indexOf("request_time") + 1;
+        this.upstreamResponseTime = names.indexOf("upstream_response_time") + 1;
+    }
+
+    /** The format as configured; a blank one is the combined format. */
+    static NginxLogFormat of(String format) {
+        return new NginxLogFormat(format == null || format.isBlank() ? COMBINED : format.trim());
+    }
+
+    String format() {
+        return format;
+    }
+
+    /** The fields of a line, or null when it does not have the format or a status. */
+    Entry parse(String line) {
+        Matcher m = pattern.matcher(line);
+        if (status == 0 || !m.lookingAt()) return null;
+        Entry entry = new Entry();
+        entry.status = m.group(status);
+        if (timeLocal > 0) {
+            // Cut the seconds: "17/Oct/2026:10:42:17 +0000" -> "17/Oct/2026:10:42 +0000"
+            String t = m.group(timeLocal);
+            entry.minuteText = t.substring(0, 17) + t.substring(20);
+        } else if (timeIso8601 > 0) {
+            String t = m.group(timeIso8601);
+            entry.minuteText = t.substring(0, 16) + t.substring(19);
+        } else if (msec > 0) {
+            String t = m.group(msec);
+            entry.minuteText = Long.toString(Long.parseLong(t.substring(0, t.indexOf('.'))) / 60);
+        }
+        if (requestUri > 0) {
+            entry.path = m.group(requestUri);
+        } else if (request > 0) {
+            // "GET /ussd/session?msisdn=... HTTP/1.1"
+            String[] parts = m.group(request).split(" ");
+            entry.path = parts.length > 1 ? parts[1] : null;
+        }
+        if (requestTime > 0) entry.requestTimeUs = micros(m.group(requestTime));
+        if (upstreamResponseTime > 0) entry.upstreamTimeUs = micros(m.group(upstreamResponseTime));
+        return entry;
+    }
+
+    /**
+     * Start of the minute of an entry's {@link Entry#minuteText} in epoch ms, or -1 when it does
+     * not parse.
+     */
+    long minute(String minuteText) {
+        try {
+            if (timeLocal > 0) return OffsetDateTime.parse(minuteText, TIME_LOCAL_MINUTE).toInstant().toEpochMilli();
+            if (timeIso8601 > 0) return OffsetDateTime.parse(minuteText).toInstant().toEpochMilli();
+            if (msec > 0) return Instant.ofEpochSecond(Long.parseLong(minuteText) * 60).toEpochMilli();
+        } catch (DateTimeParseException | NumberFormatException ignored) {
+            // not a time this format writes
+        }
+        return -1;
+    }
+
+    /**
+     * Seconds with millisecond resolution as microseconds; several upstreams add up. -1 for "-"
+     * (no upstream, or the request never reached it).
+     */
+    private static long micros(String value) {
+        long total = -1;
+        for (String part : value.split(", | : ")) {
+            if (part.equals("-")) continue;
+            try {
+                total = Math.max(total, 0) + Math.round(Double.parseDouble(part) * 1_000_000);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return total;
+    }
+
+    /** First path segment of a request path ("/ussd/session?x=1" is "/ussd"), or null. */
+    static String prefix(String path) {
+        if (path == null || !path.startsWith("/")) return null;
+        int end = 1;
+        while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '?') end++;
+        return path.substring(0, end);
+    }
+
+    static final class Entry {
+        private String status;
+        private String minuteText;
+        private String path;
+        private long requestTimeUs = -1;
+        private long upstreamTimeUs = -1;
+
+        String status() { return status; }
+        String minuteText() { return minuteText; }
+        String path() { return path; }
+        long requestTimeUs() { return requestTimeUs; }
+        long upstreamTimeUs() { return upstreamTimeUs; }
+    }
+}
@@ -4,19 +4,21 @@ import com.sentinelops.model.snapshot.NginxSnapshot;
 import com.sentinelops.service.SshExecutionService.SshCommandResult;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class NginxSnapshotService {
 
+    private static final int SNAPSHOT_USSD_LINES = 80;
+
     private final SshExecutionService sshExecutionService;
+    private final NginxAccessLogTailer accessLogTailer;
 
-    public NginxSnapshotService(SshExecutionService sshExecutionService) {
+    public NginxSnapshotService(SshExecutionService sshExecutionService, NginxAccessLogTailer accessLogTailer) {
         this.sshExecutionService = sshExecutionService;
+        this.accessLogTailer = accessLogTailer;
     }
 
     public NginxSnapshot capture() {
@@ -24,8 +26,13 @@ public class NginxSnapshotService {
     }
 
     public NginxSnapshot capture(String serverId) {
-        NginxSnapshot snapshot = new NginxSnapshot();
+        return captureAsync(serverId, null).join();
+    }
 
+    /**
+     * Non-blocking capture; {@code timeoutMs} bounds the batch (null uses {@code ssh.command-timeout-ms}).
+     */
+    public CompletableFuture<NginxSnapshot> captureAsync(String serverId, Long timeoutMs) {
         String statusCmd =
                 "if command -v systemctl >/dev/null 2>&1; then " +
                         "systemctl is-active nginx 2>/dev/null || echo unknown; " +
@@ -40,40 +47,32 @@ public class NginxSnapshotService {
                 "|| wget -q --server-response -O /dev/null http://127.0.0.1/ 2>&1 | awk '/^  HTTP\\//{print $2}' | tail -n1 " +
                 "|| echo 000) | head -n1";
 
-        String logCodeCmd =
-                "if [ -r /var/log/nginx/access.log ]; then " +
-                    "tail -n 2000 /var/log/nginx/access.log | awk '{c[$9]++} END {for (k in c) print k\"=\"c[k]}'; " +
-                "elif [ -r /var/log/nginx/access.log.1 ]; then " +
-                    "tail -n 2000 /var/log/nginx/access.log.1 | awk '{c[$9]++} END {for (k in c) print k\"=\"c[k]}'; " +
-                "else " +
-                    "echo ''; " +
-                "fi";
-        String ussdLogCmd = buildUssdLogCommand(80);
-
-        Optional<SshCommandResult> statusResult = execute(serverId, statusCmd);
-        Optional<SshCommandResult> httpResult = execute(serverId, localHttpCmd);
-        Optional<SshCommandResult> logResult = execute(serverId, logCodeCmd);
-        Optional<SshCommandResult> ussdLogResult = execute(serverId, ussdLogCmd);
+        List<String> commands = List.of(statusCmd, localHttpCmd, accessLogTailer.command(serverId));
+        CompletableFuture<List<SshCommandResult>> batch = timeoutMs != null
+                ? sshExecutionService.executeBatchAsync(serverId, commands, timeoutMs)
+                : sshExecutionService.executeBatchAsync(serverId, commands);
+        return batch.thenApply(results -> toSnapshot(serverId, results));
+    }
 
-        if (statusResult.isEmpty() && httpResult.isEmpty() && logResult.isEmpty() && ussdLogResult.isEmpty()) {
+    private NginxSnapshot toSnapshot(String serverId, List<SshCommandResult> results) {
+        NginxSnapshot snapshot = new NginxSnapshot();
+        if (results.stream().allMatch(r -> r.getExitCode() == -1 && r.getStdout().isEmpty())) {
             snapshot.setError("Nginx check unavailable (SSH not configured or connection failed).");
             return snapshot;
         }
 
-        statusResult.ifPresent(r -> {
-            String status = cleanFirstLine(r.getStdout());
-            if (status.isEmpty()) status = "unknown";
-            snapshot.setServiceStatus(status);
-            snapshot.setRunning("active".equalsIgnoreCase(status));
-        });
+        String status = cleanFirstLine(results.get(0).getStdout());
+        if (status.isEmpty()) status = "unknown";
+        snapshot.setServiceStatus(status);
+        snapshot.setRunning("active".equalsIgnoreCase(status));
 
-        httpResult.ifPresent(r -> {
-            String code = cleanFirstLine(r.getStdout());
-            if (!code.isEmpty()) snapshot.setLocalHttpCode(code);
-        });
+        String code = cleanFirstLine(results.get(1).getStdout());
+        if (!code.isEmpty()) snapshot.setLocalHttpCode(code);
 
-        logResult.ifPresent(r -> snapshot.setResponseCodeCounts(parseCodeCounts(r.getStdout())));
-        ussdLogResult.ifPresent(r -> snapshot.setUssdLogLines(parseLogLines(r.getStdout())));
+        accessLogTailer.record(serverId, results.get(2).getStdout());
+        snapshot.setResponseCodeCounts(accessLogTailer.statusCounts(serverId));
+        snapshot.setResponseCodesSince(accessLogTailer.countingSince(serverId));
+        snapshot.setUssdLogLines(accessLogTailer.ussdLines(serverId, SNAPSHOT_USSD_LINES));
 
         if (snapshot.getServiceStatus() == null || snapshot.getServiceStatus().isBlank()) {
             snapshot.setServiceStatus("unknown");
@@ -88,22 +87,13 @@ public class NginxSnapshotService {
                 : sshExecutionService.execute(command);
     }
 
+    /** The newest USSD lines of the access log, after reading what it gained since the last collection. */
     public List<String> captureUssdLogLines(String serverId, int limit) {
         int bounded = Math.max(1, Math.min(limit, 500));
-        String cmd = buildUssdLogCommand(bounded);
-        Optional<SshCommandResult> result = execute(serverId, cmd);
-        if (result.isEmpty() || !result.get().isSuccess()) return new ArrayList<>();
-        return parseLogLines(result.get().getStdout());
-    }
-
-    private String buildUssdLogCommand(int limit) {
-        return "if [ -r /var/log/nginx/access.log ]; then " +
-                "tail -n 5000 /var/log/nginx/access.log | grep -i ussd | tail -n " + limit + "; " +
-                "elif [ -r /var/log/nginx/access.log.1 ]; then " +
-                "tail -n 5000 /var/log/nginx/access.log.1 | grep -i ussd | tail -n " + limit + "; " +
-                "else " +
-                "echo ''; " +
-                "fi";
+        execute(serverId, accessLogTailer.command(serverId))
+                .filter(SshCommandResult::isSuccess)
+                .ifPresent(result -> accessLogTailer.record(serverId, result.getStdout()));
+        return accessLogTailer.ussdLines(serverId, bounded);
     }
 
     private String cleanFirstLine(String stdout) {
@@ -111,33 +101,4 @@ public class NginxSnapshotService {
         String[] lines = stdout.split("\n");
         return lines.length == 0 ? "" : lines[0].trim();
     }
-
-    private Map<String, Long> parseCodeCounts(String stdout) {
-        Map<String, Long> map = new LinkedHashMap<>();
-        if (stdout == null || stdout.isBlank()) return map;
-        for (String line : stdout.split("\n")) {
-            String item = line.trim();
-            if (item.isEmpty()) continue;
-            int idx = item.indexOf('=');
-            if (idx <= 0 || idx == item.length() - 1) continue;
-            String code = item.substring(0, idx).trim();
-            String countStr = item.substring(idx + 1).trim();
-            if (!code.matches("\\d{3}")) continue;
-            try {
-                map.put(code, Long.parseLong(countStr));
-            } catch (NumberFormatException ignored) {
-            }
-        }
-        return map;
-    }
-
-    private List<String> parseLogLines(String stdout) {
-        List<String> lines = new ArrayList<>();
-        if (stdout == null || stdout.isBlank()) return lines;
-        for (String line : stdout.split("\n")) {
-            String cleaned = line == null ? "" : line.trim();
-            if (!cleaned.isEmpty()) lines.add(cleaned);
-        }
-        return lines;
-    }
 }
@@ -0,0 +1,205 @@
+package com.sentinelops.service;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded sink for SSH channel output. Keeps the first half of the byte budget as a head buffer
+ * and the last half in a tail ring buffer, counting everything that passes through; when output
+ * exceeds the budget the middle is dropped and {@link #toString()} inserts a truncation marker.
+ * An optional {@link LineConsumer} sees every line as it arrives, so parsers can work on output
+ * of any size without the full text ever being held in memory. Wherever bytes are cut (head and
+ * tail, pieces of a long line) the cut is moved to a UTF-8 character boundary before decoding.
+ */
+public final class OutputCapture extends OutputStream {
+
+    /** Lines longer than this are handed to the consumer in pieces. */
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private final byte[] head;
+    private final byte[] tail;
+    private final LineConsumer lineConsumer;
+    private int headLength;
+    private int tailPosition;
+    private int tailLength;
+    private long totalBytes;
+    private byte[] line;
+    private int lineLength;
+    private boolean closed;
+    private volatile Runnable onClose;
+
+    public OutputCapture(int maxBytes) {
+        this(maxBytes, null);
+    }
+
+    public OutputCapture(int maxBytes, LineConsumer lineConsumer) {
+        int budget = Math.max(0, maxBytes);
+        this.head = new byte[budget / 2];
+        this.tail = new byte[budget - budget / 2];
+        this.lineConsumer = lineConsumer;
+        this.line = lineConsumer != null ? new byte[256] : null;
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        if (len <= 0) return;
+        totalBytes += len;
+        int toHead = Math.min(len, head.length - headLength);
+        if (toHead > 0) {
+            System.arraycopy(b, off, head, headLength, toHead);
+            headLength += toHead;
+        }
+        int rest = len - toHead;
+        if (rest > 0 && tail.length > 0) {
+            appendTail(b, off + toHead, rest);
+        }
+        if (lineConsumer != null) {
+            feedLines(b, off, len);
+        }
+    }
+
+    private void appendTail(byte[] b, int off, int len) {
+        if (len >= tail.length) {
+            System.arraycopy(b, off + len - tail.length, tail, 0, tail.length);
+            tailPosition = 0;
+            tailLength = tail.length;
+            return;
+        }
+        int first = Math.min(len, tail.length - tailPosition);
+        System.arraycopy(b, off, tail, tailPosition, first);
+        System.arraycopy(b, off + first, tail, 0, len - first);
+        tailPosition = (tailPosition + len) % tail.length;
+        tailLength = Math.min(tail.length, tailLength + len);
+    }
+
+    private void feedLines(byte[] b, int off, int len) {
+        int start = off;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (b[i] == '\n') {
+                appendLine(b, start, i - start);
+                emitLine(true);
+                start = i + 1;
+            }
+        }
+        appendLine(b, start, end - start);
+    }
+
+    private void appendLine(byte[] b, int off, int len) {
+        while (len > 0) {
+            int room = MAX_LINE_BYTES - lineLength;
+            if (room == 0) {
+                emitPiece();
+                continue;
+            }
+            int n = Math.min(room, len);
+            if (lineLength + n > line.length) {
+                byte[] grown = new byte[Math.min(MAX_LINE_BYTES, Math.max(line.length * 2, lineLength + n))];
+                System.arraycopy(line, 0, grown, 0, lineLength);
+                line = grown;
+            }
+            System.arraycopy(b, off, line, lineLength, n);
+            lineLength += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void emitLine(boolean terminated) {
+        String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+        lineLength = 0;
+        lineConsumer.accept(text, terminated);
+    }
+
+    /** Hand on a full line buffer; a character cut at its end starts the next piece instead. */
+    private void emitPiece() {
+        int cut = completeLength(line, lineLength);
+        if (cut == 0) cut = lineLength;
+        String text = new String(line, 0, cut, StandardCharsets.UTF_8);
+        System.arraycopy(line, cut, line, 0, lineLength - cut);
+        lineLength -= cut;
+        lineConsumer.accept(text, false);
+    }
+
+    /** Length of {@code bytes[0, length)} without a trailing, incomplete UTF-8 sequence. */
+    static int completeLength(byte[] bytes, int length) {
+        int lead = length - 1;
+        // A sequence has at most three continuation bytes (10xxxxxx) after its lead byte.
+        while (lead >= 0 && lead > length - 4 && isContinuation(bytes[lead])) lead--;
+        if (lead < 0) return length;
+        int b = bytes[lead] & 0xff;
+        int size = b >= 0xf0 ? 4 : b >= 0xe0 ? 3 : b >= 0xc0 ? 2 : 1;
+        return lead + size > length ? lead : length;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xc0) == 0x80;
+    }
+
+    /**
+     * Register a callback run once when the stream is closed (JSch closes channel streams on EOF/close).
+     */
+    public void onClose(Runnable callback) {
+        this.onClose = callback;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            if (lineConsumer != null && lineLength > 0) {
+                emitLine(false);
+            }
+        }
+        Runnable callback = onClose;
+        if (callback != null) callback.run();
+    }
+
+    /** Total bytes written, including any that were dropped. */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized boolean isTruncated() {
+        return totalBytes > headLength + tailLength;
+    }
+
+    /**
+     * Retained output as UTF-8: head, then a truncation marker if bytes were dropped, then tail.
+     * Partial characters at the edges of the dropped middle are counted as omitted.
+     */
+    @Override
+    public synchronized String toString() {
+        boolean truncated = isTruncated();
+        int headEnd = truncated ? completeLength(head, headLength) : headLength;
+        byte[] ordered = new byte[headEnd + tailLength];
+        System.arraycopy(head, 0, ordered, 0, headEnd);
+        int start = tailLength < tail.length ? 0 : tailPosition;
+        int first = Math.min(tailLength, tail.length - start);
+        System.arraycopy(tail, start, ordered, headEnd, first);
+        System.arraycopy(tail, 0, ordered, headEnd + first, tailLength - first);
+        // Not truncated, head and tail are contiguous and decode as one.
+        if (!truncated || tailLength == 0) return new String(ordered, StandardCharsets.UTF_8);
+        int tailStart = headEnd;
+        while (tailStart < ordered.length && tailStart < headEnd + 3 && isContinuation(ordered[tailStart])) tailStart++;
+        long omitted = totalBytes - headEnd - (ordered.length - tailStart);
+        return new String(ordered, 0, headEnd, StandardCharsets.UTF_8)
+                + "\n... [output truncated: " + omitted + " of " + totalBytes + " bytes omitted] ...\n"
+                + new String(ordered, tailStart, ordered.length - tailStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Receives output line by line, without the line terminator. {@code terminated} is false for
+     * the pieces of a line longer than {@link #MAX_LINE_BYTES} and for a final unterminated line.
+     */
+    @FunctionalInterface
+    public interface LineConsumer {
+        void accept(String line, boolean terminated);
+    }
+}
@@ -0,0 +1,174 @@
+package com.sentinelops.service;
+
+import com.jcraft.jsch.JSchException;
+import com.sentinelops.config.PostgresProperties;
+import com.sentinelops.config.SshProperties;
+import com.sentinelops.service.SshExecutionService.LocalForward;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDBC connections to the Postgres of each server ({@code postgres.collector: jdbc}). Per server,
+ * an SSH local port forward on a pooled session leads to {@code postgres.host:port} as seen from
+ * that server, and a small Hikari pool keeps connections through it warm between snapshots.
+ * Tunnels unused for {@code postgres.pool-idle-ms} are closed, which also releases the session.
+ */
+@Service
+public class PostgresConnectionService {
+
+    private static final String DEFAULT_SERVER = "";
+
+    private final SshExecutionService sshExecutionService;
+    private final SshExecutor sshExecutor;
+    private final SshProperties sshProperties;
+    private final PostgresProperties postgresProperties;
+    private final Map<String, Tunnel> tunnels = new ConcurrentHashMap<>();
+
+    public PostgresConnectionService(SshExecutionService sshExecutionService, SshExecutor sshExecutor,
+                                     SshProperties sshProperties, PostgresProperties postgresProperties) {
+        this.sshExecutionService = sshExecutionService;
+        this.sshExecutor = sshExecutor;
+        this.sshProperties = sshProperties;
+        this.postgresProperties = postgresProperties;
+    }
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Run {@code work} on a pooled connection to the server's Postgres (null serverId for the
+     * default SSH host) on an executor thread, opening the tunnel first if needed. The future
+     * fails with the SQL or SSH error, or a TimeoutException after {@code timeoutMs} (null uses
+     * {@code ssh.command-timeout-ms}).
+     */
+    public <T> CompletableFuture<T> withConnection(String serverId, Long timeoutMs, SqlWork<T> work) {
+        long timeout = timeoutMs != null ? timeoutMs : sshProperties.getCommandTimeoutMs();
+        // Mark the tunnel used now, so closeIdle leaves it alone while the work waits for a thread.
+        tunnel(serverId);
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = dataSource(serverId).getConnection()) {
+                return work.apply(connection);
+            } catch (SQLException | JSchException e) {
+                throw new CompletionException(e);
+            }
+        }, sshExecutor).orTimeout(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /** The server's tunnel, created if needed, marked as used. */
+    private Tunnel tunnel(String serverId) {
+        long now = System.currentTimeMillis();
+        return tunnels.compute(key(serverId), (k, tunnel) -> {
+            Tunnel used = tunnel != null ? tunnel : new Tunnel(serverId);
+            used.lastUsedAt = now;
+            return used;
+        });
+    }
+
+    /** The server's pool; a tunnel retired meanwhile is replaced rather than reopened. */
+    private HikariDataSource dataSource(String serverId) throws JSchException {
+        while (true) {
+            HikariDataSource dataSource = tunnel(serverId).dataSource();
+            if (dataSource != null) return dataSource;
+        }
+    }
+
+    /** Close the tunnel of a changed or removed server. */
+    public void forget(String serverId) {
+        Tunnel tunnel = tunnels.remove(key(serverId));
+        if (tunnel != null) tunnel.retire();
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        forget(event.getServerId());
+    }
+
+    @Scheduled(initialDelay = 60_000, fixedDelay = 60_000)
+    public void closeIdle() {
+        long now = System.currentTimeMillis();
+        for (String key : tunnels.keySet()) {
+            Tunnel[] idle = new Tunnel[1];
+            // Checked and removed under the map's lock for the key, which tunnel() also takes.
+            tunnels.computeIfPresent(key, (k, tunnel) -> {
+                if (now - tunnel.lastUsedAt <= postgresProperties.getPoolIdleMs()) return tunnel;
+                tunnel.retired = true;
+                idle[0] = tunnel;
+                return null;
+            });
+            if (idle[0] != null) idle[0].retire();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        tunnels.values().forEach(Tunnel::retire);
+        tunnels.clear();
+    }
+
+    private static String key(String serverId) {
+        return serverId != null ? serverId : DEFAULT_SERVER;
+    }
+
+    private final class Tunnel {
+        private final String serverId;
+        private LocalForward forward;
+        private HikariDataSource dataSource;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        // Set once the tunnel is out of the map; it then never opens a forward again.
+        private volatile boolean retired;
+
+        private Tunnel(String serverId) {
+            this.serverId = serverId;
+        }
+
+        /** The pool, after (re)opening the forward if its session went down; null once retired. */
+        synchronized HikariDataSource dataSource() throws JSchException {
+            if (retired) return null;
+            if (forward != null && forward.isOpen()) return dataSource;
+            close();
+            forward = sshExecutionService.forwardLocal(serverId, postgresProperties.getHost(), postgresProperties.getPort());
+
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("postgres-" + (serverId != null ? serverId : "default"));
+            config.setJdbcUrl("jdbc:postgresql://127.0.0.1:" + forward.getLocalPort() + "/" + postgresProperties.getDatabase());
+            config.setUsername(postgresProperties.getUser());
+            config.setPassword(postgresProperties.getPassword());
+            config.setMaximumPoolSize(Math.max(1, postgresProperties.getPoolSize()));
+            config.setMinimumIdle(0);
+            config.setIdleTimeout(Math.max(10_000, postgresProperties.getPoolIdleMs()));
+            config.setConnectionTimeout(Math.max(250, sshProperties.getConnectTimeoutMs()));
+            // Do not connect while building the pool; the first query reports the error.
+            config.setInitializationFailTimeout(-1);
+            config.setReadOnly(true);
+            config.addDataSourceProperty("ApplicationName", "sentinelops");
+            dataSource = new HikariDataSource(config);
+            return dataSource;
+        }
+
+        void retire() {
+            retired = true;
+            close();
+        }
+
+        synchronized void close() {
+            if (dataSource != null) dataSource.close();
+            if (forward != null) forward.close();
+            dataSource = null;
+            forward = null;
+        }
+    }
+}
@@ -5,25 +5,54 @@ import com.sentinelops.model.snapshot.PostgresSnapshot;
 import com.sentinelops.service.SshExecutionService.SshCommandResult;
 import org.springframework.stereotype.Service;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 /**
- * Collects PostgreSQL snapshot via SSH (psql on remote host): activity, sizes, locks.
+ * Collects PostgreSQL snapshot via SSH (psql on remote host, one batched round trip): activity, sizes, locks.
+ * Sizes, lock counts per mode, lock waits and connections per state are numeric fields for trending.
+ * With {@code postgres.collector: jdbc} the same queries run as prepared statements on a pooled
+ * connection through an SSH port forward ({@link PostgresConnectionService}) instead. Both modes
+ * also read pg_stat_statements when it is installed ({@link PostgresStatementSampler}).
  */
 @Service
 public class PostgresSnapshotService {
-    private static final Pattern FIRST_INT_PATTERN = Pattern.compile("(-?\\d+)");
-
     private final SshExecutionService sshExecutionService;
     private final PostgresProperties postgresProperties;
+    private final PostgresConnectionService postgresConnectionService;
+    private final PostgresStatementSampler statementSampler;
+
+    // Count sessions on current DB instead of only "active" state.
+    // "active" can be zero while clients are still connected (idle).
+    private static final String CONNECTIONS_SQL = "SELECT count(*) FROM pg_stat_activity WHERE datname = current_database()";
+    private static final String SIZES_SQL = "SELECT datname, bytes, pg_size_pretty(bytes) FROM"
+            + " (SELECT datname, pg_database_size(datname) AS bytes FROM pg_database) d ORDER BY bytes DESC";
+    private static final String LOCKS_SQL = "SELECT count(*), mode FROM pg_locks GROUP BY mode";
+    private static final String SLOW_SQL = "SELECT count(*) FROM pg_stat_activity WHERE state = 'active' AND query_start < now() - interval '5 seconds'";
+    // One row per (waiting pid, pid holding the lock it waits for).
+    private static final String LOCK_WAITS_SQL = "SELECT pid, unnest(pg_blocking_pids(pid)) FROM pg_stat_activity WHERE wait_event_type = 'Lock'";
+    private static final String STATES_SQL = "SELECT coalesce(state, 'unknown'), count(*) FROM pg_stat_activity"
+            + " WHERE backend_type = 'client backend' GROUP BY 1";
+    private static final List<String> QUERIES =
+            List.of(CONNECTIONS_SQL, SIZES_SQL, LOCKS_SQL, SLOW_SQL, LOCK_WAITS_SQL, STATES_SQL);
 
-    public PostgresSnapshotService(SshExecutionService sshExecutionService, PostgresProperties postgresProperties) {
+    public PostgresSnapshotService(SshExecutionService sshExecutionService, PostgresProperties postgresProperties,
+                                   PostgresConnectionService postgresConnectionService,
+                                   PostgresStatementSampler statementSampler) {
         this.sshExecutionService = sshExecutionService;
         this.postgresProperties = postgresProperties;
+        this.postgresConnectionService = postgresConnectionService;
+        this.statementSampler = statementSampler;
     }
 
     public PostgresSnapshot capture() {
@@ -31,75 +60,188 @@ public class PostgresSnapshotService {
     }
 
     public PostgresSnapshot capture(String serverId) {
-        PostgresSnapshot snapshot = new PostgresSnapshot();
+        return captureAsync(serverId, null).join();
+    }
+
+    /**
+     * Non-blocking capture; {@code timeoutMs} bounds the batch (null uses {@code ssh.command-timeout-ms}).
+     * Completes immediately with an empty snapshot when Postgres collection is disabled.
+     */
+    public CompletableFuture<PostgresSnapshot> captureAsync(String serverId, Long timeoutMs) {
         if (!postgresProperties.isEnabled()) {
-            return snapshot;
+            return CompletableFuture.completedFuture(new PostgresSnapshot());
+        }
+        if (postgresProperties.getCollector() == PostgresProperties.Collector.JDBC) {
+            int queryTimeoutSeconds = timeoutMs != null ? (int) Math.max(1, (timeoutMs + 999) / 1000) : 0;
+            return postgresConnectionService.withConnection(serverId, timeoutMs, c -> {
+                PostgresSnapshot snapshot = query(c, queryTimeoutSeconds);
+                try {
+                    applyStatements(serverId, snapshot, PostgresStatementSampler.query(c, queryTimeoutSeconds));
+                } catch (SQLException e) {
+                    // pg_stat_statements not installed or not readable
+                }
+                return snapshot;
+            }).exceptionally(PostgresSnapshotService::jdbcError);
         }
         String psqlCmd = String.format("psql -h %s -p %d -U %s -d %s -t -A",
                 postgresProperties.getHost(), postgresProperties.getPort(),
                 postgresProperties.getUser(), postgresProperties.getDatabase());
 
-        // Count sessions on current DB instead of only "active" state.
-        // "active" can be zero while clients are still connected (idle).
-        String connectionsCmd = psqlCmd + " -c \"SELECT count(*) FROM pg_stat_activity WHERE datname = current_database();\" 2>/dev/null";
-        Optional<SshCommandResult> activeResult = serverId != null
-                ? sshExecutionService.executeWithServer(serverId, connectionsCmd)
-                : sshExecutionService.execute(connectionsCmd);
-        parseConnectionCount(activeResult).ifPresent(snapshot::setActiveConnections);
-
-        String sizesCmd = psqlCmd + " -c \"SELECT datname, pg_size_pretty(pg_database_size(datname)) FROM pg_database ORDER BY pg_database_size(datname) DESC;\" 2>/dev/null";
-        Optional<SshCommandResult> sizesResult = serverId != null ? sshExecutionService.executeWithServer(serverId, sizesCmd) : sshExecutionService.execute(sizesCmd);
-        if (sizesResult.isPresent() && sizesResult.get().isSuccess()) {
-            List<PostgresSnapshot.DatabaseSize> sizes = new ArrayList<>();
-            for (String line : sizesResult.get().getStdout().split("\n")) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                String[] parts = line.split("\\|", -1);
-                if (parts.length >= 2) {
-                    PostgresSnapshot.DatabaseSize ds = new PostgresSnapshot.DatabaseSize();
-                    ds.setName(parts[0].trim());
-                    ds.setSize(parts[1].trim());
-                    sizes.add(ds);
+        List<String> commands = new ArrayList<>();
+        for (String sql : QUERIES) commands.add(psqlCmd + " -c \"" + sql + ";\" 2>/dev/null");
+        commands.add(psqlCmd + " -c \"" + PostgresStatementSampler.SQL + ";\" 2>/dev/null");
+        CompletableFuture<List<SshCommandResult>> batch = timeoutMs != null
+                ? sshExecutionService.executeBatchAsync(serverId, commands, timeoutMs)
+                : sshExecutionService.executeBatchAsync(serverId, commands);
+        return batch.thenApply(results -> toSnapshot(serverId, results));
+    }
+
+    /** The snapshot queries on one JDBC connection; a later query that fails only leaves its fields unset. */
+    static PostgresSnapshot query(Connection connection, int queryTimeoutSeconds) throws SQLException {
+        List<List<String[]>> tables = new ArrayList<>();
+        for (String sql : QUERIES) {
+            try (PreparedStatement st = connection.prepareStatement(sql)) {
+                st.setQueryTimeout(queryTimeoutSeconds);
+                try (ResultSet rs = st.executeQuery()) {
+                    int columns = rs.getMetaData().getColumnCount();
+                    List<String[]> rows = new ArrayList<>();
+                    while (rs.next()) {
+                        String[] row = new String[columns];
+                        for (int i = 0; i < columns; i++) row[i] = rs.getString(i + 1);
+                        rows.add(row);
+                    }
+                    tables.add(rows);
                 }
+            } catch (SQLException e) {
+                // Like a failed psql command: only the first query decides whether Postgres is reachable.
+                if (tables.isEmpty()) throw e;
+                tables.add(null);
+            }
+        }
+        return fromRows(tables);
+    }
+
+    /**
+     * Fill a snapshot from the rows of {@link #QUERIES}, in order; a null table is a query that
+     * failed and leaves its fields unset.
+     */
+    static PostgresSnapshot fromRows(List<List<String[]>> tables) {
+        PostgresSnapshot snapshot = new PostgresSnapshot();
+        List<String[]> connections = tables.get(0);
+        if (connections != null && !connections.isEmpty()) {
+            parseLong(connections.get(0)[0]).ifPresent(n -> snapshot.setActiveConnections(n.intValue()));
+        }
+
+        List<String[]> sizesRows = tables.get(1);
+        if (sizesRows != null) {
+            List<PostgresSnapshot.DatabaseSize> sizes = new ArrayList<>();
+            for (String[] row : sizesRows) {
+                if (row.length < 3) continue;
+                PostgresSnapshot.DatabaseSize ds = new PostgresSnapshot.DatabaseSize();
+                ds.setName(row[0]);
+                ds.setSizeBytes(parseLong(row[1]).orElse(null));
+                ds.setSize(row[2]);
+                sizes.add(ds);
             }
             snapshot.setDatabaseSizes(sizes);
         }
 
-        String locksCmd = psqlCmd + " -c \"SELECT count(*), mode FROM pg_locks GROUP BY mode;\" 2>/dev/null";
-        Optional<SshCommandResult> locksResult = serverId != null ? sshExecutionService.executeWithServer(serverId, locksCmd) : sshExecutionService.execute(locksCmd);
-        if (locksResult.isPresent() && locksResult.get().isSuccess() && !locksResult.get().getStdout().isBlank()) {
-            snapshot.setLocksSummary(locksResult.get().getStdout().trim());
+        List<String[]> locks = tables.get(2);
+        if (locks != null && !locks.isEmpty()) {
+            Map<String, Long> byMode = new LinkedHashMap<>();
+            StringBuilder summary = new StringBuilder();
+            for (String[] row : locks) {
+                if (row.length < 2) continue;
+                parseLong(row[0]).ifPresent(n -> byMode.merge(row[1], n, Long::sum));
+                if (summary.length() > 0) summary.append('\n');
+                summary.append(row[0]).append('|').append(row[1]);
+            }
+            snapshot.setLocksByMode(byMode);
+            snapshot.setLocksSummary(summary.toString());
         }
 
-        String slowCmd = psqlCmd + " -c \"SELECT count(*) FROM pg_stat_activity WHERE state = 'active' AND query_start < now() - interval '5 seconds';\" 2>/dev/null";
-        Optional<SshCommandResult> slowResult = serverId != null ? sshExecutionService.executeWithServer(serverId, slowCmd) : sshExecutionService.execute(slowCmd);
-        if (slowResult.isPresent() && slowResult.get().isSuccess()) {
-            try {
-                int slow = Integer.parseInt(slowResult.get().getStdout().trim());
-                snapshot.setSlowQueriesSummary(slow + " queries running longer than 5s");
-            } catch (NumberFormatException ignored) {}
+        List<String[]> slow = tables.get(3);
+        if (slow != null && !slow.isEmpty()) {
+            parseLong(slow.get(0)[0]).ifPresent(n -> snapshot.setSlowQueriesSummary(n + " queries running longer than 5s"));
         }
 
-        if (activeResult.isPresent() && !activeResult.get().isSuccess() && snapshot.getError() == null) {
-            snapshot.setError("Postgres unreachable or psql not available: " + activeResult.get().getStderr().trim());
+        List<String[]> waits = tables.get(4);
+        if (waits != null) {
+            List<PostgresSnapshot.LockWait> lockWaits = new ArrayList<>();
+            for (String[] row : waits) {
+                if (row.length < 2) continue;
+                Optional<Long> blocked = parseLong(row[0]);
+                Optional<Long> blocking = parseLong(row[1]);
+                if (blocked.isEmpty() || blocking.isEmpty()) continue;
+                PostgresSnapshot.LockWait wait = new PostgresSnapshot.LockWait();
+                wait.setBlockedPid(blocked.get().intValue());
+                wait.setBlockingPid(blocking.get().intValue());
+                lockWaits.add(wait);
+            }
+            snapshot.setLockWaits(lockWaits);
+        }
+
+        List<String[]> states = tables.get(5);
+        if (states != null) {
+            Map<String, Long> byState = new LinkedHashMap<>();
+            for (String[] row : states) {
+                if (row.length >= 2) parseLong(row[1]).ifPresent(n -> byState.merge(row[0], n, Long::sum));
+            }
+            snapshot.setConnectionsByState(byState);
         }
         return snapshot;
     }
 
-    private Optional<Integer> parseConnectionCount(Optional<SshCommandResult> result) {
-        if (result.isEmpty() || !result.get().isSuccess()) {
-            return Optional.empty();
+    private static PostgresSnapshot jdbcError(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        PostgresSnapshot snapshot = new PostgresSnapshot();
+        snapshot.setError(cause instanceof TimeoutException ? "Postgres query timed out"
+                : "Postgres unreachable: " + cause.getMessage());
+        return snapshot;
+    }
+
+    private void applyStatements(String serverId, PostgresSnapshot snapshot, List<PostgresStatementSampler.Row> rows) {
+        PostgresStatementSampler.Sample sample = statementSampler.sample(serverId, rows);
+        if (sample == null) return;
+        snapshot.setTopStatements(sample.getStatements());
+        snapshot.setStatementsIntervalMs(sample.getIntervalMs());
+    }
+
+    private PostgresSnapshot toSnapshot(String serverId, List<SshCommandResult> results) {
+        List<List<String[]>> tables = new ArrayList<>();
+        for (int i = 0; i < QUERIES.size(); i++) {
+            SshCommandResult result = results.get(i);
+            if (!result.isSuccess()) {
+                tables.add(null);
+                continue;
+            }
+            List<String[]> rows = new ArrayList<>();
+            for (String line : result.getStdout().split("\n")) {
+                if (line.isBlank()) continue;
+                String[] row = line.split("\\|", -1);
+                for (int c = 0; c < row.length; c++) row[c] = row[c].trim();
+                rows.add(row);
+            }
+            tables.add(rows);
         }
-        String output = result.get().getStdout();
-        if (output == null || output.isBlank()) {
-            return Optional.empty();
+        PostgresSnapshot snapshot = fromRows(tables);
+
+        SshCommandResult statementsResult = results.get(QUERIES.size());
+        if (statementsResult.isSuccess()) {
+            applyStatements(serverId, snapshot, PostgresStatementSampler.parse(statementsResult.getStdout()));
         }
-        Matcher matcher = FIRST_INT_PATTERN.matcher(output);
-        if (!matcher.find()) {
-            return Optional.empty();
+
+        SshCommandResult activeResult = results.get(0);
+        if (!activeResult.isSuccess() && snapshot.getError() == null) {
+            snapshot.setError("Postgres unreachable or psql not available: " + activeResult.getStderr().trim());
         }
+        return snapshot;
+    }
+
+    private static Optional<Long> parseLong(String value) {
+        if (value == null) return Optional.empty();
         try {
-            return Optional.of(Integer.parseInt(matcher.group(1)));
+            return Optional.of(Long.parseLong(value.trim()));
         } catch (NumberFormatException ignored) {
             return Optional.empty();
         }
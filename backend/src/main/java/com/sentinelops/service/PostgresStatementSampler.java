@@ -0,0 +1,181 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.PostgresProperties;
+import com.sentinelops.model.snapshot.PostgresSnapshot.StatementStats;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-interval statement statistics from pg_stat_statements. The view only holds cumulative
+ * counters, so the last reading of each server is kept in memory (counters per queryid, no query
+ * text) and a snapshot reports what every statement did since the server's previous snapshot; the
+ * first snapshot has nothing to compare with. Statements that appeared in between count from zero,
+ * and after pg_stat_statements_reset() the counters are taken as they are.
+ */
+@Service
+public class PostgresStatementSampler {
+
+    private static final String DEFAULT_SERVER = "";
+    private static final int QUERY_TEXT_CHARS = 200;
+
+    // One row per queryid (the view has one per user, database and queryid). total_exec_time is
+    // total_time before Postgres 13; query text is one line so psql output splits cleanly.
+    static final String SQL = "SELECT s.queryid, sum(s.calls), sum(coalesce((to_jsonb(s)->>'total_exec_time')::float8,"
+            + " (to_jsonb(s)->>'total_time')::float8)), sum(s.rows), sum(s.shared_blks_hit), sum(s.shared_blks_read),"
+            + " left(regexp_replace(min(s.query), '\\s+', ' ', 'g'), " + QUERY_TEXT_CHARS + ")"
+            + " FROM pg_stat_statements s WHERE s.queryid IS NOT NULL GROUP BY s.queryid";
+
+    private final PostgresProperties postgresProperties;
+    private final Map<String, Reading> lastReadings = new ConcurrentHashMap<>();
+
+    public PostgresStatementSampler(PostgresProperties postgresProperties) {
+        this.postgresProperties = postgresProperties;
+    }
+
+    /** Rows of {@link #SQL} as printed by psql -t -A. */
+    static List<Row> parse(String output) {
+        List<Row> rows = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            String[] parts = line.split("\\|", 7);
+            if (parts.length < 7) continue;
+            try {
+                rows.add(new Row(Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim()),
+                        Double.parseDouble(parts[2].trim()), Long.parseLong(parts[3].trim()),
+                        Long.parseLong(parts[4].trim()), Long.parseLong(parts[5].trim()), parts[6]));
+            } catch (NumberFormatException ignored) {
+                // header noise or a line of a notice
+            }
+        }
+        return rows;
+    }
+
+    static List<Row> query(Connection connection, int queryTimeoutSeconds) throws SQLException {
+        List<Row> rows = new ArrayList<>();
+        try (PreparedStatement st = connection.prepareStatement(SQL)) {
+            st.setQueryTimeout(queryTimeoutSeconds);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Row(rs.getLong(1), rs.getLong(2), rs.getDouble(3), rs.getLong(4),
+                            rs.getLong(5), rs.getLong(6), rs.getString(7)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Record the rows as the server's latest reading and return the top statements by execution
+     * time since the previous one ({@code postgres.top-statements}), or null without one.
+     */
+    public Sample sample(String serverId, List<Row> rows) {
+        long now = System.currentTimeMillis();
+        Reading current = new Reading(now, rows);
+        Reading[] previous = new Reading[1];
+        lastReadings.compute(key(serverId), (k, last) -> {
+            previous[0] = last;
+            return last == null || now >= last.takenAt ? current : last;
+        });
+        if (previous[0] == null || now <= previous[0].takenAt) return null;
+
+        Map<Long, double[]> before = previous[0].counters;
+        List<StatementStats> changed = new ArrayList<>();
+        for (Row row : rows) {
+            double[] last = before.get(row.queryId);
+            // New since the last reading, or the counters were reset: the current values are the delta.
+            boolean fromZero = last == null || row.calls < last[0];
+            long calls = fromZero ? row.calls : row.calls - (long) last[0];
+            if (calls <= 0) continue;
+            double totalMs = Math.max(0, fromZero ? row.totalMs : row.totalMs - last[1]);
+            StatementStats s = new StatementStats();
+            s.setQueryId(row.queryId);
+            s.setQuery(row.query);
+            s.setCalls(calls);
+            s.setTotalTimeMs(round(totalMs));
+            s.setMeanTimeMs(round(totalMs / calls));
+            s.setRows(fromZero ? row.rows : Math.max(0, row.rows - (long) last[2]));
+            s.setSharedBlksHit(fromZero ? row.sharedBlksHit : Math.max(0, row.sharedBlksHit - (long) last[3]));
+            s.setSharedBlksRead(fromZero ? row.sharedBlksRead : Math.max(0, row.sharedBlksRead - (long) last[4]));
+            changed.add(s);
+        }
+        changed.sort(Comparator.comparingDouble(StatementStats::getTotalTimeMs).reversed());
+        int top = Math.max(0, postgresProperties.getTopStatements());
+        return new Sample(new ArrayList<>(changed.subList(0, Math.min(top, changed.size()))), now - previous[0].takenAt);
+    }
+
+    /** Drop the reading of a changed or removed server. */
+    public void forget(String serverId) {
+        lastReadings.remove(key(serverId));
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        forget(event.getServerId());
+    }
+
+    private static double round(double ms) {
+        return Math.round(ms * 1000) / 1000.0;
+    }
+
+    private static String key(String serverId) {
+        return serverId != null ? serverId : DEFAULT_SERVER;
+    }
+
+    /** One statement's cumulative counters. */
+    static final class Row {
+        private final long queryId;
+        private final long calls;
+        private final double totalMs;
+        private final long rows;
+        private final long sharedBlksHit;
+        private final long sharedBlksRead;
+        private final String query;
+
+        Row(long queryId, long calls, double totalMs, long rows, long sharedBlksHit, long sharedBlksRead, String query) {
+            this.queryId = queryId;
+            this.calls = calls;
+            this.totalMs = totalMs;
+            this.rows = rows;
+            this.sharedBlksHit = sharedBlksHit;
+            this.sharedBlksRead = sharedBlksRead;
+            this.query = query;
+        }
+    }
+
+    /** Counters per queryid: {calls, total ms, rows, shared blocks hit, shared blocks read}. */
+    private static final class Reading {
+        private final long takenAt;
+        private final Map<Long, double[]> counters;
+
+        private Reading(long takenAt, List<Row> rows) {
+            this.takenAt = takenAt;
+            this.counters = new HashMap<>(rows.size() * 2);
+            for (Row r : rows) {
+                counters.put(r.queryId, new double[]{r.calls, r.totalMs, r.rows, r.sharedBlksHit, r.sharedBlksRead});
+            }
+        }
+    }
+
+    public static final class Sample {
+        private final List<StatementStats> statements;
+        private final long intervalMs;
+
+        Sample(List<StatementStats> statements, long intervalMs) {
+            this.statements = statements;
+            this.intervalMs = intervalMs;
+        }
+
+        public List<StatementStats> getStatements() { return statements; }
+        public long getIntervalMs() { return intervalMs; }
+    }
+}
@@ -0,0 +1,179 @@
+package com.sentinelops.service;
+
+import com.sentinelops.model.snapshot.DiskUsage;
+import com.sentinelops.model.snapshot.MemoryInfo;
+import com.sentinelops.model.snapshot.UptimeInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parsers for /proc files and {@code df -B1 -P}. These formats are fixed by the kernel and POSIX,
+ * are plain integers and do not depend on locale, so the values are kept exact (bytes, seconds).
+ */
+final class ProcFsParser {
+
+    private static final long MIB = 1024 * 1024;
+    private static final String UNITS = "KMGTPE";
+
+    private ProcFsParser() {
+    }
+
+    /**
+     * /proc/meminfo (values in KiB). "Used" follows current free(1): total - available, or
+     * total - free - buffers - cache (reclaimable slab included) on kernels without MemAvailable.
+     */
+    static MemoryInfo parseMeminfo(String text) {
+        Map<String, Long> kib = new HashMap<>();
+        for (String line : text.split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) continue;
+            String[] value = line.substring(colon + 1).trim().split("\\s+");
+            try {
+                kib.put(line.substring(0, colon), Long.parseLong(value[0]));
+            } catch (NumberFormatException ignored) {
+                // not a numeric field
+            }
+        }
+        MemoryInfo mem = new MemoryInfo();
+        long total = bytes(kib, "MemTotal");
+        long free = bytes(kib, "MemFree");
+        long buffers = bytes(kib, "Buffers");
+        long cached = bytes(kib, "Cached") + bytes(kib, "SReclaimable");
+        // MemAvailable exists since Linux 3.14; estimate it on older kernels.
+        long available = kib.containsKey("MemAvailable") ? bytes(kib, "MemAvailable") : free + buffers + cached;
+        long used = Math.max(0, total - available);
+        long swapTotal = bytes(kib, "SwapTotal");
+        long swapFree = bytes(kib, "SwapFree");
+
+        mem.setMemTotalBytes(total);
+        mem.setMemFreeBytes(free);
+        mem.setMemAvailableBytes(available);
+        mem.setMemUsedBytes(used);
+        mem.setBuffersBytes(buffers);
+        mem.setCachedBytes(cached);
+        mem.setSwapTotalBytes(swapTotal);
+        mem.setSwapFreeBytes(swapFree);
+        mem.setSwapUsedBytes(swapTotal - swapFree);
+        mem.setMemTotalMb(total / MIB);
+        mem.setMemFreeMb(free / MIB);
+        mem.setMemAvailableMb(available / MIB);
+        mem.setMemUsedMb(used / MIB);
+        mem.setSwapTotalMb(swapTotal / MIB);
+        mem.setSwapFreeMb(swapFree / MIB);
+        mem.setSwapUsedMb((swapTotal - swapFree) / MIB);
+        return mem;
+    }
+
+    private static long bytes(Map<String, Long> kib, String key) {
+        Long value = kib.get(key);
+        return value != null ? value * 1024 : 0;
+    }
+
+    /**
+     * /proc/uptime ("seconds idle"), /proc/loadavg ("1 5 15 running/total lastpid") and the
+     * btime and cpuN lines of /proc/stat; any of them may be empty.
+     */
+    static UptimeInfo parseUptime(String procUptime, String loadavg, String procStat) {
+        UptimeInfo uptime = new UptimeInfo();
+        String[] up = procUptime.trim().split("\\s+");
+        if (!up[0].isEmpty()) {
+            try {
+                double seconds = Double.parseDouble(up[0]);
+                uptime.setUptimeSeconds(seconds);
+                uptime.setUptimeString(formatUptime(seconds));
+            } catch (NumberFormatException ignored) {
+                // leave unset
+            }
+        }
+        String[] load = loadavg.trim().split("\\s+");
+        if (load.length >= 4) {
+            uptime.setLoad1(load[0]);
+            uptime.setLoad5(load[1]);
+            uptime.setLoad15(load[2]);
+            int slash = load[3].indexOf('/');
+            if (slash > 0) {
+                try {
+                    uptime.setRunnableTasks(Integer.parseInt(load[3].substring(0, slash)));
+                    uptime.setTotalTasks(Integer.parseInt(load[3].substring(slash + 1)));
+                } catch (NumberFormatException ignored) {
+                    // leave unset
+                }
+            }
+        }
+        int cpus = 0;
+        for (String line : procStat.split("\n")) {
+            if (line.startsWith("cpu") && line.length() > 3 && Character.isDigit(line.charAt(3))) {
+                cpus++;
+            } else if (line.startsWith("btime ")) {
+                try {
+                    uptime.setBootTimeEpochSeconds(Long.parseLong(line.substring(6).trim()));
+                } catch (NumberFormatException ignored) {
+                    // leave unset
+                }
+            }
+        }
+        if (cpus > 0) uptime.setCpuCount(cpus);
+        return uptime;
+    }
+
+    /** "up 41 days, 2:03" / "up 17 min", like uptime(1). */
+    static String formatUptime(double seconds) {
+        long total = (long) seconds;
+        long days = total / 86_400;
+        long hours = total % 86_400 / 3_600;
+        long minutes = total % 3_600 / 60;
+        StringBuilder sb = new StringBuilder("up ");
+        if (days > 0) sb.append(days).append(days == 1 ? " day, " : " days, ");
+        if (hours > 0) sb.append(hours).append(':').append(String.format(Locale.ROOT, "%02d", minutes));
+        else sb.append(minutes).append(" min");
+        return sb.toString();
+    }
+
+    /**
+     * {@code df -B1 -P}: header, then "filesystem bytes used available capacity% mountpoint" per
+     * line (POSIX format, one line per filesystem). Text fields are filled in df -h notation.
+     */
+    static List<DiskUsage> parseDfBytes(String text) {
+        List<DiskUsage> list = new ArrayList<>();
+        String[] lines = text.split("\n");
+        for (int i = 1; i < lines.length; i++) {
+            String[] f = lines[i].trim().split("\\s+", 6);
+            if (f.length < 6 || !f[4].endsWith("%")) continue;
+            try {
+                long size = Long.parseLong(f[1]);
+                long used = Long.parseLong(f[2]);
+                long avail = Long.parseLong(f[3]);
+                DiskUsage d = new DiskUsage(f[0], humanBytes(size), humanBytes(used), humanBytes(avail), f[4], f[5]);
+                d.setSizeBytes(size);
+                d.setUsedBytes(used);
+                d.setAvailBytes(avail);
+                list.add(d);
+            } catch (NumberFormatException ignored) {
+                // "-" for pseudo filesystems
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Size the way {@code df -h} prints it: powers of 1024, rounded up, one decimal below 10.
+     */
+    static String humanBytes(long bytes) {
+        if (bytes < 1024) return Long.toString(bytes);
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < UNITS.length() - 1) {
+            value /= 1024;
+            unit++;
+        }
+        double tenths = Math.ceil(value * 10) / 10;
+        if (tenths < 10) return String.format(Locale.ROOT, "%.1f%c", tenths, UNITS.charAt(unit));
+        long whole = (long) Math.ceil(value);
+        if (whole >= 1024 && unit < UNITS.length() - 1) return "1.0" + UNITS.charAt(unit + 1);
+        return whole + String.valueOf(UNITS.charAt(unit));
+    }
+}
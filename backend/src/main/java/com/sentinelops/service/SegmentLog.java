@@ -0,0 +1,516 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.StorageProperties;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of timestamped, keyed records in a directory of segment files
+ * ({@code 00000000000000000001.log}, ...). A record is
+ * {@code [int length][int crc32][long timestamp][short key length][key][payload]}, the CRC covering
+ * everything after it. Each segment has a time index (timestamp, position and key hash of every
+ * record): in memory while the segment is written, and in a {@code .idx} file once it is closed, so
+ * a restart only scans the newest segment. That scan checks every CRC and cuts the file at the first
+ * torn or damaged record.
+ * <p>
+ * Reads binary-search the index for the time range, skip other keys by their hash without touching
+ * the file, and copy only the matching records, out of a
+ * cached read-only mapping for closed segments and with positional reads for the one being written
+ * (which would otherwise need a new mapping after every append); nothing else is decoded. Timestamps
+ * are kept non-decreasing (an earlier one is stored as the previous one), which the search relies on.
+ * Retention deletes whole closed segments, by age of their newest record and by the total size of the
+ * log. A segment that cannot be deleted yet (Windows refuses while a mapping of it is alive) is retried
+ * on later appends rather than failing them.
+ * <p>
+ * Appends hold the log's lock; reads only hold it to copy the index bounds, so a long read never
+ * stalls appends.
+ */
+final class SegmentLog implements Closeable {
+
+    private static final String LOG = ".log";
+    private static final String INDEX = ".idx";
+    // "SIX2": index files with key hashes; older ones (without) are rebuilt by a scan.
+    private static final int INDEX_MAGIC = 0x53495832;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final int HEADER_BYTES = 8;
+    // timestamp + key length
+    private static final int MIN_BODY_BYTES = 10;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final long retentionMs;
+    private final long maxBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<Segment> deleting = new ArrayList<>();
+
+    SegmentLog(Path dir, StorageProperties properties) {
+        this.dir = dir;
+        this.segmentBytes = Math.min(Integer.MAX_VALUE, Math.max(4096, properties.getSegmentBytes()));
+        this.retentionMs = properties.getRetentionMs();
+        this.maxBytes = properties.getMaxBytes();
+        try {
+            Files.createDirectories(dir);
+            List<Path> logs;
+            try (Stream<Path> files = Files.list(dir)) {
+                logs = files.filter(p -> p.getFileName().toString().endsWith(LOG)).sorted().toList();
+            }
+            for (int i = 0; i < logs.size(); i++) {
+                segments.add(Segment.open(logs.get(i), i == logs.size() - 1));
+            }
+            if (segments.isEmpty()) segments.add(Segment.create(dir, 1));
+            applyRetention(System.currentTimeMillis());
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Cannot open log " + dir, e);
+        }
+    }
+
+    synchronized void append(long timestampMs, String key, byte[] payload) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = MIN_BODY_BYTES + keyBytes.length + payload.length;
+        Segment active = segments.get(segments.size() - 1);
+        long at = Math.max(timestampMs, active.count > 0 ? active.lastTime : lastTime());
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.putInt(length).putInt(0).putLong(at).putShort((short) keyBytes.length).put(keyBytes).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        try {
+            if (active.count > 0 && active.size + record.remaining() > segmentBytes) {
+                active.seal();
+                active = Segment.create(dir, active.sequence + 1);
+                segments.add(active);
+                applyRetention(at);
+            }
+            active.write(at, record, keyHash(keyBytes, 0, keyBytes.length));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to " + dir, e);
+        }
+    }
+
+    /**
+     * The newest {@code limit} records with {@code fromMs <= timestamp <= toMs}, oldest first; only
+     * records of {@code key} when it is not null.
+     */
+    List<Record> read(long fromMs, long toMs, String key, int limit) {
+        byte[] keyBytes = key != null ? key.getBytes(StandardCharsets.UTF_8) : null;
+        int keyHash = keyBytes != null ? keyHash(keyBytes, 0, keyBytes.length) : 0;
+        List<View> views = views();
+        List<Record> records = new ArrayList<>();
+        for (int s = views.size() - 1; s >= 0 && records.size() < limit; s--) {
+            View view = views.get(s);
+            if (view.count == 0 || view.firstTime > toMs) continue;
+            if (view.lastTime < fromMs) break;
+            try {
+                for (int i = view.upperBound(toMs) - 1; i >= 0 && records.size() < limit; i--) {
+                    if (view.times[i] < fromMs) break;
+                    if (keyBytes != null && view.keys[i] != keyHash) continue;
+                    Record record = view.record(view.positions[i], keyBytes);
+                    if (record != null) records.add(record);
+                }
+            } catch (ClosedChannelException e) {
+                // Deleted by retention since the index was copied; older segments are gone as well.
+                break;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + dir, e);
+            }
+        }
+        Collections.reverse(records);
+        return records;
+    }
+
+    /**
+     * Up to {@code limit} records with {@code fromMs <= timestamp <= toMs} in log order, starting
+     * after the record at {@code afterPosition} of segment {@code afterSequence} (from the start of
+     * the range when {@code afterSequence < 0}); only records of {@code key} when it is not null.
+     * Callers page by passing the position of the last record they got.
+     */
+    List<Record> scan(long fromMs, long toMs, String key, long afterSequence, int afterPosition, int limit) {
+        byte[] keyBytes = key != null ? key.getBytes(StandardCharsets.UTF_8) : null;
+        int keyHash = keyBytes != null ? keyHash(keyBytes, 0, keyBytes.length) : 0;
+        List<Record> records = new ArrayList<>();
+        for (View view : views()) {
+            long sequence = view.segment.sequence;
+            if (sequence < afterSequence || view.count == 0 || view.lastTime < fromMs) continue;
+            if (view.firstTime > toMs || records.size() >= limit) break;
+            int start = view.lowerBound(fromMs);
+            if (sequence == afterSequence) start = Math.max(start, view.after(afterPosition));
+            try {
+                for (int i = start; i < view.count && records.size() < limit; i++) {
+                    if (view.times[i] > toMs) return records;
+                    if (keyBytes != null && view.keys[i] != keyHash) continue;
+                    Record record = view.record(view.positions[i], keyBytes);
+                    if (record != null) records.add(record);
+                }
+            } catch (ClosedChannelException e) {
+                // Deleted by retention since the index was copied: continue with the next segment.
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + dir, e);
+            }
+        }
+        return records;
+    }
+
+    /** The index of every segment as of now; reads work on this copy without the lock. */
+    private synchronized List<View> views() {
+        List<View> views = new ArrayList<>(segments.size());
+        for (Segment segment : segments) views.add(segment.view());
+        return views;
+    }
+
+    /** Arrays.hashCode of {@code bytes[from, to)}. */
+    private static int keyHash(byte[] bytes, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) hash = 31 * hash + bytes[i];
+        return hash;
+    }
+
+    /** Total size of the segment files. */
+    synchronized long sizeBytes() {
+        long size = 0;
+        for (Segment segment : segments) size += segment.size;
+        return size;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) segment.close();
+        for (Segment segment : deleting) segment.close();
+    }
+
+    private long lastTime() {
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            if (segments.get(s).count > 0) return segments.get(s).lastTime;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Delete closed segments that are too old or beyond the size limit, oldest first. A segment whose
+     * files cannot be deleted yet is no longer read and is retried on the next call.
+     */
+    private void applyRetention(long nowMs) {
+        deleting.removeIf(Segment::delete);
+        long total = sizeBytes();
+        while (segments.size() > 1) {
+            Segment oldest = segments.get(0);
+            if (oldest.lastTime >= nowMs - retentionMs && total <= maxBytes) return;
+            segments.remove(0);
+            total -= oldest.size;
+            if (!oldest.delete()) deleting.add(oldest);
+        }
+    }
+
+    /** A record read from the log; the payload is a copy. */
+    static final class Record {
+        final long sequence;
+        final int position;
+        final long timestampMs;
+        final String key;
+        final byte[] payload;
+
+        private Record(long sequence, int position, long timestampMs, String key, byte[] payload) {
+            this.sequence = sequence;
+            this.position = position;
+            this.timestampMs = timestampMs;
+            this.key = key;
+            this.payload = payload;
+        }
+
+        /**
+         * The record stored at {@code at} of {@code buffer} (at {@code position} of its segment) if it
+         * is valid and of {@code key} (any key when null).
+         */
+        private static Record read(ByteBuffer buffer, int at, long sequence, int position, byte[] key) {
+            int length = buffer.getInt(at);
+            if (length < MIN_BODY_BYTES || at + HEADER_BYTES + (long) length > buffer.limit()) return null;
+            int keyLength = Short.toUnsignedInt(buffer.getShort(at + HEADER_BYTES + 8));
+            if (MIN_BODY_BYTES + keyLength > length) return null;
+            int keyAt = at + HEADER_BYTES + MIN_BODY_BYTES;
+            if (key != null && !keyEquals(buffer, keyAt, keyLength, key)) return null;
+            byte[] body = new byte[length];
+            buffer.get(at + HEADER_BYTES, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(at + 4)) return null;
+            return new Record(sequence, position, buffer.getLong(at + HEADER_BYTES),
+                    new String(body, MIN_BODY_BYTES, keyLength, StandardCharsets.UTF_8),
+                    Arrays.copyOfRange(body, MIN_BODY_BYTES + keyLength, length));
+        }
+
+        private static boolean keyEquals(ByteBuffer buffer, int at, int length, byte[] key) {
+            if (length != key.length) return false;
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(at + i) != key[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final Path log;
+        private final Path index;
+        private final FileChannel channel;
+        private long size;
+        private long[] times = new long[256];
+        private int[] positions = new int[256];
+        private int[] keys = new int[256];
+        private int count;
+        private long firstTime = Long.MAX_VALUE;
+        private long lastTime = Long.MIN_VALUE;
+        // Only sealed segments are mapped: their size no longer changes, so one mapping serves every read.
+        private boolean sealed;
+        private MappedByteBuffer mapped;
+
+        private Segment(long sequence, Path log, FileChannel channel) {
+            this.sequence = sequence;
+            this.log = log;
+            this.index = log.resolveSibling(log.getFileName().toString().replace(LOG, INDEX));
+            this.channel = channel;
+        }
+
+        static Segment create(Path dir, long sequence) throws IOException {
+            Path log = dir.resolve(String.format("%020d%s", sequence, LOG));
+            return new Segment(sequence, log, FileChannel.open(log, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        /** Open an existing segment: from its index file if it has a valid one, else by a CRC-checked scan. */
+        static Segment open(Path log, boolean active) throws IOException {
+            long sequence = Long.parseLong(log.getFileName().toString().replace(LOG, ""));
+            FileChannel channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(sequence, log, channel);
+            segment.size = channel.size();
+            segment.sealed = !active;
+            if (active || !segment.loadIndex()) {
+                segment.scan();
+                if (!active) segment.writeIndex();
+            }
+            return segment;
+        }
+
+        void write(long timestampMs, ByteBuffer record, int keyHash) throws IOException {
+            int position = (int) size;
+            while (record.hasRemaining()) size += channel.write(record, size);
+            add(timestampMs, position, keyHash);
+        }
+
+        /** Flush the segment and write its index; it is only read from now on. */
+        void seal() throws IOException {
+            channel.force(false);
+            writeIndex();
+            sealed = true;
+        }
+
+        /** The index as of now; the caller holds the log's lock. */
+        View view() {
+            return new View(this, count, times, positions, keys, firstTime, lastTime, size, sealed);
+        }
+
+        synchronized MappedByteBuffer mapping() throws IOException {
+            if (mapped == null) mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return mapped;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing left to flush that force() would not have
+            }
+        }
+
+        /** Close and delete the files; false if they are still there, e.g. while mapped on Windows. */
+        synchronized boolean delete() {
+            close();
+            mapped = null;
+            try {
+                Files.deleteIfExists(index);
+                Files.deleteIfExists(log);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private void add(long timestampMs, int position, int keyHash) {
+            // Grown by copying, so views taken before keep consistent arrays.
+            if (count == times.length) {
+                times = Arrays.copyOf(times, count * 2);
+                positions = Arrays.copyOf(positions, count * 2);
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+            times[count] = timestampMs;
+            keys[count] = keyHash;
+            positions[count++] = position;
+            if (timestampMs < firstTime) firstTime = timestampMs;
+            lastTime = timestampMs;
+        }
+
+        /**
+         * Index every valid record; the file is cut after the last one. Reads go through the channel
+         * into a heap buffer, not a mapping, since a mapped file cannot be truncated on Windows.
+         */
+        private void scan() throws IOException {
+            ByteBuffer prefix = ByteBuffer.allocate(HEADER_BYTES + MIN_BODY_BYTES);
+            ByteBuffer body = ByteBuffer.allocate(4096);
+            int position = 0;
+            long previous = Long.MIN_VALUE;
+            while (position + HEADER_BYTES + MIN_BODY_BYTES <= size) {
+                readFully(prefix.clear(), position);
+                int length = prefix.getInt(0);
+                if (length < MIN_BODY_BYTES || position + HEADER_BYTES + (long) length > size) break;
+                long timestampMs = prefix.getLong(HEADER_BYTES);
+                int keyLength = Short.toUnsignedInt(prefix.getShort(HEADER_BYTES + 8));
+                if (MIN_BODY_BYTES + keyLength > length || timestampMs < previous) break;
+                if (body.capacity() < length) body = ByteBuffer.allocate(Math.max(length, body.capacity() * 2));
+                readFully(body.clear().limit(length), position + HEADER_BYTES);
+                CRC32 crc = new CRC32();
+                crc.update(body.array(), 0, length);
+                if ((int) crc.getValue() != prefix.getInt(4)) break;
+                add(timestampMs, position, keyHash(body.array(), MIN_BODY_BYTES, MIN_BODY_BYTES + keyLength));
+                previous = timestampMs;
+                position += HEADER_BYTES + length;
+            }
+            if (position < size) {
+                channel.truncate(position);
+                size = position;
+            }
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException(log.toString());
+            }
+        }
+
+        /**
+         * Index file: a magic number, (long timestamp, int position, int key hash) per record, then
+         * the log size it covers.
+         */
+        private void writeIndex() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(4 + count * INDEX_ENTRY_BYTES + 8);
+            buffer.putInt(INDEX_MAGIC);
+            for (int i = 0; i < count; i++) buffer.putLong(times[i]).putInt(positions[i]).putInt(keys[i]);
+            buffer.putLong(size).flip();
+            Path tmp = index.resolveSibling(index.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) out.write(buffer);
+                out.force(false);
+            }
+            Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private boolean loadIndex() throws IOException {
+            if (!Files.exists(index)) return false;
+            byte[] bytes = Files.readAllBytes(index);
+            if (bytes.length < 12 || (bytes.length - 12) % INDEX_ENTRY_BYTES != 0) return false;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt() != INDEX_MAGIC || buffer.getLong(bytes.length - 8) != size) return false;
+            int n = (bytes.length - 12) / INDEX_ENTRY_BYTES;
+            for (int i = 0; i < n; i++) add(buffer.getLong(), buffer.getInt(), buffer.getInt());
+            return true;
+        }
+    }
+
+    /** A segment's index up to {@code count} records, copied under the log's lock. */
+    private static final class View {
+        private final Segment segment;
+        private final int count;
+        private final long[] times;
+        private final int[] positions;
+        private final int[] keys;
+        private final long firstTime;
+        private final long lastTime;
+        private final long size;
+        private final boolean sealed;
+
+        private View(Segment segment, int count, long[] times, int[] positions, int[] keys, long firstTime,
+                     long lastTime, long size, boolean sealed) {
+            this.segment = segment;
+            this.count = count;
+            this.times = times;
+            this.positions = positions;
+            this.keys = keys;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+            this.size = size;
+            this.sealed = sealed;
+        }
+
+        /**
+         * The valid record at {@code position} of {@code key} (any key when null), else null. In
+         * the segment being written, the header and key are read first and the body only on a match.
+         */
+        Record record(int position, byte[] key) throws IOException {
+            if (sealed) return Record.read(segment.mapping(), position, segment.sequence, position, key);
+            if (position + HEADER_BYTES + (long) MIN_BODY_BYTES > size) return null;
+            ByteBuffer prefix = ByteBuffer.allocate(HEADER_BYTES + MIN_BODY_BYTES);
+            segment.readFully(prefix, position);
+            int length = prefix.getInt(0);
+            if (length < MIN_BODY_BYTES || position + HEADER_BYTES + (long) length > size) return null;
+            int keyLength = Short.toUnsignedInt(prefix.getShort(HEADER_BYTES + 8));
+            if (MIN_BODY_BYTES + keyLength > length || (key != null && keyLength != key.length)) return null;
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length);
+            buffer.put(prefix.flip()).limit(HEADER_BYTES + MIN_BODY_BYTES + keyLength);
+            segment.readFully(buffer, position);
+            if (key != null && !Record.keyEquals(buffer, HEADER_BYTES + MIN_BODY_BYTES, keyLength, key)) return null;
+            segment.readFully(buffer.limit(buffer.capacity()), position);
+            return Record.read(buffer, 0, segment.sequence, position, key);
+        }
+
+        /** Number of index entries with a timestamp at or before {@code timestampMs}. */
+        int upperBound(long timestampMs) {
+            return timestampMs == Long.MAX_VALUE ? count : search(timestampMs + 1);
+        }
+
+        /** Number of index entries with a timestamp before {@code timestampMs}. */
+        int lowerBound(long timestampMs) {
+            return search(timestampMs);
+        }
+
+        /** Index of the first record after the one at {@code position}. */
+        int after(int position) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (positions[mid] <= position) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private int search(long value) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] < value) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
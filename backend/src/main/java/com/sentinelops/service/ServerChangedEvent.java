@@ -0,0 +1,27 @@
+package com.sentinelops.service;
+
+/**
+ * Published after a stored server was updated or deleted. Services holding per-server state
+ * (cached credentials, pooled sessions, tunnels, samples, snapshots) listen for it and drop that
+ * state; history and metrics are only dropped on delete.
+ */
+public class ServerChangedEvent {
+
+    private final String serverId;
+    private final String host;
+    private final int port;
+    private final boolean deleted;
+
+    public ServerChangedEvent(String serverId, String host, int port, boolean deleted) {
+        this.serverId = serverId;
+        this.host = host;
+        this.port = port;
+        this.deleted = deleted;
+    }
+
+    public String getServerId() { return serverId; }
+    /** Host and port the server had before the change; sessions to them are stale. */
+    public String getHost() { return host; }
+    public int getPort() { return port; }
+    public boolean isDeleted() { return deleted; }
+}
@@ -1,10 +1,31 @@
 package com.sentinelops.service;
 
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.model.snapshot.DockerSnapshot;
+import com.sentinelops.model.snapshot.LinuxSnapshot;
+import com.sentinelops.model.snapshot.NginxSnapshot;
+import com.sentinelops.model.snapshot.PostgresSnapshot;
 import com.sentinelops.model.snapshot.SystemSnapshot;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
 /**
- * Builds a full system snapshot by calling Linux, Docker, and Postgres snapshot services.
+ * Builds a full system snapshot from the Linux, Docker, Postgres and Nginx collectors. All four
+ * run at once, so a snapshot takes as long as the slowest collector rather than the sum. Each has
+ * its own deadline ({@code snapshot.*-timeout-ms}); a collector that misses it is reported as a
+ * section with a timeout error and the rest of the snapshot is returned as usual.
+ * <p>
+ * An unreachable host costs one connect attempt, not four: the collectors' batches share the
+ * pooled session being connected and fail together, and once the host's circuit is open they
+ * fail without touching the network.
  */
 @Service
 public class SnapshotAggregatorService {
@@ -13,15 +34,18 @@ public class SnapshotAggregatorService {
     private final DockerSnapshotService dockerSnapshotService;
     private final PostgresSnapshotService postgresSnapshotService;
     private final NginxSnapshotService nginxSnapshotService;
+    private final SnapshotProperties snapshotProperties;
 
     public SnapshotAggregatorService(LinuxSnapshotService linuxSnapshotService,
                                     DockerSnapshotService dockerSnapshotService,
                                     PostgresSnapshotService postgresSnapshotService,
-                                    NginxSnapshotService nginxSnapshotService) {
+                                    NginxSnapshotService nginxSnapshotService,
+                                    SnapshotProperties snapshotProperties) {
         this.linuxSnapshotService = linuxSnapshotService;
         this.dockerSnapshotService = dockerSnapshotService;
         this.postgresSnapshotService = postgresSnapshotService;
         this.nginxSnapshotService = nginxSnapshotService;
+        this.snapshotProperties = snapshotProperties;
     }
 
     public SystemSnapshot capture() {
@@ -29,11 +53,81 @@ public class SnapshotAggregatorService {
     }
 
     public SystemSnapshot capture(String serverId) {
-        SystemSnapshot snapshot = new SystemSnapshot();
-        snapshot.setLinux(linuxSnapshotService.capture(serverId));
-        snapshot.setDocker(dockerSnapshotService.capture(serverId));
-        snapshot.setPostgres(postgresSnapshotService.capture(serverId));
-        snapshot.setNginx(nginxSnapshotService.capture(serverId));
-        return snapshot;
+        return captureAsync(serverId).join();
+    }
+
+    /**
+     * Start all collectors and complete once each has finished or hit its deadline. Never
+     * completes exceptionally; a failing collector becomes an error on its section.
+     */
+    public CompletableFuture<SystemSnapshot> captureAsync(String serverId) {
+        long started = System.nanoTime();
+        Map<String, Long> timings = new ConcurrentHashMap<>();
+        CompletableFuture<LinuxSnapshot> linux = collect("linux", snapshotProperties.getLinuxTimeoutMs(),
+                t -> linuxSnapshotService.captureAsync(serverId, t), msg -> {
+                    LinuxSnapshot s = new LinuxSnapshot();
+                    s.setError(msg);
+                    return s;
+                }, timings);
+        CompletableFuture<DockerSnapshot> docker = collect("docker", snapshotProperties.getDockerTimeoutMs(),
+                t -> dockerSnapshotService.captureAsync(serverId, t), msg -> {
+                    DockerSnapshot s = new DockerSnapshot();
+                    s.setError(msg);
+                    return s;
+                }, timings);
+        CompletableFuture<PostgresSnapshot> postgres = collect("postgres", snapshotProperties.getPostgresTimeoutMs(),
+                t -> postgresSnapshotService.captureAsync(serverId, t), msg -> {
+                    PostgresSnapshot s = new PostgresSnapshot();
+                    s.setError(msg);
+                    return s;
+                }, timings);
+        CompletableFuture<NginxSnapshot> nginx = collect("nginx", snapshotProperties.getNginxTimeoutMs(),
+                t -> nginxSnapshotService.captureAsync(serverId, t), msg -> {
+                    NginxSnapshot s = new NginxSnapshot();
+                    s.setError(msg);
+                    return s;
+                }, timings);
+
+        return CompletableFuture.allOf(linux, docker, postgres, nginx).thenApply(ignored -> {
+            SystemSnapshot snapshot = new SystemSnapshot();
+            snapshot.setLinux(linux.join());
+            snapshot.setDocker(docker.join());
+            snapshot.setPostgres(postgres.join());
+            snapshot.setNginx(nginx.join());
+            Map<String, Long> ordered = new LinkedHashMap<>();
+            for (String name : new String[]{"linux", "docker", "postgres", "nginx"}) {
+                ordered.put(name, timings.get(name));
+            }
+            snapshot.setCollectorTimingsMs(ordered);
+            snapshot.setDurationMs((System.nanoTime() - started) / 1_000_000);
+            return snapshot;
+        });
+    }
+
+    /**
+     * One collector with its deadline: the batch itself is also given the deadline, so remote work
+     * does not outlive it by much. Records the collector's elapsed time under its name.
+     */
+    private static <T> CompletableFuture<T> collect(String name, long timeoutMs, LongFunction<CompletableFuture<T>> capture,
+                                                    Function<String, T> failed, Map<String, Long> timings) {
+        long started = System.nanoTime();
+        CompletableFuture<T> running;
+        try {
+            running = capture.apply(timeoutMs);
+        } catch (RuntimeException e) {
+            running = CompletableFuture.failedFuture(e);
+        }
+        return running
+                .exceptionally(e -> failed.apply("Collector failed: " + rootMessage(e)))
+                .completeOnTimeout(null, timeoutMs, TimeUnit.MILLISECONDS)
+                .thenApply(result -> {
+                    timings.put(name, (System.nanoTime() - started) / 1_000_000);
+                    return result != null ? result : failed.apply("Timed out after " + timeoutMs + " ms");
+                });
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
     }
 }
@@ -0,0 +1,189 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.model.Server;
+import com.sentinelops.model.snapshot.LinuxSnapshot;
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import com.sentinelops.repository.ServerRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest snapshot per server. Every {@code snapshot.collection-interval-ms} each stored server (and
+ * the default SSH host, once it has been viewed) is captured in the background; every capture is
+ * recorded in {@link SnapshotHistoryService} and {@link MetricsStore}.
+ * <p>
+ * Readers get the cached snapshot. When it is older than {@code snapshot.max-age-ms} it is still
+ * returned, marked stale, and a new capture starts (stale-while-revalidate). There is at most one
+ * capture per server in flight: concurrent readers and the scheduler share it, so any number of
+ * viewers cost one capture per interval.
+ */
+@Service
+public class SnapshotCollectionService {
+
+    private static final String DEFAULT_SERVER = "";
+
+    private final SnapshotAggregatorService snapshotAggregatorService;
+    private final SnapshotHistoryService snapshotHistoryService;
+    private final MetricsStore metricsStore;
+    private final ServerRepository serverRepository;
+    private final SshExecutor sshExecutor;
+    private final SnapshotProperties snapshotProperties;
+    private final Map<String, SystemSnapshot> latest = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<SystemSnapshot>> inFlight = new ConcurrentHashMap<>();
+
+    public SnapshotCollectionService(SnapshotAggregatorService snapshotAggregatorService,
+                                     SnapshotHistoryService snapshotHistoryService,
+                                     MetricsStore metricsStore,
+                                     ServerRepository serverRepository,
+                                     SshExecutor sshExecutor,
+                                     SnapshotProperties snapshotProperties) {
+        this.snapshotAggregatorService = snapshotAggregatorService;
+        this.snapshotHistoryService = snapshotHistoryService;
+        this.metricsStore = metricsStore;
+        this.serverRepository = serverRepository;
+        this.sshExecutor = sshExecutor;
+        this.snapshotProperties = snapshotProperties;
+    }
+
+    /**
+     * The server's latest snapshot (null id: default SSH host), with ageMs and stale set. Captures
+     * now when nothing is cached or {@code refresh} is set. Never completes exceptionally.
+     */
+    public CompletableFuture<SystemSnapshot> get(String serverId, boolean refresh) {
+        serverId = normalize(serverId);
+        SystemSnapshot cached = latest.get(key(serverId));
+        if (cached == null || refresh) {
+            return capture(serverId).thenApply(snapshot -> served(snapshot, false));
+        }
+        boolean stale = ageMs(cached) > snapshotProperties.getMaxAgeMs();
+        if (stale) capture(serverId);
+        return CompletableFuture.completedFuture(served(cached, stale));
+    }
+
+    /**
+     * Capture the server, or join the capture already running for it. The result is cached and
+     * recorded in history unless the capture itself failed. An id that is not stored gives an error
+     * snapshot without capturing anything.
+     */
+    public CompletableFuture<SystemSnapshot> capture(String serverId) {
+        serverId = normalize(serverId);
+        if (!isKnown(serverId)) {
+            return CompletableFuture.completedFuture(fallback(new IllegalArgumentException("Unknown server " + serverId)));
+        }
+        return start(serverId);
+    }
+
+    /** True for the default SSH host (null or blank) and stored servers. */
+    public boolean isKnown(String serverId) {
+        serverId = normalize(serverId);
+        return serverId == null || serverRepository.findById(serverId).isPresent();
+    }
+
+    private CompletableFuture<SystemSnapshot> start(String serverId) {
+        String key = key(serverId);
+        CompletableFuture<SystemSnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<SystemSnapshot> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) return running;
+
+        CompletableFuture<SystemSnapshot> captured;
+        try {
+            captured = snapshotAggregatorService.captureAsync(serverId);
+        } catch (RuntimeException e) {
+            captured = CompletableFuture.failedFuture(e);
+        }
+        // History is written off the SSH session thread that completes the last collector.
+        captured.handleAsync((snapshot, e) -> e == null ? record(serverId, snapshot) : fallback(e), sshExecutor)
+                .whenComplete((snapshot, e) -> {
+                    inFlight.remove(key, mine);
+                    mine.complete(e == null ? snapshot : fallback(e));
+                });
+        return mine;
+    }
+
+    @Scheduled(initialDelay = 5_000, fixedDelayString = "${snapshot.collection-interval-ms:30000}")
+    public void collect() {
+        if (!snapshotProperties.isCollectionEnabled()) return;
+        Set<String> keys = new LinkedHashSet<>();
+        for (Server server : serverRepository.findAll()) keys.add(server.getId());
+        if (latest.containsKey(DEFAULT_SERVER)) keys.add(DEFAULT_SERVER);
+        for (String key : keys) {
+            SystemSnapshot cached = latest.get(key);
+            // Skip servers a reader refreshed moments ago.
+            if (cached != null && ageMs(cached) < snapshotProperties.getCollectionIntervalMs() / 2) continue;
+            start(DEFAULT_SERVER.equals(key) ? null : key);
+        }
+    }
+
+    /** Drop the cached snapshot of a changed or removed server. */
+    public void forget(String serverId) {
+        latest.remove(key(normalize(serverId)));
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        forget(event.getServerId());
+    }
+
+    private SystemSnapshot record(String serverId, SystemSnapshot snapshot) {
+        try {
+            snapshotHistoryService.append(serverId, snapshot);
+            metricsStore.append(serverId, snapshot);
+            // Not cached again when the server was deleted while it was captured.
+            if (serverId == null || serverRepository.findById(serverId).isPresent()) {
+                latest.put(key(serverId), snapshot);
+            }
+            return snapshot;
+        } catch (Exception e) {
+            return fallback(e);
+        }
+    }
+
+    /** A copy for one response; the cached instance is shared and never modified. */
+    private static SystemSnapshot served(SystemSnapshot snapshot, boolean stale) {
+        SystemSnapshot copy = new SystemSnapshot();
+        copy.setTimestamp(snapshot.getTimestamp());
+        copy.setLinux(snapshot.getLinux());
+        copy.setDocker(snapshot.getDocker());
+        copy.setPostgres(snapshot.getPostgres());
+        copy.setNginx(snapshot.getNginx());
+        copy.setDurationMs(snapshot.getDurationMs());
+        copy.setCollectorTimingsMs(snapshot.getCollectorTimingsMs());
+        copy.setAgeMs(ageMs(snapshot));
+        copy.setStale(stale);
+        return copy;
+    }
+
+    private static long ageMs(SystemSnapshot snapshot) {
+        return Math.max(0, Duration.between(snapshot.getTimestamp(), Instant.now()).toMillis());
+    }
+
+    /** A blank id (e.g. {@code ?serverId=}) is the default host, like a missing one. */
+    private static String normalize(String serverId) {
+        return serverId != null && !serverId.isBlank() ? serverId : null;
+    }
+
+    private static String key(String serverId) {
+        return serverId != null ? serverId : DEFAULT_SERVER;
+    }
+
+    private static SystemSnapshot fallback(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        SystemSnapshot fallback = new SystemSnapshot();
+        LinuxSnapshot linux = new LinuxSnapshot();
+        linux.setError("Snapshot failed: " + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName())
+                + ". Check SSH config or select a configured server.");
+        fallback.setLinux(linux);
+        return fallback;
+    }
+}
@@ -1,42 +1,237 @@
 package com.sentinelops.service;
 
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.config.StorageProperties;
 import com.sentinelops.model.SnapshotHistoryEntry;
+import com.sentinelops.model.SnapshotPage;
 import com.sentinelops.model.snapshot.SystemSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * In-memory store of recent snapshots for analytics and trend detection.
- * Keeps last N entries per server (or global). Max 200 entries total.
+ * In-memory store of recent snapshots for analytics and trend detection. Each server has its own
+ * ring buffer ({@code snapshot.history-capacity} entries, or its entry in
+ * {@code snapshot.history-capacities}), so a busy fleet does not push out the history of a single
+ * host. Appends are O(1) and reading the newest N entries of a server is O(N); buffers are locked
+ * one at a time, so servers never wait for each other.
+ * <p>
+ * With {@code storage.history-log-enabled}, every entry is also appended to a {@link SegmentLog}
+ * under {@code <data-dir>/snapshots}. After a restart a server's buffer is refilled from the log on
+ * its first append, and reads that want more than a buffer holds (or that span all servers) are
+ * answered from the log.
  */
 @Service
 public class SnapshotHistoryService {
 
-    private static final int MAX_ENTRIES = 200;
+    private static final String DEFAULT_SERVER = "";
+    // Oldest first; entries recorded at the same instant by different servers are ordered by server.
+    private static final Comparator<SnapshotHistoryEntry> ORDER = Comparator
+            .comparing(SnapshotHistoryEntry::getTimestamp)
+            .thenComparing(e -> key(e.getServerId()));
 
-    private final List<SnapshotHistoryEntry> history = new CopyOnWriteArrayList<>();
+    private final SnapshotProperties snapshotProperties;
+    private final SegmentLog log;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    public SnapshotHistoryService(SnapshotProperties snapshotProperties, StorageProperties storageProperties) {
+        this.snapshotProperties = snapshotProperties;
+        this.log = storageProperties.isHistoryLogEnabled()
+                ? new SegmentLog(Path.of(storageProperties.getDataDir(), "snapshots"), storageProperties)
+                : null;
+    }
 
     public void append(String serverId, SystemSnapshot snapshot) {
-        history.add(new SnapshotHistoryEntry(Instant.now(), serverId, snapshot));
-        while (history.size() > MAX_ENTRIES) {
-            history.remove(0);
+        String key = key(serverId);
+        Ring ring = rings.get(key);
+        if (ring == null) {
+            Ring loaded = new Ring(capacity(key));
+            if (log != null) fromLog(key, loaded.entries.length).forEach(loaded::add);
+            ring = rings.putIfAbsent(key, loaded);
+            if (ring == null) ring = loaded;
+            evictIfFull(key);
+        }
+        SnapshotHistoryEntry entry = new SnapshotHistoryEntry(Instant.now(), serverId, snapshot);
+        ring.add(entry);
+        if (log != null) {
+            try {
+                log.append(entry.getTimestamp().toEpochMilli(), key, SmileCodec.encode(entry));
+            } catch (UncheckedIOException e) {
+                // The buffer still has the entry; only a restart would lose it.
+            }
+        }
+    }
+
+    /**
+     * The newest {@code limit} entries of a server, oldest first. A null serverId gives the newest
+     * entries over all servers.
+     */
+    public List<SnapshotHistoryEntry> getHistory(String serverId, int limit) {
+        if (serverId != null) {
+            Ring ring = rings.get(key(serverId));
+            List<SnapshotHistoryEntry> newest = ring != null ? ring.newest(limit) : new ArrayList<>();
+            if (log != null && newest.size() < limit && (ring == null || ring.isFull())) {
+                return fromLog(key(serverId), limit);
+            }
+            return newest;
         }
+        if (log != null) return fromLog(null, limit);
+        List<SnapshotHistoryEntry> merged = new ArrayList<>();
+        for (Ring ring : rings.values()) merged.addAll(ring.newest(limit));
+        merged.sort(ORDER);
+        return new ArrayList<>(merged.subList(Math.max(0, merged.size() - limit), merged.size()));
     }
 
-    public List<SnapshotHistoryEntry> getHistory() {
-        return new ArrayList<>(history);
+    /**
+     * The newest {@code limit} entries of one server, oldest first; a null serverId is the default
+     * SSH host, which is what the collector records snapshots without a server under.
+     */
+    public List<SnapshotHistoryEntry> getServerHistory(String serverId, int limit) {
+        return getHistory(key(serverId), limit);
     }
 
-    public List<SnapshotHistoryEntry> getHistory(String serverId, int limit) {
-        List<SnapshotHistoryEntry> filtered = history.stream()
-                .filter(e -> serverId == null || serverId.equals(e.getServerId()))
-                .collect(Collectors.toList());
-        int from = Math.max(0, filtered.size() - limit);
-        return filtered.subList(from, filtered.size());
+    /**
+     * Entries of a server (every server for null) with {@code fromMs <= timestamp <= toMs}, oldest
+     * first, {@code limit} per page; {@code cursor} is the nextCursor of the previous page, null for
+     * the first. Read from the log when it is enabled, only decoding the entries returned.
+     */
+    public SnapshotPage page(String serverId, long fromMs, long toMs, String cursor, int pageSize) {
+        int limit = Math.max(1, pageSize);
+        List<SnapshotHistoryEntry> entries = new ArrayList<>();
+        if (log != null) {
+            long afterSequence = -1;
+            int afterPosition = -1;
+            if (cursor != null && !cursor.isBlank()) {
+                // "<segment>.<position>" of the last entry returned
+                String[] parts = cursor.split("\\.", 2);
+                try {
+                    afterSequence = Long.parseLong(parts[0]);
+                    afterPosition = Integer.parseInt(parts[1]);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid cursor: " + cursor);
+                }
+            }
+            List<SegmentLog.Record> records = log.scan(fromMs, toMs, serverId != null ? key(serverId) : null,
+                    afterSequence, afterPosition, limit + 1);
+            for (int i = 0; i < Math.min(limit, records.size()); i++) {
+                entries.add(SmileCodec.decode(records.get(i).payload, SnapshotHistoryEntry.class));
+            }
+            SegmentLog.Record last = records.size() > limit ? records.get(limit - 1) : null;
+            return new SnapshotPage(entries, last != null ? last.sequence + "." + last.position : null);
+        }
+        // In memory the cursor is "<timestamp>|<server>" of the last entry returned: servers can
+        // record at the same instant, so the timestamp alone would skip the rest of a tie.
+        SnapshotHistoryEntry after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = cursor.split("\\|", 2);
+            try {
+                after = new SnapshotHistoryEntry(Instant.parse(parts[0]), parts[1], null);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+        boolean more = false;
+        for (SnapshotHistoryEntry e : getHistory(serverId, Integer.MAX_VALUE)) {
+            long at = e.getTimestamp().toEpochMilli();
+            if (at < fromMs || at > toMs || (after != null && ORDER.compare(e, after) <= 0)) continue;
+            if (entries.size() == limit) {
+                more = true;
+                break;
+            }
+            entries.add(e);
+        }
+        SnapshotHistoryEntry last = more ? entries.get(entries.size() - 1) : null;
+        return new SnapshotPage(entries, last != null ? last.getTimestamp() + "|" + key(last.getServerId()) : null);
+    }
+
+    /** Drop the in-memory history of a removed server; its log records age out with the rest. */
+    public void forget(String serverId) {
+        rings.remove(key(serverId));
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        if (event.isDeleted()) forget(event.getServerId());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (log != null) log.close();
+    }
+
+    /** The newest {@code limit} logged entries of a server (all servers for a null key). */
+    private List<SnapshotHistoryEntry> fromLog(String key, int limit) {
+        List<SnapshotHistoryEntry> entries = new ArrayList<>();
+        for (SegmentLog.Record record : log.read(Long.MIN_VALUE, Long.MAX_VALUE, key, limit)) {
+            entries.add(SmileCodec.decode(record.payload, SnapshotHistoryEntry.class));
+        }
+        return entries;
+    }
+
+    private int capacity(String key) {
+        Integer capacity = snapshotProperties.getHistoryCapacities().get(key);
+        return Math.max(1, capacity != null ? capacity : snapshotProperties.getHistoryCapacity());
+    }
+
+    /** Make room for a new server's buffer by dropping the one appended to least recently. */
+    private void evictIfFull(String added) {
+        while (rings.size() > Math.max(1, snapshotProperties.getHistoryMaxServers())) {
+            String stalest = null;
+            long stalestAt = Long.MAX_VALUE;
+            for (Map.Entry<String, Ring> e : rings.entrySet()) {
+                if (!e.getKey().equals(added) && e.getValue().lastAppendAt < stalestAt) {
+                    stalest = e.getKey();
+                    stalestAt = e.getValue().lastAppendAt;
+                }
+            }
+            if (stalest == null) return;
+            rings.remove(stalest);
+        }
+    }
+
+    private static String key(String serverId) {
+        return serverId != null ? serverId : DEFAULT_SERVER;
+    }
+
+    /** Fixed-size buffer of one server's entries; the oldest is overwritten once full. */
+    private static final class Ring {
+        private final SnapshotHistoryEntry[] entries;
+        private int next;
+        private int size;
+        private volatile long lastAppendAt = System.currentTimeMillis();
+
+        private Ring(int capacity) {
+            this.entries = new SnapshotHistoryEntry[capacity];
+        }
+
+        synchronized void add(SnapshotHistoryEntry entry) {
+            entries[next] = entry;
+            next = (next + 1) % entries.length;
+            if (size < entries.length) size++;
+            lastAppendAt = System.currentTimeMillis();
+        }
+
+        synchronized boolean isFull() {
+            return size == entries.length;
+        }
+
+        synchronized List<SnapshotHistoryEntry> newest(int limit) {
+            int n = Math.max(0, Math.min(limit, size));
+            List<SnapshotHistoryEntry> result = new ArrayList<>(n);
+            int start = next - n + entries.length;
+            for (int i = 0; i < n; i++) {
+                result.add(entries[(start + i) % entries.length]);
+            }
+            return result;
+        }
     }
 }
@@ -0,0 +1,198 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SshProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-host circuit breaker for SSH connections, keyed by "host:port".
+ * <p>
+ * CLOSED: commands run and their connection outcome goes into a sliding window of the last
+ * {@code ssh.breaker-window-size} commands. Once at least {@code ssh.breaker-minimum-calls} are
+ * recorded and the connection failure rate reaches {@code ssh.breaker-failure-rate-percent}, the
+ * circuit opens. OPEN: commands are refused without touching the network. After the open delay,
+ * one probe command is let through (HALF_OPEN). If the probe connects, the circuit closes;
+ * otherwise it opens again with the delay doubled, up to {@code ssh.breaker-max-open-ms}.
+ * <p>
+ * Only connection-level failures count (connect, auth, channel open); a command that runs and
+ * exits non-zero is a healthy connection.
+ */
+@Service
+public class SshCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final SshProperties sshProperties;
+    private final Map<String, HostCircuit> circuits = new ConcurrentHashMap<>();
+
+    public SshCircuitBreaker(SshProperties sshProperties) {
+        this.sshProperties = sshProperties;
+    }
+
+    /**
+     * Permission to run a command on the host, or null when the circuit is open (or half-open
+     * with its probe already in flight). The permit must be completed with the outcome, or
+     * released when the command never reached the host.
+     */
+    public Permit acquire(String host) {
+        if (!sshProperties.isBreakerEnabled()) return new Permit(null, false);
+        HostCircuit circuit = circuits.computeIfAbsent(host, h -> new HostCircuit(sshProperties.getBreakerWindowSize()));
+        synchronized (circuit) {
+            long now = System.currentTimeMillis();
+            switch (circuit.state) {
+                case CLOSED:
+                    return new Permit(circuit, false);
+                case OPEN:
+                    if (now < circuit.openUntil) return null;
+                    circuit.state = State.HALF_OPEN;
+                    circuit.probeInFlight = true;
+                    return new Permit(circuit, true);
+                default:
+                    if (circuit.probeInFlight) return null;
+                    circuit.probeInFlight = true;
+                    return new Permit(circuit, true);
+            }
+        }
+    }
+
+    private void record(HostCircuit circuit, boolean probe, boolean connected) {
+        synchronized (circuit) {
+            long now = System.currentTimeMillis();
+            if (probe) {
+                circuit.probeInFlight = false;
+                if (connected) {
+                    circuit.state = State.CLOSED;
+                    circuit.openings = 0;
+                    circuit.reset();
+                } else {
+                    open(circuit, now);
+                }
+                return;
+            }
+            // Outcomes of commands admitted before the circuit opened do not change an open circuit.
+            if (circuit.state != State.CLOSED) return;
+            circuit.add(connected);
+            int calls = circuit.calls();
+            if (calls >= Math.max(1, sshProperties.getBreakerMinimumCalls())
+                    && circuit.failures * 100 >= sshProperties.getBreakerFailureRatePercent() * calls) {
+                open(circuit, now);
+            }
+        }
+    }
+
+    private void release(HostCircuit circuit, boolean probe) {
+        synchronized (circuit) {
+            // The circuit stays half-open: the next command becomes the probe.
+            if (probe) circuit.probeInFlight = false;
+        }
+    }
+
+    private void open(HostCircuit circuit, long now) {
+        circuit.openings++;
+        long delay = sshProperties.getBreakerOpenMs() << Math.min(circuit.openings - 1, 20);
+        circuit.openUntil = now + Math.min(delay, sshProperties.getBreakerMaxOpenMs());
+        circuit.state = State.OPEN;
+        circuit.reset();
+    }
+
+    public Status status(String host) {
+        Status s = new Status();
+        HostCircuit circuit = circuits.get(host);
+        if (circuit == null) {
+            s.state = State.CLOSED;
+            return s;
+        }
+        synchronized (circuit) {
+            s.state = circuit.state;
+            s.calls = circuit.calls();
+            s.failureRatePercent = s.calls > 0 ? circuit.failures * 100 / s.calls : 0;
+            s.retryInMs = circuit.state == State.OPEN ? Math.max(0, circuit.openUntil - System.currentTimeMillis()) : 0;
+        }
+        return s;
+    }
+
+    /** Forget a host's history (e.g. after its server record changed). */
+    public void reset(String host) {
+        circuits.remove(host);
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        if (event.getHost() != null) reset(event.getHost() + ":" + event.getPort());
+    }
+
+    /**
+     * One admitted command. {@link #complete} records whether its connection succeeded;
+     * {@link #release} gives the permit back without an outcome.
+     */
+    public final class Permit {
+        private final HostCircuit circuit;
+        private final boolean probe;
+
+        private Permit(HostCircuit circuit, boolean probe) {
+            this.circuit = circuit;
+            this.probe = probe;
+        }
+
+        public void complete(boolean connected) {
+            if (circuit != null) record(circuit, probe, connected);
+        }
+
+        /** The command was not run (e.g. refused by a full executor queue), so says nothing about the host. */
+        public void release() {
+            if (circuit != null) SshCircuitBreaker.this.release(circuit, probe);
+        }
+    }
+
+    private static final class HostCircuit {
+        private final boolean[] window;
+        private int position;
+        private int size;
+        private int failures;
+        private State state = State.CLOSED;
+        private long openUntil;
+        private int openings;
+        private boolean probeInFlight;
+
+        private HostCircuit(int windowSize) {
+            this.window = new boolean[Math.max(1, windowSize)];
+        }
+
+        /** Append an outcome; the window stores failures as true. */
+        private void add(boolean connected) {
+            if (size == window.length) {
+                if (window[position]) failures--;
+            } else {
+                size++;
+            }
+            window[position] = !connected;
+            if (!connected) failures++;
+            position = (position + 1) % window.length;
+        }
+
+        private int calls() {
+            return size;
+        }
+
+        private void reset() {
+            position = 0;
+            size = 0;
+            failures = 0;
+        }
+    }
+
+    public static final class Status {
+        private State state;
+        private int calls;
+        private int failureRatePercent;
+        private long retryInMs;
+
+        public State getState() { return state; }
+        public int getCalls() { return calls; }
+        public int getFailureRatePercent() { return failureRatePercent; }
+        public long getRetryInMs() { return retryInMs; }
+    }
+}
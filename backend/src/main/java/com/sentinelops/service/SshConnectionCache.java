@@ -0,0 +1,121 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SshProperties;
+import com.sentinelops.model.Server;
+import com.sentinelops.repository.ServerRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived cache of resolved connection targets for stored servers, so repeated commands do
+ * not decrypt the credential and parse the private key each time. An entry is used only while
+ * the server record still has the same address, user and encrypted credential (re-encryption
+ * uses a fresh IV, so any credential change produces a new ciphertext). Entries also expire
+ * after {@code ssh.connection-cache-ttl-ms} and are dropped explicitly when a server is changed
+ * or deleted.
+ */
+@Service
+public class SshConnectionCache {
+
+    private final SshProperties sshProperties;
+    private final ServerRepository serverRepository;
+    private final CredentialEncryptionService encryptionService;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public SshConnectionCache(SshProperties sshProperties, ServerRepository serverRepository,
+                              CredentialEncryptionService encryptionService) {
+        this.sshProperties = sshProperties;
+        this.serverRepository = serverRepository;
+        this.encryptionService = encryptionService;
+    }
+
+    /**
+     * Resolved target for a stored server, or empty when no server has that id.
+     */
+    Optional<SshTarget> get(String serverId) {
+        Optional<Server> server = serverRepository.findById(serverId);
+        if (server.isEmpty()) {
+            entries.remove(serverId);
+            return Optional.empty();
+        }
+        Server s = server.get();
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(serverId);
+        if (entry != null && entry.expiresAt > now && entry.matches(s)) {
+            return Optional.of(entry.target);
+        }
+        Entry fresh = new Entry(s, resolve(s), now + sshProperties.getConnectionCacheTtlMs());
+        entries.put(serverId, fresh);
+        if (entries.size() > sshProperties.getConnectionCacheMaxEntries()) {
+            trim(now);
+        }
+        return Optional.of(fresh.target);
+    }
+
+    private SshTarget resolve(Server s) {
+        String cred = s.getEncryptedCredential() != null ? encryptionService.decrypt(s.getEncryptedCredential()) : null;
+        String password = s.getAuthType() == Server.AuthType.PASSWORD ? cred : null;
+        String keyContent = s.getAuthType() == Server.AuthType.PRIVATE_KEY ? cred : null;
+        return new SshTarget(s.getHost(), s.getPort(), s.getUsername(), password, keyContent, null);
+    }
+
+    private void trim(long now) {
+        entries.values().removeIf(e -> e.expiresAt <= now);
+        int excess = entries.size() - sshProperties.getConnectionCacheMaxEntries();
+        if (excess <= 0) return;
+        entries.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(entries::remove);
+    }
+
+    /**
+     * Drop the cached target for a server (after it was updated or deleted).
+     */
+    public void invalidate(String serverId) {
+        if (serverId != null) entries.remove(serverId);
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        invalidate(event.getServerId());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final String host;
+        private final int port;
+        private final String username;
+        private final Server.AuthType authType;
+        private final String encryptedCredential;
+        private final SshTarget target;
+        private final long expiresAt;
+
+        private Entry(Server s, SshTarget target, long expiresAt) {
+            this.host = s.getHost();
+            this.port = s.getPort();
+            this.username = s.getUsername();
+            this.authType = s.getAuthType();
+            this.encryptedCredential = s.getEncryptedCredential();
+            this.target = target;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean matches(Server s) {
+            return port == s.getPort() && authType == s.getAuthType()
+                    && Objects.equals(host, s.getHost()) && Objects.equals(username, s.getUsername())
+                    && Objects.equals(encryptedCredential, s.getEncryptedCredential());
+        }
+    }
+}
@@ -1,61 +1,126 @@
 package com.sentinelops.service;
 
 import com.jcraft.jsch.ChannelExec;
-import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.UIKeyboardInteractive;
 import com.jcraft.jsch.UserInfo;
 import com.sentinelops.config.SshProperties;
-import com.sentinelops.model.Server;
-import com.sentinelops.repository.ServerRepository;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Executes commands on a remote host via SSH.
- * Uses JSch for SSH connectivity with configurable timeouts.
+ * Uses JSch for SSH connectivity with configurable timeouts; authenticated sessions are
+ * reused through {@link SshSessionPool} and each command runs on its own exec channel.
  */
 @Service
 public class SshExecutionService {
 
     private final SshProperties sshProperties;
-    private final ServerRepository serverRepository;
-    private final CredentialEncryptionService encryptionService;
+    private final SshConnectionCache connectionCache;
+    private final SshSessionPool sessionPool;
+    private final SshExecutor sshExecutor;
+    private final SshCircuitBreaker circuitBreaker;
 
-    public SshExecutionService(SshProperties sshProperties, ServerRepository serverRepository,
-                               CredentialEncryptionService encryptionService) {
+    private static final int BATCH_STDERR_BYTES = 8 * 1024;
+
+    public SshExecutionService(SshProperties sshProperties, SshConnectionCache connectionCache,
+                               SshSessionPool sessionPool, SshExecutor sshExecutor,
+                               SshCircuitBreaker circuitBreaker) {
         this.sshProperties = sshProperties;
-        this.serverRepository = serverRepository;
-        this.encryptionService = encryptionService;
+        this.connectionCache = connectionCache;
+        this.sessionPool = sessionPool;
+        this.sshExecutor = sshExecutor;
+        this.circuitBreaker = circuitBreaker;
     }
 
     /**
      * Execute a single command on the configured SSH host (default from config).
      */
     public Optional<SshCommandResult> execute(String command) {
-        return doExecute(sshProperties.getHost(), sshProperties.getPort(),
-                sshProperties.getUsername(), sshProperties.getPassword(), null, command,
-                sshProperties.getPrivateKeyPath());
+        return Optional.of(executeAsync(null, command).join());
     }
 
     /**
      * Execute on a specific server by id. If serverId is null/blank, uses default config.
      */
     public Optional<SshCommandResult> executeWithServer(String serverId, String command) {
-        if (serverId != null && !serverId.isBlank()) {
-            Optional<Server> server = serverRepository.findById(serverId);
-            if (server.isPresent()) {
-                Server s = server.get();
-                String cred = s.getEncryptedCredential() != null ? encryptionService.decrypt(s.getEncryptedCredential()) : null;
-                String password = s.getAuthType() == Server.AuthType.PASSWORD ? cred : null;
-                String keyContent = s.getAuthType() == Server.AuthType.PRIVATE_KEY ? cred : null;
-                return executeWithCredentials(s.getHost(), s.getPort(), s.getUsername(), password, keyContent, command);
-            }
+        return Optional.of(executeAsync(serverId, command).join());
+    }
+
+    /**
+     * Start a command on a server (null/blank serverId uses default config) and return a future
+     * that completes as soon as the remote side closes the channel, i.e. after EOF and
+     * exit-status. The command is started through {@link SshExecutor}, which applies the global and
+     * per-host limits; completion is signalled from the JSch session thread, so heavy dependent
+     * stages should use an async variant.
+     * The future never completes exceptionally: failures and timeouts map to {@link SshCommandResult#error}.
+     */
+    public CompletableFuture<SshCommandResult> executeAsync(String serverId, String command) {
+        return executeAsync(serverId, command, null);
+    }
+
+    /**
+     * Like {@link #executeAsync(String, String)}, additionally handing each stdout line to the
+     * consumer as it arrives (on the JSch session thread). The result still carries stdout bounded
+     * to {@code ssh.max-output-bytes}, so the consumer is the way to see all of a large output.
+     */
+    public CompletableFuture<SshCommandResult> executeAsync(String serverId, String command,
+                                                            OutputCapture.LineConsumer stdoutLines) {
+        int maxBytes = sshProperties.getMaxOutputBytes();
+        return run(resolveTarget(serverId), command, sshProperties.getCommandTimeoutMs(),
+                () -> new OutputCapture(maxBytes, stdoutLines), () -> new OutputCapture(maxBytes));
+    }
+
+    /**
+     * Like {@link #executeAsync(String, String)} with a caller-chosen execution deadline instead of
+     * {@code ssh.command-timeout-ms}.
+     */
+    public CompletableFuture<SshCommandResult> executeAsync(String serverId, String command, long timeoutMs) {
+        int maxBytes = sshProperties.getMaxOutputBytes();
+        return run(resolveTarget(serverId), command, timeoutMs,
+                () -> new OutputCapture(maxBytes), () -> new OutputCapture(maxBytes));
+    }
+
+    /**
+     * Run several commands on a server in one remote shell invocation (a single exec channel and
+     * round trip) and return one result per command, in order. Each command runs in its own
+     * subshell; stdout, stderr and exit code are framed with a per-batch marker and split back
+     * out while streaming. The command timeout applies to the batch as a whole.
+     */
+    public List<SshCommandResult> executeBatch(String serverId, List<String> commands) {
+        return executeBatchAsync(serverId, commands).join();
+    }
+
+    public CompletableFuture<List<SshCommandResult>> executeBatchAsync(String serverId, List<String> commands) {
+        return executeBatchAsync(serverId, commands, sshProperties.getCommandTimeoutMs());
+    }
+
+    /**
+     * Like {@link #executeBatchAsync(String, List)} with a caller-chosen deadline for the batch.
+     */
+    public CompletableFuture<List<SshCommandResult>> executeBatchAsync(String serverId, List<String> commands,
+                                                                       long timeoutMs) {
+        if (commands == null || commands.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
         }
-        return execute(command);
+        CommandBatch batch = CommandBatch.of(commands, sshProperties.getMaxOutputBytes());
+        // Frames are split out line by line; only a little of the raw stderr is kept for failure messages.
+        return run(resolveTarget(serverId), batch.script(), timeoutMs,
+                () -> new OutputCapture(0, batch.stdoutConsumer()),
+                () -> new OutputCapture(BATCH_STDERR_BYTES, batch.stderrConsumer()))
+                .thenApply(batch::results);
     }
 
     public Optional<SshCommandResult> execute(String host, int port, String username, String command) {
@@ -74,7 +139,10 @@ public class SshExecutionService {
     public Optional<SshCommandResult> executeWithCredentials(String host, int port, String username,
                                                               String password, String privateKeyContent,
                                                               String command, String privateKeyPath) {
-        return doExecute(host, port, username, password, privateKeyContent, command, privateKeyPath);
+        SshTarget target = new SshTarget(host, port, username, password, privateKeyContent, privateKeyPath);
+        int maxBytes = sshProperties.getMaxOutputBytes();
+        return Optional.of(run(target, command, sshProperties.getCommandTimeoutMs(),
+                () -> new OutputCapture(maxBytes), () -> new OutputCapture(maxBytes)).join());
     }
 
     /**
@@ -83,64 +151,226 @@ public class SshExecutionService {
     public Optional<SshCommandResult> executeWithCredentials(String host, int port, String username,
                                                               String password, String privateKeyContent,
                                                               String command) {
-        return doExecute(host, port, username, password, privateKeyContent, command, null);
+        return executeWithCredentials(host, port, username, password, privateKeyContent, command, null);
     }
 
-    private Optional<SshCommandResult> doExecute(String host, int port, String username,
-                                                  String password, String privateKeyContent,
-                                                  String command, String privateKeyPath) {
-        JSch jsch = new JSch();
-        Session session = null;
-        try {
-            session = jsch.getSession(username, host, port);
-            if (password != null && !password.isBlank()) {
-                session.setPassword(password);
-            }
-            if (privateKeyContent != null && !privateKeyContent.isBlank()) {
-                jsch.addIdentity("key", privateKeyContent.getBytes(StandardCharsets.UTF_8), null, null);
-            } else if (privateKeyPath != null && !privateKeyPath.isBlank()) {
-                jsch.addIdentity(privateKeyPath);
+    /**
+     * Target for a stored server (credential decrypted and key parsed once, via the connection
+     * cache), falling back to the default SSH config for a null/blank or unknown id.
+     */
+    private SshTarget resolveTarget(String serverId) {
+        if (serverId != null && !serverId.isBlank()) {
+            Optional<SshTarget> cached = connectionCache.get(serverId);
+            if (cached.isPresent()) return cached.get();
+        }
+        return new SshTarget(sshProperties.getHost(), sshProperties.getPort(), sshProperties.getUsername(),
+                sshProperties.getPassword(), null, sshProperties.getPrivateKeyPath());
+    }
+
+    private CompletableFuture<SshCommandResult> run(SshTarget t, String command, long timeoutMs,
+                                                    Supplier<OutputCapture> stdout, Supplier<OutputCapture> stderr) {
+        String hostKey = hostKey(t.getHost(), t.getPort());
+        SshCircuitBreaker.Permit permit = circuitBreaker.acquire(hostKey);
+        if (permit == null) {
+            SshCircuitBreaker.Status status = circuitBreaker.status(hostKey);
+            return CompletableFuture.completedFuture(SshCommandResult.connectionError("Circuit open for " + hostKey
+                    + " after repeated connection failures; next attempt in " + status.getRetryInMs() + " ms"));
+        }
+        SshSessionPool.SessionFactory factory = () -> openSession(t);
+        return sshExecutor.submit(hostKey, () -> {
+            try {
+                return startOnPooledSession(t.getKey(), factory, command, timeoutMs, null, stdout, stderr);
+            } catch (JSchException e) {
+                return CompletableFuture.completedFuture(SshCommandResult.connectionError(e.getMessage()));
+            } catch (Exception e) {
+                return CompletableFuture.completedFuture(SshCommandResult.error(e.getMessage()));
             }
-            session.setConfig("StrictHostKeyChecking", "no");
-            boolean passwordOnlyAuth = password != null && !password.isBlank()
-                    && (privateKeyContent == null || privateKeyContent.isBlank())
-                    && (privateKeyPath == null || privateKeyPath.isBlank());
-            applyLegacyCompatibleSshConfig(session, passwordOnlyAuth);
-            if (passwordOnlyAuth) {
-                session.setUserInfo(new PasswordUserInfo(password));
+        }).handle((r, e) -> {
+            if (e == null) {
+                permit.complete(!r.isConnectionFailure());
+                return r;
             }
-            session.setTimeout(sshProperties.getConnectTimeoutMs());
-            session.connect();
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            // A command refused by the executor never reached the host.
+            if (cause instanceof RejectedExecutionException) permit.release();
+            else permit.complete(true);
+            return SshCommandResult.error(String.valueOf(cause.getMessage()));
+        });
+    }
 
-            ChannelExec channel = (ChannelExec) session.openChannel("exec");
-            channel.setCommand(command);
-            channel.setInputStream(null);
+    /**
+     * Start a long-running command (e.g. docker events) whose stdout lines are handed to the
+     * consumer as they arrive, on the JSch session thread. Unlike {@link #executeAsync} it holds no
+     * {@link SshExecutor} slot and has no deadline: it runs until the remote command exits, the
+     * connection drops or {@code stop} completes (the command is then sent KILL). The channel
+     * stays on a pooled session for its whole life. Stdout is not retained in the result; the
+     * circuit breaker only sees whether the channel could be opened.
+     */
+    public CompletableFuture<SshCommandResult> stream(String serverId, String command,
+                                                      OutputCapture.LineConsumer stdoutLines,
+                                                      CompletableFuture<?> stop) {
+        SshTarget t = resolveTarget(serverId);
+        String hostKey = hostKey(t.getHost(), t.getPort());
+        SshCircuitBreaker.Permit permit = circuitBreaker.acquire(hostKey);
+        if (permit == null) {
+            return CompletableFuture.completedFuture(SshCommandResult.connectionError("Circuit open for " + hostKey));
+        }
+        CompletableFuture<SshCommandResult> result = new CompletableFuture<>();
+        // Connecting blocks, so it runs on an executor thread; the command itself does not occupy one.
+        try {
+            sshExecutor.execute(() -> {
+                try {
+                    startOnPooledSession(t.getKey(), () -> openSession(t), command, 0, stop,
+                            () -> new OutputCapture(0, stdoutLines), () -> new OutputCapture(BATCH_STDERR_BYTES))
+                            .whenComplete((r, e) -> result.complete(r));
+                    permit.complete(true);
+                } catch (JSchException e) {
+                    permit.complete(false);
+                    result.complete(SshCommandResult.connectionError(e.getMessage()));
+                } catch (Exception e) {
+                    permit.complete(true);
+                    result.complete(SshCommandResult.error(e.getMessage()));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permit.release();
+            result.complete(SshCommandResult.error(e.getMessage()));
+        }
+        return result;
+    }
 
-            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
-            ByteArrayOutputStream stderr = new ByteArrayOutputStream();
-            channel.setOutputStream(stdout);
-            channel.setErrStream(stderr);
+    /**
+     * Forward a local port (127.0.0.1, chosen by the OS) to {@code remoteHost:remotePort} as seen
+     * from the server, over a pooled session. The forward holds a lease on that session until it
+     * is closed; connections through it are direct-tcpip channels of the session.
+     */
+    public LocalForward forwardLocal(String serverId, String remoteHost, int remotePort) throws JSchException {
+        SshTarget t = resolveTarget(serverId);
+        String hostKey = hostKey(t.getHost(), t.getPort());
+        SshCircuitBreaker.Permit permit = circuitBreaker.acquire(hostKey);
+        if (permit == null) {
+            throw new JSchException("Circuit open for " + hostKey);
+        }
+        SshSessionPool.Lease lease;
+        try {
+            lease = sessionPool.acquire(t.getKey(), () -> openSession(t));
+        } catch (JSchException e) {
+            permit.complete(false);
+            throw e;
+        }
+        try {
+            int localPort = lease.getSession().setPortForwardingL("127.0.0.1", 0, remoteHost, remotePort);
+            permit.complete(true);
+            return new LocalForward(lease, localPort);
+        } catch (JSchException | RuntimeException e) {
+            permit.complete(true);
+            lease.close();
+            throw e;
+        }
+    }
 
-            channel.connect(sshProperties.getCommandTimeoutMs());
+    private static String hostKey(String host, int port) {
+        return host + ":" + port;
+    }
 
-            while (!channel.isClosed()) {
-                Thread.sleep(100);
-            }
+    /**
+     * Circuit breaker state for a stored server (or the default SSH host for a null/blank id).
+     */
+    public SshCircuitBreaker.Status circuitStatus(String serverId) {
+        SshTarget t = resolveTarget(serverId);
+        return circuitBreaker.status(hostKey(t.getHost(), t.getPort()));
+    }
 
-            int exitCode = channel.getExitStatus();
-            String out = stdout.toString(StandardCharsets.UTF_8.name());
-            String err = stderr.toString(StandardCharsets.UTF_8.name());
-            channel.disconnect();
-            return Optional.of(new SshCommandResult(exitCode, out, err));
-        } catch (Exception e) {
-            return Optional.of(SshCommandResult.error(e.getMessage()));
-        } finally {
-            if (session != null && session.isConnected()) {
-                session.disconnect();
+    /**
+     * Open one exec channel on a pooled session and return a future completed when JSch closes
+     * the channel. If the channel cannot be opened on a reused session (dropped by the peer while
+     * idle), the session is discarded and the command is retried once on a fresh connection; the
+     * command has not started at that point. After {@code timeoutMs} (none if not positive), or
+     * when {@code stop} (optional) completes, the remote command is sent KILL and the channel is
+     * closed.
+     * <p>
+     * Output captures are created per attempt, since JSch closes the streams of a channel that
+     * failed to open and a retry needs fresh ones.
+     */
+    private CompletableFuture<SshCommandResult> startOnPooledSession(SshSessionPool.Key key,
+                                                                     SshSessionPool.SessionFactory factory,
+                                                                     String command, long timeoutMs,
+                                                                     CompletableFuture<?> stop,
+                                                                     Supplier<OutputCapture> stdoutCapture,
+                                                                     Supplier<OutputCapture> stderrCapture) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            SshSessionPool.Lease lease = sessionPool.acquire(key, factory);
+            ChannelExec channel = null;
+            try {
+                channel = (ChannelExec) lease.getSession().openChannel("exec");
+                ChannelExec exec = channel;
+                OutputCapture stdout = stdoutCapture.get();
+                OutputCapture stderr = stderrCapture.get();
+                CompletableFuture<SshCommandResult> closed = new CompletableFuture<>();
+                stderr.onClose(() -> closed.complete(new SshCommandResult(exec.getExitStatus(),
+                        stdout.toString(), stderr.toString(), stdout.getTotalBytes(), stderr.getTotalBytes(),
+                        stdout.isTruncated() || stderr.isTruncated())));
+                channel.setCommand(command);
+                channel.setInputStream(null);
+                channel.setOutputStream(stdout);
+                // JSch closes the extended stream only from Channel.disconnect(), which the session
+                // thread runs on SSH_MSG_CHANNEL_CLOSE (after exit-status) or when the session drops.
+                channel.setErrStream(stderr);
+                channel.connect(sshProperties.getConnectTimeoutMs());
+
+                if (stop != null) {
+                    stop.whenComplete((v, e) -> closed.completeExceptionally(new CancellationException("Stopped")));
+                }
+                return (timeoutMs > 0 ? closed.orTimeout(timeoutMs, TimeUnit.MILLISECONDS) : closed)
+                        .handle((r, ex) -> {
+                            if (ex != null) {
+                                killQuietly(exec);
+                            }
+                            exec.disconnect();
+                            lease.close();
+                            return ex == null ? r : SshCommandResult.error(ex instanceof TimeoutException
+                                    ? "Command timed out after " + timeoutMs + " ms"
+                                    : String.valueOf(ex.getMessage()));
+                        });
+            } catch (JSchException e) {
+                if (channel != null) channel.disconnect();
+                lease.invalidate();
+                lease.close();
+                if (attempt == 0 && lease.isReused()) continue;
+                throw e;
+            } catch (RuntimeException | Error e) {
+                if (channel != null) channel.disconnect();
+                lease.close();
+                throw e;
             }
         }
     }
 
+    private static void killQuietly(ChannelExec channel) {
+        try {
+            if (channel.isConnected()) channel.sendSignal("KILL");
+        } catch (Exception ignored) {
+            // best effort: older sshd versions ignore signal requests; disconnect still closes the channel
+        }
+    }
+
+    private Session openSession(SshTarget target) throws JSchException {
+        Session session = target.jsch().getSession(target.getUsername(), target.getHost(), target.getPort());
+        String password = target.getPassword();
+        if (password != null && !password.isBlank()) {
+            session.setPassword(password);
+        }
+        session.setConfig("StrictHostKeyChecking", "no");
+        boolean passwordOnlyAuth = password != null && !password.isBlank() && !target.hasPrivateKey();
+        applyLegacyCompatibleSshConfig(session, passwordOnlyAuth);
+        if (passwordOnlyAuth) {
+            session.setUserInfo(new PasswordUserInfo(password));
+        }
+        session.setTimeout(sshProperties.getConnectTimeoutMs());
+        session.connect();
+        return session;
+    }
+
     /**
      * Keep modern algorithms first, but include legacy fallbacks for older SSH daemons.
      * This helps when servers only support SHA-1 based KEX/host key/cipher suites.
@@ -207,24 +437,89 @@ public class SshExecutionService {
         }
     }
 
+    public static final class LocalForward implements AutoCloseable {
+        private final SshSessionPool.Lease lease;
+        private final int localPort;
+
+        private LocalForward(SshSessionPool.Lease lease, int localPort) {
+            this.lease = lease;
+            this.localPort = localPort;
+        }
+
+        public int getLocalPort() { return localPort; }
+
+        /** False once the session carrying the forward is gone. */
+        public boolean isOpen() {
+            return lease.getSession().isConnected();
+        }
+
+        @Override
+        public void close() {
+            try {
+                lease.getSession().delPortForwardingL("127.0.0.1", localPort);
+            } catch (JSchException ignored) {
+                // session already down: the listener went with it
+            }
+            lease.close();
+        }
+    }
+
     public static final class SshCommandResult {
         private final int exitCode;
         private final String stdout;
         private final String stderr;
+        private final long stdoutBytes;
+        private final long stderrBytes;
+        private final boolean truncated;
+        private final boolean connectionFailure;
 
         public SshCommandResult(int exitCode, String stdout, String stderr) {
+            this(exitCode, stdout, stderr, utf8Length(stdout), utf8Length(stderr), false, false);
+        }
+
+        /**
+         * Result captured from a bounded stream: byte counts are totals as produced by the remote
+         * command, which exceed the retained text when {@code truncated} is set.
+         */
+        public SshCommandResult(int exitCode, String stdout, String stderr,
+                                long stdoutBytes, long stderrBytes, boolean truncated) {
+            this(exitCode, stdout, stderr, stdoutBytes, stderrBytes, truncated, false);
+        }
+
+        private SshCommandResult(int exitCode, String stdout, String stderr, long stdoutBytes, long stderrBytes,
+                                 boolean truncated, boolean connectionFailure) {
             this.exitCode = exitCode;
             this.stdout = stdout != null ? stdout : "";
             this.stderr = stderr != null ? stderr : "";
+            this.stdoutBytes = stdoutBytes;
+            this.stderrBytes = stderrBytes;
+            this.truncated = truncated;
+            this.connectionFailure = connectionFailure;
         }
 
         public static SshCommandResult error(String message) {
             return new SshCommandResult(-1, "", message);
         }
 
+        /**
+         * The command never ran because the host could not be reached (connect, auth or channel
+         * open failed, or its circuit is open).
+         */
+        public static SshCommandResult connectionError(String message) {
+            return new SshCommandResult(-1, "", message, 0, utf8Length(message), false, true);
+        }
+
+        private static long utf8Length(String text) {
+            return text != null ? text.getBytes(StandardCharsets.UTF_8).length : 0;
+        }
+
         public int getExitCode() { return exitCode; }
         public String getStdout() { return stdout; }
         public String getStderr() { return stderr; }
+        public long getStdoutBytes() { return stdoutBytes; }
+        public long getStderrBytes() { return stderrBytes; }
+        public boolean isTruncated() { return truncated; }
+        public boolean isConnectionFailure() { return connectionFailure; }
         public boolean isSuccess() { return exitCode == 0; }
     }
 }
@@ -0,0 +1,265 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SshProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Execution layer for SSH work, so request threads never wait on remote hosts.
+ * <p>
+ * Remote commands go through {@link #submit}: each holds an in-flight slot from when it is started
+ * until its future completes, bounded globally ({@code ssh.executor-max-in-flight}) and per host
+ * ({@code ssh.executor-max-per-host}). Commands over the limits wait in a per-host FIFO; hosts with
+ * waiting work are served round-robin, so one slow host cannot take every slot.
+ * <p>
+ * Blocking orchestration (a collector waiting for its batch, a controller building a snapshot)
+ * runs via {@link #execute}. On Java 21+ both use virtual threads; otherwise they use separate
+ * bounded platform pools, so orchestration tasks waiting on commands cannot starve command starts.
+ */
+@Service
+public class SshExecutor implements Executor {
+
+    private final SshProperties sshProperties;
+    private final boolean virtualThreads;
+    private final ExecutorService workers;
+    private final ExecutorService dispatch;
+
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private final Queue<Lane> readyLanes = new ArrayDeque<>();
+    private int inFlight;
+    private int queued;
+    private long submitted;
+    private long rejected;
+    private long started;
+    private long queueNanosTotal;
+    private long queueNanosMax;
+
+    public SshExecutor(SshProperties sshProperties) {
+        this.sshProperties = sshProperties;
+        ExecutorService virtual = sshProperties.isExecutorVirtualThreads() ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.workers = virtual;
+            this.dispatch = virtual;
+        } else {
+            this.workers = newElasticPool("ssh-worker-", sshProperties.getExecutorMaxThreads());
+            this.dispatch = newElasticPool("ssh-dispatch-", sshProperties.getExecutorMaxInFlight());
+        }
+    }
+
+    /**
+     * Run blocking orchestration work off the caller's thread. Not subject to the host limits;
+     * remote commands it issues are.
+     */
+    @Override
+    public void execute(Runnable command) {
+        workers.execute(command);
+    }
+
+    /**
+     * Start a remote command for a host once a global and a per-host slot are free. The task
+     * runs on an executor thread and must return a future that completes when the command is
+     * done; the slots are released at that point. The returned future completes exceptionally
+     * with {@link RejectedExecutionException} when too many commands are already waiting.
+     */
+    public <T> CompletableFuture<T> submit(String host, Supplier<CompletableFuture<T>> task) {
+        Task<T> t = new Task<>(host, task);
+        List<Task<?>> toStart;
+        synchronized (this) {
+            if (queued >= sshProperties.getExecutorMaxQueued()) {
+                rejected++;
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "SSH executor queue is full (" + queued + " commands waiting)"));
+            }
+            submitted++;
+            queued++;
+            Lane lane = lanes.computeIfAbsent(host, h -> new Lane());
+            lane.waiting.add(t);
+            markReady(lane);
+            toStart = admit();
+        }
+        toStart.forEach(this::start);
+        return t.result;
+    }
+
+    private void markReady(Lane lane) {
+        if (!lane.ready && !lane.waiting.isEmpty()
+                && lane.active < Math.max(1, sshProperties.getExecutorMaxPerHost())) {
+            lane.ready = true;
+            readyLanes.add(lane);
+        }
+    }
+
+    /** Take waiting tasks that fit under both limits, one per host in turn. Caller holds the lock. */
+    private List<Task<?>> admit() {
+        List<Task<?>> admitted = new ArrayList<>();
+        int maxInFlight = Math.max(1, sshProperties.getExecutorMaxInFlight());
+        while (inFlight < maxInFlight && !readyLanes.isEmpty()) {
+            Lane lane = readyLanes.poll();
+            lane.ready = false;
+            Task<?> t = lane.waiting.poll();
+            if (t == null) continue;
+            lane.active++;
+            inFlight++;
+            queued--;
+            long waited = System.nanoTime() - t.enqueuedAt;
+            started++;
+            queueNanosTotal += waited;
+            queueNanosMax = Math.max(queueNanosMax, waited);
+            markReady(lane);
+            admitted.add(t);
+        }
+        return admitted;
+    }
+
+    private <T> void start(Task<T> t) {
+        try {
+            dispatch.execute(() -> {
+                CompletableFuture<T> running;
+                try {
+                    running = t.task.get();
+                } catch (Throwable e) {
+                    running = CompletableFuture.failedFuture(e);
+                }
+                running.whenComplete((r, e) -> {
+                    release(t.host);
+                    if (e != null) t.result.completeExceptionally(e);
+                    else t.result.complete(r);
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            release(t.host);
+            t.result.completeExceptionally(e);
+        }
+    }
+
+    private void release(String host) {
+        List<Task<?>> toStart;
+        synchronized (this) {
+            inFlight--;
+            Lane lane = lanes.get(host);
+            if (lane != null) {
+                lane.active--;
+                if (lane.active == 0 && lane.waiting.isEmpty()) {
+                    lanes.remove(host);
+                } else {
+                    markReady(lane);
+                }
+            }
+            toStart = admit();
+        }
+        toStart.forEach(this::start);
+    }
+
+    public synchronized Stats getStats() {
+        Map<String, Map<String, Integer>> hosts = new LinkedHashMap<>();
+        lanes.forEach((host, lane) -> hosts.put(host, Map.of("active", lane.active, "queued", lane.waiting.size())));
+        Stats s = new Stats();
+        s.virtualThreads = virtualThreads;
+        s.maxInFlight = sshProperties.getExecutorMaxInFlight();
+        s.maxPerHost = sshProperties.getExecutorMaxPerHost();
+        s.inFlight = inFlight;
+        s.queued = queued;
+        s.submitted = submitted;
+        s.rejected = rejected;
+        s.avgQueueMs = started > 0 ? queueNanosTotal / (double) started / 1_000_000 : 0;
+        s.maxQueueMs = queueNanosMax / 1_000_000.0;
+        s.hosts = hosts;
+        return s;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        dispatch.shutdownNow();
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() when running on Java 21+, looked up reflectively
+     * so the default Java 17 build still compiles; null otherwise.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newElasticPool(String namePrefix, int maxThreads) {
+        AtomicInteger counter = new AtomicInteger();
+        int size = Math.max(1, maxThreads);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, namePrefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static final class Lane {
+        private final Queue<Task<?>> waiting = new ArrayDeque<>();
+        private int active;
+        private boolean ready;
+    }
+
+    private static final class Task<T> {
+        private final String host;
+        private final Supplier<CompletableFuture<T>> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+
+        private Task(String host, Supplier<CompletableFuture<T>> task) {
+            this.host = host;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Point-in-time executor counters; queue times cover commands started since startup.
+     */
+    public static final class Stats {
+        private boolean virtualThreads;
+        private int maxInFlight;
+        private int maxPerHost;
+        private int inFlight;
+        private int queued;
+        private long submitted;
+        private long rejected;
+        private double avgQueueMs;
+        private double maxQueueMs;
+        private Map<String, Map<String, Integer>> hosts;
+
+        public boolean isVirtualThreads() { return virtualThreads; }
+        public int getMaxInFlight() { return maxInFlight; }
+        public int getMaxPerHost() { return maxPerHost; }
+        public int getInFlight() { return inFlight; }
+        public int getQueued() { return queued; }
+        public long getSubmitted() { return submitted; }
+        public long getRejected() { return rejected; }
+        public double getAvgQueueMs() { return avgQueueMs; }
+        public double getMaxQueueMs() { return maxQueueMs; }
+        public Map<String, Map<String, Integer>> getHosts() { return hosts; }
+    }
+}
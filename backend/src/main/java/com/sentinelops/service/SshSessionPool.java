@@ -0,0 +1,376 @@
+package com.sentinelops.service;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.sentinelops.config.SshProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keyed pool of authenticated JSch sessions (host/port/user/credential fingerprint).
+ * Exec channels are multiplexed over a live session up to a per-session channel limit;
+ * idle sessions are evicted in the background and dead ones are dropped on the next lease.
+ * A key's bucket is removed once its last session is gone, so hosts that are no longer
+ * used do not accumulate.
+ */
+@Service
+public class SshSessionPool {
+
+    private final SshProperties sshProperties;
+    private final Map<Key, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    public SshSessionPool(SshProperties sshProperties) {
+        this.sshProperties = sshProperties;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ssh-session-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, Math.min(sshProperties.getSessionMaxIdleMs() / 2, 30_000));
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lease a channel slot on a live session for the key, connecting a new session via the
+     * factory when none has spare capacity. The lease must be closed once its channel is done.
+     */
+    public Lease acquire(Key key, SessionFactory factory) throws JSchException {
+        if (!sshProperties.isSessionPoolEnabled()) {
+            PooledSession fresh = new PooledSession();
+            fresh.leased = 1;
+            fresh.ready.complete(connect(factory));
+            return new Lease(null, fresh, false);
+        }
+        int maxChannels = Math.max(1, sshProperties.getMaxChannelsPerSession());
+        Bucket bucket;
+        PooledSession chosen = null;
+        boolean create = false;
+        do {
+            bucket = buckets.computeIfAbsent(key, Bucket::new);
+            synchronized (bucket) {
+                // Emptied and unmapped after we looked it up: take the key's new bucket instead.
+                if (bucket.removed) continue;
+                bucket.sessions.removeIf(ps -> ps.isDead() && ps.leased == 0);
+                for (PooledSession ps : bucket.sessions) {
+                    if (!ps.isDead() && ps.leased < maxChannels) {
+                        chosen = ps;
+                        break;
+                    }
+                }
+                if (chosen == null) {
+                    chosen = new PooledSession();
+                    bucket.sessions.add(chosen);
+                    create = true;
+                }
+                chosen.leased++;
+            }
+        } while (chosen == null);
+        if (create) {
+            try {
+                chosen.ready.complete(connect(factory));
+            } catch (JSchException | RuntimeException e) {
+                chosen.broken = true;
+                chosen.ready.completeExceptionally(e);
+                release(bucket, chosen);
+                throw e;
+            }
+        }
+        awaitReady(bucket, chosen);
+        return new Lease(bucket, chosen, !create);
+    }
+
+    private Session connect(SessionFactory factory) throws JSchException {
+        Session session = factory.create();
+        if (sshProperties.getKeepAliveIntervalMs() > 0) {
+            // After connect this only changes the socket read timeout: JSch then sends keep-alives
+            // on idle sockets and drops the session after three unanswered ones.
+            session.setServerAliveInterval(sshProperties.getKeepAliveIntervalMs());
+            session.setServerAliveCountMax(3);
+        }
+        return session;
+    }
+
+    /**
+     * Wait for a session another caller is still connecting; sessions that died meanwhile are
+     * reported as a JSchException so the caller can retry with a fresh lease.
+     */
+    private void awaitReady(Bucket bucket, PooledSession ps) throws JSchException {
+        try {
+            Session session = ps.ready.get(sshProperties.getConnectTimeoutMs() + 5_000L, TimeUnit.MILLISECONDS);
+            if (!session.isConnected()) {
+                ps.broken = true;
+                throw new JSchException("session is down");
+            }
+        } catch (ExecutionException e) {
+            release(bucket, ps);
+            Throwable cause = e.getCause();
+            throw cause instanceof JSchException je ? je : new JSchException(String.valueOf(cause.getMessage()), cause);
+        } catch (TimeoutException e) {
+            release(bucket, ps);
+            throw new JSchException("timeout waiting for pooled session");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(bucket, ps);
+            throw new JSchException("interrupted waiting for pooled session");
+        } catch (JSchException e) {
+            release(bucket, ps);
+            throw e;
+        }
+    }
+
+    private void release(Bucket bucket, PooledSession ps) {
+        boolean disconnect;
+        if (bucket == null) {
+            disconnect = true;
+        } else {
+            synchronized (bucket) {
+                ps.leased--;
+                ps.lastUsed = System.currentTimeMillis();
+                disconnect = ps.isDead() && ps.leased == 0;
+                if (disconnect) {
+                    bucket.sessions.remove(ps);
+                    removeIfEmpty(bucket);
+                }
+            }
+        }
+        if (disconnect) ps.disconnect();
+    }
+
+    /**
+     * Close every pooled session for a host (e.g. after its server record changed).
+     * Sessions with channels still in flight are closed once those channels are released.
+     */
+    public void evict(String host, int port) {
+        for (Map.Entry<Key, Bucket> entry : buckets.entrySet()) {
+            Key key = entry.getKey();
+            if (!key.host.equals(host) || key.port != port) continue;
+            List<PooledSession> idle = new ArrayList<>();
+            Bucket bucket = entry.getValue();
+            synchronized (bucket) {
+                for (Iterator<PooledSession> it = bucket.sessions.iterator(); it.hasNext(); ) {
+                    PooledSession ps = it.next();
+                    ps.broken = true;
+                    if (ps.leased == 0) {
+                        it.remove();
+                        idle.add(ps);
+                    }
+                }
+                removeIfEmpty(bucket);
+            }
+            idle.forEach(PooledSession::disconnect);
+        }
+    }
+
+    @EventListener
+    public void onServerChanged(ServerChangedEvent event) {
+        if (event.getHost() != null) evict(event.getHost(), event.getPort());
+    }
+
+    /**
+     * Number of live pooled sessions, for diagnostics.
+     */
+    public int size() {
+        int n = 0;
+        for (Bucket bucket : buckets.values()) {
+            synchronized (bucket) {
+                n += bucket.sessions.size();
+            }
+        }
+        return n;
+    }
+
+    void evictIdle() {
+        long now = System.currentTimeMillis();
+        long maxIdle = sshProperties.getSessionMaxIdleMs();
+        List<PooledSession> expired = new ArrayList<>();
+        for (Bucket bucket : buckets.values()) {
+            synchronized (bucket) {
+                bucket.sessions.removeIf(ps -> {
+                    boolean evict = ps.leased == 0 && ps.ready.isDone()
+                            && (ps.isDead() || now - ps.lastUsed > maxIdle);
+                    if (evict) expired.add(ps);
+                    return evict;
+                });
+                removeIfEmpty(bucket);
+            }
+        }
+        expired.forEach(PooledSession::disconnect);
+    }
+
+    /** Unmap a bucket without sessions; the caller holds its lock. */
+    private void removeIfEmpty(Bucket bucket) {
+        if (bucket.sessions.isEmpty()) {
+            bucket.removed = true;
+            buckets.remove(bucket.key, bucket);
+        }
+    }
+
+    /** Number of keys with a bucket, for tests. */
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
+        for (Bucket bucket : buckets.values()) {
+            synchronized (bucket) {
+                bucket.sessions.forEach(PooledSession::disconnect);
+                bucket.sessions.clear();
+            }
+        }
+        buckets.clear();
+    }
+
+    @FunctionalInterface
+    public interface SessionFactory {
+        /** Create and connect (authenticate) a new session. */
+        Session create() throws JSchException;
+    }
+
+    /**
+     * Pool key. Credentials are reduced to a SHA-256 fingerprint so secrets are not kept in the key.
+     */
+    public static final class Key {
+        private final String host;
+        private final int port;
+        private final String username;
+        private final String credentialFingerprint;
+
+        private Key(String host, int port, String username, String credentialFingerprint) {
+            this.host = host;
+            this.port = port;
+            this.username = username;
+            this.credentialFingerprint = credentialFingerprint;
+        }
+
+        public static Key of(String host, int port, String username,
+                             String password, String privateKeyContent, String privateKeyPath) {
+            return new Key(String.valueOf(host), port, String.valueOf(username),
+                    fingerprint(password, privateKeyContent, privateKeyPath));
+        }
+
+        private static String fingerprint(String... parts) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (String part : parts) {
+                    digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                }
+                return HexFormat.of().formatHex(digest.digest(), 0, 16);
+            } catch (Exception e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        public String getHost() { return host; }
+        public int getPort() { return port; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key k)) return false;
+            return port == k.port && host.equals(k.host) && username.equals(k.username)
+                    && credentialFingerprint.equals(k.credentialFingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, username, credentialFingerprint);
+        }
+
+        @Override
+        public String toString() {
+            return username + "@" + host + ":" + port;
+        }
+    }
+
+    /**
+     * One channel slot on a pooled session. Closing the lease returns the slot; invalidating it
+     * marks the whole session as broken so no new channels are opened on it.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Bucket bucket;
+        private final PooledSession pooled;
+        private final boolean reused;
+        private boolean closed;
+
+        private Lease(Bucket bucket, PooledSession pooled, boolean reused) {
+            this.bucket = bucket;
+            this.pooled = pooled;
+            this.reused = reused;
+        }
+
+        public Session getSession() {
+            return pooled.session();
+        }
+
+        /** True when the session was already connected before this lease (not created for it). */
+        public boolean isReused() {
+            return reused;
+        }
+
+        public void invalidate() {
+            pooled.broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            release(bucket, pooled);
+        }
+    }
+
+    private static final class Bucket {
+        private final Key key;
+        private final List<PooledSession> sessions = new ArrayList<>();
+        private boolean removed;
+
+        private Bucket(Key key) {
+            this.key = key;
+        }
+    }
+
+    private static final class PooledSession {
+        private final CompletableFuture<Session> ready = new CompletableFuture<>();
+        private int leased;
+        private long lastUsed = System.currentTimeMillis();
+        private volatile boolean broken;
+
+        Session session() {
+            return ready.isDone() && !ready.isCompletedExceptionally() ? ready.join() : null;
+        }
+
+        boolean isDead() {
+            if (broken) return true;
+            Session session = session();
+            return ready.isDone() && (session == null || !session.isConnected());
+        }
+
+        void disconnect() {
+            Session session = session();
+            if (session != null && session.isConnected()) {
+                session.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.sentinelops.service;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Resolved connection details for one SSH endpoint: address, user and plain credential, plus the
+ * pool key and a JSch instance carrying the parsed private key. Both are built once per target,
+ * so a cached target does not re-hash or re-parse its key for every new session.
+ */
+final class SshTarget {
+
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final String privateKeyContent;
+    private final String privateKeyPath;
+    private final SshSessionPool.Key key;
+    private JSch jsch;
+
+    SshTarget(String host, int port, String username, String password,
+              String privateKeyContent, String privateKeyPath) {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.privateKeyContent = privateKeyContent;
+        this.privateKeyPath = privateKeyPath;
+        this.key = SshSessionPool.Key.of(host, port, username, password, privateKeyContent, privateKeyPath);
+    }
+
+    String getHost() { return host; }
+    int getPort() { return port; }
+    String getUsername() { return username; }
+    String getPassword() { return password; }
+    SshSessionPool.Key getKey() { return key; }
+
+    boolean hasPrivateKey() {
+        return (privateKeyContent != null && !privateKeyContent.isBlank())
+                || (privateKeyPath != null && !privateKeyPath.isBlank());
+    }
+
+    /**
+     * JSch instance with this target's identity loaded, created on first use. A key that fails
+     * to parse is not cached, so the next session attempt reports the error again.
+     */
+    synchronized JSch jsch() throws JSchException {
+        if (jsch == null) {
+            JSch created = new JSch();
+            if (privateKeyContent != null && !privateKeyContent.isBlank()) {
+                created.addIdentity("key", privateKeyContent.getBytes(StandardCharsets.UTF_8), null, null);
+            } else if (privateKeyPath != null && !privateKeyPath.isBlank()) {
+                created.addIdentity(privateKeyPath);
+            }
+            jsch = created;
+        }
+        return jsch;
+    }
+}
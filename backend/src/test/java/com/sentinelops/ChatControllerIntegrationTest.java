@@ -9,13 +9,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "storage.history-log-enabled=false")
 @AutoConfigureMockMvc
 class ChatControllerIntegrationTest {
 
@@ -32,9 +34,12 @@ class ChatControllerIntegrationTest {
 
     @Test
     void chat_returns_200_and_ai_response() throws Exception {
-        mockMvc.perform(post("/api/chat")
+        MvcResult pending = mockMvc.perform(post("/api/chat")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"message\":\"Why is disk full?\",\"includeSystemContext\":false}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.response").value("E2E test response from AI"));
@@ -42,27 +47,36 @@ class ChatControllerIntegrationTest {
 
     @Test
     void chat_with_system_context_calls_openai_with_context() throws Exception {
-        mockMvc.perform(post("/api/chat")
+        MvcResult pending = mockMvc.perform(post("/api/chat")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"message\":\"Summarize system state\",\"includeSystemContext\":true}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.response").value("E2E test response from AI"));
     }
 
     @Test
     void chat_empty_message_returns_400() throws Exception {
-        mockMvc.perform(post("/api/chat")
+        MvcResult pending = mockMvc.perform(post("/api/chat")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"message\":\"\",\"includeSystemContext\":false}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.response").value("Message cannot be empty."));
     }
 
     @Test
     void chat_blank_message_returns_400() throws Exception {
-        mockMvc.perform(post("/api/chat")
+        MvcResult pending = mockMvc.perform(post("/api/chat")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"message\":\"   \",\"includeSystemContext\":false}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isBadRequest());
     }
 }
@@ -6,12 +6,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "storage.history-log-enabled=false")
 @AutoConfigureMockMvc
 class CommandsControllerIntegrationTest {
 
@@ -40,13 +43,40 @@ class CommandsControllerIntegrationTest {
 
     @Test
     void execute_low_risk_runs_and_returns_result() throws Exception {
-        mockMvc.perform(post("/api/commands/execute")
+        MvcResult pending = mockMvc.perform(post("/api/commands/execute")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"command\":\"echo ok\",\"confirmedRiskLevel\":\"LOW\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.executed").exists());
     }
 
+    @Test
+    void fleet_unconfirmed_high_risk_is_rejected_before_running() throws Exception {
+        MvcResult pending = mockMvc.perform(post("/api/commands/fleet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"command\":\"rm -rf /\",\"all\":true}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"executed\":false")));
+    }
+
+    @Test
+    void fleet_without_matching_servers_returns_400() throws Exception {
+        MvcResult pending = mockMvc.perform(post("/api/commands/fleet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"command\":\"uptime\",\"serverIds\":[\"missing\"]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("No servers match")));
+    }
+
     @Test
     void history_returns_200_and_array() throws Exception {
         mockMvc.perform(get("/api/commands/history"))
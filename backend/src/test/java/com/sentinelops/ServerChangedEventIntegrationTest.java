@@ -0,0 +1,38 @@
+package com.sentinelops;
+
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import com.sentinelops.service.ServerChangedEvent;
+import com.sentinelops.service.SnapshotHistoryService;
+import com.sentinelops.service.SshCircuitBreaker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "storage.history-log-enabled=false")
+class ServerChangedEventIntegrationTest {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SnapshotHistoryService snapshotHistoryService;
+
+    @Autowired
+    private SshCircuitBreaker circuitBreaker;
+
+    @Test
+    void an_update_resets_connection_state_and_a_delete_also_drops_history() {
+        snapshotHistoryService.append("edge-1", new SystemSnapshot());
+        circuitBreaker.acquire("10.0.0.7:22").complete(false);
+
+        eventPublisher.publishEvent(new ServerChangedEvent("edge-1", "10.0.0.7", 22, false));
+        assertThat(circuitBreaker.status("10.0.0.7:22").getCalls()).isZero();
+        assertThat(snapshotHistoryService.getHistory("edge-1", 10)).hasSize(1);
+
+        eventPublisher.publishEvent(new ServerChangedEvent("edge-1", "10.0.0.7", 22, true));
+        assertThat(snapshotHistoryService.getHistory("edge-1", 10)).isEmpty();
+    }
+}
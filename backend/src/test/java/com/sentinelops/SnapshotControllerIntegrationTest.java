@@ -6,11 +6,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "storage.history-log-enabled=false")
 @AutoConfigureMockMvc
 class SnapshotControllerIntegrationTest {
 
@@ -19,7 +21,10 @@ class SnapshotControllerIntegrationTest {
 
     @Test
     void getSnapshot_returns_200_and_json_structure() throws Exception {
-        mockMvc.perform(get("/api/snapshot"))
+        MvcResult pending = mockMvc.perform(get("/api/snapshot"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.linux").exists())
@@ -27,4 +32,13 @@ class SnapshotControllerIntegrationTest {
                 .andExpect(jsonPath("$.postgres").exists())
                 .andExpect(jsonPath("$.timestamp").exists());
     }
+
+    @Test
+    void getSnapshot_returns_404_for_an_unknown_server() throws Exception {
+        MvcResult pending = mockMvc.perform(get("/api/snapshot").param("serverId", "no-such-server"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isNotFound());
+    }
 }
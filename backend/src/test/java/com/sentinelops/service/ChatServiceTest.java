@@ -0,0 +1,95 @@
+package com.sentinelops.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sentinelops.config.OpenAiProperties;
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.config.SshProperties;
+import com.sentinelops.config.StorageProperties;
+import com.sentinelops.model.Server;
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import com.sentinelops.repository.ServerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatServiceTest {
+
+    private static final int SSH_THREADS = 2;
+    private static final int CHATS = 8;
+
+    private final SnapshotAggregatorService aggregator = mock(SnapshotAggregatorService.class);
+    private final ServerRepository servers = mock(ServerRepository.class);
+    private final OpenAiService openAi = mock(OpenAiService.class);
+    private SshExecutor executor;
+    private ChatService chat;
+
+    @AfterEach
+    void tearDown() {
+        chat.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    void more_context_chats_than_ssh_threads_neither_deadlock_nor_hold_ssh_threads() throws Exception {
+        SshProperties sshProperties = new SshProperties();
+        sshProperties.setExecutorVirtualThreads(false);
+        sshProperties.setExecutorMaxThreads(SSH_THREADS);
+        executor = new SshExecutor(sshProperties);
+        StorageProperties storage = new StorageProperties();
+        storage.setHistoryLogEnabled(false);
+        SnapshotCollectionService collection = new SnapshotCollectionService(aggregator,
+                new SnapshotHistoryService(new SnapshotProperties(), storage), new MetricsStore(new SnapshotProperties()),
+                servers, executor, new SnapshotProperties());
+        chat = new ChatService(openAi, collection, new ObjectMapper().registerModule(new JavaTimeModule()),
+                new OpenAiProperties());
+
+        Map<String, CompletableFuture<SystemSnapshot>> captures = new ConcurrentHashMap<>();
+        for (int i = 0; i < CHATS; i++) {
+            String id = "s" + i;
+            Server server = new Server();
+            server.setId(id);
+            when(servers.findById(id)).thenReturn(Optional.of(server));
+            captures.put(id, new CompletableFuture<>());
+            when(aggregator.captureAsync(id)).thenReturn(captures.get(id));
+        }
+        CountDownLatch asking = new CountDownLatch(CHATS);
+        CountDownLatch answer = new CountDownLatch(1);
+        when(openAi.chat(anyString(), anyString())).thenAnswer(invocation -> {
+            asking.countDown();
+            answer.await();
+            return "ok";
+        });
+
+        // Every chat misses the snapshot cache, so each waits on a capture that needs the SSH pool to finish.
+        List<CompletableFuture<String>> replies = new ArrayList<>();
+        for (int i = 0; i < CHATS; i++) replies.add(chat.chatAsync("why?", true, "s" + i));
+        captures.values().forEach(capture -> {
+            SystemSnapshot snapshot = new SystemSnapshot();
+            snapshot.setTimestamp(Instant.now());
+            capture.complete(snapshot);
+        });
+
+        assertThat(asking.await(10, TimeUnit.SECONDS)).isTrue();
+        // All OpenAI calls are in progress, and the SSH pool still has threads for SSH work.
+        CompletableFuture.runAsync(() -> { }, executor).get(10, TimeUnit.SECONDS);
+        answer.countDown();
+        for (CompletableFuture<String> reply : replies) {
+            assertThat(reply.get(10, TimeUnit.SECONDS)).isEqualTo("ok");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.sentinelops.service;
+
+import com.sentinelops.service.SshExecutionService.SshCommandResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandBatchTest {
+
+    private static final String M = "__TEST_MARK__";
+
+    @Test
+    void script_frames_every_command_in_order() {
+        String script = CommandBatch.of(M, List.of("df -h", "uptime")).script();
+
+        assertThat(script).startsWith("M=" + M + "\n");
+        assertThat(script.indexOf("df -h")).isLessThan(script.indexOf("uptime"));
+        assertThat(script).contains("printf '%s B 1\\n' \"$M\"");
+    }
+
+    @Test
+    void demux_restores_output_exit_code_and_stderr_per_command() {
+        CommandBatch batch = CommandBatch.of(M, List.of("a", "b", "c"));
+        String stdout = M + " B 0\nline1\nline2\n\n" + M + " E 0 0\n"
+                + M + " B 1\nno-newline\n" + M + " E 1 3\n"
+                + M + " B 2\n\n" + M + " E 2 0\n";
+        String stderr = M + " B 0\n\n" + M + " E 0\n"
+                + M + " B 1\nboom\n\n" + M + " E 1\n"
+                + M + " B 2\n\n" + M + " E 2\n";
+
+        List<SshCommandResult> results = batch.demux(new SshCommandResult(0, stdout, stderr));
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getStdout()).isEqualTo("line1\nline2\n");
+        assertThat(results.get(0).getExitCode()).isZero();
+        assertThat(results.get(1).getStdout()).isEqualTo("no-newline");
+        assertThat(results.get(1).getExitCode()).isEqualTo(3);
+        assertThat(results.get(1).getStderr()).isEqualTo("boom\n");
+        assertThat(results.get(2).getStdout()).isEmpty();
+        assertThat(results.get(2).isSuccess()).isTrue();
+    }
+
+    @Test
+    void demux_marks_unfinished_commands_as_failed() {
+        CommandBatch batch = CommandBatch.of(M, List.of("a", "b"));
+        String stdout = M + " B 0\nok\n\n" + M + " E 0 0\n" + M + " B 1\npartial";
+
+        List<SshCommandResult> results = batch.demux(new SshCommandResult(-1, stdout, "Command timed out after 10 ms"));
+
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).getExitCode()).isEqualTo(-1);
+        assertThat(results.get(1).getStdout()).isEqualTo("partial");
+        assertThat(results.get(1).getStderr()).contains("timed out");
+    }
+
+    @Test
+    void demux_spreads_connection_failure_to_all_commands() {
+        CommandBatch batch = CommandBatch.of(M, List.of("a", "b"));
+
+        List<SshCommandResult> results = batch.demux(SshCommandResult.error("Connection refused"));
+
+        assertThat(results).hasSize(2).allSatisfy(r -> {
+            assertThat(r.getExitCode()).isEqualTo(-1);
+            assertThat(r.getStderr()).isEqualTo("Connection refused");
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.LinuxProperties;
+import com.sentinelops.model.snapshot.CpuUsage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CpuSamplerTest {
+
+    private static final String FIRST = """
+            cpu  1000 0 500 8000 100 0 0 0 0 0
+            cpu0 600 0 300 3900 100 0 0 0 0 0
+            cpu1 400 0 200 4100 0 0 0 0 0 0
+            btime 1700000000
+            """;
+    // 200 jiffies per core later: cpu0 spends time in iowait, cpu1 has some stolen.
+    private static final String SECOND = """
+            cpu  1160 0 540 8140 140 0 0 20 0 0
+            cpu0 700 0 320 3940 140 0 0 0 0 0
+            cpu1 460 0 220 4200 0 0 0 20 0 0
+            btime 1700000000
+            """;
+
+    @Test
+    void usage_is_the_delta_between_consecutive_readings() {
+        CpuSampler sampler = new CpuSampler(new LinuxProperties());
+        assertNull(sampler.sample("web-1", FIRST));
+
+        CpuSampler.Sample sample = sampler.sample("web-1", SECOND);
+        CpuUsage total = sample.getTotal();
+        assertEquals(40.0, total.getUserPercent());
+        assertEquals(10.0, total.getSystemPercent());
+        assertEquals(35.0, total.getIdlePercent());
+        assertEquals(10.0, total.getIowaitPercent());
+        assertEquals(5.0, total.getStealPercent());
+        assertEquals(65.0, total.getUsagePercent());
+        assertEquals(2000, sample.getIntervalMs());
+
+        assertEquals(2, sample.getCores().size());
+        CpuUsage cpu0 = sample.getCores().get(0);
+        assertEquals("cpu0", cpu0.getName());
+        assertEquals(50.0, cpu0.getUserPercent());
+        assertEquals(20.0, cpu0.getIowaitPercent());
+        assertEquals(10.0, sample.getCores().get(1).getStealPercent());
+    }
+
+    @Test
+    void first_snapshot_reads_twice_and_later_ones_once() {
+        CpuSampler sampler = new CpuSampler(new LinuxProperties());
+        String command = sampler.command("web-1");
+        assertTrue(command.contains("sleep 0.500"));
+
+        CpuSampler.Sample sample = sampler.sample("web-1", FIRST + "--\n" + SECOND);
+        assertEquals(65.0, sample.getTotal().getUsagePercent());
+        assertEquals(SECOND, CpuSampler.latest(FIRST + "--\n" + SECOND));
+        assertFalse(sampler.command("web-1").contains("sleep"));
+        assertTrue(sampler.command("web-2").contains("sleep"));
+    }
+
+    @Test
+    void reboot_between_readings_gives_no_sample() {
+        CpuSampler sampler = new CpuSampler(new LinuxProperties());
+        sampler.sample(null, SECOND);
+        assertNull(sampler.sample(null, FIRST.replace("btime 1700000000", "btime 1700500000")));
+    }
+}
@@ -0,0 +1,61 @@
+package com.sentinelops.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sentinelops.model.snapshot.ContainerInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DockerApiParserTest {
+
+    private static final String API_ID = "3f2a9c1d7b11" + "e4c0".repeat(13);
+    private static final String REDIS_ID = "1b7f5e3c6a08" + "5d19".repeat(13);
+
+    @Test
+    void container_list_is_keyed_by_full_id() throws Exception {
+        Map<String, ContainerInfo> byId = DockerApiParser.parseContainers("""
+                [{"Id":"%s","Names":["/api"],"Image":"registry.local/api:1.42","State":"running","Status":"Up 3 days (healthy)",
+                  "NetworkSettings":{"Networks":{"bridge":{"NetworkID":"abc","EndpointID":"def"}}}},
+                 {"Id":"%s","Names":["/redis"],"Image":"redis:7","State":"exited","Status":"Exited (0) 2 hours ago"}]
+                """.formatted(API_ID, REDIS_ID));
+        assertEquals(2, byId.size());
+        ContainerInfo api = byId.get(API_ID);
+        assertEquals("3f2a9c1d7b11", api.getId());
+        assertEquals("api", api.getName());
+        assertEquals("running", api.getState());
+        assertEquals("redis", byId.get(REDIS_ID).getName());
+    }
+
+    @Test
+    void concatenated_stats_give_memory_and_cpu_against_previous_counters() throws Exception {
+        Map<String, JsonNode> stats = DockerApiParser.parseStats("""
+                {"id":"%s","cpu_stats":{"cpu_usage":{"total_usage":2500000000},"system_cpu_usage":40000000000,"online_cpus":4},
+                 "memory_stats":{"usage":500000000,"limit":8337571840,"stats":{"inactive_file":67986688}}}
+                {"id":"%s","cpu_stats":{"cpu_usage":{"total_usage":0},"system_cpu_usage":0},"memory_stats":{}}
+                """.formatted(API_ID, REDIS_ID));
+        assertEquals(2, stats.size());
+
+        ContainerInfo first = new ContainerInfo();
+        DockerApiParser.applyStats(first, stats.get(API_ID), null);
+        assertNull(first.getCpuPercent());
+        assertEquals(432013312L, first.getMemUsageBytes());
+        assertEquals("412MiB / 7.765GiB", first.getMemUsage());
+        assertEquals("5.18%", first.getMemPercent());
+
+        // 0.5 s of container CPU over 20 s of host CPU time on 4 CPUs = 10% of one CPU.
+        ContainerInfo next = new ContainerInfo();
+        DockerApiParser.applyStats(next, stats.get(API_ID), new long[]{2000000000L, 20000000000L});
+        assertEquals("10.00%", next.getCpuPercent());
+    }
+
+    @Test
+    void sizes_match_the_docker_cli() {
+        assertEquals("0B", DockerApiParser.bytesSize(0));
+        assertEquals("1.5KiB", DockerApiParser.bytesSize(1536));
+        assertEquals("412MiB", DockerApiParser.bytesSize(432013312));
+        assertEquals("7.765GiB", DockerApiParser.bytesSize(8337571840L));
+    }
+}
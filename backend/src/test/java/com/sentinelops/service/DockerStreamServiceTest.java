@@ -0,0 +1,75 @@
+package com.sentinelops.service;
+
+import com.sentinelops.model.snapshot.DockerEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DockerStreamServiceTest {
+
+    private static final String API_ID = "3f2a9c1d7b11" + "e4c0".repeat(13);
+
+    @Test
+    void stats_refresh_fills_the_table() {
+        DockerStreamService.Host host = new DockerStreamService.Host();
+        long now = System.currentTimeMillis();
+        assertFalse(host.isLive());
+
+        host.accept("\033[2J\033[H{\"BlockIO\":\"0B / 0B\",\"CPUPerc\":\"12.41%\",\"Container\":\"3f2a9c1d7b11\","
+                + "\"ID\":\"3f2a9c1d7b11\",\"MemPerc\":\"5.18%\",\"MemUsage\":\"412MiB / 7.765GiB\",\"Name\":\"api\"}", now);
+
+        assertTrue(host.isLive());
+        assertArrayEquals(new String[]{"12.41%", "412MiB / 7.765GiB", "5.18%"}, host.stats("3f2a9c1d7b11"));
+        assertNull(host.stats("8c41e0aa92d4"));
+    }
+
+    @Test
+    void events_are_kept_and_mark_containers_for_inspect() {
+        DockerStreamService.Host host = new DockerStreamService.Host();
+        long now = System.currentTimeMillis();
+        long nanos = now * 1_000_000;
+        assertNull(host.takeIdsToInspect()); // nothing inspected yet: all of them
+        host.inspected(Map.of("3f2a9c1d7b11", 2L), true);
+
+        host.accept(event("exec_start: sh -c healthcheck", nanos, ""), now);
+        host.accept(event("die", nanos, ",\"exitCode\":\"137\""), now);
+        host.accept(event("start", nanos + 1, ""), now);
+
+        List<DockerEvent> events = host.recentEvents();
+        assertEquals(2, events.size());
+        assertEquals("die", events.get(0).getAction());
+        assertEquals(137, events.get(0).getExitCode());
+        assertEquals("api", events.get(0).getName());
+        assertEquals("3f2a9c1d7b11", events.get(0).getContainerId());
+        assertEquals(1, host.recentDies(API_ID));
+
+        assertEquals(List.of("3f2a9c1d7b11"), host.takeIdsToInspect());
+        assertEquals(List.of(), host.takeIdsToInspect());
+        assertEquals(2L, host.restartCount(API_ID));
+    }
+
+    @Test
+    void failed_inspect_gives_ids_back() {
+        DockerStreamService.Host host = new DockerStreamService.Host();
+        host.inspected(Map.of(), true);
+        host.accept(event("die", System.currentTimeMillis() * 1_000_000, ""), System.currentTimeMillis());
+
+        List<String> ids = host.takeIdsToInspect();
+        host.inspectFailed(ids);
+        assertEquals(List.of("3f2a9c1d7b11"), host.takeIdsToInspect());
+    }
+
+    private static String event(String action, long timeNano, String attributes) {
+        return ("{\"status\":\"%s\",\"id\":\"%s\",\"Type\":\"container\",\"Action\":\"%s\",\"Actor\":{\"ID\":\"%s\","
+                + "\"Attributes\":{\"image\":\"registry.local/api:1.42\",\"name\":\"api\"%s}},\"scope\":\"local\","
+                + "\"time\":%d,\"timeNano\":%d}").formatted(action, API_ID, action, API_ID, attributes,
+                timeNano / 1_000_000_000, timeNano);
+    }
+}
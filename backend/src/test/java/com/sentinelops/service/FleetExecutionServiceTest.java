@@ -0,0 +1,27 @@
+package com.sentinelops.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FleetExecutionServiceTest {
+
+    @Test
+    void glob_matches_whole_name_case_insensitively() {
+        Pattern p = FleetExecutionService.globToPattern("web-*");
+        assertTrue(p.matcher("web-01").matches());
+        assertTrue(p.matcher("WEB-eu").matches());
+        assertFalse(p.matcher("db-web-01").matches());
+    }
+
+    @Test
+    void glob_treats_regex_characters_literally() {
+        Pattern p = FleetExecutionService.globToPattern("app.?");
+        assertTrue(p.matcher("app.1").matches());
+        assertFalse(p.matcher("appx1").matches());
+        assertFalse(p.matcher("app.12").matches());
+    }
+}
@@ -0,0 +1,50 @@
+package com.sentinelops.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GorillaCodecTest {
+
+    @Test
+    void timestamps_round_trip_and_a_steady_interval_costs_a_bit_per_row() {
+        long[] steady = new long[256];
+        for (int i = 0; i < steady.length; i++) steady[i] = 1_792_000_000_000L + 30_000L * i;
+        long[] words = GorillaCodec.encodeTimestamps(steady, steady.length);
+        assertArrayEquals(steady, GorillaCodec.decodeTimestamps(words, steady.length));
+        assertTrue(words.length <= 6, "words " + words.length);
+
+        // Jitter, a pause, a clock step back and a repeated timestamp hit every bucket.
+        long[] irregular = {1_000, 31_000, 61_040, 90_990, 121_000, 121_000, 151_300, 3_751_300, 3_781_300,
+                3_700_000, Long.MAX_VALUE / 2, 0};
+        assertArrayEquals(irregular, GorillaCodec.decodeTimestamps(
+                GorillaCodec.encodeTimestamps(irregular, irregular.length), irregular.length));
+    }
+
+    @Test
+    void values_round_trip_bit_for_bit() {
+        double[] values = {55, 55, 55, 55.5, Double.NaN, Double.NaN, -3.25, 0.0, -0.0, 43805184000.0,
+                Double.MAX_VALUE, Double.MIN_VALUE, Double.NEGATIVE_INFINITY, 0.61, 0.62, 0.61};
+        double[] decoded = GorillaCodec.decodeValues(GorillaCodec.encodeValues(values, values.length), values.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoded[i]), "row " + i);
+        }
+
+        Random random = new Random(7);
+        double[] noise = new double[1000];
+        for (int i = 0; i < noise.length; i++) noise[i] = random.nextInt(5) == 0 ? noise[Math.max(0, i - 1)] : random.nextGaussian() * 1e6;
+        assertArrayEquals(noise, GorillaCodec.decodeValues(GorillaCodec.encodeValues(noise, noise.length), noise.length));
+    }
+
+    @Test
+    void unchanged_values_cost_a_bit_per_row() {
+        double[] flat = new double[256];
+        Arrays.fill(flat, 7951);
+        assertEquals(5, GorillaCodec.encodeValues(flat, flat.length).length);
+    }
+}
@@ -0,0 +1,150 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.model.snapshot.DiskUsage;
+import com.sentinelops.model.snapshot.LinuxSnapshot;
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsStoreTest {
+
+    @Test
+    void snapshot_numbers_become_named_metrics() {
+        LinuxSnapshot linux = new LinuxSnapshot();
+        DiskUsage root = new DiskUsage();
+        root.setMountedOn("/");
+        root.setUsePercent("55%");
+        root.setUsedBytes(43805184000L);
+        linux.setDiskUsage(List.of(root));
+        linux.getMemory().setMemTotalMb(7951);
+        linux.getMemory().setMemUsedMb(3120);
+        linux.getUptime().setLoad1("0.61");
+        linux.setCpuUsagePercent(8.8);
+        SystemSnapshot snapshot = new SystemSnapshot();
+        snapshot.setLinux(linux);
+
+        Map<String, Double> values = MetricsStore.extract(snapshot);
+        assertEquals(55.0, values.get("disk.usePercent:/"));
+        assertEquals(43805184000.0, values.get("disk.usedBytes:/"));
+        assertEquals(3120.0, values.get("mem.usedMb"));
+        assertEquals(0.61, values.get("load.1"));
+        assertEquals(8.8, values.get("cpu.usagePercent"));
+        assertFalse(values.containsKey("load.5"));
+    }
+
+    @Test
+    void newest_rows_span_chunks_and_leave_gaps_as_nan() {
+        MetricsStore store = new MetricsStore(new SnapshotProperties());
+        int rows = MetricsStore.CHUNK_ROWS + 10;
+        for (int i = 0; i < rows; i++) {
+            // The mount appears only in the last five rows.
+            Map<String, Double> values = i < rows - 5
+                    ? Map.of("mem.usedMb", (double) i)
+                    : Map.of("mem.usedMb", (double) i, "disk.usePercent:/data", 70.0 + i - rows);
+            store.append("edge-1", 1_000L * i, values);
+        }
+
+        MetricsStore.Table table = store.newest("edge-1", 20, "mem.", "disk.");
+        assertEquals(20, table.getTimestamps().length);
+        assertEquals(1_000L * (rows - 20), table.getTimestamps()[0]);
+        assertEquals(1_000L * (rows - 1), table.getTimestamps()[19]);
+        assertEquals(rows - 20, table.getColumns().get("mem.usedMb")[0]);
+        double[] disk = table.getColumns().get("disk.usePercent:/data");
+        assertTrue(Double.isNaN(disk[14]));
+        assertArrayEquals(new double[]{65, 66, 67, 68, 69}, Arrays.copyOfRange(disk, 15, 20));
+
+        assertEquals(List.of("mem.usedMb"), List.copyOf(store.newest("edge-1", 5, "mem.").getColumns().keySet()));
+        assertEquals(rows, store.newest("edge-1", 10_000).getTimestamps().length);
+        assertEquals(0, store.newest("other", 10).getTimestamps().length);
+    }
+
+    @Test
+    void chunks_older_than_the_retention_are_dropped() {
+        SnapshotProperties properties = new SnapshotProperties();
+        properties.setMetricsRetentionMs(60_000);
+        MetricsStore store = new MetricsStore(properties);
+        for (int i = 0; i < 3 * MetricsStore.CHUNK_ROWS; i++) {
+            store.append(null, 1_000L * i, Map.of("load.1", 1.0));
+        }
+        // Only whole chunks go: what is left still covers the last minute.
+        int kept = store.newest(null, 10_000).getTimestamps().length;
+        assertTrue(kept >= 60 && kept <= 2 * MetricsStore.CHUNK_ROWS, "kept " + kept);
+    }
+
+    @Test
+    void ranges_come_from_the_coarsest_tier_that_covers_them() {
+        MetricsStore store = new MetricsStore(new SnapshotProperties());
+        long start = 1_792_000_800_000L; // on the hour
+        int rows = 2 * 24 * 120; // two days every 30 s
+        for (int i = 0; i < rows; i++) {
+            store.append("edge-1", start + 30_000L * i, Map.of("mem.usedMb", (double) (i % 120)));
+        }
+        long end = start + 30_000L * (rows - 1);
+
+        // The last 10 minutes at 50 points: raw rows.
+        MetricsStore.Table recent = store.range("edge-1", end - 600_000, end, 50, "mem.");
+        assertEquals(0, recent.getStepMs());
+        assertEquals(21, recent.getTimestamps().length);
+        assertEquals(rows - 1 - 120 * 47, recent.getColumns().get("mem.usedMb")[20], 0);
+
+        // Two hours at 60 points: 2 minutes each, so 1-minute buckets of two rows.
+        MetricsStore.Table twoHours = store.range("edge-1", end - 7_200_000, end, 60, "mem.");
+        assertEquals(60_000, twoHours.getStepMs());
+        assertEquals(end - end % 60_000, twoHours.getTimestamps()[twoHours.getTimestamps().length - 1]);
+        assertEquals(116.5, twoHours.getColumns().get("mem.usedMb")[twoHours.getTimestamps().length - 2], 1e-9);
+        assertEquals(116, twoHours.getMins().get("mem.usedMb")[twoHours.getTimestamps().length - 2]);
+        assertEquals(117, twoHours.getMaxs().get("mem.usedMb")[twoHours.getTimestamps().length - 2]);
+
+        // A day at 300 points would fit 1-minute buckets, but those are kept for 12 hours only.
+        assertEquals(300_000, store.range("edge-1", end - 86_400_000, end, 300).getStepMs());
+        // The whole two days at 40 points: hourly buckets of 120 rows, one per hour of the range.
+        MetricsStore.Table days = store.range("edge-1", start, end, 40, "mem.");
+        assertEquals(3_600_000, days.getStepMs());
+        assertEquals(48, days.getTimestamps().length);
+        assertEquals(59.5, days.getColumns().get("mem.usedMb")[0], 1e-9);
+        assertEquals(119, days.getMaxs().get("mem.usedMb")[47]);
+    }
+
+    @Test
+    void query_folds_the_chosen_tier_into_buckets_in_one_pass() {
+        MetricsStore store = new MetricsStore(new SnapshotProperties());
+        long start = 1_792_000_800_000L; // on the hour
+        int rows = 2 * 24 * 120;
+        for (int i = 0; i < rows; i++) {
+            store.append("edge-1", start + 30_000L * i, Map.of("mem.usedMb", (double) (i % 120)));
+        }
+        long end = start + 30_000L * (rows - 1); // :59:30 of the last hour
+
+        MetricsStore.Buckets hourly = store.query("edge-1", start, end, 3_600_000, MetricsStore.Aggregation.AVG, "mem.");
+        assertEquals(3_600_000, hourly.getSourceStepMs());
+        assertEquals(48, hourly.getStarts().length);
+        assertEquals(59.5, hourly.getValues().get("mem.usedMb")[47], 1e-9);
+        assertEquals(119, store.query("edge-1", start, end, 3_600_000, MetricsStore.Aggregation.MAX)
+                .getValues().get("mem.usedMb")[0]);
+
+        // Ten-minute buckets over two hours: pairs of 5-minute rows, averaged by their counts.
+        MetricsStore.Buckets tenMinutes = store.query("edge-1", end - 7_200_000, end, 600_000,
+                MetricsStore.Aggregation.AVG, "mem.");
+        assertEquals(300_000, tenMinutes.getSourceStepMs());
+        double[] averages = tenMinutes.getValues().get("mem.usedMb");
+        assertEquals(13, averages.length);
+        // The range starts at :59:30, so the first bucket only has the 5-minute row holding it.
+        assertEquals(114.5, averages[0], 1e-9);
+        assertEquals(9.5, averages[1], 1e-9);
+        assertEquals(109.5, averages[12], 1e-9);
+
+        MetricsStore.Buckets recent = store.query("edge-1", end - 300_000, end, 30_000, MetricsStore.Aggregation.LAST);
+        assertEquals(0, recent.getSourceStepMs());
+        assertEquals(119, recent.getValues().get("mem.usedMb")[recent.getStarts().length - 1]);
+        assertTrue(store.query("other", start, end, 60_000, MetricsStore.Aggregation.AVG).getValues().isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.NginxProperties;
+import com.sentinelops.model.snapshot.NginxLatencyPoint;
+import com.sentinelops.model.snapshot.NginxMinute;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NginxAccessLogTailerTest {
+
+    private static final DateTimeFormatter TIME_LOCAL =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+
+    private static String line(Instant time, String path, int status) {
+        return "10.0.0.7 - - [" + TIME_LOCAL.format(time) + "] \"GET " + path + " HTTP/1.1\" " + status
+                + " 512 \"-\" \"curl/8.5.0\"\n";
+    }
+
+    @Test
+    void counts_each_line_once_and_rereads_a_cut_off_last_line() {
+        NginxAccessLogTailer tailer = new NginxAccessLogTailer(new NginxProperties());
+        assertTrue(tailer.command("edge-1").contains("off=-1"));
+
+        // Backfill started inside a line (aligned 0): that line is skipped; the last one is incomplete.
+        String first = line(NOW.minusSeconds(60), "/api/orders", 200);
+        String cut = line(NOW, "/ussd/session", 502);
+        tailer.record("edge-1", "@from -1 \n@chunk 4711 100 300 0\n"
+                + "1 HTTP/1.1\" 404 0 \"-\" \"-\"\n" + first + cut.substring(0, 30) + "\n");
+        assertEquals(Map.of("200", 1L), tailer.statusCounts("edge-1"));
+        long offset = 300 - 30;
+        assertTrue(tailer.command("edge-1").contains("ino='4711'; off=" + offset));
+
+        tailer.record("edge-1", "@from " + offset + " 4711\n@chunk 4711 " + offset + " 500 1\n" + cut + "\n");
+        assertEquals(Map.of("200", 1L, "502", 1L), tailer.statusCounts("edge-1"));
+        assertEquals(List.of(cut.trim()), tailer.ussdLines("edge-1", 80));
+
+        List<NginxMinute> minutes = tailer.perMinute("edge-1", 60);
+        assertEquals(2, minutes.size());
+        assertEquals(NOW.minusSeconds(60), minutes.get(0).getMinute());
+        assertEquals(Map.of("502", 1L), minutes.get(1).getStatusCounts());
+    }
+
+    @Test
+    void rotation_reads_the_rest_of_the_old_file_before_the_new_one() {
+        NginxAccessLogTailer tailer = new NginxAccessLogTailer(new NginxProperties());
+        tailer.record(null, "@from -1 \n@chunk 4711 0 120 1\n" + line(NOW, "/", 200) + "\n");
+        String rotated = "@from 120 4711\n"
+                + "@chunk 4711 120 240 1\n" + line(NOW, "/", 301) + "\n"
+                + "@chunk 4802 0 90 1\n" + line(NOW, "/", 200) + "\n";
+        tailer.record(null, rotated);
+        assertEquals(Map.of("200", 2L, "301", 1L), tailer.statusCounts(null));
+        assertTrue(tailer.command(null).contains("ino='4802'; off=90"));
+
+        // A second collection that read from the same cursor is not counted again.
+        tailer.record(null, rotated);
+        assertEquals(Map.of("200", 2L, "301", 1L), tailer.statusCounts(null));
+
+        tailer.forget(null);
+        assertTrue(tailer.statusCounts(null).isEmpty());
+    }
+
+    @Test
+    void latency_histograms_merge_across_prefixes_and_minutes() {
+        NginxProperties properties = new NginxProperties();
+        properties.setLogFormat(NginxLogFormat.COMBINED + " $request_time $upstream_response_time");
+        NginxAccessLogTailer tailer = new NginxAccessLogTailer(properties);
+        StringBuilder body = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            // /ussd: 1..100 ms in the previous minute; /api: 500 ms in this one.
+            body.append(line(NOW.minusSeconds(60), "/ussd/session", 200).replace("\n", " 0.%03d 0.%03d\n".formatted(i, i)));
+        }
+        body.append(line(NOW, "/api/orders", 200).replace("\n", " 0.500 -\n"));
+        tailer.record("edge-1", "@from -1 \n@chunk 4711 0 9000 1\n" + body + "\n");
+
+        assertEquals(List.of("/api", "/ussd"), tailer.latencyPrefixes("edge-1"));
+        List<NginxLatencyPoint> ussd = tailer.latency("edge-1", "/ussd", 60, 1);
+        assertEquals(1, ussd.size());
+        assertEquals(100, ussd.get(0).getRequest().getCount());
+        assertEquals(50, ussd.get(0).getRequest().getP50Ms(), 0.5);
+        assertEquals(99, ussd.get(0).getRequest().getP99Ms(), 1);
+        assertEquals(100, ussd.get(0).getUpstream().getCount());
+
+        List<NginxLatencyPoint> all = tailer.latency("edge-1", null, 60, 60);
+        assertEquals(1, all.size());
+        assertEquals(101, all.get(0).getRequest().getCount());
+        assertEquals(100, all.get(0).getUpstream().getCount());
+        assertEquals(500, all.get(0).getRequest().getMaxMs(), 5);
+    }
+}
@@ -0,0 +1,47 @@
+package com.sentinelops.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NginxLogFormatTest {
+
+    private static final String TIMED = NginxLogFormat.COMBINED + " $request_time $upstream_response_time";
+
+    @Test
+    void combined_lines_give_status_minute_and_path() {
+        NginxLogFormat format = NginxLogFormat.of("");
+        NginxLogFormat.Entry entry = format.parse("10.0.0.7 - alice [17/Oct/2026:10:42:17 +0200] "
+                + "\"POST /ussd/session?msisdn=256700000001 HTTP/1.1\" 502 157 \"-\" \"Go-http-client/1.1\" extra");
+        assertEquals("502", entry.status());
+        assertEquals("/ussd/session?msisdn=256700000001", entry.path());
+        assertEquals(Instant.parse("2026-10-17T08:42:00Z").toEpochMilli(), format.minute(entry.minuteText()));
+        assertEquals(-1, entry.requestTimeUs());
+        assertNull(format.parse("2026/10/17 10:42:17 [error] 812#812: *1 connect() failed"));
+    }
+
+    @Test
+    void request_and_upstream_times_are_microseconds_summed_over_upstreams() {
+        NginxLogFormat format = NginxLogFormat.of(TIMED);
+        NginxLogFormat.Entry retried = format.parse("10.0.0.7 - - [17/Oct/2026:10:42:17 +0000] "
+                + "\"GET /api/orders HTTP/1.1\" 200 512 \"-\" \"curl/8.5.0\" 0.153 0.100, 0.052");
+        assertEquals(153_000, retried.requestTimeUs());
+        assertEquals(152_000, retried.upstreamTimeUs());
+
+        NginxLogFormat.Entry cached = format.parse("10.0.0.7 - - [17/Oct/2026:10:42:17 +0000] "
+                + "\"GET /static/app.js HTTP/1.1\" 304 0 \"-\" \"curl/8.5.0\" 0.000 -");
+        assertEquals(0, cached.requestTimeUs());
+        assertEquals(-1, cached.upstreamTimeUs());
+    }
+
+    @Test
+    void prefix_is_the_first_path_segment() {
+        assertEquals("/ussd", NginxLogFormat.prefix("/ussd/session?x=1"));
+        assertEquals("/health", NginxLogFormat.prefix("/health?full=1"));
+        assertEquals("/", NginxLogFormat.prefix("/"));
+        assertNull(NginxLogFormat.prefix("-"));
+    }
+}
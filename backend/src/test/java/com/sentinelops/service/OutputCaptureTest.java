@@ -0,0 +1,67 @@
+package com.sentinelops.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutputCaptureTest {
+
+    @Test
+    void keeps_head_and_tail_and_counts_dropped_bytes() {
+        OutputCapture capture = new OutputCapture(8);
+        byte[] data = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        capture.write(data, 0, 10);
+        capture.write(data, 10, 6);
+
+        assertThat(capture.isTruncated()).isTrue();
+        assertThat(capture.getTotalBytes()).isEqualTo(16);
+        assertThat(capture.toString())
+                .startsWith("0123")
+                .endsWith("cdef")
+                .contains("[output truncated: 8 of 16 bytes omitted]");
+    }
+
+    @Test
+    void truncation_does_not_split_multibyte_characters() {
+        OutputCapture capture = new OutputCapture(8);
+        // Head and tail are 4 bytes each: both edges fall inside a three-byte euro sign.
+        byte[] data = "abc€0123456789€xy".getBytes(StandardCharsets.UTF_8);
+        capture.write(data, 0, data.length);
+
+        assertThat(capture.toString())
+                .doesNotContain("\uFFFD")
+                .startsWith("abc\n")
+                .endsWith("\nxy")
+                .contains("[output truncated: 16 of 21 bytes omitted]");
+    }
+
+    @Test
+    void long_lines_are_split_between_characters() {
+        List<String> pieces = new ArrayList<>();
+        OutputCapture capture = new OutputCapture(0, (line, terminated) -> pieces.add(line));
+        // One ASCII byte shifts the two-byte characters so that the piece limit falls inside one.
+        String text = "a" + "é".repeat(OutputCapture.MAX_LINE_BYTES / 2 + 100);
+        byte[] data = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        capture.write(data, 0, data.length);
+
+        assertThat(pieces).hasSize(2);
+        assertThat(pieces).allSatisfy(piece -> assertThat(piece).doesNotContain("\uFFFD"));
+        assertThat(String.join("", pieces)).isEqualTo(text);
+    }
+
+    @Test
+    void hands_every_line_to_the_consumer_regardless_of_budget() {
+        List<String> lines = new ArrayList<>();
+        OutputCapture capture = new OutputCapture(4, (line, terminated) -> lines.add(line + (terminated ? "$" : "")));
+        byte[] data = "first\nsec".getBytes(StandardCharsets.UTF_8);
+        capture.write(data, 0, data.length);
+        capture.write("ond\nlast".getBytes(StandardCharsets.UTF_8), 0, 8);
+        capture.close();
+
+        assertThat(lines).containsExactly("first$", "second$", "last");
+    }
+}
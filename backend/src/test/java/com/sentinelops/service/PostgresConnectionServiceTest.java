@@ -0,0 +1,84 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.PostgresProperties;
+import com.sentinelops.config.SshProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostgresConnectionServiceTest {
+
+    private final SshExecutionService ssh = mock(SshExecutionService.class);
+    private final SshExecutor executor = mock(SshExecutor.class);
+    private final PostgresProperties properties = new PostgresProperties();
+    private final List<Runnable> queued = new ArrayList<>();
+    private final List<SshExecutionService.LocalForward> forwards = new ArrayList<>();
+    private PostgresConnectionService postgres;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doAnswer(invocation -> queued.add(invocation.getArgument(0))).when(executor).execute(any());
+        when(ssh.forwardLocal(isNull(), anyString(), anyInt())).thenAnswer(invocation -> {
+            SshExecutionService.LocalForward forward = mock(SshExecutionService.LocalForward.class);
+            when(forward.isOpen()).thenReturn(true);
+            // Nothing listens on port 1: the query fails fast, which is all these tests need.
+            when(forward.getLocalPort()).thenReturn(1);
+            forwards.add(forward);
+            return forward;
+        });
+        SshProperties sshProperties = new SshProperties();
+        sshProperties.setConnectTimeoutMs(250);
+        postgres = new PostgresConnectionService(ssh, executor, sshProperties, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        postgres.shutdown();
+    }
+
+    @Test
+    void a_tunnel_with_queued_work_is_not_idle() throws Exception {
+        properties.setPoolIdleMs(50);
+        postgres.withConnection(null, 5_000L, c -> 1);
+        queued.forEach(Runnable::run);
+        queued.clear();
+        Thread.sleep(100);
+
+        // Work scheduled just now counts as use, though it has not reached the tunnel yet.
+        postgres.withConnection(null, 5_000L, c -> 1);
+        postgres.closeIdle();
+        queued.forEach(Runnable::run);
+
+        verify(ssh, times(1)).forwardLocal(isNull(), anyString(), anyInt());
+        verify(forwards.get(0), never()).close();
+    }
+
+    @Test
+    void work_that_outlives_its_closed_tunnel_opens_a_tracked_one() throws Exception {
+        properties.setPoolIdleMs(0);
+        postgres.withConnection(null, 5_000L, c -> 1);
+        Thread.sleep(5);
+        postgres.closeIdle();
+
+        // Runs after the tunnel was closed as idle: a new tunnel in the map takes the work, so
+        // its forward is closed with the server's tunnel rather than leaked.
+        queued.forEach(Runnable::run);
+        verify(ssh, times(1)).forwardLocal(isNull(), anyString(), anyInt());
+        postgres.forget(null);
+        verify(forwards.get(0)).close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.sentinelops.service;
+
+import com.sentinelops.model.snapshot.PostgresSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostgresSnapshotServiceTest {
+
+    @Test
+    void jdbc_results_fill_the_snapshot_like_psql_output() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet connections = resultSet(new String[]{"12"});
+        ResultSet sizes = resultSet(new String[]{"app", "1293942784", "1234 MB"}, new String[]{"postgres", "7631663", "7453 kB"});
+        ResultSet locks = resultSet(new String[]{"5", "AccessShareLock"}, new String[]{"1", "ExclusiveLock"});
+        ResultSet slow = resultSet(new String[]{"2"});
+        ResultSet waits = resultSet(new String[]{"4711", "4242"});
+        ResultSet states = resultSet(new String[]{"active", "3"}, new String[]{"idle", "9"});
+        when(statement.executeQuery()).thenReturn(connections, sizes, locks, slow, waits, states);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        PostgresSnapshot snapshot = PostgresSnapshotService.query(connection, 15);
+
+        assertEquals(12, snapshot.getActiveConnections());
+        assertEquals(2, snapshot.getDatabaseSizes().size());
+        assertEquals("app", snapshot.getDatabaseSizes().get(0).getName());
+        assertEquals("1234 MB", snapshot.getDatabaseSizes().get(0).getSize());
+        assertEquals(1293942784L, snapshot.getDatabaseSizes().get(0).getSizeBytes());
+        assertEquals("5|AccessShareLock\n1|ExclusiveLock", snapshot.getLocksSummary());
+        assertEquals(Map.of("AccessShareLock", 5L, "ExclusiveLock", 1L), snapshot.getLocksByMode());
+        assertEquals("2 queries running longer than 5s", snapshot.getSlowQueriesSummary());
+        assertEquals(1, snapshot.getLockWaits().size());
+        assertEquals(4711, snapshot.getLockWaits().get(0).getBlockedPid());
+        assertEquals(4242, snapshot.getLockWaits().get(0).getBlockingPid());
+        assertEquals(Map.of("active", 3L, "idle", 9L), snapshot.getConnectionsByState());
+        verify(statement, times(6)).setQueryTimeout(15);
+    }
+
+    @Test
+    void a_failing_later_query_leaves_only_its_fields_unset() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet connections = resultSet(new String[]{"4"});
+        ResultSet empty = resultSet();
+        ResultSet slow = resultSet(new String[]{"0"});
+        ResultSet states = resultSet(new String[]{"idle", "4"});
+        when(statement.executeQuery())
+                .thenReturn(connections, empty, empty, slow)
+                .thenThrow(new SQLException("function pg_blocking_pids(integer) does not exist"))
+                .thenReturn(states);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        PostgresSnapshot snapshot = PostgresSnapshotService.query(connection, 15);
+
+        assertEquals(4, snapshot.getActiveConnections());
+        assertNull(snapshot.getLockWaits());
+        assertEquals(Map.of("idle", 4L), snapshot.getConnectionsByState());
+    }
+
+    private static ResultSet resultSet(String[]... rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData meta = mock(ResultSetMetaData.class);
+        when(meta.getColumnCount()).thenReturn(rows.length > 0 ? rows[0].length : 1);
+        when(rs.getMetaData()).thenReturn(meta);
+        int[] row = {-1};
+        when(rs.next()).thenAnswer(i -> ++row[0] < rows.length);
+        when(rs.getString(anyInt())).thenAnswer(i -> rows[row[0]][(int) i.getArgument(0) - 1]);
+        return rs;
+    }
+}
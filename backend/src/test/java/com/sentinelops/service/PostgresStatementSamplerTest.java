@@ -0,0 +1,63 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.PostgresProperties;
+import com.sentinelops.model.snapshot.PostgresSnapshot.StatementStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PostgresStatementSamplerTest {
+
+    private static final String FIRST = """
+            -8402617532117315301|1000|2500.5|1000|40000|100|SELECT * FROM orders WHERE id = $1
+            4123456789|10|50|10|100|0|UPDATE stock SET qty = qty - $1 WHERE sku = $2 | $3
+            """;
+    private static final String SECOND = """
+            -8402617532117315301|1500|5500.5|1500|60000|180|SELECT * FROM orders WHERE id = $1
+            4123456789|10|50|10|100|0|UPDATE stock SET qty = qty - $1 WHERE sku = $2 | $3
+            77|4|8|4|12|0|INSERT INTO audit VALUES ($1)
+            """;
+
+    @Test
+    void psql_rows_keep_pipes_in_the_query_text() {
+        List<PostgresStatementSampler.Row> rows = PostgresStatementSampler.parse(FIRST + "\n(2 rows)\n");
+        assertEquals(2, rows.size());
+    }
+
+    @Test
+    void interval_deltas_are_ranked_by_execution_time() throws Exception {
+        PostgresStatementSampler sampler = new PostgresStatementSampler(new PostgresProperties());
+        assertNull(sampler.sample("db-1", PostgresStatementSampler.parse(FIRST)));
+        Thread.sleep(5);
+
+        PostgresStatementSampler.Sample sample = sampler.sample("db-1", PostgresStatementSampler.parse(SECOND));
+        List<StatementStats> top = sample.getStatements();
+        // The UPDATE did not run in between; the INSERT is new and counts from zero.
+        assertEquals(2, top.size());
+        StatementStats orders = top.get(0);
+        assertEquals(-8402617532117315301L, orders.getQueryId());
+        assertEquals(500, orders.getCalls());
+        assertEquals(3000.0, orders.getTotalTimeMs());
+        assertEquals(6.0, orders.getMeanTimeMs());
+        assertEquals(500, orders.getRows());
+        assertEquals(20000, orders.getSharedBlksHit());
+        assertEquals(80, orders.getSharedBlksRead());
+        assertEquals(77, top.get(1).getQueryId());
+        assertEquals(4, top.get(1).getCalls());
+    }
+
+    @Test
+    void counters_after_a_reset_are_taken_as_they_are() throws Exception {
+        PostgresStatementSampler sampler = new PostgresStatementSampler(new PostgresProperties());
+        sampler.sample("db-1", PostgresStatementSampler.parse(SECOND));
+        Thread.sleep(5);
+
+        List<StatementStats> top = sampler.sample("db-1", PostgresStatementSampler.parse(
+                "-8402617532117315301|20|30|20|80|0|SELECT * FROM orders WHERE id = $1\n")).getStatements();
+        assertEquals(20, top.get(0).getCalls());
+        assertEquals(1.5, top.get(0).getMeanTimeMs());
+    }
+}
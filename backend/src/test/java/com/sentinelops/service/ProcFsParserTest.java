@@ -0,0 +1,70 @@
+package com.sentinelops.service;
+
+import com.sentinelops.model.snapshot.DiskUsage;
+import com.sentinelops.model.snapshot.MemoryInfo;
+import com.sentinelops.model.snapshot.UptimeInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProcFsParserTest {
+
+    @Test
+    void meminfo_is_parsed_to_exact_bytes() {
+        MemoryInfo mem = ProcFsParser.parseMeminfo("""
+                MemTotal:        8141860 kB
+                MemFree:          626344 kB
+                MemAvailable:    4576912 kB
+                Buffers:          215420 kB
+                Cached:          3827744 kB
+                SwapCached:         1024 kB
+                SReclaimable:     276312 kB
+                SwapTotal:       2097148 kB
+                SwapFree:        2084860 kB
+                HugePages_Total:       0
+                """);
+        assertEquals(8141860L * 1024, mem.getMemTotalBytes());
+        assertEquals(4576912L * 1024, mem.getMemAvailableBytes());
+        assertEquals((8141860L - 4576912) * 1024, mem.getMemUsedBytes());
+        assertEquals((2097148L - 2084860) * 1024, mem.getSwapUsedBytes());
+        assertEquals(7951, mem.getMemTotalMb());
+    }
+
+    @Test
+    void uptime_load_and_stat_fields() {
+        UptimeInfo uptime = ProcFsParser.parseUptime("3549780.27 6901421.10\n", "0.61 0.48 0.40 3/512 98123\n",
+                "cpu  10 0 5 100 0 0 0 0 0 0\ncpu0 5 0 3 50 0 0 0 0 0 0\ncpu1 5 0 2 50 0 0 0 0 0 0\nbtime 1700000000\n");
+        assertEquals("up 41 days, 2:03", uptime.getUptimeString());
+        assertEquals("0.61", uptime.getLoad1());
+        assertEquals("0.40", uptime.getLoad15());
+        assertEquals(3, uptime.getRunnableTasks());
+        assertEquals(512, uptime.getTotalTasks());
+        assertEquals(2, uptime.getCpuCount());
+        assertEquals(1700000000L, uptime.getBootTimeEpochSeconds());
+    }
+
+    @Test
+    void df_bytes_keep_mount_points_with_spaces() {
+        List<DiskUsage> disks = ProcFsParser.parseDfBytes("""
+                Filesystem         1-blocks        Used   Available Capacity Mounted on
+                /dev/sda1       84014424064 43805184000 36898037760      55% /
+                /dev/sdc1        1073741824   536870912   536870912      50% /mnt/backup disk
+                """);
+        assertEquals(2, disks.size());
+        assertEquals(84014424064L, disks.get(0).getSizeBytes());
+        assertEquals("79G", disks.get(0).getSize());
+        assertEquals("55%", disks.get(0).getUsePercent());
+        assertEquals("/mnt/backup disk", disks.get(1).getMountedOn());
+    }
+
+    @Test
+    void human_bytes_match_df_h() {
+        assertEquals("0", ProcFsParser.humanBytes(0));
+        assertEquals("3.0G", ProcFsParser.humanBytes(3140218880L));
+        assertEquals("4.1G", ProcFsParser.humanBytes(4318425088L));
+        assertEquals("252G", ProcFsParser.humanBytes(270553174016L));
+        assertEquals("1.2M", ProcFsParser.humanBytes(1253376));
+    }
+}
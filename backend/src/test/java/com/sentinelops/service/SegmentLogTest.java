@@ -0,0 +1,205 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.StorageProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void range_reads_span_segments_and_survive_a_reopen() throws IOException {
+        StorageProperties properties = properties(4096);
+        SegmentLog log = new SegmentLog(dir, properties);
+        for (int i = 0; i < 300; i++) {
+            log.append(1_000L * i, i % 3 == 0 ? "edge-1" : "db-1", payload(i));
+        }
+        assertTrue(files(".log") >= 3, "segments " + files(".log"));
+        assertEquals(files(".log") - 1, files(".idx"));
+
+        List<SegmentLog.Record> edge = log.read(30_000, 120_000, "edge-1", 100);
+        assertEquals(31, edge.size());
+        assertEquals(30_000, edge.get(0).timestampMs);
+        assertEquals("record 120", text(edge.get(30)));
+        List<SegmentLog.Record> newest = log.read(Long.MIN_VALUE, Long.MAX_VALUE, null, 5);
+        assertEquals("record 295", text(newest.get(0)));
+        assertEquals("db-1", newest.get(4).key);
+        log.close();
+
+        SegmentLog reopened = new SegmentLog(dir, properties);
+        assertEquals(edge.size(), reopened.read(30_000, 120_000, "edge-1", 100).size());
+        reopened.append(299_000, "edge-1", payload(300));
+        assertEquals("record 300", text(reopened.read(Long.MIN_VALUE, Long.MAX_VALUE, "edge-1", 1).get(0)));
+        reopened.close();
+    }
+
+    @Test
+    void scans_page_forward_across_segments() {
+        SegmentLog log = new SegmentLog(dir, properties(4096));
+        for (int i = 0; i < 300; i++) log.append(1_000L * i, i % 2 == 0 ? "edge-1" : "db-1", payload(i));
+
+        List<SegmentLog.Record> page = log.scan(100_000, 200_000, "edge-1", -1, -1, 20);
+        int seen = 0;
+        while (!page.isEmpty()) {
+            for (SegmentLog.Record record : page) {
+                assertEquals("record " + (100 + 2 * seen++), text(record));
+            }
+            SegmentLog.Record last = page.get(page.size() - 1);
+            page = log.scan(100_000, 200_000, "edge-1", last.sequence, last.position, 20);
+        }
+        assertEquals(51, seen);
+        log.close();
+    }
+
+    @Test
+    void reads_between_appends_see_every_record_of_the_active_segment() {
+        SegmentLog log = new SegmentLog(dir, properties(1 << 20));
+        for (int i = 0; i < 50; i++) {
+            log.append(1_000L * i, "edge-1", payload(i));
+            List<SegmentLog.Record> newest = log.read(Long.MIN_VALUE, Long.MAX_VALUE, "edge-1", 2);
+            assertEquals("record " + i, text(newest.get(newest.size() - 1)));
+            assertEquals(i + 1, log.scan(Long.MIN_VALUE, Long.MAX_VALUE, null, -1, -1, 100).size());
+        }
+        log.close();
+    }
+
+    @Test
+    void an_index_without_key_hashes_is_rebuilt_on_open() throws IOException {
+        StorageProperties properties = properties(4096);
+        SegmentLog log = new SegmentLog(dir, properties);
+        for (int i = 0; i < 300; i++) log.append(1_000L * i, i % 3 == 0 ? "edge-1" : "db-1", payload(i));
+        log.close();
+
+        // The previous format: (long timestamp, int position) per record, then the log size.
+        try (Stream<Path> indexes = Files.list(dir)) {
+            for (Path index : indexes.filter(p -> p.toString().endsWith(".idx")).toList()) {
+                ByteBuffer current = ByteBuffer.wrap(Files.readAllBytes(index));
+                int n = (current.capacity() - 12) / 16;
+                ByteBuffer previous = ByteBuffer.allocate(n * 12 + 8);
+                current.getInt();
+                for (int i = 0; i < n; i++) {
+                    previous.putLong(current.getLong()).putInt(current.getInt());
+                    current.getInt();
+                }
+                Files.write(index, previous.putLong(current.getLong()).array());
+            }
+        }
+
+        SegmentLog reopened = new SegmentLog(dir, properties);
+        List<SegmentLog.Record> edge = reopened.read(30_000, 120_000, "edge-1", 100);
+        assertEquals(31, edge.size());
+        assertTrue(edge.stream().allMatch(record -> record.key.equals("edge-1")));
+        reopened.close();
+    }
+
+    @Test
+    void reads_run_alongside_appends_that_roll_and_delete_segments() throws Exception {
+        StorageProperties properties = properties(4096);
+        properties.setMaxBytes(4 * 4096);
+        SegmentLog log = new SegmentLog(dir, properties);
+        log.append(0, "edge-1", payload(0));
+        AtomicBoolean done = new AtomicBoolean();
+        CompletableFuture<Integer> reader = CompletableFuture.supplyAsync(() -> {
+            int reads = 0;
+            while (!done.get()) {
+                List<SegmentLog.Record> records = log.read(Long.MIN_VALUE, Long.MAX_VALUE, "edge-1", 1000);
+                for (int i = 1; i < records.size(); i++) {
+                    assertTrue(records.get(i - 1).timestampMs < records.get(i).timestampMs);
+                }
+                log.scan(Long.MIN_VALUE, Long.MAX_VALUE, "db-1", -1, -1, 1000);
+                reads++;
+            }
+            return reads;
+        });
+        for (int i = 1; i < 3000; i++) log.append(1_000L * i, i % 2 == 0 ? "edge-1" : "db-1", payload(i));
+        done.set(true);
+
+        assertTrue(reader.get(10, TimeUnit.SECONDS) > 0);
+        assertEquals("record 2998", text(log.read(Long.MIN_VALUE, Long.MAX_VALUE, "edge-1", 1).get(0)));
+        log.close();
+    }
+
+    @Test
+    void recovery_cuts_the_active_segment_at_the_first_damaged_record() throws IOException {
+        SegmentLog log = new SegmentLog(dir, properties(1 << 20));
+        for (int i = 0; i < 10; i++) log.append(1_000L * i, "edge-1", payload(i));
+        long size = log.sizeBytes();
+        log.close();
+
+        Path segment = dir.resolve("00000000000000000001.log");
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Flip a payload byte of the eighth record and leave half a record at the end.
+            long eighth = size / 10 * 7;
+            file.seek(eighth + 30);
+            int b = file.read();
+            file.seek(eighth + 30);
+            file.write(b ^ 0xff);
+            file.seek(size);
+            file.write(new byte[]{0, 0, 0, 40, 1, 2});
+        }
+
+        SegmentLog recovered = new SegmentLog(dir, properties(1 << 20));
+        assertEquals(size / 10 * 7, Files.size(segment));
+        List<SegmentLog.Record> records = recovered.read(Long.MIN_VALUE, Long.MAX_VALUE, null, 100);
+        assertEquals(7, records.size());
+        recovered.append(10_000, "edge-1", payload(10));
+        assertEquals("record 10", text(recovered.read(Long.MIN_VALUE, Long.MAX_VALUE, null, 1).get(0)));
+        recovered.close();
+    }
+
+    @Test
+    void retention_deletes_the_oldest_closed_segments() throws IOException {
+        StorageProperties properties = properties(4096);
+        properties.setMaxBytes(3 * 4096);
+        SegmentLog log = new SegmentLog(dir, properties);
+        for (int i = 0; i < 500; i++) log.append(1_000L * i, "edge-1", payload(i));
+        assertTrue(log.sizeBytes() <= 4 * 4096, "size " + log.sizeBytes());
+        assertEquals("record 499", text(log.read(Long.MIN_VALUE, Long.MAX_VALUE, null, 1).get(0)));
+        assertTrue(log.read(0, 100_000, null, 1000).isEmpty());
+        log.close();
+
+        properties.setRetentionMs(60_000);
+        SegmentLog aged = new SegmentLog(dir, properties);
+        // Everything is far older than a minute, except the segment still being written.
+        assertEquals(1, files(".log"));
+        aged.close();
+    }
+
+    private static StorageProperties properties(long segmentBytes) {
+        StorageProperties properties = new StorageProperties();
+        properties.setSegmentBytes(segmentBytes);
+        properties.setRetentionMs(Long.MAX_VALUE / 2);
+        return properties;
+    }
+
+    private static byte[] payload(int i) {
+        return ("record " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(SegmentLog.Record record) {
+        return new String(record.payload, StandardCharsets.UTF_8);
+    }
+
+    private long files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(suffix)).count();
+        }
+    }
+}
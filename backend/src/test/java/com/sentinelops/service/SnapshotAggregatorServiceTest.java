@@ -0,0 +1,67 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.model.snapshot.DockerSnapshot;
+import com.sentinelops.model.snapshot.LinuxSnapshot;
+import com.sentinelops.model.snapshot.NginxSnapshot;
+import com.sentinelops.model.snapshot.PostgresSnapshot;
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SnapshotAggregatorServiceTest {
+
+    private final LinuxSnapshotService linux = mock(LinuxSnapshotService.class);
+    private final DockerSnapshotService docker = mock(DockerSnapshotService.class);
+    private final PostgresSnapshotService postgres = mock(PostgresSnapshotService.class);
+    private final NginxSnapshotService nginx = mock(NginxSnapshotService.class);
+
+    private SnapshotAggregatorService aggregator(long dockerTimeoutMs) {
+        SnapshotProperties props = new SnapshotProperties();
+        props.setDockerTimeoutMs(dockerTimeoutMs);
+        return new SnapshotAggregatorService(linux, docker, postgres, nginx, props);
+    }
+
+    @Test
+    void late_collector_becomes_timeout_section_and_others_are_kept() {
+        when(linux.captureAsync(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(new LinuxSnapshot()));
+        when(docker.captureAsync(any(), anyLong())).thenReturn(new CompletableFuture<>());
+        when(postgres.captureAsync(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(new PostgresSnapshot()));
+        when(nginx.captureAsync(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(new NginxSnapshot()));
+
+        long started = System.nanoTime();
+        SystemSnapshot snapshot = aggregator(100).capture("s1");
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(elapsedMs < 5_000, "capture waited " + elapsedMs + " ms");
+        assertNull(snapshot.getLinux().getError());
+        assertEquals("Timed out after 100 ms", snapshot.getDocker().getError());
+        assertNotNull(snapshot.getPostgres());
+        assertEquals(4, snapshot.getCollectorTimingsMs().size());
+        assertTrue(snapshot.getCollectorTimingsMs().get("docker") >= 100);
+    }
+
+    @Test
+    void failing_collector_is_reported_on_its_section() {
+        when(linux.captureAsync(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(new LinuxSnapshot()));
+        when(docker.captureAsync(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(new DockerSnapshot()));
+        when(postgres.captureAsync(any(), anyLong())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")));
+        when(nginx.captureAsync(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(new NginxSnapshot()));
+
+        SystemSnapshot snapshot = aggregator(1_000).capture("s1");
+
+        assertEquals("Collector failed: boom", snapshot.getPostgres().getError());
+        assertNull(snapshot.getDocker().getError());
+        assertNotNull(snapshot.getDurationMs());
+    }
+}
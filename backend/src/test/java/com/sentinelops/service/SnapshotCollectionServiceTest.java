@@ -0,0 +1,123 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.config.SshProperties;
+import com.sentinelops.config.StorageProperties;
+import com.sentinelops.model.Server;
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import com.sentinelops.repository.ServerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SnapshotCollectionServiceTest {
+
+    private final SnapshotAggregatorService aggregator = mock(SnapshotAggregatorService.class);
+    private final ServerRepository servers = mock(ServerRepository.class);
+    private final SnapshotHistoryService history = new SnapshotHistoryService(new SnapshotProperties(), inMemoryStorage());
+    private final SshExecutor executor = new SshExecutor(new SshProperties());
+    private final SnapshotCollectionService collection =
+            new SnapshotCollectionService(aggregator, history, new MetricsStore(new SnapshotProperties()), servers,
+                    executor, new SnapshotProperties());
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void concurrent_readers_share_one_capture() {
+        CompletableFuture<SystemSnapshot> capture = new CompletableFuture<>();
+        when(aggregator.captureAsync("s1")).thenReturn(capture);
+        when(servers.findById("s1")).thenReturn(Optional.of(server("s1")));
+
+        CompletableFuture<SystemSnapshot> first = collection.get("s1", false);
+        CompletableFuture<SystemSnapshot> second = collection.get("s1", false);
+        capture.complete(new SystemSnapshot());
+
+        assertFalse(first.join().getStale());
+        assertFalse(second.join().getStale());
+        verify(aggregator, times(1)).captureAsync("s1");
+        assertEquals(1, history.getHistory("s1", 10).size());
+
+        // Cached now: no new capture.
+        collection.get("s1", false).join();
+        verify(aggregator, times(1)).captureAsync("s1");
+    }
+
+    @Test
+    void old_snapshot_is_served_stale_and_refreshed_in_background() {
+        SystemSnapshot old = new SystemSnapshot();
+        old.setTimestamp(Instant.now().minusSeconds(120));
+        when(aggregator.captureAsync("s1"))
+                .thenReturn(CompletableFuture.completedFuture(old))
+                .thenReturn(new CompletableFuture<>());
+        when(servers.findById("s1")).thenReturn(Optional.of(server("s1")));
+        collection.get("s1", false).join();
+
+        SystemSnapshot served = collection.get("s1", false).join();
+        assertTrue(served.getStale());
+        assertTrue(served.getAgeMs() >= 120_000);
+        assertEquals(old.getTimestamp(), served.getTimestamp());
+        verify(aggregator, times(2)).captureAsync("s1");
+    }
+
+    @Test
+    void scheduled_collection_captures_every_stored_server() {
+        when(servers.findAll()).thenReturn(List.of(server("a"), server("b")));
+        when(aggregator.captureAsync(any())).thenReturn(new CompletableFuture<>());
+
+        collection.collect();
+        collection.collect(); // still in flight: not started again
+
+        verify(aggregator, times(1)).captureAsync("a");
+        verify(aggregator, times(1)).captureAsync("b");
+    }
+
+    @Test
+    void a_blank_id_is_the_default_host_and_is_cached() {
+        when(aggregator.captureAsync(null)).thenReturn(CompletableFuture.completedFuture(new SystemSnapshot()));
+
+        collection.get("", false).join();
+        collection.get(" ", false).join();
+        collection.get(null, false).join();
+
+        verify(aggregator, times(1)).captureAsync(null);
+        assertEquals(1, history.getServerHistory(null, 10).size());
+    }
+
+    @Test
+    void an_unknown_server_is_neither_captured_nor_recorded() {
+        SystemSnapshot served = collection.get("typo", true).join();
+
+        assertTrue(served.getLinux().getError().startsWith("Snapshot failed: Unknown server typo"));
+        verify(aggregator, never()).captureAsync(any());
+        assertTrue(history.getHistory(null, 10).isEmpty());
+    }
+
+    private static Server server(String id) {
+        Server s = new Server();
+        s.setId(id);
+        return s;
+    }
+
+    private static StorageProperties inMemoryStorage() {
+        StorageProperties storage = new StorageProperties();
+        storage.setHistoryLogEnabled(false);
+        return storage;
+    }
+}
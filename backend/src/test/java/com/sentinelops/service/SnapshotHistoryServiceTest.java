@@ -0,0 +1,152 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SnapshotProperties;
+import com.sentinelops.config.StorageProperties;
+import com.sentinelops.model.SnapshotHistoryEntry;
+import com.sentinelops.model.SnapshotPage;
+import com.sentinelops.model.snapshot.LinuxSnapshot;
+import com.sentinelops.model.snapshot.SystemSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotHistoryServiceTest {
+
+    @Test
+    void each_server_keeps_its_own_newest_entries() {
+        SnapshotProperties properties = new SnapshotProperties();
+        properties.setHistoryCapacity(3);
+        properties.setHistoryCapacities(Map.of("edge-1", 5));
+        SnapshotHistoryService history = new SnapshotHistoryService(properties, inMemory());
+
+        SystemSnapshot[] edge = new SystemSnapshot[7];
+        for (int i = 0; i < edge.length; i++) {
+            edge[i] = new SystemSnapshot();
+            history.append("edge-1", edge[i]);
+            history.append("db-1", new SystemSnapshot());
+        }
+        history.append("db-2", new SystemSnapshot());
+
+        List<SnapshotHistoryEntry> newest = history.getHistory("edge-1", 2);
+        assertEquals(2, newest.size());
+        assertSame(edge[5], newest.get(0).getSnapshot());
+        assertSame(edge[6], newest.get(1).getSnapshot());
+        assertEquals(5, history.getHistory("edge-1", 50).size());
+        assertSame(edge[2], history.getHistory("edge-1", 50).get(0).getSnapshot());
+        assertEquals(3, history.getHistory("db-1", 50).size());
+        assertEquals(1, history.getHistory("db-2", 50).size());
+        assertEquals(9, history.getHistory(null, 50).size());
+        assertEquals(4, history.getHistory(null, 4).size());
+        assertTrue(history.getHistory("unknown", 10).isEmpty());
+    }
+
+    @Test
+    void server_history_without_an_id_is_the_default_hosts_only() {
+        SnapshotHistoryService history = new SnapshotHistoryService(new SnapshotProperties(), inMemory());
+        SystemSnapshot local = new SystemSnapshot();
+        history.append(null, local);
+        history.append("db-1", new SystemSnapshot());
+
+        List<SnapshotHistoryEntry> entries = history.getServerHistory(null, 10);
+        assertEquals(1, entries.size());
+        assertSame(local, entries.get(0).getSnapshot());
+        assertEquals(2, history.getHistory(null, 10).size());
+    }
+
+    @Test
+    void a_new_server_pushes_out_the_least_recently_appended_one() throws Exception {
+        SnapshotProperties properties = new SnapshotProperties();
+        properties.setHistoryMaxServers(2);
+        SnapshotHistoryService history = new SnapshotHistoryService(properties, inMemory());
+        history.append("a", new SystemSnapshot());
+        Thread.sleep(5);
+        history.append("b", new SystemSnapshot());
+        Thread.sleep(5);
+        history.append("a", new SystemSnapshot());
+        history.append("c", new SystemSnapshot());
+
+        assertEquals(2, history.getHistory("a", 10).size());
+        assertTrue(history.getHistory("b", 10).isEmpty());
+        assertEquals(1, history.getHistory("c", 10).size());
+    }
+
+    @Test
+    void logged_history_survives_a_restart(@TempDir Path dataDir) {
+        StorageProperties storage = new StorageProperties();
+        storage.setDataDir(dataDir.toString());
+        SnapshotProperties properties = new SnapshotProperties();
+        properties.setHistoryCapacity(3);
+        SnapshotHistoryService before = new SnapshotHistoryService(properties, storage);
+        for (int i = 0; i < 5; i++) {
+            SystemSnapshot snapshot = new SystemSnapshot();
+            snapshot.setLinux(new LinuxSnapshot());
+            snapshot.getLinux().setCpuUsagePercent((double) i);
+            before.append(i % 2 == 0 ? "edge-1" : null, snapshot);
+        }
+        before.close();
+
+        SnapshotHistoryService after = new SnapshotHistoryService(properties, storage);
+        List<SnapshotHistoryEntry> edge = after.getHistory("edge-1", 10);
+        assertEquals(3, edge.size());
+        assertEquals("edge-1", edge.get(0).getServerId());
+        assertEquals(4.0, edge.get(2).getSnapshot().getLinux().getCpuUsagePercent());
+        assertEquals(5, after.getHistory(null, 10).size());
+
+        // The first append after the restart refills the server's buffer from the log.
+        after.append("edge-1", new SystemSnapshot());
+        assertEquals(2.0, after.getHistory("edge-1", 3).get(0).getSnapshot().getLinux().getCpuUsagePercent());
+        after.close();
+    }
+
+    @Test
+    void pages_follow_the_cursor_from_the_log_and_from_memory(@TempDir Path dataDir) {
+        StorageProperties storage = new StorageProperties();
+        storage.setDataDir(dataDir.toString());
+        for (StorageProperties mode : List.of(storage, inMemory())) {
+            SnapshotHistoryService history = new SnapshotHistoryService(new SnapshotProperties(), mode);
+            for (int i = 0; i < 7; i++) {
+                history.append(i % 2 == 0 ? "edge-1" : "db-1", new SystemSnapshot());
+            }
+
+            SnapshotPage first = history.page("edge-1", Long.MIN_VALUE, Long.MAX_VALUE, null, 3);
+            assertEquals(3, first.getEntries().size());
+            SnapshotPage second = history.page("edge-1", Long.MIN_VALUE, Long.MAX_VALUE, first.getNextCursor(), 3);
+            assertEquals(1, second.getEntries().size());
+            assertNull(second.getNextCursor());
+            assertFalse(second.getEntries().get(0).getTimestamp().isBefore(first.getEntries().get(2).getTimestamp()));
+            assertEquals(7, history.page(null, Long.MIN_VALUE, Long.MAX_VALUE, null, 10).getEntries().size());
+            history.close();
+        }
+    }
+
+    @Test
+    void in_memory_pages_keep_entries_that_share_a_timestamp() {
+        SnapshotHistoryService history = new SnapshotHistoryService(new SnapshotProperties(), inMemory());
+        for (int i = 0; i < 6; i++) history.append("s" + i, new SystemSnapshot());
+        // Entries are stamped at append; pin them to one instant, as servers collected together can be.
+        Instant at = Instant.parse("2026-01-01T00:00:00Z");
+        history.getHistory(null, 10).forEach(e -> e.setTimestamp(at));
+
+        SnapshotPage first = history.page(null, Long.MIN_VALUE, Long.MAX_VALUE, null, 4);
+        SnapshotPage second = history.page(null, Long.MIN_VALUE, Long.MAX_VALUE, first.getNextCursor(), 4);
+        assertEquals(4, first.getEntries().size());
+        assertEquals(2, second.getEntries().size());
+        assertNull(second.getNextCursor());
+    }
+
+    private static StorageProperties inMemory() {
+        StorageProperties storage = new StorageProperties();
+        storage.setHistoryLogEnabled(false);
+        return storage;
+    }
+}
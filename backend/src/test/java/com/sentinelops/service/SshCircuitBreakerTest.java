@@ -0,0 +1,84 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SshProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SshCircuitBreakerTest {
+
+    private static final String HOST = "10.0.0.9:22";
+
+    private SshCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        SshProperties props = new SshProperties();
+        props.setBreakerMinimumCalls(3);
+        props.setBreakerFailureRatePercent(50);
+        props.setBreakerOpenMs(50);
+        props.setBreakerMaxOpenMs(1_000);
+        breaker = new SshCircuitBreaker(props);
+    }
+
+    @Test
+    void opens_after_failure_rate_is_reached_and_refuses_calls() {
+        breaker.acquire(HOST).complete(true);
+        breaker.acquire(HOST).complete(false);
+        assertThat(breaker.status(HOST).getState()).isEqualTo(SshCircuitBreaker.State.CLOSED);
+
+        breaker.acquire(HOST).complete(false);
+
+        assertThat(breaker.status(HOST).getState()).isEqualTo(SshCircuitBreaker.State.OPEN);
+        assertThat(breaker.acquire(HOST)).isNull();
+    }
+
+    @Test
+    void lets_one_probe_through_after_the_delay_and_closes_on_success() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(60);
+
+        SshCircuitBreaker.Permit probe = breaker.acquire(HOST);
+        assertThat(probe).isNotNull();
+        assertThat(breaker.acquire(HOST)).isNull();
+        probe.complete(true);
+
+        assertThat(breaker.status(HOST).getState()).isEqualTo(SshCircuitBreaker.State.CLOSED);
+        assertThat(breaker.acquire(HOST)).isNotNull();
+    }
+
+    @Test
+    void failed_probe_reopens_with_a_longer_delay() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(60);
+
+        breaker.acquire(HOST).complete(false);
+
+        SshCircuitBreaker.Status status = breaker.status(HOST);
+        assertThat(status.getState()).isEqualTo(SshCircuitBreaker.State.OPEN);
+        assertThat(status.getRetryInMs()).isGreaterThan(50);
+    }
+
+    @Test
+    void a_released_probe_records_nothing_and_the_next_command_probes() throws InterruptedException {
+        tripOpen();
+        Thread.sleep(60);
+
+        // E.g. the executor queue was full: the probe never reached the host.
+        breaker.acquire(HOST).release();
+
+        assertThat(breaker.status(HOST).getState()).isEqualTo(SshCircuitBreaker.State.HALF_OPEN);
+        SshCircuitBreaker.Permit probe = breaker.acquire(HOST);
+        assertThat(probe).isNotNull();
+        assertThat(breaker.acquire(HOST)).isNull();
+        probe.complete(false);
+        assertThat(breaker.status(HOST).getState()).isEqualTo(SshCircuitBreaker.State.OPEN);
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 3; i++) {
+            breaker.acquire(HOST).complete(false);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SshProperties;
+import com.sentinelops.model.Server;
+import com.sentinelops.repository.ServerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SshConnectionCacheTest {
+
+    private final ServerRepository repository = mock(ServerRepository.class);
+    private final CredentialEncryptionService encryption = mock(CredentialEncryptionService.class);
+    private SshConnectionCache cache;
+    private Server server;
+
+    @BeforeEach
+    void setUp() {
+        server = new Server();
+        server.setId("s1");
+        server.setHost("10.0.0.5");
+        server.setUsername("ops");
+        server.setAuthType(Server.AuthType.PASSWORD);
+        server.setEncryptedCredential("cipher-1");
+        when(repository.findById("s1")).thenReturn(Optional.of(server));
+        when(encryption.decrypt("cipher-1")).thenReturn("secret-1");
+        when(encryption.decrypt("cipher-2")).thenReturn("secret-2");
+        cache = new SshConnectionCache(new SshProperties(), repository, encryption);
+    }
+
+    @Test
+    void decrypts_once_while_the_record_is_unchanged() {
+        SshTarget first = cache.get("s1").orElseThrow();
+        SshTarget second = cache.get("s1").orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getPassword()).isEqualTo("secret-1");
+        verify(encryption, times(1)).decrypt("cipher-1");
+    }
+
+    @Test
+    void resolves_again_after_credential_change_or_invalidation() {
+        SshTarget first = cache.get("s1").orElseThrow();
+
+        server.setEncryptedCredential("cipher-2");
+        SshTarget rotated = cache.get("s1").orElseThrow();
+        cache.invalidate("s1");
+        SshTarget reloaded = cache.get("s1").orElseThrow();
+
+        assertThat(rotated).isNotSameAs(first);
+        assertThat(rotated.getPassword()).isEqualTo("secret-2");
+        assertThat(reloaded).isNotSameAs(rotated);
+    }
+
+    @Test
+    void unknown_server_is_empty() {
+        assertThat(cache.get("missing")).isEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SshProperties;
+import com.sentinelops.support.EmbeddedSshServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Exec channels against an in-process SSH server: completion is driven by the channel close and
+ * deadlines by {@code orTimeout}, so neither depends on polling the channel.
+ */
+class SshExecutionServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final SshProperties properties = new SshProperties();
+    private EmbeddedSshServer server;
+    private SshSessionPool pool;
+    private SshExecutor executor;
+    private SshExecutionService ssh;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = EmbeddedSshServer.builder().start();
+        properties.setHost("127.0.0.1");
+        properties.setPort(server.getPort());
+        properties.setUsername(EmbeddedSshServer.USERNAME);
+        properties.setPassword(EmbeddedSshServer.PASSWORD);
+        properties.setExecutorVirtualThreads(false);
+        pool = new SshSessionPool(properties);
+        executor = new SshExecutor(properties);
+        ssh = new SshExecutionService(properties, mock(SshConnectionCache.class), pool, executor,
+                new SshCircuitBreaker(properties));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.shutdown();
+        executor.shutdown();
+        server.close();
+    }
+
+    @Test
+    void a_command_returns_its_exit_code_and_output_and_its_session_is_reused() {
+        SshExecutionService.SshCommandResult first = ssh.executeAsync(null, "echo hello; echo oops >&2; exit 3")
+                .orTimeout(10, TimeUnit.SECONDS).join();
+        assertThat(first.getExitCode()).isEqualTo(3);
+        assertThat(first.getStdout()).isEqualTo("hello\n");
+        assertThat(first.getStderr()).isEqualTo("oops\n");
+
+        for (int i = 0; i < 5; i++) {
+            SshExecutionService.SshCommandResult result = ssh.executeAsync(null, "true")
+                    .orTimeout(10, TimeUnit.SECONDS).join();
+            assertThat(result.isSuccess()).isTrue();
+        }
+        assertThat(pool.size()).isEqualTo(1);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> server.getOpenChannels() == 0);
+    }
+
+    @Test
+    void a_command_past_its_deadline_is_killed_and_its_channel_closed() throws Exception {
+        properties.setCommandTimeoutMs(300);
+        Path pidFile = dir.resolve("pid");
+        Path marker = dir.resolve("finished");
+
+        SshExecutionService.SshCommandResult result = ssh.executeAsync(null,
+                        "echo $$ > '" + pidFile + "'; sleep 5; touch '" + marker + "'")
+                .orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertThat(result.getExitCode()).isEqualTo(-1);
+        assertThat(result.getStderr()).isEqualTo("Command timed out after 300 ms");
+        await().atMost(5, TimeUnit.SECONDS).until(() -> server.getOpenChannels() == 0);
+
+        // The command was stopped, not left running: its shell is gone before it got to the last step.
+        long pid = Long.parseLong(Files.readString(pidFile).trim());
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> ProcessHandle.of(pid).map(p -> !p.isAlive()).orElse(true));
+        assertThat(Files.exists(marker)).isFalse();
+
+        // The session stays pooled and usable for the next command.
+        properties.setCommandTimeoutMs(10_000);
+        assertThat(ssh.executeAsync(null, "echo again").join().getStdout()).isEqualTo("again\n");
+        assertThat(pool.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,74 @@
+package com.sentinelops.service;
+
+import com.sentinelops.config.SshProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class SshExecutorTest {
+
+    private SshExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void limits_commands_per_host_and_starts_waiting_ones_on_completion() {
+        executor = newExecutor(10, 2);
+        List<CompletableFuture<String>> running = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(executor.submit("a:22", () -> track(running)));
+        }
+        CompletableFuture<String> other = executor.submit("b:22", () -> CompletableFuture.completedFuture("b"));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> running.size() == 2);
+        assertThat(other.join()).isEqualTo("b");
+        assertThat(executor.getStats().getQueued()).isEqualTo(3);
+
+        // The first two tasks start concurrently, so either may own running.get(0).
+        running.get(0).complete("done");
+        await().atMost(5, TimeUnit.SECONDS).until(() -> running.size() == 3);
+        assertThat(CompletableFuture.anyOf(results.get(0), results.get(1)).join()).isEqualTo("done");
+        assertThat(executor.getStats().getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void rejects_when_the_queue_is_full() {
+        executor = newExecutor(1, 1);
+        List<CompletableFuture<String>> running = new CopyOnWriteArrayList<>();
+        executor.submit("a:22", () -> track(running));
+        for (int i = 0; i < 4; i++) {
+            executor.submit("a:22", () -> track(running));
+        }
+
+        CompletableFuture<String> overflow = executor.submit("a:22", () -> track(running));
+
+        assertThat(overflow).isCompletedExceptionally();
+        assertThat(executor.getStats().getRejected()).isEqualTo(1);
+    }
+
+    private static SshExecutor newExecutor(int maxInFlight, int maxPerHost) {
+        SshProperties props = new SshProperties();
+        props.setExecutorMaxInFlight(maxInFlight);
+        props.setExecutorMaxPerHost(maxPerHost);
+        props.setExecutorMaxQueued(4);
+        return new SshExecutor(props);
+    }
+
+    private static CompletableFuture<String> track(List<CompletableFuture<String>> running) {
+        CompletableFuture<String> f = new CompletableFuture<>();
+        running.add(f);
+        return f;
+    }
+}
@@ -0,0 +1,144 @@
+package com.sentinelops.service;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.sentinelops.config.SshProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SshSessionPoolTest {
+
+    private static final SshSessionPool.Key KEY = SshSessionPool.Key.of("10.0.0.5", 22, "ops", "secret", null, null);
+
+    private final SshProperties properties = new SshProperties();
+    private final List<Session> created = new ArrayList<>();
+    private SshSessionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        properties.setKeepAliveIntervalMs(0);
+        properties.setMaxChannelsPerSession(2);
+        pool = new SshSessionPool(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void reuses_a_live_session_for_the_same_key() throws JSchException {
+        SshSessionPool.Lease first = pool.acquire(KEY, this::connect);
+        first.close();
+        SshSessionPool.Lease second = pool.acquire(KEY, this::connect);
+
+        assertThat(second.getSession()).isSameAs(first.getSession());
+        assertThat(first.isReused()).isFalse();
+        assertThat(second.isReused()).isTrue();
+        assertThat(created).hasSize(1);
+        second.close();
+    }
+
+    @Test
+    void opens_a_second_session_once_the_channel_limit_is_reached() throws JSchException {
+        SshSessionPool.Lease a = pool.acquire(KEY, this::connect);
+        SshSessionPool.Lease b = pool.acquire(KEY, this::connect);
+        SshSessionPool.Lease c = pool.acquire(KEY, this::connect);
+
+        assertThat(b.getSession()).isSameAs(a.getSession());
+        assertThat(c.getSession()).isNotSameAs(a.getSession());
+        assertThat(created).hasSize(2);
+        assertThat(pool.size()).isEqualTo(2);
+
+        // A freed slot on the first session is taken before connecting a third one.
+        a.close();
+        SshSessionPool.Lease d = pool.acquire(KEY, this::connect);
+        assertThat(d.getSession()).isSameAs(b.getSession());
+        assertThat(created).hasSize(2);
+        List.of(b, c, d).forEach(SshSessionPool.Lease::close);
+    }
+
+    @Test
+    void evicts_idle_sessions_and_their_bucket() throws Exception {
+        properties.setSessionMaxIdleMs(0);
+        SshSessionPool.Lease leased = pool.acquire(KEY, this::connect);
+        SshSessionPool.Lease idle = pool.acquire(SshSessionPool.Key.of("10.0.0.6", 22, "ops", "secret", null, null),
+                this::connect);
+        idle.close();
+        Thread.sleep(5);
+
+        pool.evictIdle();
+
+        verify(idle.getSession()).disconnect();
+        verify(leased.getSession(), never()).disconnect();
+        assertThat(pool.size()).isEqualTo(1);
+        assertThat(pool.bucketCount()).isEqualTo(1);
+
+        leased.close();
+        Thread.sleep(5);
+        pool.evictIdle();
+        assertThat(pool.size()).isZero();
+        assertThat(pool.bucketCount()).isZero();
+    }
+
+    @Test
+    void replaces_a_session_that_died_while_pooled() throws JSchException {
+        SshSessionPool.Lease first = pool.acquire(KEY, this::connect);
+        first.close();
+        Session dead = first.getSession();
+        when(dead.isConnected()).thenReturn(false);
+
+        SshSessionPool.Lease second = pool.acquire(KEY, this::connect);
+
+        assertThat(second.getSession()).isNotSameAs(dead);
+        assertThat(second.isReused()).isFalse();
+        assertThat(pool.size()).isEqualTo(1);
+        second.close();
+    }
+
+    @Test
+    void an_invalidated_session_is_closed_with_its_last_lease_and_the_next_lease_reconnects() throws JSchException {
+        SshSessionPool.Lease first = pool.acquire(KEY, this::connect);
+        SshSessionPool.Lease second = pool.acquire(KEY, this::connect);
+        // What the executor does when a channel cannot be opened on a reused session, before retrying.
+        first.invalidate();
+        first.close();
+        verify(first.getSession(), never()).disconnect();
+
+        SshSessionPool.Lease retry = pool.acquire(KEY, this::connect);
+        assertThat(retry.getSession()).isNotSameAs(first.getSession());
+
+        second.close();
+        verify(first.getSession()).disconnect();
+        assertThat(pool.size()).isEqualTo(1);
+        retry.close();
+    }
+
+    @Test
+    void a_failed_connect_leaves_nothing_behind() {
+        assertThatThrownBy(() -> pool.acquire(KEY, () -> {
+            throw new JSchException("Auth fail");
+        })).isInstanceOf(JSchException.class).hasMessage("Auth fail");
+
+        assertThat(pool.size()).isZero();
+        assertThat(pool.bucketCount()).isZero();
+    }
+
+    private Session connect() {
+        Session session = mock(Session.class);
+        when(session.isConnected()).thenReturn(true);
+        created.add(session);
+        return session;
+    }
+}
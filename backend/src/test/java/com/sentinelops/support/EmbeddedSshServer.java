@@ -0,0 +1,295 @@
+package com.sentinelops.support;
+
+import org.apache.sshd.common.channel.Channel;
+import org.apache.sshd.common.channel.ChannelListener;
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.auth.AsyncAuthException;
+import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.command.Command;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.shell.ProcessShellFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * In-process SSH server for tests and benchmarks: password auth, exec channels run through {@code /bin/sh}
+ * with scripted stand-ins for the tools the collectors call (df, free, docker, psql, ...) first on
+ * the PATH, so results do not depend on the machine running the benchmark (/proc reads see the
+ * local kernel). Latency can be injected into authentication (roughly one network round trip of a
+ * real login) and before each command starts; neither blocks the server's I/O threads.
+ * <p>
+ * The server listens on all interfaces, so every 127.x.y.z address reaches it; the load driver
+ * uses that to present one server as many distinct hosts.
+ */
+public final class EmbeddedSshServer implements AutoCloseable {
+
+    public static final String USERNAME = "bench";
+    public static final String PASSWORD = "bench";
+
+    private final SshServer server;
+    private final Path stubDir;
+    private final ScheduledExecutorService delays;
+    private final AtomicInteger openChannels = new AtomicInteger();
+
+    private EmbeddedSshServer(Builder builder) throws IOException {
+        this.stubDir = Files.createTempDirectory("sentinelops-ssh-stubs");
+        for (Map.Entry<String, String> stub : builder.scripts.entrySet()) {
+            Path file = stubDir.resolve(stub.getKey());
+            Files.writeString(file, "#!/bin/sh\n" + stub.getValue());
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-xr-x"));
+        }
+        this.delays = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "embedded-sshd-delay");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long authLatencyMs = builder.authLatencyMs;
+        long commandLatencyMs = builder.commandLatencyMs;
+        String pathPrefix = "PATH='" + stubDir + "':\"$PATH\"; export PATH\n";
+
+        server = SshServer.setUpDefaultServer();
+        server.setPort(builder.port);
+        SimpleGeneratorHostKeyProvider hostKey = new SimpleGeneratorHostKeyProvider();
+        hostKey.setAlgorithm("RSA");
+        hostKey.setKeySize(2048);
+        server.setKeyPairProvider(hostKey);
+        server.setPasswordAuthenticator((username, password, session) -> {
+            boolean ok = USERNAME.equals(username) && PASSWORD.equals(password);
+            if (authLatencyMs <= 0) return ok;
+            AsyncAuthException pending = new AsyncAuthException();
+            delays.schedule(() -> pending.setAuthed(ok), authLatencyMs, TimeUnit.MILLISECONDS);
+            throw pending;
+        });
+        server.setCommandFactory((channel, command) -> {
+            Command shell = new ProcessShellFactory(command, List.of("/bin/sh", "-c", pathPrefix + command))
+                    .createShell(channel);
+            return commandLatencyMs > 0 ? new DelayedCommand(shell, delays, commandLatencyMs) : shell;
+        });
+        server.addChannelListener(new ChannelListener() {
+            @Override
+            public void channelOpenSuccess(Channel channel) {
+                openChannels.incrementAndGet();
+            }
+
+            @Override
+            public void channelClosed(Channel channel, Throwable reason) {
+                openChannels.decrementAndGet();
+            }
+        });
+        server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    /** Channels open on the server side right now. */
+    public int getOpenChannels() {
+        return openChannels.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(true);
+        delays.shutdownNow();
+        try (Stream<Path> files = Files.walk(stubDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    public static final class Builder {
+        private int port;
+        private long authLatencyMs;
+        private long commandLatencyMs;
+        private final Map<String, String> scripts = new LinkedHashMap<>();
+
+        /** Listen port; 0 (default) picks a free one. */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder authLatencyMs(long authLatencyMs) {
+            this.authLatencyMs = authLatencyMs;
+            return this;
+        }
+
+        public Builder commandLatencyMs(long commandLatencyMs) {
+            this.commandLatencyMs = commandLatencyMs;
+            return this;
+        }
+
+        /** Make {@code program} print {@code output} and exit 0, whatever its arguments. */
+        public Builder respond(String program, String output) {
+            return script(program, "cat <<'__STUB_EOF__'\n" + output + (output.endsWith("\n") ? "" : "\n") + "__STUB_EOF__\n");
+        }
+
+        /** Replace {@code program} with a shell script body (arguments in "$@"). */
+        public Builder script(String program, String body) {
+            scripts.put(program, body);
+            return this;
+        }
+
+        /** Responses for everything the snapshot collectors run, modelled on a small Docker/Postgres host. */
+        public Builder typicalHost() {
+            script("df", """
+                    if [ "$1" = "-B1" ]; then cat <<'EOF'
+                    Filesystem         1-blocks         Used    Available Capacity Mounted on
+                    udev             4168531968            0   4168531968       0% /dev
+                    tmpfs             833622016      1253376    832368640       1% /run
+                    /dev/sda1       84014424064  43805184000  36898037760      55% /
+                    tmpfs            4168531968            0   4168531968       0% /dev/shm
+                    /dev/sdb1      264138350592 200787386368  50479022080      81% /var/lib/docker
+                    EOF
+                    else cat <<'EOF'
+                    Filesystem      Size  Used Avail Use% Mounted on
+                    udev            3.9G     0  3.9G   0% /dev
+                    tmpfs           795M  1.2M  794M   1% /run
+                    /dev/sda1        79G   41G   35G  55% /
+                    tmpfs           3.9G     0  3.9G   0% /dev/shm
+                    /dev/sdb1       246G  187G   47G  81% /var/lib/docker
+                    EOF
+                    fi
+                    """);
+            respond("free", """
+                                   total        used        free      shared  buff/cache   available
+                    Mem:            7951        3120         612          48        4218        4469
+                    Swap:           2047         12        2035
+                    """);
+            respond("uptime", " 10:42:17 up 41 days,  2:03,  1 user,  load average: 0.61, 0.48, 0.40\n");
+            respond("top", "%Cpu(s):  6.3 us,  1.9 sy,  0.0 ni, 91.2 id,  0.4 wa,  0.0 hi,  0.2 si,  0.0 st\n");
+            respond("systemctl", "active\n");
+            script("docker", """
+                    case "$1" in
+                    ps)
+                      if [ "$2" = "-aq" ]; then printf '3f2a9c1d7b11\\n8c41e0aa92d4\\n1b7f5e3c6a08\\n'; exit 0; fi
+                      printf '3f2a9c1d7b11\\tapi\\tregistry.local/api:1.42\\trunning\\tUp 3 days (healthy)\\n'
+                      printf '8c41e0aa92d4\\tworker\\tregistry.local/worker:1.42\\trunning\\tUp 3 days\\n'
+                      printf '1b7f5e3c6a08\\tredis\\tredis:7\\texited\\tExited (0) 2 hours ago\\n'
+                      ;;
+                    stats)
+                      if [ "$2" != "--no-stream" ]; then
+                        while :; do
+                          printf '\\033[2J\\033[H{"CPUPerc":"12.41%%","ID":"3f2a9c1d7b11","MemPerc":"5.18%%","MemUsage":"412MiB / 7.765GiB","Name":"api"}\\n'
+                          printf '{"CPUPerc":"3.07%%","ID":"8c41e0aa92d4","MemPerc":"2.49%%","MemUsage":"198MiB / 7.765GiB","Name":"worker"}\\n'
+                          sleep 1
+                        done
+                      fi
+                      printf '3f2a9c1d7b11\\t12.41%%\\t412MiB / 7.765GiB\\t5.18%%\\n'
+                      printf '8c41e0aa92d4\\t3.07%%\\t198MiB / 7.765GiB\\t2.49%%\\n'
+                      ;;
+                    events)
+                      exec sleep 86400
+                      ;;
+                    inspect)
+                      printf '3f2a9c1d7b11 0\\n8c41e0aa92d4 2\\n1b7f5e3c6a08 0\\n'
+                      ;;
+                    esac
+                    """);
+            // Engine API over the socket: list (all / running) and one-shot stats whose CPU
+            // counters advance with the clock (api 12.5%, worker 3.13% of two CPUs).
+            script("curl", """
+                    for url in "$@"; do
+                      case "$url" in
+                      *'/containers/json?all=1')
+                        printf '[{"Id":"%s","Names":["/api"],"Image":"registry.local/api:1.42","State":"running","Status":"Up 3 days (healthy)"},' "$API"
+                        printf '{"Id":"%s","Names":["/worker"],"Image":"registry.local/worker:1.42","State":"running","Status":"Up 3 days"},' "$WORKER"
+                        printf '{"Id":"%s","Names":["/redis"],"Image":"redis:7","State":"exited","Status":"Exited (0) 2 hours ago"}]\\n' "$REDIS"
+                        ;;
+                      */containers/json)
+                        printf '[{"Id":"%s"},{"Id":"%s"}]\\n' "$API" "$WORKER"
+                        ;;
+                      */stats*)
+                        id=${url#*/containers/}; id=${id%%/*}; now=$(date +%s%N)
+                        case "$id" in "$API") share=8; mem=432013312 ;; *) share=32; mem=207618048 ;; esac
+                        printf '{"id":"%s","cpu_stats":{"cpu_usage":{"total_usage":%s},"system_cpu_usage":%s,"online_cpus":2},' \\
+                          "$id" "$((now / share))" "$((now * 2))"
+                        printf '"memory_stats":{"usage":%s,"limit":8337571840,"stats":{"inactive_file":0}}}\\n' "$mem"
+                        ;;
+                      esac
+                    done
+                    """.replace("$API", "3f2a9c1d7b11" + "e4c0".repeat(13))
+                    .replace("$WORKER", "8c41e0aa92d4" + "a7b3".repeat(13))
+                    .replace("$REDIS", "1b7f5e3c6a08" + "5d19".repeat(13)));
+            script("psql", """
+                    case "$*" in
+                    *pg_stat_statements*)
+                      # Counters grow with the clock: one call of 3 ms per second.
+                      now=$(date +%s)
+                      printf '8402617532117315301|%s|%s|%s|%s|0|SELECT * FROM orders WHERE id = $1\\n' \\
+                        "$now" "$((now * 3))" "$now" "$((now * 4))"
+                      ;;
+                    *pg_database*) printf 'app|1262485504|1204 MB\\npostgres|8655651|8453 kB\\ntemplate1|7939619|7753 kB\\n' ;;
+                    *pg_locks*) printf '14|AccessShareLock\\n2|RowExclusiveLock\\n' ;;
+                    *pg_blocking_pids*) printf '4711|4242\\n' ;;
+                    *backend_type*) printf 'active|3\\nidle|19\\nidle in transaction|1\\n' ;;
+                    *"state = 'active'"*) echo 1 ;;
+                    *) echo 23 ;;
+                    esac
+                    """);
+            return this;
+        }
+
+        public EmbeddedSshServer start() throws IOException {
+            return new EmbeddedSshServer(this);
+        }
+    }
+
+    /**
+     * Starts the wrapped command after a delay, modelling remote scheduling and process start-up
+     * time without holding a server thread.
+     */
+    private static final class DelayedCommand implements Command {
+        private final Command delegate;
+        private final ScheduledExecutorService delays;
+        private final long delayMs;
+
+        private DelayedCommand(Command delegate, ScheduledExecutorService delays, long delayMs) {
+            this.delegate = delegate;
+            this.delays = delays;
+            this.delayMs = delayMs;
+        }
+
+        @Override public void setInputStream(InputStream in) { delegate.setInputStream(in); }
+        @Override public void setOutputStream(OutputStream out) { delegate.setOutputStream(out); }
+        @Override public void setErrorStream(OutputStream err) { delegate.setErrorStream(err); }
+        @Override public void setExitCallback(ExitCallback callback) { delegate.setExitCallback(callback); }
+
+        @Override
+        public void start(ChannelSession channel, Environment env) {
+            delays.schedule(() -> {
+                try {
+                    delegate.start(channel, env);
+                } catch (IOException e) {
+                    channel.close(true);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void destroy(ChannelSession channel) throws Exception {
+            delegate.destroy(channel);
+        }
+    }
+}
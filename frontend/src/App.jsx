@@ -169,11 +169,16 @@ export default function App() {
     }
   }
 
-  const fetchSnapshot = async () => {
+  // The backend serves its latest background capture; refresh waits for a new one.
+  const fetchSnapshot = async (refresh = false) => {
     setSnapshotLoading(true)
     setSnapshotError(null)
     try {
-      const url = selectedServerId ? `${API_BASE}/snapshot?serverId=${encodeURIComponent(selectedServerId)}` : `${API_BASE}/snapshot`
+      const params = new URLSearchParams()
+      if (selectedServerId) params.set('serverId', selectedServerId)
+      if (refresh) params.set('refresh', 'true')
+      const query = params.toString()
+      const url = query ? `${API_BASE}/snapshot?${query}` : `${API_BASE}/snapshot`
       const res = await fetch(url)
       const data = await safeJson(res)
       if (!res.ok) {
@@ -562,7 +567,7 @@ export default function App() {
       }
 
       setContainerActionFeedback(`Success: ${action} executed for ${target} (exit code ${result.exitCode}).`)
-      fetchSnapshot()
+      fetchSnapshot(true)
     } catch (err) {
       setContainerActionFeedback(`Failed to ${action} ${target}: ${err.message}`)
     } finally {
@@ -775,7 +780,12 @@ export default function App() {
                 <option value={180}>3 min</option>
               </select>
             </label>
-            <button type="button" className="refresh-btn" onClick={fetchSnapshot} disabled={snapshotLoading}>
+            {snapshot?.ageMs != null && (
+              <span className="load-text">
+                {Math.round(snapshot.ageMs / 1000)}s old{snapshot.stale ? ' (updating)' : ''}
+              </span>
+            )}
+            <button type="button" className="refresh-btn" onClick={() => fetchSnapshot(true)} disabled={snapshotLoading}>
               {snapshotLoading ? 'Refreshing…' : 'Refresh'}
             </button>
           </div>
@@ -887,6 +897,14 @@ export default function App() {
                         </div>
                       )
                     })()}
+                    {snapshot.linux.cpu && (() => {
+                      const cpu = snapshot.linux.cpu
+                      return (
+                        <p className="load-text">
+                          user {cpu.userPercent.toFixed(1)}% · system {cpu.systemPercent.toFixed(1)}% · iowait {cpu.iowaitPercent.toFixed(1)}% · steal {cpu.stealPercent.toFixed(1)}%
+                        </p>
+                      )
+                    })()}
                     {snapshot.linux.uptime?.uptimeString && (
                       <>
                         <p className="uptime-text mono">{snapshot.linux.uptime.uptimeString}</p>
@@ -923,6 +941,7 @@ export default function App() {
                       <span className="container-state">{c.state}</span>
                       {c.uptime && <span className="container-uptime" title="Container uptime">{c.uptime}</span>}
                       {c.restartCount > 0 && <span className="container-restarts" title="Restart count">{c.restartCount} restarts</span>}
+                      {c.recentDies > 0 && <span className="container-restarts" title="Exits in the last 10 minutes">{c.recentDies} exits / 10 min</span>}
                       <div className="container-actions">
                         <button
                           type="button"
@@ -1004,7 +1023,10 @@ export default function App() {
                   </p>
                 )}
                 {snapshot.nginx.responseCodeCounts && Object.keys(snapshot.nginx.responseCodeCounts).length > 0 && (
-                  <div className="nginx-codes">
+                  <div
+                    className="nginx-codes"
+                    title={snapshot.nginx.responseCodesSince ? `Requests since ${new Date(snapshot.nginx.responseCodesSince).toLocaleString()}` : undefined}
+                  >
                     {Object.entries(snapshot.nginx.responseCodeCounts)
                       .sort((a, b) => Number(a[0]) - Number(b[0]))
                       .map(([code, count]) => (